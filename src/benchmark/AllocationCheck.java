@@ -0,0 +1,229 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import physics.collision.AABB;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.collision.shapes.ShapeType;
+import physics.dataStorage.IDynamicStack;
+import physics.dynamics.Fixture;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.contacts.Contact;
+import physics.tools.Transform;
+import physics.tools.Vec;
+
+/**
+ * Checks that stepping a world and reading back the pose of every body
+ * allocates nothing once the world has warmed up. The scene is a walled pen
+ * full of crates and balls that never sleep, with a bullet fired through
+ * it so the time of impact code runs too. Counts the bytes the stepping thread
+ * allocates over several rounds of steps, and fails if any round allocated.
+ *
+ * The contact pools grow whenever the world reaches a new high of contacts of
+ * a kind, so they are filled up front with more contacts than the bodies can
+ * make. Other buffers grow with the number of contacts too, so the warm-up
+ * goes on until no kind of contact has reached a new high for a whole round
+ * of steps.
+ *
+ * Needs a JVM that can count the bytes a thread allocates, like HotSpot.
+ *
+ * Usage: AllocationCheck [bodies] [steps]
+ */
+public class AllocationCheck {
+
+	float dt = 1 / 60f;
+	int warmupSteps = 600;
+	int maxWarmupSteps = 20000;
+	int rounds = 5;
+	int contactsPerBody = 8;
+
+	private final Transform pose = new Transform();
+	private final Vec point = new Vec();
+	private final Vec velocity = new Vec();
+	private final Vec corner = new Vec(0.2f, 0.2f);
+	private final AABB aabb = new AABB();
+	private final int[] contactCounts = new int[ShapeType.TYPE_COUNT * ShapeType.TYPE_COUNT];
+	private final int[] contactHighs = new int[ShapeType.TYPE_COUNT * ShapeType.TYPE_COUNT];
+	private float checksum;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		if (!new AllocationCheck().run(bodies, steps)) {
+			System.exit(1);
+		}
+	}
+
+	public boolean run(int bodies, int steps) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("this JVM cannot count allocated bytes");
+			return false;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Pool world = createWorld(bodies);
+		reserveContacts(world.getPool().getPolyContactStack(), bodies * contactsPerBody);
+		reserveContacts(world.getPool().getCircleContactStack(), bodies * contactsPerBody);
+		reserveContacts(world.getPool().getPolyCircleContactStack(), bodies * contactsPerBody);
+		int warmup = 0;
+		int quiet = 0;
+		while (warmup < warmupSteps || quiet < steps) {
+			if (warmup == maxWarmupSteps) {
+				System.out.printf("FAILED: the contacts did not settle in %d steps%n", maxWarmupSteps);
+				return false;
+			}
+			step(world, warmup++);
+			quiet = newContactHigh(world) ? 0 : quiet + 1;
+		}
+		System.out.printf("warmed up for %d steps%n", warmup);
+
+		// What reading the counter costs by itself.
+		long overhead = threads.getCurrentThreadAllocatedBytes();
+		overhead = threads.getCurrentThreadAllocatedBytes() - overhead;
+
+		int allocatingRounds = 0;
+		for (int round = 0; round < rounds; round++) {
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < steps; i++) {
+				step(world, warmup + round * steps + i);
+			}
+			long allocated = threads.getCurrentThreadAllocatedBytes() - before - overhead;
+			System.out.printf("round %d: %d bytes over %d steps%n", round, allocated, steps);
+			if (allocated > 0) {
+				++allocatingRounds;
+			}
+		}
+
+		System.out.printf("%d bodies, %d contacts, checksum %f%n", world.getBodyCount(), world.getContactCount(),
+				checksum);
+		if (allocatingRounds > 0) {
+			System.out.println("FAILED: the steady state allocates");
+			return false;
+		}
+		System.out.println("ok");
+		return true;
+	}
+
+	private void step(Pool world, int step) {
+		world.step(dt, 8, 3);
+		for (RigidBody body = world.getBodyList(); body != null; body = body.getNext()) {
+			readBack(body);
+		}
+		if (step % 30 == 0) {
+			fire(world, step);
+		}
+	}
+
+	/**
+	 * Grow a contact pool to hold at least the given number of contacts.
+	 */
+	private void reserveContacts(IDynamicStack<Contact> stack, int count) {
+		Contact[] contacts = new Contact[count];
+		for (int i = 0; i < count; i++) {
+			contacts[i] = stack.pop();
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			stack.push(contacts[i]);
+		}
+	}
+
+	/**
+	 * Count the contacts of each kind, and tell whether any kind has more than
+	 * ever before.
+	 */
+	private boolean newContactHigh(Pool world) {
+		for (int i = 0; i < contactCounts.length; i++) {
+			contactCounts[i] = 0;
+		}
+		for (Contact c = world.getContactList(); c != null; c = c.getNext()) {
+			++contactCounts[c.getFixtureA().getType().intValue * ShapeType.TYPE_COUNT
+					+ c.getFixtureB().getType().intValue];
+		}
+		boolean high = false;
+		for (int i = 0; i < contactCounts.length; i++) {
+			if (contactCounts[i] > contactHighs[i]) {
+				contactHighs[i] = contactCounts[i];
+				high = true;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Everything a renderer or a game thread reads from a body every frame.
+	 */
+	private void readBack(RigidBody body) {
+		body.getTransformToOut(pose);
+		checksum += pose.position.x + pose.position.y + body.getAngle();
+		body.getWorldPointToOut(corner, point);
+		body.getLinearVelocityFromLocalPointToOut(corner, velocity);
+		checksum += point.x + velocity.y;
+		for (Fixture f = body.getFixtureList(); f != null; f = f.getNext()) {
+			f.computeAABB(aabb);
+			checksum += aabb.upperBound.x - aabb.lowerBound.x;
+		}
+	}
+
+	/**
+	 * Send the bullet of the world back to the left wall, fast.
+	 */
+	private void fire(Pool world, int step) {
+		for (RigidBody body = world.getBodyList(); body != null; body = body.getNext()) {
+			if (body.isBullet()) {
+				point.set(-8.0f, 2.0f + (step / 30) % 8);
+				body.setTransform(point, 0.0f);
+				velocity.set(80.0f, 0.0f);
+				body.setLinearVelocity(velocity);
+			}
+		}
+	}
+
+	private Pool createWorld(int bodies) {
+		// No sleeping so every step does the same amount of work.
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(10.0f, 0.5f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(0.0f, -0.5f);
+		world.createBody(wallDef).createFixture(floorShape, 0.0f);
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, 20.0f);
+		wallDef.position.set(-10.5f, 20.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(10.5f, 20.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.2f, 0.2f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.2f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.4f;
+
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set(-9.0f + (i % 40) * 0.45f, 0.3f + (i / 40) * 0.45f);
+			fixture.shape = i % 2 == 0 ? boxShape : ballShape;
+			world.createBody(def).createFixture(fixture);
+		}
+
+		RigidBodyInfo bulletDef = new RigidBodyInfo();
+		bulletDef.type = RigidBodyType.DYNAMIC;
+		bulletDef.bullet = true;
+		bulletDef.position.set(-8.0f, 2.0f);
+		fixture.shape = ballShape;
+		world.createBody(bulletDef).createFixture(fixture);
+		return world;
+	}
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import headless.CrateScene;
+import headless.FloodScene;
+import headless.Scene;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.broadphase.SpatialHash;
+import physics.dynamics.Pool;
+import physics.dynamics.StepProfile;
+
+/**
+ * Plays the flood and crate scenes from the start with their proxies in a
+ * {@link DynamicTree} and in a {@link SpatialHash}, with {@link Harness}, and
+ * compares the time spent finding new contacts and the whole run. The flood
+ * scene is a pile of equal balls, the case the hash is made for. The crate
+ * scene has a few big crates, so its hash gets bigger cells.
+ *
+ * Usage: BroadPhaseBenchmark [steps]
+ */
+public class BroadPhaseBenchmark {
+
+	/** a flood ball is 0.6 wide, 0.8 with the AABB extension */
+	float floodCellSize = 1.0f;
+
+	/** a crate is 4.6 wide */
+	float crateCellSize = 5.0f;
+
+	public static void main(String[] args) {
+		int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+		new BroadPhaseBenchmark().run(steps);
+	}
+
+	public void run(int steps) {
+		SceneRun[] runs = {
+				new SceneRun("flood, tree", steps) {
+					Scene createScene() {
+						return new FloodScene(new DynamicTree());
+					}
+				},
+				new SceneRun("flood, hash", steps) {
+					Scene createScene() {
+						return new FloodScene(new SpatialHash(floodCellSize));
+					}
+				},
+				new SceneRun("crate, tree", steps) {
+					Scene createScene() {
+						return new CrateScene(new DynamicTree());
+					}
+				},
+				new SceneRun("crate, hash", steps) {
+					Scene createScene() {
+						return new CrateScene(new SpatialHash(crateCellSize));
+					}
+				} };
+
+		// A run is a whole scene, so a couple of warmup runs and a few measured runs.
+		Harness harness = new Harness();
+		harness.setIterations(2, 0, 3, 0);
+		Harness.printHeader();
+		for (SceneRun run : runs) {
+			harness.run(run);
+			run.print();
+		}
+	}
+
+	/**
+	 * Creates the scene before every run, and keeps the step profile of the
+	 * last run.
+	 */
+	private abstract class SceneRun extends Harness.Benchmark {
+		final int steps;
+		final StepProfile total = new StepProfile();
+		Scene scene;
+
+		SceneRun(String name, int steps) {
+			super(name + " (" + steps + " steps)", true);
+			this.steps = steps;
+		}
+
+		abstract Scene createScene();
+
+		@Override
+		public void prepare() {
+			total.setZero();
+			scene = createScene();
+			scene.create();
+			scene.getWorld().setStepProfiling(true);
+			scene.getWorld().setStepProfileListener(new StepProfile.Listener() {
+				public void stepProfiled(Pool world, StepProfile profile) {
+					total.add(profile);
+				}
+			});
+		}
+
+		@Override
+		public int run() {
+			for (int i = 0; i < steps; i++) {
+				scene.play(i);
+				scene.step();
+			}
+			return scene.getWorld().getContactCount();
+		}
+
+		void print() {
+			double ms = 1e-6 / steps;
+			System.out.printf("  %.3f ms/step, new contacts %.3f ms/step, %d proxies moved/step, "
+					+ "%d pairs/step, %d contacts at the end%n", total.stepNanos * ms,
+					total.findNewContactsNanos * ms, total.proxiesMoved / steps, total.pairsFound / steps,
+					scene.getWorld().getContactCount());
+		}
+	}
+}
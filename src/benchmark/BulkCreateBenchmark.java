@@ -0,0 +1,190 @@
+package benchmark;
+
+import java.util.ArrayList;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.broadphase.SweepAndPrune;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Loads a level of rows of floors stacked with crates and balls, then resets
+ * it the way the puzzle frontends do: every crate and ball is destroyed and
+ * created again, the floors stay. Compares creating the bodies one at a time
+ * with creating them between {@link Pool#beginBulkCreate()} and
+ * {@link Pool#endBulkCreate()}, which builds the tree in one pass, with
+ * {@link Harness}. Each stage of a load and a reset is measured on its own,
+ * the first step after a load or reset too, which finds the pairs of all the
+ * new proxies, and the tree left after a reset is measured by its area ratio.
+ * The same again with the proxies in a {@link SweepAndPrune}, which sorts its
+ * axes once for a bulk creation.
+ *
+ * Usage: BulkCreateBenchmark [bodies]
+ */
+public class BulkCreateBenchmark {
+
+	static final int LOAD = 0;
+	static final int LOAD_STEP = 1;
+	static final int DESTROY = 2;
+	static final int CREATE = 3;
+	static final int RESET_STEP = 4;
+	static final String[] STAGES = { "load", "first step after load", "reset: destroy", "reset: create",
+			"first step after reset" };
+
+	float dt = 1 / 60f;
+	int rows = 20;
+	float rowHeight = 4.0f;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		new BulkCreateBenchmark().run(bodies);
+	}
+
+	public void run(int bodyCount) {
+		// Every operation needs a level of its own, so a couple of warmup
+		// operations and a few measured ones.
+		Harness harness = new Harness();
+		harness.setIterations(2, 0, 5, 0);
+		Harness.printHeader();
+		for (int config = 0; config < 4; config++) {
+			boolean sap = config >= 2;
+			boolean bulk = config % 2 == 1;
+			LevelStage stage = null;
+			for (int i = LOAD; i <= RESET_STEP; i++) {
+				stage = new LevelStage(i, sap, bulk, bodyCount);
+				harness.run(stage);
+			}
+			if (!sap) {
+				System.out.printf("  area ratio %.1f after a reset%n", stage.strategy.getAreaRatio());
+			}
+		}
+	}
+
+	/**
+	 * Loads or resets a level up to one stage before every operation, and
+	 * runs that stage.
+	 */
+	private class LevelStage extends Harness.Benchmark {
+		final int stage;
+		final boolean sap;
+		final boolean bulk;
+		final int bodyCount;
+		final ArrayList<RigidBody> bodies = new ArrayList<RigidBody>();
+		BroadPhaseStrategy strategy;
+		Pool world;
+
+		LevelStage(int stage, boolean sap, boolean bulk, int bodyCount) {
+			super((sap ? "sap" : "tree") + (bulk ? ", bulk, " : ", one at a time, ") + STAGES[stage], true);
+			this.stage = stage;
+			this.sap = sap;
+			this.bulk = bulk;
+			this.bodyCount = bodyCount;
+		}
+
+		@Override
+		public void prepare() {
+			strategy = sap ? new SweepAndPrune() : new DynamicTree();
+			world = new Pool(new Vec(0.0f, -9.8f), true, strategy);
+			bodies.clear();
+			if (stage > LOAD) {
+				createLevel(world, bodies, bodyCount, bulk);
+			}
+			if (stage > LOAD_STEP) {
+				world.step(dt, 8, 3);
+			}
+			if (stage > DESTROY) {
+				destroyBodies();
+			}
+			if (stage > CREATE) {
+				createBodies(world, bodies, bodyCount, bulk);
+			}
+			// The levels leave a lot behind.
+			System.gc();
+		}
+
+		@Override
+		public int run() {
+			switch (stage) {
+				case LOAD:
+					createLevel(world, bodies, bodyCount, bulk);
+					break;
+				case DESTROY:
+					destroyBodies();
+					break;
+				case CREATE:
+					createBodies(world, bodies, bodyCount, bulk);
+					break;
+				default:
+					world.step(dt, 8, 3);
+					break;
+			}
+			return world.getBodyCount();
+		}
+
+		private void destroyBodies() {
+			for (RigidBody body : bodies) {
+				world.destroyBody(body);
+			}
+			bodies.clear();
+		}
+	}
+
+	private void createLevel(Pool world, ArrayList<RigidBody> bodies, int bodyCount, boolean bulk) {
+		if (bulk) {
+			world.beginBulkCreate();
+		}
+		float width = columns(bodyCount) * 1.0f;
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width / 2 + 1.0f, 0.25f);
+		for (int row = 0; row < rows; row++) {
+			RigidBodyInfo floorDef = new RigidBodyInfo();
+			floorDef.position.set(width / 2, row * rowHeight);
+			world.createBody(floorDef).createFixture(floorShape, 0.0f);
+		}
+		if (bulk) {
+			world.endBulkCreate();
+		}
+		createBodies(world, bodies, bodyCount, bulk);
+	}
+
+	private void createBodies(Pool world, ArrayList<RigidBody> bodies, int bodyCount, boolean bulk) {
+		if (bulk) {
+			world.beginBulkCreate();
+		}
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.4f, 0.4f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.4f;
+
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.6f;
+
+		int columns = columns(bodyCount);
+		RigidBodyInfo def = new RigidBodyInfo();
+		def.type = RigidBodyType.DYNAMIC;
+		for (int i = 0; i < bodyCount; i++) {
+			int row = i / columns % rows;
+			int layer = i / (columns * rows);
+			def.position.set(i % columns + 0.5f, row * rowHeight + 0.7f + layer * 0.85f);
+			fixture.shape = i % 3 == 0 ? ballShape : crateShape;
+			RigidBody body = world.createBody(def);
+			body.createFixture(fixture);
+			bodies.add(body);
+		}
+		if (bulk) {
+			world.endBulkCreate();
+		}
+	}
+
+	private int columns(int bodyCount) {
+		return Math.max(1, bodyCount / rows);
+	}
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Compares the serial contact solver against the colored one on a single huge
+ * island, with {@link Harness}: a wall of crates like frontend.demoCrate, with
+ * the columns touching so every crate is in the same island. Solving islands
+ * in parallel does nothing here. Also checks that the colored solver ends up
+ * with the exact same bodies on one thread as on all of them.
+ *
+ * Usage: ColoredSolverBenchmark [columns] [rows] [threads]
+ */
+public class ColoredSolverBenchmark {
+
+	int warmupSteps = 120;
+
+	public static void main(String[] args) {
+		int columns = args.length > 0 ? Integer.parseInt(args[0]) : 70;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		new ColoredSolverBenchmark().run(columns, rows, threads);
+	}
+
+	public void run(int columns, int rows, int threads) {
+		ArrayList<RigidBody> serialBodies = new ArrayList<RigidBody>();
+		ArrayList<RigidBody> singleBodies = new ArrayList<RigidBody>();
+		ArrayList<RigidBody> coloredBodies = new ArrayList<RigidBody>();
+		Pool serial = createWorld(columns, rows, serialBodies);
+		Pool single = createWorld(columns, rows, singleBodies);
+		Pool colored = createWorld(columns, rows, coloredBodies);
+		serial.setBodyStateStore(true);
+		ForkJoinPool singlePool = new ForkJoinPool(1);
+		ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+		single.setParallelContactSolver(singlePool);
+		colored.setParallelContactSolver(forkJoinPool);
+
+		StepBenchmark serialStep = new StepBenchmark("Pool.step (serial)", serial);
+		StepBenchmark singleStep = new StepBenchmark("Pool.step (colored, 1 thread)", single);
+		StepBenchmark coloredStep = new StepBenchmark("Pool.step (colored, " + threads + " threads)", colored);
+		for (StepBenchmark step : new StepBenchmark[] { serialStep, singleStep, coloredStep }) {
+			step.stepTo(warmupSteps);
+		}
+
+		System.out.printf("%d x %d crates, %d contacts%n", columns, rows, serial.getContactCount());
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(serialStep);
+		harness.run(singleStep);
+		harness.run(coloredStep);
+
+		int steps = Math.max(singleStep.steps, coloredStep.steps);
+		singleStep.stepTo(steps);
+		coloredStep.stepTo(steps);
+		singlePool.shutdown();
+		forkJoinPool.shutdown();
+		System.out.printf("bodies differing between 1 and %d threads after %d steps: %d%n", threads, steps,
+				StepBenchmark.countMismatches(singleBodies, coloredBodies));
+	}
+
+	private Pool createWorld(int columns, int rows, ArrayList<RigidBody> bodies) {
+		// No sleeping so every step does the same amount of work.
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		float size = 0.4f;
+		float width = columns * 2 * size;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width / 2 + 1.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(size, size);
+		FixtureDef crateFixture = new FixtureDef();
+		crateFixture.shape = crateShape;
+		crateFixture.density = 1.0f;
+		crateFixture.friction = 0.6f;
+
+		// Columns just touching side by side, so the wall is one island.
+		for (int i = 0; i < columns; i++) {
+			float x = -width / 2 + size + i * 2 * size;
+			for (int j = 0; j < rows; j++) {
+				RigidBodyInfo crateDef = new RigidBodyInfo();
+				crateDef.type = RigidBodyType.DYNAMIC;
+				crateDef.position.set(x, size + j * 2 * size);
+				RigidBody crate = world.createBody(crateDef);
+				crate.createFixture(crateFixture);
+				bodies.add(crate);
+			}
+		}
+		return world;
+	}
+}
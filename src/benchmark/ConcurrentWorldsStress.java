@@ -0,0 +1,173 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import physics.collision.CollisionStatistics;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Steps several worlds at the same time, one per thread, and checks that each
+ * one ends up bit for bit where it ends up when the worlds are stepped one
+ * after the other. Any solver scratch state or statistics shared between
+ * worlds shows up as a mismatch. Every world gets a different seed, and fast
+ * bullets so the time of impact code runs too. The world and collision
+ * statistics have to match as well.
+ *
+ * Usage: ConcurrentWorldsStress [worlds] [bodies] [steps]
+ */
+public class ConcurrentWorldsStress {
+
+	float dt = 1 / 60f;
+
+	public static void main(String[] args) throws Exception {
+		int worlds = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int bodies = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		int steps = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+		if (!new ConcurrentWorldsStress().run(worlds, bodies, steps)) {
+			System.exit(1);
+		}
+	}
+
+	public boolean run(int worlds, final int bodies, final int steps) throws Exception {
+		long[] serial = new long[worlds];
+		long start = System.nanoTime();
+		for (int i = 0; i < worlds; i++) {
+			serial[i] = simulate(i, bodies, steps);
+		}
+		double serialMs = (System.nanoTime() - start) / 1e6;
+
+		ExecutorService executor = Executors.newFixedThreadPool(worlds);
+		long[] concurrent = new long[worlds];
+		start = System.nanoTime();
+		try {
+			ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+			for (int i = 0; i < worlds; i++) {
+				final int seed = i;
+				futures.add(executor.submit(new Callable<Long>() {
+					public Long call() {
+						return simulate(seed, bodies, steps);
+					}
+				}));
+			}
+			for (int i = 0; i < worlds; i++) {
+				concurrent[i] = futures.get(i).get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		double concurrentMs = (System.nanoTime() - start) / 1e6;
+
+		int mismatches = 0;
+		for (int i = 0; i < worlds; i++) {
+			if (serial[i] != concurrent[i]) {
+				System.out.printf("world %d differs: %016x serial, %016x concurrent%n", i, serial[i], concurrent[i]);
+				mismatches++;
+			}
+		}
+
+		System.out.printf("%d worlds, %d bodies, %d steps%n", worlds, bodies, steps);
+		System.out.printf("serial:     %.1f ms%n", serialMs);
+		System.out.printf("concurrent: %.1f ms%n", concurrentMs);
+		System.out.printf("worlds differing from serial: %d%n", mismatches);
+		return mismatches == 0;
+	}
+
+	/**
+	 * Builds and steps one world, and hashes the bits of every body's transform
+	 * and velocity along with the collision statistics.
+	 */
+	private long simulate(int seed, int bodies, int steps) {
+		ArrayList<RigidBody> list = new ArrayList<RigidBody>();
+		Pool world = createWorld(seed, bodies, list);
+		for (int i = 0; i < steps; i++) {
+			world.step(dt, 8, 3);
+		}
+
+		long hash = 17;
+		for (RigidBody body : list) {
+			hash = mix(hash, Float.floatToIntBits(body.getPosition().x));
+			hash = mix(hash, Float.floatToIntBits(body.getPosition().y));
+			hash = mix(hash, Float.floatToIntBits(body.getAngle()));
+			hash = mix(hash, Float.floatToIntBits(body.getLinearVelocity().x));
+			hash = mix(hash, Float.floatToIntBits(body.getLinearVelocity().y));
+			hash = mix(hash, Float.floatToIntBits(body.getAngularVelocity()));
+			hash = mix(hash, body.isAwake() ? 1 : 0);
+		}
+
+		CollisionStatistics statistics = new CollisionStatistics();
+		world.getStatistics(statistics);
+		hash = mix(hash, statistics.gjkCalls);
+		hash = mix(hash, statistics.gjkIters);
+		hash = mix(hash, statistics.gjkMaxIters);
+		hash = mix(hash, statistics.toiCalls);
+		hash = mix(hash, statistics.toiIters);
+		hash = mix(hash, statistics.toiMaxIters);
+		hash = mix(hash, statistics.toiRootIters);
+		hash = mix(hash, statistics.toiMaxRootIters);
+		return hash;
+	}
+
+	private static long mix(long hash, int value) {
+		return hash * 31 + value;
+	}
+
+	private Pool createWorld(int seed, int bodies, ArrayList<RigidBody> list) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true);
+
+		float width = (float) Math.sqrt(bodies) * 0.8f;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width + 1.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, width * 2.0f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(-width - 0.5f, width * 2.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(width + 0.5f, width * 2.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.3f, 0.3f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.3f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.4f;
+
+		Random random = new Random(seed);
+		int columns = Math.max(1, (int) (width / 0.7f));
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set(-width + 0.7f + (i % columns) * 1.4f, 0.7f + (i / columns) * 0.7f);
+			def.angle = random.nextFloat();
+			// every tenth body is a bullet thrown at the floor
+			if (i % 10 == 0) {
+				def.bullet = true;
+				def.linearVelocity.set((random.nextFloat() - 0.5f) * 20.0f, -60.0f);
+			}
+			fixture.shape = random.nextInt(3) == 0 ? ballShape : boxShape;
+			RigidBody body = world.createBody(def);
+			body.createFixture(fixture);
+			list.add(body);
+		}
+		return world;
+	}
+}
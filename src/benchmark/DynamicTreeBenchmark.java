@@ -0,0 +1,131 @@
+package benchmark;
+
+import java.util.Random;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.broadphase.DynamicTreeFlatNodes;
+import physics.tools.Vec;
+
+/**
+ * Compares query and moveProxy throughput of {@link DynamicTree} against
+ * {@link DynamicTreeFlatNodes}, with {@link Harness}. Proxies are small boxes
+ * spread over a square world that grows with the proxy count, so the density
+ * stays the same.
+ *
+ * Usage: DynamicTreeBenchmark [proxyCount...]
+ */
+public class DynamicTreeBenchmark {
+
+	int seed = 7;
+
+	public static void main(String[] args) {
+		int[] counts = { 1000, 10000, 100000 };
+		if (args.length > 0) {
+			counts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				counts[i] = Integer.parseInt(args[i]);
+			}
+		}
+		DynamicTreeBenchmark benchmark = new DynamicTreeBenchmark();
+		Harness harness = new Harness();
+		Harness.printHeader();
+		for (int count : counts) {
+			harness.run(benchmark.new Query("objects", new DynamicTree(), count));
+			harness.run(benchmark.new Query("flat", new DynamicTreeFlatNodes(), count));
+			harness.run(benchmark.new Move("objects", new DynamicTree(), count));
+			harness.run(benchmark.new Move("flat", new DynamicTreeFlatNodes(), count));
+		}
+	}
+
+	/**
+	 * A tree of small boxes spread over the world.
+	 */
+	private abstract class TreeBenchmark extends Harness.Benchmark {
+		final BroadPhaseStrategy tree;
+		final int proxyCount;
+		final Random random = new Random(seed);
+		final AABB aabb = new AABB();
+		float[] x, y;
+		int[] proxies;
+		int next;
+
+		TreeBenchmark(String name, BroadPhaseStrategy tree, int proxyCount) {
+			super(name + " (" + proxyCount + " proxies)");
+			this.tree = tree;
+			this.proxyCount = proxyCount;
+		}
+
+		@Override
+		public void setup() {
+			final float extent = (float) Math.sqrt(proxyCount) * 2.0f;
+			x = new float[proxyCount];
+			y = new float[proxyCount];
+			proxies = new int[proxyCount];
+			for (int i = 0; i < proxyCount; i++) {
+				x[i] = random.nextFloat() * extent;
+				y[i] = random.nextFloat() * extent;
+				setBox(aabb, x[i], y[i]);
+				proxies[i] = tree.createProxy(aabb, null);
+			}
+		}
+
+		/**
+		 * @return the index of the proxy the next operation is on
+		 */
+		int next() {
+			int i = next;
+			next = next + 1 < proxyCount ? next + 1 : 0;
+			return i;
+		}
+	}
+
+	private class Query extends TreeBenchmark implements TreeCallback {
+		int count;
+
+		Query(String name, BroadPhaseStrategy tree, int proxyCount) {
+			super("query, " + name, tree, proxyCount);
+		}
+
+		@Override
+		public int run() {
+			int i = next();
+			setBox(aabb, x[i], y[i]);
+			count = 0;
+			tree.query(this, aabb);
+			return count;
+		}
+
+		public boolean treeCallback(int proxyId) {
+			count++;
+			return true;
+		}
+	}
+
+	private class Move extends TreeBenchmark {
+		final Vec displacement = new Vec();
+
+		Move(String name, BroadPhaseStrategy tree, int proxyCount) {
+			super("moveProxy, " + name, tree, proxyCount);
+		}
+
+		@Override
+		public int run() {
+			// Move the proxy far enough to leave its fat AABB.
+			int i = next();
+			displacement.x = random.nextFloat() - 0.5f;
+			displacement.y = random.nextFloat() - 0.5f;
+			x[i] += displacement.x;
+			y[i] += displacement.y;
+			setBox(aabb, x[i], y[i]);
+			return tree.moveProxy(proxies[i], aabb, displacement) ? 1 : 0;
+		}
+	}
+
+	private static void setBox(AABB aabb, float x, float y) {
+		aabb.lowerBound.set(x - 0.5f, y - 0.5f);
+		aabb.upperBound.set(x + 0.5f, y + 0.5f);
+	}
+}
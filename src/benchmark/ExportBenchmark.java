@@ -0,0 +1,115 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Counts what the awake and dirty exports write while a pile of crates settles
+ * and falls asleep. Then compares reading back the pose of every body into a
+ * direct buffer one getter at a time against exporting them all in one call,
+ * with {@link Harness}, and checks that the export writes the same values as
+ * the getters.
+ *
+ * Usage: ExportBenchmark [bodies] [steps]
+ */
+public class ExportBenchmark {
+
+	float dt = 1 / 60f;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		new ExportBenchmark().run(bodies, steps);
+	}
+
+	public void run(int bodies, int steps) {
+		final Pool world = createWorld(bodies);
+		final FloatBuffer getters = createBuffer(3 * world.getBodyCount());
+		final FloatBuffer buffer = createBuffer(3 * world.getBodyCount());
+
+		long awakeWritten = 0;
+		long dirtyWritten = 0;
+		for (int i = 0; i < steps; i++) {
+			world.step(dt, 8, 3);
+			awakeWritten += world.exportTransforms(buffer, Pool.EXPORT_AWAKE);
+			dirtyWritten += world.exportTransforms(buffer, Pool.EXPORT_DIRTY);
+		}
+		System.out.printf("%d bodies, %d steps%n", world.getBodyCount(), steps);
+		System.out.printf("bodies written per step: awake %d, dirty %d%n", awakeWritten / steps,
+				dirtyWritten / steps);
+
+		Harness.Benchmark getterReadback = new Harness.Benchmark("readback (getters)") {
+			@Override
+			public int run() {
+				int index = 0;
+				for (RigidBody b = world.getBodyList(); b != null; b = b.getNext()) {
+					getters.put(index++, b.getPosition().x);
+					getters.put(index++, b.getPosition().y);
+					getters.put(index++, b.getAngle());
+				}
+				return index;
+			}
+		};
+		Harness.Benchmark exportReadback = new Harness.Benchmark("readback (Pool.exportTransforms)") {
+			@Override
+			public int run() {
+				return world.exportTransforms(buffer, 0);
+			}
+		};
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(getterReadback);
+		harness.run(exportReadback);
+
+		int mismatches = 0;
+		getterReadback.run();
+		exportReadback.run();
+		for (int i = 0; i < getters.capacity(); i++) {
+			if (Float.floatToIntBits(getters.get(i)) != Float.floatToIntBits(buffer.get(i))) {
+				mismatches++;
+			}
+		}
+		System.out.printf("floats differing from the getters: %d%n", mismatches);
+	}
+
+	private FloatBuffer createBuffer(int floats) {
+		return ByteBuffer.allocateDirect(4 * floats).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	private Pool createWorld(int bodies) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true);
+
+		int columns = (int) Math.sqrt(bodies) * 4;
+		float width = columns * 1.0f;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width / 2 + 5.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.4f, 0.4f);
+		FixtureDef fixture = new FixtureDef();
+		fixture.shape = crateShape;
+		fixture.density = 1.0f;
+		fixture.friction = 0.6f;
+
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set(-width / 2 + (i % columns) * 1.0f, 0.5f + (i / columns) * 0.85f);
+			world.createBody(def).createFixture(fixture);
+		}
+		return world;
+	}
+}
@@ -0,0 +1,110 @@
+package benchmark;
+
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.contacts.ContactEdge;
+import physics.tools.Vec;
+
+/**
+ * Steps a world where one long static ground touches thousands of balls.
+ * The balls roll fast enough to keep leaving their fat AABBs, so the
+ * broad-phase reports their ground pair again and again, and every report
+ * has to check whether the contact already exists. The ground is created
+ * after the balls, so it is the second body of each pair.
+ *
+ * The balls roll off the end of any ground sooner or later, so one
+ * {@link Harness} operation is a run of the given number of steps on a world
+ * created for it.
+ *
+ * Usage: GroundContactBenchmark [balls] [steps]
+ */
+public class GroundContactBenchmark {
+
+	float dt = 1 / 60f;
+	int warmupSteps = 60;
+
+	public static void main(String[] args) {
+		int balls = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		new GroundContactBenchmark().run(balls, steps);
+	}
+
+	public void run(int balls, int steps) {
+		Run run = new Run(balls, steps);
+		// A run is long, so a couple of warmup runs and a few measured runs.
+		Harness harness = new Harness();
+		harness.setIterations(2, 0, 3, 0);
+		Harness.printHeader();
+		harness.run(run);
+
+		int groundContacts = 0;
+		for (ContactEdge edge = run.ground.getContactList(); edge != null; edge = edge.next) {
+			groundContacts++;
+		}
+		System.out.printf("%d ground contacts at the end%n", groundContacts);
+	}
+
+	/**
+	 * Creates the world and takes the warmup steps before every run.
+	 */
+	private class Run extends Harness.Benchmark {
+		final int balls;
+		final int steps;
+		Pool world;
+		RigidBody ground;
+
+		Run(int balls, int steps) {
+			super("Pool.step x" + steps + " (" + balls + " balls)", true);
+			this.balls = balls;
+			this.steps = steps;
+		}
+
+		@Override
+		public void prepare() {
+			// No sleeping so the balls keep rolling.
+			world = new Pool(new Vec(0.0f, -9.8f), false);
+
+			Circle ballShape = new Circle();
+			ballShape.m_radius = 0.3f;
+			FixtureDef ballFixture = new FixtureDef();
+			ballFixture.shape = ballShape;
+			ballFixture.density = 1.0f;
+			ballFixture.friction = 0.0f;
+
+			for (int i = 0; i < balls; i++) {
+				RigidBodyInfo ballDef = new RigidBodyInfo();
+				ballDef.type = RigidBodyType.DYNAMIC;
+				ballDef.position.set(i * 1.0f, 0.3f);
+				ballDef.linearVelocity.set(8.0f, 0.0f);
+				RigidBody ball = world.createBody(ballDef);
+				ball.createFixture(ballFixture);
+			}
+
+			// Long enough that no ball rolls off the end.
+			float length = balls * 1.0f + 8.0f * dt * (warmupSteps + steps) + 10.0f;
+			Polygon groundShape = new Polygon();
+			groundShape.setAsBox(length, 0.5f);
+			RigidBodyInfo groundDef = new RigidBodyInfo();
+			groundDef.position.set(0.0f, -0.5f);
+			ground = world.createBody(groundDef);
+			ground.createFixture(groundShape, 0.0f);
+
+			for (int i = 0; i < warmupSteps; i++) {
+				world.step(dt, 8, 3);
+			}
+		}
+
+		@Override
+		public int run() {
+			for (int i = 0; i < steps; i++) {
+				world.step(dt, 8, 3);
+			}
+			return world.getContactCount();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * A small stand-in for JMH, which this project has no build to pull in. Runs
+ * each benchmark on the calling thread for a few timed warmup iterations and
+ * then a few timed measurement iterations. It reports the average time per
+ * operation with its spread over the iterations, and the bytes allocated per
+ * operation and the collections during measurement, like JMH's gc profiler.
+ * The bytes are summed over all live threads, so what the workers of a
+ * parallel mode allocate counts too. A thread that ends during an iteration
+ * takes its bytes with it.
+ *
+ * Every operation returns a value that is folded into a sink, so the JIT can
+ * not drop the work.
+ */
+public class Harness {
+
+	/**
+	 * One benchmark. {@link #setup()} runs once before the first iteration.
+	 * A benchmark made with {@code prepareEach} also runs {@link #prepare()}
+	 * before every operation, outside the timing, like a JMH setup at
+	 * invocation level. Each operation is then timed on its own, so this is
+	 * for operations that take well over a microsecond, like building or
+	 * tearing down a world.
+	 */
+	public static abstract class Benchmark {
+		final String name;
+		final boolean prepareEach;
+
+		public Benchmark(String name) {
+			this(name, false);
+		}
+
+		public Benchmark(String name, boolean prepareEach) {
+			this.name = name;
+			this.prepareEach = prepareEach;
+		}
+
+		public void setup() {
+		}
+
+		/**
+		 * Get ready for the next operation. Only called if the benchmark was
+		 * made with {@code prepareEach}.
+		 */
+		public void prepare() {
+		}
+
+		/**
+		 * Run the operation once.
+		 *
+		 * @return anything that depends on the work done.
+		 */
+		public abstract int run();
+	}
+
+	int warmupIterations = 5;
+	long warmupMillis = 200;
+	int measureIterations = 5;
+	long measureMillis = 500;
+
+	private volatile int sink;
+
+	// Time, bytes and collections of the operations in the last iteration.
+	private long iterationNanos;
+	private long iterationBytes;
+	private long iterationGcCount;
+	private long iterationGcMillis;
+
+	// What reading the allocated bytes of all threads allocates by itself.
+	private long allocationOverhead;
+
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	public Harness() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+		else {
+			threadBean = null;
+		}
+	}
+
+	public void setIterations(int warmupIterations, long warmupMillis, int measureIterations, long measureMillis) {
+		this.warmupIterations = warmupIterations;
+		this.warmupMillis = warmupMillis;
+		this.measureIterations = measureIterations;
+		this.measureMillis = measureMillis;
+	}
+
+	public static void printHeader() {
+		System.out.printf("%-44s %14s %10s %12s %9s %8s%n", "benchmark", "ns/op", "+-", "B/op", "gc.count", "gc.ms");
+	}
+
+	/**
+	 * Set up, warm up and measure the benchmark, and print one result line.
+	 */
+	public void run(Benchmark benchmark) {
+		benchmark.setup();
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(benchmark, warmupMillis);
+		}
+
+		// After the warmup, so the workers of a parallel mode are running.
+		measureAllocationOverhead();
+		final double[] nanosPerOp = new double[measureIterations];
+		long ops = 0;
+		long allocated = 0;
+		long gcCount = 0;
+		long gcTime = 0;
+		for (int i = 0; i < measureIterations; i++) {
+			final long iterationOps = iteration(benchmark, measureMillis);
+			nanosPerOp[i] = (double) iterationNanos / iterationOps;
+			ops += iterationOps;
+			allocated += iterationBytes;
+			gcCount += iterationGcCount;
+			gcTime += iterationGcMillis;
+		}
+
+		double mean = 0;
+		for (double value : nanosPerOp) {
+			mean += value;
+		}
+		mean /= measureIterations;
+		double variance = 0;
+		for (double value : nanosPerOp) {
+			variance += (value - mean) * (value - mean);
+		}
+		final double deviation = measureIterations > 1 ? Math.sqrt(variance / (measureIterations - 1)) : 0;
+
+		final String bytesPerOp = threadBean != null ? String.format("%.1f", (double) allocated / ops) : "n/a";
+		System.out.printf("%-44s %14.1f %10.1f %12s %9d %8d%n", benchmark.name, mean, deviation, bytesPerOp, gcCount,
+				gcTime);
+	}
+
+	/**
+	 * Run the operation in batches until the time is up. Batches grow while
+	 * they take less than a millisecond, so fast operations are not dominated
+	 * by reading the clock and slow ones do not overshoot the iteration time.
+	 * Runs at least one batch.
+	 *
+	 * @return the number of operations run.
+	 */
+	private long iteration(Benchmark benchmark, long millis) {
+		if (benchmark.prepareEach) {
+			return preparedIteration(benchmark, millis);
+		}
+		final long gcCountBefore = gcCount();
+		final long gcTimeBefore = gcMillis();
+		final long allocatedBefore = allocatedBytes();
+		final long start = System.nanoTime();
+		final long end = start + millis * 1000000L;
+		long ops = 0;
+		int batch = 1;
+		int result = 0;
+		long now = start;
+		do {
+			final long batchStart = now;
+			for (int i = 0; i < batch; i++) {
+				result += benchmark.run();
+			}
+			ops += batch;
+			now = System.nanoTime();
+			if (now - batchStart < 1000000L && batch < 65536) {
+				batch <<= 1;
+			}
+		} while (now < end);
+		iterationNanos = now - start;
+		iterationBytes = allocatedBytes() - allocatedBefore - allocationOverhead;
+		iterationGcCount = gcCount() - gcCountBefore;
+		iterationGcMillis = gcMillis() - gcTimeBefore;
+		sink += result;
+		return ops;
+	}
+
+	/**
+	 * Prepare and run the operation one at a time until the time is up, and
+	 * count only what the operations take, collections included. Runs at
+	 * least one.
+	 *
+	 * @return the number of operations run.
+	 */
+	private long preparedIteration(Benchmark benchmark, long millis) {
+		final long end = System.nanoTime() + millis * 1000000L;
+		long ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		long collections = 0;
+		long gcTime = 0;
+		int result = 0;
+		do {
+			benchmark.prepare();
+			final long gcCountBefore = gcCount();
+			final long gcTimeBefore = gcMillis();
+			final long allocatedBefore = allocatedBytes();
+			final long start = System.nanoTime();
+			result += benchmark.run();
+			nanos += System.nanoTime() - start;
+			bytes += allocatedBytes() - allocatedBefore - allocationOverhead;
+			collections += gcCount() - gcCountBefore;
+			gcTime += gcMillis() - gcTimeBefore;
+			++ops;
+		} while (System.nanoTime() < end);
+		iterationNanos = nanos;
+		iterationBytes = bytes;
+		iterationGcCount = collections;
+		iterationGcMillis = gcTime;
+		sink += result;
+		return ops;
+	}
+
+	/**
+	 * @return the bytes allocated so far by all live threads
+	 */
+	private long allocatedBytes() {
+		if (threadBean == null) {
+			return 0;
+		}
+		long total = 0;
+		for (long bytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+			// -1 for a thread that ended after the ids were taken.
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Find what reading the allocated bytes allocates by itself, with the
+	 * threads there are now.
+	 */
+	private void measureAllocationOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			final long before = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - before);
+		}
+		allocationOverhead = overhead;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.ArrayList;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Compares solving islands one by one against solving them on a fork-join
+ * pool, with {@link Harness}. The scene is many separate crate stacks, each on
+ * its own floor, so every stack is its own island. Also checks that both
+ * worlds end up with the exact same body positions.
+ *
+ * Usage: IslandSolveBenchmark [stacks] [stackHeight]
+ */
+public class IslandSolveBenchmark {
+
+	int warmupSteps = 120;
+
+	public static void main(String[] args) {
+		int stacks = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		new IslandSolveBenchmark().run(stacks, height);
+	}
+
+	public void run(int stacks, int height) {
+		ArrayList<RigidBody> serialBodies = new ArrayList<RigidBody>();
+		ArrayList<RigidBody> parallelBodies = new ArrayList<RigidBody>();
+		Pool serial = createWorld(stacks, height, serialBodies);
+		Pool parallel = createWorld(stacks, height, parallelBodies);
+		parallel.setParallelIslands(true);
+
+		StepBenchmark serialStep = new StepBenchmark("Pool.step (serial islands)", serial);
+		StepBenchmark parallelStep = new StepBenchmark("Pool.step (parallel islands)", parallel);
+		serialStep.stepTo(warmupSteps);
+		parallelStep.stepTo(warmupSteps);
+
+		System.out.printf("%d stacks x %d crates%n", stacks, height);
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(serialStep);
+		harness.run(parallelStep);
+
+		int steps = Math.max(serialStep.steps, parallelStep.steps);
+		serialStep.stepTo(steps);
+		parallelStep.stepTo(steps);
+		System.out.printf("bodies differing from serial after %d steps: %d%n", steps,
+				StepBenchmark.countMismatches(serialBodies, parallelBodies));
+	}
+
+	private Pool createWorld(int stacks, int height, ArrayList<RigidBody> bodies) {
+		// No sleeping so every step does the same amount of work.
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(1.0f, 0.25f);
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.4f, 0.4f);
+
+		FixtureDef floorFixture = new FixtureDef();
+		floorFixture.shape = floorShape;
+		FixtureDef crateFixture = new FixtureDef();
+		crateFixture.shape = crateShape;
+		crateFixture.density = 1.0f;
+		crateFixture.friction = 0.6f;
+
+		for (int s = 0; s < stacks; s++) {
+			float x = s * 4.0f;
+
+			RigidBodyInfo floorDef = new RigidBodyInfo();
+			floorDef.type = RigidBodyType.STATIC;
+			floorDef.position.set(x, 0.0f);
+			world.createBody(floorDef).createFixture(floorFixture);
+
+			for (int i = 0; i < height; i++) {
+				RigidBodyInfo crateDef = new RigidBodyInfo();
+				crateDef.type = RigidBodyType.DYNAMIC;
+				crateDef.position.set(x + 0.01f * i, 0.66f + 0.82f * i);
+				RigidBody crate = world.createBody(crateDef);
+				crate.createFixture(crateFixture);
+				bodies.add(crate);
+			}
+		}
+		return world;
+	}
+}
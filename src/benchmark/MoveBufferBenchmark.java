@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.util.ArrayList;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Destroys every body of a world at once, the way a level is torn down, while
+ * the proxies of the bodies are still in the move buffer of the broad-phase:
+ * right after the bodies were created one at a time, and in bulk. Destroying
+ * a proxy takes it out of the move buffer, so this shows what that costs as
+ * the number of bodies grows. Destroying them after a step, with the move
+ * buffer empty, is measured for comparison. Measured with {@link Harness}.
+ *
+ * Usage: MoveBufferBenchmark [bodies]
+ */
+public class MoveBufferBenchmark {
+
+	static final String[] CASES = { "after creating", "after bulk creating", "after a step" };
+
+	float dt = 1 / 60f;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		new MoveBufferBenchmark().run(bodies);
+	}
+
+	public void run(int bodies) {
+		// Every operation needs a world of its own, so a couple of warmup
+		// operations and a few measured ones.
+		Harness harness = new Harness();
+		harness.setIterations(2, 0, 5, 0);
+		Harness.printHeader();
+		for (int count = bodies / 10; count <= bodies; count *= 10) {
+			for (int i = 0; i < CASES.length; i++) {
+				harness.run(new DestroyAll(i, count));
+			}
+		}
+	}
+
+	/**
+	 * Creates a world before every operation, and destroys all its bodies.
+	 */
+	private class DestroyAll extends Harness.Benchmark {
+		final int when;
+		final int bodyCount;
+		final ArrayList<RigidBody> bodies = new ArrayList<RigidBody>();
+		Pool world;
+
+		DestroyAll(int when, int bodyCount) {
+			super("destroy " + bodyCount + " bodies " + CASES[when], true);
+			this.when = when;
+			this.bodyCount = bodyCount;
+		}
+
+		@Override
+		public void prepare() {
+			bodies.clear();
+			world = createWorld(bodies, bodyCount, when == 1);
+			if (when == 2) {
+				world.step(dt, 8, 3);
+			}
+		}
+
+		@Override
+		public int run() {
+			for (RigidBody body : bodies) {
+				world.destroyBody(body);
+			}
+			return world.getBodyCount();
+		}
+	}
+
+	/**
+	 * Bodies in a grid with room between them, so they have no contacts to
+	 * destroy.
+	 */
+	private Pool createWorld(ArrayList<RigidBody> bodies, int bodyCount, boolean bulk) {
+		Pool world = new Pool(new Vec(0.0f, 0.0f), true);
+		if (bulk) {
+			world.beginBulkCreate();
+		}
+		Polygon shape = new Polygon();
+		shape.setAsBox(0.4f, 0.4f);
+		FixtureDef fixture = new FixtureDef();
+		fixture.shape = shape;
+		fixture.density = 1.0f;
+
+		int columns = (int) Math.ceil(Math.sqrt(bodyCount));
+		RigidBodyInfo def = new RigidBodyInfo();
+		def.type = RigidBodyType.DYNAMIC;
+		for (int i = 0; i < bodyCount; i++) {
+			def.position.set(i % columns * 2.0f, i / columns * 2.0f);
+			RigidBody body = world.createBody(def);
+			body.createFixture(fixture);
+			bodies.add(body);
+		}
+		if (bulk) {
+			world.endBulkCreate();
+		}
+		return world;
+	}
+}
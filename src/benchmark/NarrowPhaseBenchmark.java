@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Compares evaluating contact manifolds on the stepping thread against
+ * evaluating them on a fork-join pool, with {@link Harness}. The scene is a
+ * big pile of boxes and balls in a bin, which keeps a lot of polygon contacts
+ * awake. Also checks that both worlds end up with the exact same body
+ * positions.
+ *
+ * Usage: NarrowPhaseBenchmark [bodies]
+ */
+public class NarrowPhaseBenchmark {
+
+	int warmupSteps = 120;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+		new NarrowPhaseBenchmark().run(bodies);
+	}
+
+	public void run(int bodies) {
+		ArrayList<RigidBody> serialBodies = new ArrayList<RigidBody>();
+		ArrayList<RigidBody> parallelBodies = new ArrayList<RigidBody>();
+		Pool serial = createWorld(bodies, serialBodies);
+		Pool parallel = createWorld(bodies, parallelBodies);
+		parallel.setParallelNarrowPhase(true);
+
+		StepBenchmark serialStep = new StepBenchmark("Pool.step (serial narrow phase)", serial);
+		StepBenchmark parallelStep = new StepBenchmark("Pool.step (parallel narrow phase)", parallel);
+		serialStep.stepTo(warmupSteps);
+		parallelStep.stepTo(warmupSteps);
+
+		System.out.printf("%d bodies%n", bodies);
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(serialStep);
+		harness.run(parallelStep);
+
+		int steps = Math.max(serialStep.steps, parallelStep.steps);
+		serialStep.stepTo(steps);
+		parallelStep.stepTo(steps);
+		System.out.printf("bodies differing from serial after %d steps: %d%n", steps,
+				StepBenchmark.countMismatches(serialBodies, parallelBodies));
+	}
+
+	private Pool createWorld(int bodies, ArrayList<RigidBody> list) {
+		// No sleeping so every step does the same amount of work.
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		float width = (float) Math.sqrt(bodies) * 0.8f;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width + 1.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, width * 2.0f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(-width - 0.5f, width * 2.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(width + 0.5f, width * 2.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.3f, 0.3f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.3f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.4f;
+
+		Random random = new Random(3);
+		int columns = (int) (width / 0.7f);
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set(-width + 0.7f + (i % columns) * 1.4f, 0.7f + (i / columns) * 0.7f);
+			def.angle = random.nextFloat();
+			fixture.shape = i % 3 == 0 ? ballShape : boxShape;
+			RigidBody body = world.createBody(def);
+			body.createFixture(fixture);
+			list.add(body);
+		}
+		return world;
+	}
+}
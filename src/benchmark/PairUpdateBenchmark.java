@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.Random;
+
+import physics.collision.AABB;
+import physics.collision.PairCallback;
+import physics.collision.broadphase.BroadPhase;
+import physics.tools.Vec;
+
+/**
+ * Measures BroadPhase.updatePairs under heavy churn, with {@link Harness}. The
+ * scene is a flood of balls packed into a container, like frontend.demoFlood
+ * after a while, and every ball is jostled far enough before each update to
+ * leave its fat AABB. That puts every proxy in the move buffer and reports
+ * each touching pair twice, so the pair sort and dedup do as much work as
+ * they ever do. The jostling is not timed.
+ *
+ * Usage: PairUpdateBenchmark [balls]
+ */
+public class PairUpdateBenchmark {
+
+	float radius = 0.3f;
+
+	public static void main(String[] args) {
+		int balls = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		new PairUpdateBenchmark().run(balls);
+	}
+
+	public void run(int balls) {
+		UpdatePairs updatePairs = new UpdatePairs(balls);
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(updatePairs);
+		System.out.printf("%d balls, %d unique pairs in the last update%n", balls, updatePairs.count);
+	}
+
+	private class UpdatePairs extends Harness.Benchmark implements PairCallback {
+		final int balls;
+		final BroadPhase broadPhase = new BroadPhase();
+		final Random random = new Random(11);
+		final AABB aabb = new AABB();
+		final Vec displacement = new Vec();
+		int columns;
+		float spacing;
+		float[] x, y;
+		int[] proxies;
+		int count;
+
+		UpdatePairs(int balls) {
+			super("BroadPhase.updatePairs (" + balls + " balls, all moved)", true);
+			this.balls = balls;
+		}
+
+		@Override
+		public void setup() {
+			// Pack the balls on a grid in a tall container, slightly overlapping.
+			columns = (int) Math.sqrt(balls);
+			spacing = 2.0f * radius * 0.95f;
+			x = new float[balls];
+			y = new float[balls];
+			proxies = new int[balls];
+			for (int i = 0; i < balls; i++) {
+				x[i] = (i % columns) * spacing;
+				y[i] = (i / columns) * spacing;
+				setBall(aabb, x[i], y[i]);
+				proxies[i] = broadPhase.createProxy(aabb, null);
+			}
+			broadPhase.updatePairs(this);
+		}
+
+		@Override
+		public void prepare() {
+			for (int i = 0; i < balls; i++) {
+				// Jostle around the rest position so the density stays the same.
+				displacement.x = (i % columns) * spacing + (random.nextFloat() - 0.5f) * radius - x[i];
+				displacement.y = (i / columns) * spacing + (random.nextFloat() - 0.5f) * radius - y[i];
+				x[i] += displacement.x;
+				y[i] += displacement.y;
+				setBall(aabb, x[i], y[i]);
+				broadPhase.moveProxy(proxies[i], aabb, displacement);
+			}
+		}
+
+		@Override
+		public int run() {
+			count = 0;
+			broadPhase.updatePairs(this);
+			return count;
+		}
+
+		public void addPair(Object userDataA, Object userDataB) {
+			count++;
+		}
+	}
+
+	private void setBall(AABB aabb, float x, float y) {
+		aabb.lowerBound.set(x - radius, y - radius);
+		aabb.upperBound.set(x + radius, y + radius);
+	}
+}
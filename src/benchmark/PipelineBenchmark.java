@@ -0,0 +1,498 @@
+package benchmark;
+
+import java.util.Random;
+
+import physics.collision.AABB;
+import physics.collision.Collision;
+import physics.collision.Distance;
+import physics.collision.Distance.SimplexCache;
+import physics.collision.DistanceInput;
+import physics.collision.DistanceOutput;
+import physics.collision.Manifold;
+import physics.collision.PairCallback;
+import physics.collision.TimeOfImpact;
+import physics.collision.TimeOfImpact.TOIInput;
+import physics.collision.TimeOfImpact.TOIOutput;
+import physics.collision.TreeCallback;
+import physics.collision.broadphase.BroadPhase;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dataStorage.DefaultWorldPool;
+import physics.dynamics.BodyStateStore;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.contacts.Contact;
+import physics.dynamics.contacts.ContactSolver;
+import physics.tools.Transform;
+import physics.tools.Vec;
+
+/**
+ * Benchmarks each stage of the physics pipeline on its own, with
+ * {@link Harness}. The tree and broad phase stages run on a flood of balls
+ * packed into a container, like frontend.demoFlood after a while. The contact
+ * solver and the full step run on a settled pile of crates and balls, like
+ * frontend.demoCrate with many more bodies. The shape tests run on pairs of
+ * overlapping shapes.
+ *
+ * Run this before and after a change to see what it did to each stage. Pass a
+ * filter to run only the benchmarks whose names contain it.
+ *
+ * Usage: PipelineBenchmark [filter] [balls] [pileBodies]
+ */
+public class PipelineBenchmark {
+
+	float dt = 1 / 60f;
+	int warmupSteps = 600;
+	float radius = 0.3f;
+
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int pileBodies = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		new PipelineBenchmark().run(filter, balls, pileBodies);
+	}
+
+	public void run(String filter, int balls, int pileBodies) {
+		Harness.Benchmark[] benchmarks = {
+				new TreeQuery(balls),
+				new TreeMoveProxy(balls),
+				new UpdatePairs(balls),
+				new CollidePolygons(),
+				new CollideCircles(),
+				new CollidePolygonAndCircle(),
+				new DistanceBenchmark(),
+				new TimeOfImpactBenchmark(),
+				new SolveVelocityConstraints(pileBodies),
+				new SolveVelocityIterations(pileBodies),
+				new PoolStep(pileBodies) };
+
+		Harness harness = new Harness();
+		Harness.printHeader();
+		for (Harness.Benchmark benchmark : benchmarks) {
+			if (benchmark.name.contains(filter)) {
+				harness.run(benchmark);
+			}
+		}
+	}
+
+	/**
+	 * Lay the balls out on a grid, slightly overlapping, and jitter them a
+	 * little so the tree is not perfectly regular.
+	 */
+	private void packBalls(float[] x, float[] y) {
+		Random random = new Random(7);
+		int columns = (int) Math.sqrt(x.length);
+		float spacing = 2.0f * radius * 0.95f;
+		for (int i = 0; i < x.length; i++) {
+			x[i] = (i % columns) * spacing + (random.nextFloat() - 0.5f) * 0.1f * radius;
+			y[i] = (i / columns) * spacing + (random.nextFloat() - 0.5f) * 0.1f * radius;
+		}
+	}
+
+	private void setBall(AABB aabb, float x, float y) {
+		aabb.lowerBound.set(x - radius, y - radius);
+		aabb.upperBound.set(x + radius, y + radius);
+	}
+
+	/**
+	 * A world with a pile of crates and balls in a bin, stepped until it has
+	 * settled. Sleeping is off so every step does the same work.
+	 */
+	private Pool createPile(int bodies) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		int columns = 20;
+		float width = columns * 1.0f;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width, 0.5f);
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, bodies / columns + 10.0f);
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.type = RigidBodyType.STATIC;
+		groundDef.position.set(0.0f, -0.5f);
+		world.createBody(groundDef).createFixture(floorShape, 0.0f);
+		groundDef.position.set(-width / 2 - 0.5f, 0.0f);
+		world.createBody(groundDef).createFixture(wallShape, 0.0f);
+		groundDef.position.set(width / 2 + 0.5f, 0.0f);
+		world.createBody(groundDef).createFixture(wallShape, 0.0f);
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.4f, 0.4f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.4f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.6f;
+
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo bodyDef = new RigidBodyInfo();
+			bodyDef.type = RigidBodyType.DYNAMIC;
+			bodyDef.position.set(-width / 2 + 0.5f + (i % columns) * 1.0f + 0.05f * (i / columns % 2),
+					0.5f + (i / columns) * 1.0f);
+			fixture.shape = i % 3 == 2 ? ballShape : crateShape;
+			world.createBody(bodyDef).createFixture(fixture);
+		}
+
+		for (int i = 0; i < warmupSteps; i++) {
+			world.step(dt, 8, 3);
+		}
+		return world;
+	}
+
+	private class TreeQuery extends Harness.Benchmark {
+		final int balls;
+		final DynamicTree tree = new DynamicTree();
+		final AABB aabb = new AABB();
+		float[] x, y;
+		int next;
+
+		final TreeCallback callback = new TreeCallback() {
+			public boolean treeCallback(int proxyId) {
+				found++;
+				return true;
+			}
+		};
+		int found;
+
+		TreeQuery(int balls) {
+			super("DynamicTree.query (" + balls + " balls)");
+			this.balls = balls;
+		}
+
+		@Override
+		public void setup() {
+			x = new float[balls];
+			y = new float[balls];
+			packBalls(x, y);
+			for (int i = 0; i < balls; i++) {
+				setBall(aabb, x[i], y[i]);
+				tree.createProxy(aabb, null);
+			}
+		}
+
+		@Override
+		public int run() {
+			setBall(aabb, x[next], y[next]);
+			next = next + 1 < balls ? next + 1 : 0;
+			found = 0;
+			tree.query(callback, aabb);
+			return found;
+		}
+	}
+
+	private class TreeMoveProxy extends Harness.Benchmark {
+		final int balls;
+		final DynamicTree tree = new DynamicTree();
+		final AABB aabb = new AABB();
+		final Vec displacement = new Vec();
+		float[] x, y;
+		int[] proxies;
+		boolean[] shifted;
+		int next;
+
+		TreeMoveProxy(int balls) {
+			super("DynamicTree.moveProxy (" + balls + " balls)");
+			this.balls = balls;
+		}
+
+		@Override
+		public void setup() {
+			x = new float[balls];
+			y = new float[balls];
+			proxies = new int[balls];
+			shifted = new boolean[balls];
+			packBalls(x, y);
+			for (int i = 0; i < balls; i++) {
+				setBall(aabb, x[i], y[i]);
+				proxies[i] = tree.createProxy(aabb, null);
+			}
+		}
+
+		@Override
+		public int run() {
+			// Move each ball back and forth far enough to leave its fat AABB,
+			// so every call removes and reinserts a leaf.
+			int i = next;
+			next = next + 1 < balls ? next + 1 : 0;
+			displacement.x = shifted[i] ? -0.5f : 0.5f;
+			displacement.y = 0;
+			shifted[i] = !shifted[i];
+			setBall(aabb, x[i] + (shifted[i] ? 0.5f : 0), y[i]);
+			return tree.moveProxy(proxies[i], aabb, displacement) ? 1 : 0;
+		}
+	}
+
+	private class UpdatePairs extends Harness.Benchmark {
+		final int balls;
+		final BroadPhase broadPhase = new BroadPhase();
+		int[] proxies;
+
+		final PairCallback callback = new PairCallback() {
+			public void addPair(Object userDataA, Object userDataB) {
+				pairs++;
+			}
+		};
+		int pairs;
+
+		UpdatePairs(int balls) {
+			super("BroadPhase.updatePairs (1/8 moved)");
+			this.balls = balls;
+		}
+
+		@Override
+		public void setup() {
+			float[] x = new float[balls];
+			float[] y = new float[balls];
+			AABB aabb = new AABB();
+			proxies = new int[balls];
+			packBalls(x, y);
+			for (int i = 0; i < balls; i++) {
+				setBall(aabb, x[i], y[i]);
+				proxies[i] = broadPhase.createProxy(aabb, null);
+			}
+			broadPhase.updatePairs(callback);
+		}
+
+		@Override
+		public int run() {
+			for (int i = 0; i < balls; i += 8) {
+				broadPhase.touchProxy(proxies[i]);
+			}
+			pairs = 0;
+			broadPhase.updatePairs(callback);
+			return pairs;
+		}
+	}
+
+	private static class CollidePolygons extends Harness.Benchmark {
+		final Collision collision = new Collision(new DefaultWorldPool(100, 10));
+		final Manifold manifold = new Manifold();
+		final Polygon polyA = new Polygon();
+		final Polygon polyB = new Polygon();
+		final Transform xfA = new Transform();
+		final Transform xfB = new Transform();
+
+		CollidePolygons() {
+			super("Collision.collidePolygons");
+			polyA.setAsBox(0.5f, 0.5f);
+			polyB.setAsBox(0.5f, 0.5f);
+			xfA.set(new Vec(0.0f, 0.0f), 0.0f);
+			xfB.set(new Vec(0.3f, 0.9f), 0.2f);
+		}
+
+		@Override
+		public int run() {
+			collision.collidePolygons(manifold, polyA, xfA, polyB, xfB);
+			return manifold.pointCount;
+		}
+	}
+
+	private static class CollideCircles extends Harness.Benchmark {
+		final Collision collision = new Collision(new DefaultWorldPool(100, 10));
+		final Manifold manifold = new Manifold();
+		final Circle circleA = new Circle();
+		final Circle circleB = new Circle();
+		final Transform xfA = new Transform();
+		final Transform xfB = new Transform();
+
+		CollideCircles() {
+			super("Collision.collideCircles");
+			circleA.m_radius = 0.5f;
+			circleB.m_radius = 0.5f;
+			xfA.set(new Vec(0.0f, 0.0f), 0.0f);
+			xfB.set(new Vec(0.3f, 0.9f), 0.0f);
+		}
+
+		@Override
+		public int run() {
+			collision.collideCircles(manifold, circleA, xfA, circleB, xfB);
+			return manifold.pointCount;
+		}
+	}
+
+	private static class CollidePolygonAndCircle extends Harness.Benchmark {
+		final Collision collision = new Collision(new DefaultWorldPool(100, 10));
+		final Manifold manifold = new Manifold();
+		final Polygon polygon = new Polygon();
+		final Circle circle = new Circle();
+		final Transform xfA = new Transform();
+		final Transform xfB = new Transform();
+
+		CollidePolygonAndCircle() {
+			super("Collision.collidePolygonAndCircle");
+			polygon.setAsBox(0.5f, 0.5f);
+			circle.m_radius = 0.5f;
+			xfA.set(new Vec(0.0f, 0.0f), 0.2f);
+			xfB.set(new Vec(0.3f, 0.9f), 0.0f);
+		}
+
+		@Override
+		public int run() {
+			collision.collidePolygonAndCircle(manifold, polygon, xfA, circle, xfB);
+			return manifold.pointCount;
+		}
+	}
+
+	private static class DistanceBenchmark extends Harness.Benchmark {
+		final Distance distance = new Distance();
+		final DistanceInput input = new DistanceInput();
+		final DistanceOutput output = new DistanceOutput();
+		final SimplexCache cache = new SimplexCache();
+
+		DistanceBenchmark() {
+			super("Distance.distance");
+			Polygon box = new Polygon();
+			box.setAsBox(0.5f, 0.5f);
+			input.proxyA.set(box);
+			input.proxyB.set(box);
+			input.transformA.set(new Vec(0.0f, 0.0f), 0.0f);
+			input.transformB.set(new Vec(1.5f, 0.8f), 0.4f);
+			input.useRadii = true;
+		}
+
+		@Override
+		public int run() {
+			// Start cold each time, like the first call for a new pair.
+			cache.count = 0;
+			distance.distance(output, cache, input);
+			return output.iterations;
+		}
+	}
+
+	private static class TimeOfImpactBenchmark extends Harness.Benchmark {
+		final TimeOfImpact toi = new TimeOfImpact(new DefaultWorldPool(100, 10));
+		final TOIInput input = new TOIInput();
+		final TOIOutput output = new TOIOutput();
+
+		TimeOfImpactBenchmark() {
+			super("TimeOfImpact.timeOfImpact");
+			Polygon box = new Polygon();
+			box.setAsBox(0.5f, 0.5f);
+			input.proxyA.set(box);
+			input.proxyB.set(box);
+
+			// A still box, and a spinning box that flies right through it.
+			input.sweepA.localCenter.setZero();
+			input.sweepA.c0.set(0.0f, 0.0f);
+			input.sweepA.c.set(0.0f, 0.0f);
+			input.sweepA.a0 = 0.0f;
+			input.sweepA.a = 0.0f;
+			input.sweepB.localCenter.setZero();
+			input.sweepB.c0.set(-4.0f, 0.3f);
+			input.sweepB.c.set(4.0f, 0.3f);
+			input.sweepB.a0 = 0.0f;
+			input.sweepB.a = 1.0f;
+			input.tMax = 1.0f;
+		}
+
+		@Override
+		public int run() {
+			toi.timeOfImpact(output, input);
+			return Float.floatToIntBits(output.t);
+		}
+	}
+
+	private class SolveVelocityConstraints extends Harness.Benchmark {
+		final int bodies;
+		final ContactSolver solver = new ContactSolver();
+
+		SolveVelocityConstraints(int bodies) {
+			super("ContactSolver.solveVelocityConstraints");
+			this.bodies = bodies;
+		}
+
+		@Override
+		public void setup() {
+			Pool world = createPile(bodies);
+			Contact[] contacts = new Contact[world.getContactCount()];
+			int count = 0;
+			for (Contact c = world.getContactList(); c != null; c = c.getNext()) {
+				if (c.isTouching() && c.isEnabled()) {
+					contacts[count++] = c;
+				}
+			}
+			solver.init(contacts, count, 1.0f);
+			System.out.printf("  (%d bodies, %d contact constraints)%n", bodies, solver.m_constraintCount);
+		}
+
+		@Override
+		public int run() {
+			solver.solveVelocityConstraints();
+			return solver.m_constraintCount;
+		}
+	}
+
+	/**
+	 * All the velocity iterations of a step over packed body state, solved one
+	 * constraint at a time in island order. The bodies are put in one island by
+	 * hand.
+	 */
+	private class SolveVelocityIterations extends Harness.Benchmark {
+		final int bodies;
+		final ContactSolver solver = new ContactSolver();
+		final BodyStateStore store = new BodyStateStore();
+		final int iterations = 8;
+
+		SolveVelocityIterations(int bodies) {
+			super("ContactSolver.solveVelocityConstraints x8");
+			this.bodies = bodies;
+		}
+
+		@Override
+		public void setup() {
+			Pool world = createPile(bodies);
+			RigidBody[] islandBodies = new RigidBody[world.getBodyCount()];
+			int bodyCount = 0;
+			for (RigidBody b = world.getBodyList(); b != null; b = b.getNext()) {
+				if (b.getType() != RigidBodyType.STATIC) {
+					b.m_islandIndex = bodyCount;
+					islandBodies[bodyCount++] = b;
+				}
+			}
+			Contact[] contacts = new Contact[world.getContactCount()];
+			int count = 0;
+			for (Contact c = world.getContactList(); c != null; c = c.getNext()) {
+				if (c.isTouching() && c.isEnabled()) {
+					contacts[count++] = c;
+				}
+			}
+			store.load(islandBodies, bodyCount, 2 * count);
+			solver.init(contacts, count, 1.0f, store);
+			System.out.printf("  (%d constraints)%n", solver.m_constraintCount);
+		}
+
+		@Override
+		public int run() {
+			for (int i = 0; i < iterations; i++) {
+				solver.solveVelocityConstraints(store);
+			}
+			return solver.m_constraintCount;
+		}
+	}
+
+	private class PoolStep extends Harness.Benchmark {
+		final int bodies;
+		Pool world;
+
+		PoolStep(int bodies) {
+			super("Pool.step (" + bodies + " bodies)");
+			this.bodies = bodies;
+		}
+
+		@Override
+		public void setup() {
+			world = createPile(bodies);
+		}
+
+		@Override
+		public int run() {
+			world.step(dt, 8, 3);
+			return world.getContactCount();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package benchmark;
+
+import java.util.HashSet;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.Fixture;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.contacts.Contact;
+import physics.dynamics.contacts.ContactEdge;
+import physics.tools.Vec;
+
+/**
+ * Checks that changing a body to static and back keeps exactly one contact
+ * per pair of fixtures. The proxies of a body that becomes static or stops
+ * being static move between the trees of the broad-phase and get new ids, so
+ * its contacts have to be found again under the new ids. A box resting on the
+ * ground is changed to static and back, alone and with another box on it, and
+ * the ground is changed to kinematic and back, stepping in between. Then the
+ * box is destroyed and new boxes take over its proxy ids, which must still
+ * find their contacts with the ground.
+ *
+ * Usage: SetTypeCheck
+ */
+public class SetTypeCheck {
+
+	float dt = 1 / 60f;
+	int settleSteps = 60;
+
+	public static void main(String[] args) {
+		if (!new SetTypeCheck().run()) {
+			System.exit(1);
+		}
+	}
+
+	public boolean run() {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true);
+
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(10.0f, 0.5f);
+		RigidBody ground = world.createBody(new RigidBodyInfo());
+		ground.createFixture(groundShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.5f, 0.5f);
+		RigidBody box = createBox(world, boxShape, 0.0f);
+
+		boolean ok = settle(world, "box on the ground", 1);
+
+		box.setType(RigidBodyType.STATIC);
+		box.setType(RigidBodyType.DYNAMIC);
+		ok &= settle(world, "box static and back", 1);
+
+		box.setType(RigidBodyType.STATIC);
+		ok &= settle(world, "box static", 0);
+		box.setType(RigidBodyType.DYNAMIC);
+		ok &= settle(world, "box dynamic again", 1);
+
+		// A second box, which keeps its contact with the first while it is static.
+		RigidBody top = createBox(world, boxShape, 0.0f);
+		top.setTransform(new Vec(0.0f, 2.0f), 0.0f);
+		ok &= settle(world, "box on the box", 2);
+		box.setType(RigidBodyType.STATIC);
+		ok &= settle(world, "box below static", 1);
+		box.setType(RigidBodyType.DYNAMIC);
+		ok &= settle(world, "box below dynamic again", 2);
+
+		ground.setType(RigidBodyType.KINEMATIC);
+		ok &= settle(world, "ground kinematic", 2);
+		ground.setType(RigidBodyType.STATIC);
+		ok &= settle(world, "ground static again", 2);
+		world.destroyBody(top);
+
+		world.destroyBody(box);
+		for (int i = 0; i < 3; i++) {
+			createBox(world, boxShape, -3.0f + 3.0f * i);
+		}
+		ok &= settle(world, "new boxes on the ground", 3);
+
+		System.out.println(ok ? "ok" : "FAILED: setType lost or doubled contacts");
+		return ok;
+	}
+
+	private RigidBody createBox(Pool world, Polygon shape, float x) {
+		RigidBodyInfo def = new RigidBodyInfo();
+		def.type = RigidBodyType.DYNAMIC;
+		def.position.set(x, 1.0f);
+		RigidBody box = world.createBody(def);
+		box.createFixture(shape, 1.0f);
+		return box;
+	}
+
+	/**
+	 * Step for a while, then check there are as many contacts as expected,
+	 * one per fixture pair, each on the contact lists of both bodies.
+	 */
+	private boolean settle(Pool world, String name, int expected) {
+		for (int i = 0; i < settleSteps; i++) {
+			world.step(dt, 8, 3);
+		}
+
+		boolean ok = world.getContactCount() == expected;
+		HashSet<String> pairs = new HashSet<String>();
+		for (Contact c = world.getContactList(); c != null; c = c.getNext()) {
+			Fixture a = c.getFixtureA();
+			Fixture b = c.getFixtureB();
+			int hashA = System.identityHashCode(a);
+			int hashB = System.identityHashCode(b);
+			ok &= pairs.add(Math.min(hashA, hashB) + "/" + Math.max(hashA, hashB));
+			ok &= edgeCount(a.getBody(), c) == 1 && edgeCount(b.getBody(), c) == 1;
+		}
+		System.out.printf("%s: %d contacts, %d expected%n", name, world.getContactCount(), expected);
+		return ok;
+	}
+
+	private int edgeCount(RigidBody body, Contact contact) {
+		int count = 0;
+		for (ContactEdge ce = body.getContactList(); ce != null; ce = ce.next) {
+			if (ce.contact == contact) {
+				++count;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Steps a big world that is almost all asleep, with {@link Harness}: rows of
+ * crate stacks that have settled, and a few balls that never sleep bouncing
+ * around in a pen of their own. Compares finding the islands with a search
+ * every step against keeping them from step to step, together with the awake
+ * bodies and contacts.
+ *
+ * Usage: SleepingWorldBenchmark [stacks] [height]
+ */
+public class SleepingWorldBenchmark {
+
+	float dt = 1 / 60f;
+	int settleSteps = 600;
+	int awakeBalls = 20;
+
+	public static void main(String[] args) {
+		int stacks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		new SleepingWorldBenchmark().run(stacks, height);
+	}
+
+	public void run(int stacks, int height) {
+		Pool search = createWorld(stacks, height, false);
+		Pool persistent = createWorld(stacks, height, true);
+
+		System.out.printf("%d bodies, %d awake%n", search.getBodyCount(), countAwake(search));
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(new StepBenchmark("Pool.step (islands searched every step)", search));
+		harness.run(new StepBenchmark("Pool.step (persistent islands)", persistent));
+
+		System.out.printf("persistent islands: %d islands, %d awake, %d splits%n",
+				persistent.getIslandManager().getIslandCount(), persistent.getIslandManager().getAwakeIslandCount(),
+				persistent.getIslandManager().getSplitCount());
+		System.out.printf("awake sets: %d bodies, %d of %d contacts%n", persistent.getAwakeBodyCount(),
+				persistent.getAwakeContactCount(), persistent.getContactCount());
+	}
+
+	private int countAwake(Pool world) {
+		int awake = 0;
+		for (RigidBody b = world.getBodyList(); b != null; b = b.getNext()) {
+			if (b.getType() != RigidBodyType.STATIC && b.isAwake()) {
+				awake++;
+			}
+		}
+		return awake;
+	}
+
+	private Pool createWorld(int stacks, int height, boolean persistentIslands) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true);
+		world.setPersistentIslands(persistentIslands);
+
+		float spacing = 1.5f;
+		float width = stacks * spacing;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width / 2 + 20.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.4f, 0.4f);
+		FixtureDef crateFixture = new FixtureDef();
+		crateFixture.shape = crateShape;
+		crateFixture.density = 1.0f;
+		crateFixture.friction = 0.6f;
+
+		for (int i = 0; i < stacks; i++) {
+			float x = -width / 2 + i * spacing;
+			for (int j = 0; j < height; j++) {
+				RigidBodyInfo crateDef = new RigidBodyInfo();
+				crateDef.type = RigidBodyType.DYNAMIC;
+				crateDef.position.set(x, 0.4f + j * 0.8f);
+				world.createBody(crateDef).createFixture(crateFixture);
+			}
+		}
+
+		// A pen past the end of the stacks, with balls that never sleep.
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, 5.0f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(width / 2 + 2.0f, 5.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(width / 2 + 18.0f, 5.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.3f;
+		FixtureDef ballFixture = new FixtureDef();
+		ballFixture.shape = ballShape;
+		ballFixture.density = 1.0f;
+		ballFixture.restitution = 0.9f;
+		for (int i = 0; i < awakeBalls; i++) {
+			RigidBodyInfo ballDef = new RigidBodyInfo();
+			ballDef.type = RigidBodyType.DYNAMIC;
+			ballDef.allowSleep = false;
+			ballDef.position.set(width / 2 + 4.0f + (i % 10) * 1.2f, 2.0f + (i / 10) * 1.5f);
+			ballDef.linearVelocity.set((i % 3) - 1.0f, 5.0f);
+			world.createBody(ballDef).createFixture(ballFixture);
+		}
+
+		for (int i = 0; i < settleSteps; i++) {
+			world.step(dt, 8, 3);
+		}
+		return world;
+	}
+}
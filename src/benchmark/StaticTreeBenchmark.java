@@ -0,0 +1,139 @@
+package benchmark;
+
+import java.util.ArrayList;
+
+import headless.HeadlessRunner;
+import headless.Scene;
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.collision.broadphase.DynamicTree;
+import physics.dynamics.Fixture;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyType;
+
+/**
+ * Measures what the moving proxies of each demo scene pay to find their pairs
+ * with the static proxies in their own tree, against all proxies in one tree
+ * as before. Plays each scene for a while, then puts the fattened AABBs of its
+ * fixtures in one tree, static ones first as the scenes create them, and in a
+ * tree of moving proxies plus a static tree rebuilt from the top down. The
+ * moving proxies then query their AABBs in turn in the one tree, and in both
+ * trees of the split, with {@link Harness}.
+ *
+ * Usage: StaticTreeBenchmark [steps]
+ */
+public class StaticTreeBenchmark {
+
+	public static void main(String[] args) {
+		int steps = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		StaticTreeBenchmark benchmark = new StaticTreeBenchmark();
+		Harness harness = new Harness();
+		Harness.printHeader();
+		for (String name : HeadlessRunner.SCENES) {
+			benchmark.run(harness, HeadlessRunner.createScene(name), steps);
+		}
+	}
+
+	public void run(Harness harness, Scene scene, int steps) {
+		scene.create();
+		for (int i = 0; i < steps; i++) {
+			scene.play(i);
+			scene.step();
+		}
+
+		// The body list has the newest body first.
+		ArrayList<RigidBody> bodies = new ArrayList<RigidBody>();
+		for (RigidBody b = scene.getWorld().getBodyList(); b != null; b = b.getNext()) {
+			bodies.add(0, b);
+		}
+
+		DynamicTree combined = new DynamicTree();
+		DynamicTree moving = new DynamicTree();
+		DynamicTree statics = new DynamicTree();
+		ArrayList<AABB> queries = new ArrayList<AABB>();
+		int staticCount = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (RigidBody b : bodies) {
+				boolean isStatic = b.getType() == RigidBodyType.STATIC;
+				if (isStatic != (pass == 0)) {
+					continue;
+				}
+				for (Fixture f = b.getFixtureList(); f != null; f = f.getNext()) {
+					AABB aabb = new AABB();
+					f.computeAABB(aabb);
+					combined.createProxy(aabb, f);
+					if (isStatic) {
+						statics.createProxy(aabb, f);
+						++staticCount;
+					}
+					else {
+						// Query with the fattened AABB, like updatePairs.
+						queries.add(moving.getFatAABB(moving.createProxy(aabb, f)));
+					}
+				}
+			}
+		}
+		statics.rebuildTopDown();
+
+		String name = scene.getName() + " (" + queries.size() + " moving, " + staticCount + " static)";
+		if (queries.isEmpty()) {
+			System.out.println(name + ": nothing moves");
+			return;
+		}
+		Query one = new Query(name + ", one tree", combined, null, queries);
+		Query split = new Query(name + ", split", moving, statics, queries);
+		harness.run(one);
+		harness.run(split);
+		if (one.countAll() != split.countAll()) {
+			System.out.println("  found different proxies");
+		}
+	}
+
+	/**
+	 * Queries the AABB of the next moving proxy in a tree, and in the static
+	 * tree if there is one.
+	 */
+	private static class Query extends Harness.Benchmark implements TreeCallback {
+		final DynamicTree tree;
+		final DynamicTree staticTree;
+		final ArrayList<AABB> queries;
+		int next;
+		int count;
+
+		Query(String name, DynamicTree tree, DynamicTree staticTree, ArrayList<AABB> queries) {
+			super(name);
+			this.tree = tree;
+			this.staticTree = staticTree;
+			this.queries = queries;
+		}
+
+		@Override
+		public int run() {
+			AABB aabb = queries.get(next);
+			next = next + 1 < queries.size() ? next + 1 : 0;
+			count = 0;
+			tree.query(this, aabb);
+			if (staticTree != null) {
+				staticTree.query(this, aabb);
+			}
+			return count;
+		}
+
+		/**
+		 * @return the number of proxies all the queries find
+		 */
+		int countAll() {
+			int total = 0;
+			next = 0;
+			for (int i = 0; i < queries.size(); i++) {
+				total += run();
+			}
+			return total;
+		}
+
+		public boolean treeCallback(int proxyId) {
+			++count;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.List;
+
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+
+/**
+ * Steps a world once per operation, for {@link Harness}. Counts the steps, so
+ * worlds that should end up the same can be stepped to the same count once
+ * measured, and compared with {@link #countMismatches(List, List)}.
+ */
+public class StepBenchmark extends Harness.Benchmark {
+
+	float dt = 1 / 60f;
+
+	final Pool world;
+	int steps;
+
+	public StepBenchmark(String name, Pool world) {
+		super(name);
+		this.world = world;
+	}
+
+	/**
+	 * Called before every step.
+	 *
+	 * @param step
+	 *            the number of steps taken so far
+	 */
+	protected void beforeStep(int step) {
+	}
+
+	@Override
+	public int run() {
+		beforeStep(steps);
+		world.step(dt, 8, 3);
+		++steps;
+		return world.getContactCount();
+	}
+
+	/**
+	 * Step the world until it has taken the given number of steps.
+	 */
+	public void stepTo(int count) {
+		while (steps < count) {
+			run();
+		}
+	}
+
+	/**
+	 * @return the number of bodies whose position or angle differ in any bit
+	 *         between the two lists
+	 */
+	public static int countMismatches(List<RigidBody> bodiesA, List<RigidBody> bodiesB) {
+		int mismatches = 0;
+		for (int i = 0; i < bodiesA.size(); i++) {
+			RigidBody a = bodiesA.get(i);
+			RigidBody b = bodiesB.get(i);
+			if (Float.floatToIntBits(a.getPosition().x) != Float.floatToIntBits(b.getPosition().x)
+					|| Float.floatToIntBits(a.getPosition().y) != Float.floatToIntBits(b.getPosition().y)
+					|| Float.floatToIntBits(a.getAngle()) != Float.floatToIntBits(b.getAngle())) {
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+}
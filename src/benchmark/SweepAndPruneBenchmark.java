@@ -0,0 +1,318 @@
+package benchmark;
+
+import java.util.Arrays;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.broadphase.SweepAndPrune;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.StepProfile;
+import physics.tools.Vec;
+
+/**
+ * Plays a wide, shallow level like the puzzle levels, made longer: rows of
+ * floors with dominoes, crates and balls on them, where a ball knocks over
+ * the first domino of each row. Compares the time spent finding new contacts
+ * and the whole run with the proxies in a {@link DynamicTree} and in a
+ * {@link SweepAndPrune}, with {@link Harness}.
+ *
+ * Then steps the level once more with both structures side by side, and
+ * counts the moves where only one of them gave the proxy a new fattened AABB
+ * and the queries where a moved proxy found different pairs in the two.
+ *
+ * Usage: SweepAndPruneBenchmark [columns] [steps]
+ */
+public class SweepAndPruneBenchmark {
+
+	float dt = 1 / 60f;
+	int rows = 4;
+	float rowHeight = 6.0f;
+	float columnWidth = 2.0f;
+
+	public static void main(String[] args) {
+		int columns = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 900;
+		new SweepAndPruneBenchmark().run(columns, steps);
+	}
+
+	public void run(final int columns, int steps) {
+		LevelRun[] runs = {
+				new LevelRun("tree", steps) {
+					Pool createLevel() {
+						return createWorld(columns, new DynamicTree());
+					}
+				},
+				new LevelRun("sap", steps) {
+					Pool createLevel() {
+						return createWorld(columns, new SweepAndPrune());
+					}
+				} };
+
+		// A run is a whole level, so a couple of warmup runs and a few measured runs.
+		Harness harness = new Harness();
+		harness.setIterations(2, 0, 3, 0);
+		Harness.printHeader();
+		for (LevelRun run : runs) {
+			harness.run(run);
+			run.print();
+		}
+
+		ComparingStrategy both = new ComparingStrategy();
+		Pool world = createWorld(columns, both);
+		for (int i = 0; i < steps; i++) {
+			world.step(dt, 8, 3);
+		}
+		System.out.printf("side by side: %d moves and %d pair queries compared, %d moves and %d queries differ%n",
+				both.moves, both.queries, both.moveMismatches, both.queryMismatches);
+	}
+
+	/**
+	 * Creates the level before every run, and keeps the step profile of the
+	 * last run.
+	 */
+	private abstract class LevelRun extends Harness.Benchmark {
+		final int steps;
+		final StepProfile total = new StepProfile();
+		Pool world;
+
+		LevelRun(String name, int steps) {
+			super(name + " (" + steps + " steps)", true);
+			this.steps = steps;
+		}
+
+		abstract Pool createLevel();
+
+		@Override
+		public void prepare() {
+			total.setZero();
+			world = createLevel();
+			world.setStepProfiling(true);
+			world.setStepProfileListener(new StepProfile.Listener() {
+				public void stepProfiled(Pool world, StepProfile profile) {
+					total.add(profile);
+				}
+			});
+		}
+
+		@Override
+		public int run() {
+			for (int i = 0; i < steps; i++) {
+				world.step(dt, 8, 3);
+			}
+			return world.getContactCount();
+		}
+
+		void print() {
+			double ms = 1e-6 / steps;
+			System.out.printf("  %.3f ms/step, new contacts %.3f ms/step, %d proxies moved/step, "
+					+ "%d pairs/step, %d contacts at the end%n", total.stepNanos * ms,
+					total.findNewContactsNanos * ms, total.proxiesMoved / steps, total.pairsFound / steps,
+					world.getContactCount());
+		}
+	}
+
+	private Pool createWorld(int columns, BroadPhaseStrategy strategy) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true, strategy);
+		float width = columns * columnWidth;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(width / 2 + 2.0f, 0.25f);
+		Polygon dominoShape = new Polygon();
+		dominoShape.setAsBox(0.1f, 1.0f);
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(0.3f, 0.3f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.3f;
+
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.6f;
+
+		for (int row = 0; row < rows; row++) {
+			float floorY = row * rowHeight;
+			RigidBodyInfo floorDef = new RigidBodyInfo();
+			floorDef.position.set(width / 2, floorY);
+			world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+			for (int column = 0; column < columns; column++) {
+				RigidBodyInfo def = new RigidBodyInfo();
+				def.type = RigidBodyType.DYNAMIC;
+				float x = column * columnWidth + 1.0f;
+				def.position.set(x, floorY + 1.25f);
+				fixture.shape = dominoShape;
+				world.createBody(def).createFixture(fixture);
+
+				if (column % 3 == 1) {
+					def.position.set(x + 0.8f, floorY + 0.55f);
+					fixture.shape = column % 2 == 0 ? crateShape : ballShape;
+					world.createBody(def).createFixture(fixture);
+				}
+			}
+
+			// The ball that knocks over the first domino.
+			RigidBodyInfo ballDef = new RigidBodyInfo();
+			ballDef.type = RigidBodyType.DYNAMIC;
+			ballDef.position.set(0.2f, floorY + 1.8f);
+			fixture.shape = ballShape;
+			RigidBody ball = world.createBody(ballDef);
+			ball.createFixture(fixture);
+			ball.setLinearVelocity(new Vec(6.0f, 0.0f));
+		}
+		return world;
+	}
+
+	/**
+	 * Keeps every proxy in both a tree and a sweep and prune, answers with the
+	 * tree, and counts where the sweep and prune would have answered
+	 * differently.
+	 */
+	static class ComparingStrategy implements BroadPhaseStrategy, TreeCallback {
+
+		final DynamicTree tree = new DynamicTree();
+		final SweepAndPrune sap = new SweepAndPrune();
+		final AABB copy = new AABB();
+
+		/** sweep and prune proxy of each tree proxy, and the other way */
+		int[] sapIds = new int[16];
+		int[] treeIds = new int[16];
+
+		int[] found = new int[16];
+		int foundCount;
+		boolean foundFromSap;
+
+		int moves;
+		int moveMismatches;
+		int queries;
+		int queryMismatches;
+
+		public int createProxy(AABB aabb, Object userData) {
+			copy.set(aabb);
+			int treeId = tree.createProxy(aabb, userData);
+			int sapId = sap.createProxy(copy, userData);
+			sapIds = ensure(sapIds, treeId);
+			treeIds = ensure(treeIds, sapId);
+			sapIds[treeId] = sapId;
+			treeIds[sapId] = treeId;
+			return treeId;
+		}
+
+		public void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds) {
+			for (int i = 0; i < count; i++) {
+				proxyIds[i] = createProxy(aabbs[i], userData[i]);
+			}
+		}
+
+		public void destroyProxy(int proxyId) {
+			sap.destroyProxy(sapIds[proxyId]);
+			tree.destroyProxy(proxyId);
+		}
+
+		public boolean moveProxy(int proxyId, AABB aabb, Vec displacement) {
+			// The tree changes the AABB it is given.
+			copy.set(aabb);
+			boolean moved = tree.moveProxy(proxyId, aabb, displacement);
+			++moves;
+			if (sap.moveProxy(sapIds[proxyId], copy, displacement) != moved) {
+				++moveMismatches;
+			}
+			return moved;
+		}
+
+		public Object getUserData(int proxyId) {
+			return tree.getUserData(proxyId);
+		}
+
+		public void getFatAABB(int proxyId, AABB out) {
+			tree.getFatAABB(proxyId, out);
+		}
+
+		public boolean testOverlap(int proxyIdA, int proxyIdB) {
+			return tree.testOverlap(proxyIdA, proxyIdB);
+		}
+
+		public void query(TreeCallback callback, AABB aabb) {
+			tree.query(callback, aabb);
+		}
+
+		public void queryProxy(TreeCallback callback, int proxyId) {
+			foundCount = 0;
+			foundFromSap = true;
+			sap.queryProxy(this, sapIds[proxyId]);
+			int[] sapFound = Arrays.copyOf(found, foundCount);
+
+			foundCount = 0;
+			foundFromSap = false;
+			tree.queryProxy(this, proxyId);
+			int[] treeFound = Arrays.copyOf(found, foundCount);
+
+			++queries;
+			Arrays.sort(sapFound);
+			Arrays.sort(treeFound);
+			int self = Arrays.binarySearch(treeFound, proxyId);
+			if (self >= 0) {
+				int[] others = new int[treeFound.length - 1];
+				System.arraycopy(treeFound, 0, others, 0, self);
+				System.arraycopy(treeFound, self + 1, others, self, others.length - self);
+				treeFound = others;
+			}
+			if (Arrays.equals(sapFound, treeFound) == false) {
+				++queryMismatches;
+			}
+
+			for (int i = 0; i < treeFound.length; i++) {
+				if (callback.treeCallback(treeFound[i]) == false) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Collects tree ids, mapping the ones from the sweep and prune.
+		 */
+		public boolean treeCallback(int proxyId) {
+			found = ensure(found, foundCount);
+			found[foundCount++] = foundFromSap ? treeIds[proxyId] : proxyId;
+			return true;
+		}
+
+		public int computeHeight() {
+			return tree.computeHeight();
+		}
+
+		public int getHeight() {
+			return tree.getHeight();
+		}
+
+		public int getMaxBalance() {
+			return tree.getMaxBalance();
+		}
+
+		public float getAreaRatio() {
+			return tree.getAreaRatio();
+		}
+
+		public int getInsertionCount() {
+			return tree.getInsertionCount();
+		}
+
+		public void validate() {
+			tree.validate();
+			sap.validate();
+		}
+
+		private static int[] ensure(int[] array, int index) {
+			if (index < array.length) {
+				return array;
+			}
+			return Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics.collision.CollisionStatistics;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Compares finding the times of impact one body at a time against finding
+ * them on a fork-join pool first, with {@link Harness}. The scene is a walled
+ * arena full of small balls and boxes that keep getting launched fast at the
+ * walls, so most bodies go through the TOI pass every step. Also checks that
+ * both worlds end up with the exact same body positions.
+ *
+ * Usage: TOIBenchmark [bodies]
+ */
+public class TOIBenchmark {
+
+	int warmupSteps = 60;
+	float launchSpeed = 60.0f;
+
+	public static void main(String[] args) {
+		int bodies = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		new TOIBenchmark().run(bodies);
+	}
+
+	public void run(int bodies) {
+		ArrayList<RigidBody> serialBodies = new ArrayList<RigidBody>();
+		ArrayList<RigidBody> parallelBodies = new ArrayList<RigidBody>();
+		Pool serial = createWorld(bodies, serialBodies);
+		Pool parallel = createWorld(bodies, parallelBodies);
+		parallel.setParallelTOI(true);
+
+		StepBenchmark serialStep = new LaunchingStep("Pool.step (serial TOI)", serial, serialBodies);
+		StepBenchmark parallelStep = new LaunchingStep("Pool.step (parallel TOI)", parallel, parallelBodies);
+		serialStep.stepTo(warmupSteps);
+		parallelStep.stepTo(warmupSteps);
+
+		System.out.printf("%d bodies%n", bodies);
+		Harness harness = new Harness();
+		Harness.printHeader();
+		harness.run(serialStep);
+		harness.run(parallelStep);
+
+		int steps = Math.max(serialStep.steps, parallelStep.steps);
+		serialStep.stepTo(steps);
+		parallelStep.stepTo(steps);
+
+		CollisionStatistics statistics = new CollisionStatistics();
+		serial.getStatistics(statistics);
+		System.out.printf("%d TOI calls/step, %d culled%n", statistics.toiCalls / steps, statistics.toiCulled / steps);
+		System.out.printf("bodies differing from serial after %d steps: %d%n", steps,
+				StepBenchmark.countMismatches(serialBodies, parallelBodies));
+	}
+
+	/**
+	 * Launches the bodies before they are stepped.
+	 */
+	private class LaunchingStep extends StepBenchmark {
+		final ArrayList<RigidBody> bodies;
+
+		LaunchingStep(String name, Pool world, ArrayList<RigidBody> bodies) {
+			super(name, world);
+			this.bodies = bodies;
+		}
+
+		@Override
+		protected void beforeStep(int step) {
+			launch(bodies, step);
+		}
+	}
+
+	/**
+	 * Every second, send every body off fast in a direction of its own.
+	 */
+	private void launch(ArrayList<RigidBody> bodies, int step) {
+		if (step % 60 != 0) {
+			return;
+		}
+		Random random = new Random(step);
+		Vec velocity = new Vec();
+		for (RigidBody body : bodies) {
+			float angle = random.nextFloat() * 6.2831855f;
+			velocity.set((float) Math.cos(angle) * launchSpeed, (float) Math.sin(angle) * launchSpeed);
+			body.setLinearVelocity(velocity);
+		}
+	}
+
+	private Pool createWorld(int bodies, ArrayList<RigidBody> list) {
+		// No sleeping so every step does the same amount of work.
+		Pool world = new Pool(new Vec(0.0f, -9.8f), false);
+
+		float size = (float) Math.sqrt(bodies) * 1.2f;
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(size + 1.0f, 0.5f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(0.0f, -0.5f);
+		world.createBody(wallDef).createFixture(floorShape, 0.0f);
+		wallDef.position.set(0.0f, 2.0f * size + 0.5f);
+		world.createBody(wallDef).createFixture(floorShape, 0.0f);
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, size + 1.0f);
+		wallDef.position.set(-size - 0.5f, size);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(size + 0.5f, size);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.15f, 0.15f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.15f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.4f;
+		fixture.restitution = 0.8f;
+
+		Random random = new Random(3);
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set((random.nextFloat() * 2.0f - 1.0f) * (size - 1.0f),
+					1.0f + random.nextFloat() * (2.0f * size - 2.0f));
+			def.angle = random.nextFloat();
+			fixture.shape = i % 2 == 0 ? ballShape : boxShape;
+			RigidBody body = world.createBody(def);
+			body.createFixture(fixture);
+			list.add(body);
+		}
+		return world;
+	}
+}
@@ -0,0 +1,181 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import headless.FloodScene;
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.collision.broadphase.DynamicTree;
+import physics.dynamics.Fixture;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.StepProfile;
+
+/**
+ * Plays a long flood session with churn: a ball is added every step, and once
+ * there are enough balls the oldest one is destroyed every step. Prints the
+ * area ratio and height of the tree and the time spent finding new contacts,
+ * and measures querying the AABBs of the balls with {@link Harness}, once
+ * every window of steps.
+ *
+ * Then churns a tree directly: proxies that never move are destroyed and
+ * created again in a band that drifts across the world, the way a tree that
+ * is only ever inserted into loses its shape. Prints the same figures once
+ * every window of rounds.
+ *
+ * Both run once with the tree rebuilding itself when its area ratio grows, and
+ * once without, so the drift shows.
+ *
+ * Usage: TreeQualityBenchmark [steps] [balls] [proxies]
+ */
+public class TreeQualityBenchmark {
+
+	int windows = 4;
+	int churnRounds = 400;
+	float churnFraction = 0.05f;
+	int seed = 3;
+
+	public static void main(String[] args) {
+		int steps = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+		int proxies = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+		TreeQualityBenchmark benchmark = new TreeQualityBenchmark();
+		Harness.printHeader();
+		benchmark.run("flood, rebuilds", DynamicTree.DEFAULT_REBUILD_AREA_GROWTH, steps, balls);
+		benchmark.run("flood, no rebuilds", 0.0f, steps, balls);
+		benchmark.churn("churn, rebuilds", DynamicTree.DEFAULT_REBUILD_AREA_GROWTH, proxies);
+		benchmark.churn("churn, no rebuilds", 0.0f, proxies);
+	}
+
+	public void run(String name, float areaGrowth, int steps, int maxBalls) {
+		DynamicTree tree = new DynamicTree();
+		tree.setRebuildAreaGrowth(areaGrowth);
+		FloodScene scene = new FloodScene(tree);
+		scene.create();
+
+		final StepProfile total = new StepProfile();
+		Pool world = scene.getWorld();
+		world.setStepProfiling(true);
+		world.setStepProfileListener(new StepProfile.Listener() {
+			public void stepProfiled(Pool world, StepProfile profile) {
+				total.add(profile);
+			}
+		});
+
+		// The tree changes from window to window, so measure each one briefly.
+		Harness harness = new Harness();
+		harness.setIterations(2, 50, 3, 100);
+
+		System.out.println(name + ":");
+		int window = steps / windows;
+		ArrayList<RigidBody> balls = scene.getBalls();
+		for (int i = 0; i < steps; i++) {
+			scene.play(i);
+			scene.step();
+			if (balls.size() > maxBalls) {
+				world.destroyBody(balls.remove(0));
+			}
+
+			if ((i + 1) % window == 0) {
+				double ms = 1e-6 / window;
+				System.out.printf("  step %5d: area ratio %6.1f, height %2d, new contacts %.3f ms/step, "
+						+ "%d rebuilds%n", i + 1, tree.getAreaRatio(), tree.getHeight(),
+						total.findNewContactsNanos * ms, tree.getRebuildCount());
+				harness.run(new Query("  query (" + name + ", step " + (i + 1) + ")", tree, ballQueries(tree, balls)));
+				total.setZero();
+			}
+		}
+	}
+
+	public void churn(String name, float areaGrowth, int proxyCount) {
+		DynamicTree tree = new DynamicTree();
+		tree.setRebuildAreaGrowth(areaGrowth);
+		Random random = new Random(seed);
+		AABB aabb = new AABB();
+
+		// A band as wide as it is high to start with, drifting one width to the
+		// right over the whole run.
+		float height = (float) Math.sqrt(proxyCount) * 2.0f;
+		int[] proxies = new int[proxyCount];
+		for (int i = 0; i < proxyCount; i++) {
+			proxies[i] = tree.createProxy(randomBox(random, aabb, 0.0f, height), null);
+		}
+
+		Harness harness = new Harness();
+		harness.setIterations(2, 50, 3, 100);
+
+		System.out.println(name + ":");
+		int window = churnRounds / windows;
+		int churn = (int) (proxyCount * churnFraction);
+		for (int round = 0; round < churnRounds; round++) {
+			float offset = height * (round + 1) / churnRounds;
+			for (int i = 0; i < churn; i++) {
+				int index = random.nextInt(proxyCount);
+				tree.destroyProxy(proxies[index]);
+				proxies[index] = tree.createProxy(randomBox(random, aabb, offset, height), null);
+			}
+
+			if ((round + 1) % window == 0) {
+				ArrayList<AABB> queries = new ArrayList<AABB>();
+				for (int i = 0; i < proxyCount; i++) {
+					queries.add(tree.getFatAABB(proxies[i]));
+				}
+				System.out.printf("  round %4d: area ratio %6.1f, height %2d, %d rebuilds%n", round + 1,
+						tree.getAreaRatio(), tree.getHeight(), tree.getRebuildCount());
+				harness.run(new Query("  query (" + name + ", round " + (round + 1) + ")", tree, queries));
+			}
+		}
+	}
+
+	private AABB randomBox(Random random, AABB aabb, float offset, float height) {
+		float x = offset + random.nextFloat() * height;
+		float y = random.nextFloat() * height;
+		aabb.lowerBound.set(x, y);
+		aabb.upperBound.set(x + 0.5f, y + 0.5f);
+		return aabb;
+	}
+
+	/**
+	 * @return the fattened AABBs of the balls
+	 */
+	private ArrayList<AABB> ballQueries(DynamicTree tree, ArrayList<RigidBody> balls) {
+		ArrayList<AABB> queries = new ArrayList<AABB>();
+		for (RigidBody ball : balls) {
+			for (Fixture f = ball.getFixtureList(); f != null; f = f.getNext()) {
+				queries.add(tree.getFatAABB(f.m_proxyId));
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Queries the next of the AABBs in the tree.
+	 */
+	private static class Query extends Harness.Benchmark implements TreeCallback {
+		final DynamicTree tree;
+		final ArrayList<AABB> queries;
+		int next;
+		int count;
+
+		Query(String name, DynamicTree tree, ArrayList<AABB> queries) {
+			super(name);
+			this.tree = tree;
+			this.queries = queries;
+		}
+
+		@Override
+		public int run() {
+			AABB aabb = queries.get(next);
+			next = next + 1 < queries.size() ? next + 1 : 0;
+			count = 0;
+			tree.query(this, aabb);
+			return count;
+		}
+
+		public boolean treeCallback(int proxyId) {
+			++count;
+			return true;
+		}
+	}
+}
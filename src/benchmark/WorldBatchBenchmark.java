@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.Random;
+
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.dynamics.WorldBatchRunner;
+import physics.tools.Vec;
+
+/**
+ * Settles a batch of small randomized puzzle piles with a WorldBatchRunner,
+ * the way level variations are validated. Each world is stepped until all its
+ * bodies are asleep, so worlds take different numbers of steps. One
+ * {@link Harness} operation is a whole batch, world creation included. Reports
+ * the spread of step counts of the last batch, and its throughput.
+ *
+ * Usage: WorldBatchBenchmark [worlds] [bodies] [maxSteps]
+ */
+public class WorldBatchBenchmark {
+
+	float dt = 1 / 60f;
+	int warmupWorlds = 16;
+
+	public static void main(String[] args) {
+		int worlds = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int bodies = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		int maxSteps = args.length > 2 ? Integer.parseInt(args[2]) : 1200;
+		new WorldBatchBenchmark().run(worlds, bodies, maxSteps);
+	}
+
+	public void run(final int worlds, final int bodies, int maxSteps) {
+		final WorldBatchRunner runner = new WorldBatchRunner();
+		runner.setTimeStep(dt, 8, 3);
+		runner.setMaxSteps(maxSteps);
+		runner.setStopCondition(WorldBatchRunner.ALL_ASLEEP);
+
+		final WorldBatchRunner.WorldFactory factory = new WorldBatchRunner.WorldFactory() {
+			public Pool createWorld(int index) {
+				return createPile(index, bodies);
+			}
+		};
+
+		final WorldBatchRunner.Results results = new WorldBatchRunner.Results();
+		Harness.Benchmark batch = new Harness.Benchmark("WorldBatchRunner.run (" + worlds + " worlds)") {
+			@Override
+			public void setup() {
+				// A small batch to warm up, a whole batch takes a while.
+				runner.run(factory, warmupWorlds, results);
+			}
+
+			@Override
+			public int run() {
+				runner.run(factory, worlds, results);
+				return (int) results.getTotalStepCount();
+			}
+		};
+
+		System.out.printf("%d worlds, %d bodies, %d workers%n", worlds, bodies,
+				java.util.concurrent.ForkJoinPool.commonPool().getParallelism());
+		Harness harness = new Harness();
+		harness.setIterations(0, 0, 3, 0);
+		Harness.printHeader();
+		harness.run(batch);
+
+		int minSteps = Integer.MAX_VALUE;
+		int maxTaken = 0;
+		int settled = 0;
+		long worldNanos = 0;
+		for (int i = 0; i < results.getWorldCount(); i++) {
+			minSteps = Math.min(minSteps, results.getStepCount(i));
+			maxTaken = Math.max(maxTaken, results.getStepCount(i));
+			worldNanos += results.getWorldNanos(i);
+			if (results.isDone(i)) {
+				settled++;
+			}
+		}
+		double seconds = results.getWallNanos() / 1e9;
+
+		System.out.printf("last batch: settled %d, steps per world %d to %d%n", settled, minSteps, maxTaken);
+		System.out.printf("wall: %.1f ms, summed world time: %.1f ms%n", seconds * 1e3, worldNanos / 1e6);
+		System.out.printf("%.1f worlds/s, %.0f steps/s%n", worlds / seconds, results.getTotalStepCount() / seconds);
+	}
+
+	private Pool createPile(int seed, int bodies) {
+		Pool world = new Pool(new Vec(0.0f, -9.8f), true);
+
+		Polygon floorShape = new Polygon();
+		floorShape.setAsBox(8.0f, 0.5f);
+		RigidBodyInfo floorDef = new RigidBodyInfo();
+		floorDef.position.set(0.0f, -0.5f);
+		world.createBody(floorDef).createFixture(floorShape, 0.0f);
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0.5f, 10.0f);
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(-8.5f, 10.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+		wallDef.position.set(8.5f, 10.0f);
+		world.createBody(wallDef).createFixture(wallShape, 0.0f);
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(0.4f, 0.4f);
+		Circle ballShape = new Circle();
+		ballShape.m_radius = 0.4f;
+		FixtureDef fixture = new FixtureDef();
+		fixture.density = 1.0f;
+		fixture.friction = 0.6f;
+
+		Random random = new Random(seed);
+		for (int i = 0; i < bodies; i++) {
+			RigidBodyInfo def = new RigidBodyInfo();
+			def.type = RigidBodyType.DYNAMIC;
+			def.position.set((random.nextFloat() - 0.5f) * 10.0f, 1.0f + i * 0.5f);
+			def.angle = random.nextFloat();
+			fixture.shape = random.nextInt(4) == 0 ? ballShape : boxShape;
+			world.createBody(def).createFixture(fixture);
+		}
+		return world;
+	}
+}
@@ -13,18 +13,16 @@ import org.lwjgl.opengl.DisplayMode;
 import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 import static org.lwjgl.opengl.GL11.*;
-import physics.collision.shapes.Circle;
 import physics.collision.shapes.Polygon;
 import physics.dynamics.Fixture;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
 import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.LevelOneScene;
 
 
 public class RigiBo{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 	 float fade = 0f;
 	//display info
 	int windowHeight = 800;
@@ -43,8 +41,9 @@ public class RigiBo{
 	float box_mass = 0.3f;
 
 	float spacing = .45f;
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true); //World space
-	ArrayList<RigidBody> crates = new ArrayList<RigidBody>(); //Crates
+	LevelOneScene scene = new LevelOneScene();
+	Pool world = scene.getWorld(); //World space
+	ArrayList<RigidBody> crates = scene.getCrates(); //Crates
 	
 	float floorX = (windowWidth/5) + (windowWidth/5)/2;
 	Vec floorPos = new Vec(toCord(windowWidth)/2,4.0f);
@@ -185,7 +184,7 @@ public class RigiBo{
 	   for(RigidBody crate : crates){
 		   index++;
 				glPushMatrix();
-				Vec bodyPosition = crate.getPosition().mul(30);
+				Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
 				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 				glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 
@@ -210,7 +209,7 @@ public class RigiBo{
   
   public void renderBall(){
 	  	glPushMatrix();
-		Vec bodyPosition = ball.getPosition().mul(30);
+		Vec bodyPosition = renderPosition.set(ball.getPosition()).mulLocal(30);
 		glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 		glRotated(Math.toDegrees(ball.getAngle()), 0, 0, 1);
 		
@@ -361,120 +360,20 @@ public class RigiBo{
   	}
 			
   }
-  private RigidBody createBall(float radius, Vec pos, float d, float r){
-	   	
-	  RigidBodyInfo ballDef = new RigidBodyInfo();
-      ballDef.position.set(pos);
-      ballDef.type = RigidBodyType.DYNAMIC;
- 	
-      Circle c = new Circle();
-      c.m_radius = radius;
-      
-      FixtureDef ballFixture = new FixtureDef();
-      ballFixture.density = d;
-      ballFixture.restitution = r;
-      ballFixture.shape = c;
-      
-      RigidBody ball = world.createBody(ballDef);
-      ball.createFixture(ballFixture);
-      
-      return ball;
-  }
-  private RigidBody createBox(Vec pos, float d, float r){
-	   	
-  	  RigidBodyInfo bodyDef = new RigidBodyInfo();
-      bodyDef.position.set(pos);
-      bodyDef.type = RigidBodyType.DYNAMIC;
-      
-      Polygon boxShape = new Polygon();
-      boxShape.setAsBox(box_size,box_size);
-      RigidBody body = world.createBody(bodyDef);
-      
-      FixtureDef boxFixture = new FixtureDef();
-      boxFixture.density = d;
-      boxFixture.restitution = r;
-      boxFixture.shape = boxShape;
-      body.createFixture(boxFixture);   
-      
-      return body;
-  }
   public void destroyBodies(){
-	
-	  world.destroyBody(ball);
-	  for(RigidBody crate:crates){
-		  world.destroyBody(crate);
-	  }
-	  crates = new ArrayList<RigidBody>();
+	  scene.destroyBodies();
   }
   
   
   public void createBodies(){
-	  
-	  //BOXES
-	  Vec box1_pos = new Vec(floorPos.x, floorPos.y + floorSize.y + box_size);
-	  Vec box2_pos = new Vec(floorPos.x - box_size*2 -spacing, floorPos.y + floorSize.y + box_size);
-	  Vec box3_pos = new Vec(floorPos.x + box_size*2 +spacing, floorPos.y + floorSize.y + box_size);
-	  Vec box4_pos = new Vec(floorPos.x - box_size - spacing/2, floorPos.y + floorSize.y + box_size*2 + box_size);
-	  Vec box5_pos = new Vec(floorPos.x + box_size + spacing/2, floorPos.y + floorSize.y + box_size*2 + box_size);
-	  Vec box6_pos = new Vec(floorPos.x, floorPos.y + floorSize.y + box_size*4 + box_size);
-	  
-	  crates.add(createBox(box1_pos, box_mass,box_bounce));
-	  crates.add(createBox(box2_pos, box_mass,box_bounce));
-	  crates.add(createBox(box3_pos, box_mass,box_bounce));
-	  crates.add(createBox(box4_pos, box_mass,box_bounce));
-	  crates.add(createBox(box5_pos, box_mass,box_bounce));
-	  crates.add(createBox(box6_pos, box_mass,box_bounce));
-	  
-	  //BALL
-	  Vec ball_pos = new Vec(floorPos.x,floorPos.y + floorSize.y + box_size*6 + ball_radius);
-	  ball = createBall(ball_radius, ball_pos, ball_mass,ball_bounce);
-
+	  world.beginBulkCreate();
+	  scene.createBodies();
+	  world.endBulkCreate();
+	  ball = scene.getBall();
   }
   	public void setupFloors(){
-
-	  	//Left Wall
-  	
-  		Polygon wallShape = new Polygon();
-  		wallShape.setAsBox(0, windowHeight);
-
-  		FixtureDef wallFixture = new FixtureDef();
-  		wallFixture.density = 1;
-  		wallFixture.restitution = 0.3f;
-  		wallFixture.shape = wallShape;
-  	
-  		//Define body info
-      	RigidBodyInfo leftWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(0, 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-  		//Define body info
-      	RigidBodyInfo rightWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(toCord(windowWidth), 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-
-  		RigidBody leftWall = world.createBody(leftWallDef);
-  		leftWall.createFixture(wallFixture);
-
-        //create
-  		RigidBody rightWall = world.createBody(rightWallDef);
-  		rightWall.createFixture(wallFixture);
-   
-        
-  		//Ground
-  		RigidBodyInfo groundDef = new RigidBodyInfo();
-  		groundDef.position.set(floorPos);
-  		groundDef.type = RigidBodyType.STATIC;
-     
-  		Polygon groundShape = new Polygon();
-  		groundShape.setAsBox(floorSize.x,floorSize.y);
-      
-  		FixtureDef groundFixture = new FixtureDef();
-  		groundFixture.density = 1f;
-     	groundFixture.restitution = 0.3f;
-     	groundFixture.shape = groundShape;
-     
-     	RigidBody floor = world.createBody(groundDef);
-     	floor.createFixture(groundFixture);
-  }
+  		scene.setupFloors();
+  	}
   public void setupDisplay(){
   	try {
           Display.setDisplayMode(new DisplayMode(windowWidth, windowHeight));
@@ -516,7 +415,7 @@ public class RigiBo{
   public void doStep() {
 	  switch(gameState){
 	  	case RUNNING:
-	  		world.step(dt, 8, 3);
+	  		scene.step();
 	  		break;
 	  	case RESET:
 	  		destroyBodies();
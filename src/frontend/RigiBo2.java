@@ -14,17 +14,15 @@ import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 
 import static org.lwjgl.opengl.GL11.*;
-import physics.collision.shapes.Circle;
 import physics.collision.shapes.Polygon;
 import physics.dynamics.Fixture;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
 import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.LevelTwoScene;
 
 public class RigiBo2{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 	 float fade = 0f;
 	//display info
 	int windowHeight = 800;
@@ -47,10 +45,11 @@ public class RigiBo2{
 	float tri_base = 1f;
 	
 	float spacing = .45f;
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true); //World space
-	ArrayList<RigidBody> crates = new ArrayList<RigidBody>(); //Crates
-	ArrayList<RigidBody> triangles = new ArrayList<RigidBody>();
-	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
+	LevelTwoScene scene = new LevelTwoScene();
+	Pool world = scene.getWorld(); //World space
+	ArrayList<RigidBody> crates = scene.getCrates(); //Crates
+	ArrayList<RigidBody> triangles = scene.getTriangles();
+	ArrayList<RigidBody> balls = scene.getBalls();
 	float floorX = (windowWidth/5) + (windowWidth/5)/2;
 	Vec floorPos = new Vec(toCord(windowWidth)/2,4.0f);
 	Vec floorSize = new Vec(toCord(floorX),0.25f);
@@ -192,7 +191,7 @@ public class RigiBo2{
   public void renderBoxes(){
 	   for(RigidBody crate : crates){
  			glPushMatrix();
- 			Vec bodyPosition = crate.getPosition().mul(30);
+ 			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
  			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
  			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 
@@ -215,7 +214,7 @@ public class RigiBo2{
 
 	   for(RigidBody tri : triangles){
 				glPushMatrix();
-				Vec bodyPosition = tri.getPosition().mul(30);
+				Vec bodyPosition = renderPosition.set(tri.getPosition()).mulLocal(30);
 				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 				glRotated(Math.toDegrees(tri.getAngle()), 0, 0, 1);
 				tex_boxOpen.bind();
@@ -234,7 +233,7 @@ public class RigiBo2{
 
 	   for(RigidBody ball : balls){
 				glPushMatrix();
-				Vec bodyPosition = ball.getPosition().mul(30);
+				Vec bodyPosition = renderPosition.set(ball.getPosition()).mulLocal(30);
 				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 				glRotated(Math.toDegrees(ball.getAngle()), 0, 0, 1);
 				tex_ballRed.bind();
@@ -248,7 +247,7 @@ public class RigiBo2{
 			}
 	   
 	  	glPushMatrix();
-		Vec bodyPosition = Mball.getPosition().mul(30);
+		Vec bodyPosition = renderPosition.set(Mball.getPosition()).mulLocal(30);
 		glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 		glRotated(Math.toDegrees(Mball.getAngle()), 0, 0, 1);
 		
@@ -408,158 +407,18 @@ public class RigiBo2{
   	}
 			
   }
-  private RigidBody createBall(float radius, Vec pos, float d, float r){
-	   	
-	  RigidBodyInfo ballDef = new RigidBodyInfo();
-      ballDef.position.set(pos);
-      ballDef.type = RigidBodyType.DYNAMIC;
- 	
-      Circle c = new Circle();
-      c.m_radius = radius;
-      
-      FixtureDef ballFixture = new FixtureDef();
-      ballFixture.density = d;
-      ballFixture.restitution = r;
-      ballFixture.shape = c;
-
-      RigidBody ball = world.createBody(ballDef);
-      ball.createFixture(ballFixture);
-
-      
-      return ball;
-  }
-  private RigidBody createBox(Vec pos, float d, float r,RigidBodyType rt){
-	   	
-  	  RigidBodyInfo bodyDef = new RigidBodyInfo();
-      bodyDef.position.set(pos);
-      bodyDef.type = rt;
-      Polygon boxShape = new Polygon();
-      boxShape.setAsBox(box_size.x,box_size.y);
-      RigidBody body = world.createBody(bodyDef);
-      
-      FixtureDef boxFixture = new FixtureDef();
-      boxFixture.density = d;
-      boxFixture.restitution = r;
-      boxFixture.shape = boxShape;
-      
-      body.createFixture(boxFixture);   
-      
-      return body;
-  }
-  
-  	private RigidBody createTriangle(Vec pos, float d, float r){
-	   	Vec vertices[] = new Vec[3];
-	 	vertices[2] = new Vec(0,tri_height);
-	 	vertices[1] = new Vec(tri_base,-tri_height);
-	 	vertices[0] = new Vec(-tri_base,-tri_height);
-	 	RigidBodyInfo bodyDef = new RigidBodyInfo();
-	 	bodyDef.position.set(pos);
-	 	bodyDef.type = RigidBodyType.DYNAMIC;
-	 	bodyDef.angle = 0f;
-	 	Polygon boxShape = new Polygon();
-	 	boxShape.set(vertices, 3);
-
-	 	RigidBody body = world.createBody(bodyDef);
-    
-	 	FixtureDef boxFixture = new FixtureDef();
-	 	boxFixture.density = d;
-	  	boxFixture.restitution = r;
-	  	boxFixture.shape = boxShape;
-	  	boxFixture.friction=0.6f;
-	  	body.createFixture(boxFixture);   
-    
-	  	return body;
-  	}
   public void destroyBodies(){
-	
-	  world.destroyBody(Mball);
-	  for(RigidBody crate:crates){
-		  world.destroyBody(crate);
-	  }
-	  for(RigidBody tri:triangles){
-		  world.destroyBody(tri);
-	  }
-	  for(RigidBody ball:balls){
-		  world.destroyBody(ball);
-	  }
-	  triangles = new ArrayList<RigidBody>();
-	  crates = new ArrayList<RigidBody>();
-	  balls = new ArrayList<RigidBody>();
+	  scene.destroyBodies();
   }
-  
-  
   public void createBodies(){
-	  
-	  //BOXES
-	  Vec box1_pos = new Vec(floorPos.x - floorPos.x/2 + spacing , floorPos.y +floorSize.y + tri_height*4 + box_size.y);
-	  Vec box2_pos = new Vec(floorPos.x - floorPos.x/2 + spacing*2 + box_size.x - spacing , 12f - ball_radius - box_size.y);
-	  
-	  crates.add(createBox(box1_pos, box_mass,box_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createBox(box2_pos, box_mass,box_bounce, RigidBodyType.STATIC));
-	  
-	  //TRIANGLES
-	  Vec tri_pos1 = new Vec(floorPos.x - floorPos.x/2 + spacing , floorPos.y +floorSize.y + tri_height);
-	  Vec tri_pos2 = new Vec(floorPos.x - floorPos.x/2 + spacing , floorPos.y +floorSize.y + tri_height*3);
-	  triangles.add(createTriangle(tri_pos1, 0.1f,0.2f));
-	  triangles.add(createTriangle(tri_pos2, 0.1f,0.2f));
-	  //BALLS
-	  Vec ball_pos1 = new Vec(floorPos.x - floorPos.x/2 + spacing + box_size.x - spacing,floorPos.y +floorSize.y + tri_height*4 + box_size.y*2 + ball_radius);
-	  Vec ball_pos2 = new Vec(floorPos.x - floorPos.x/2 + spacing*2 + box_size.x - spacing,12f);
-	  //MBALL
-	  Vec Mball_pos = new Vec(floorPos.x - floorPos.x/2 + spacing - box_size.x + spacing,floorPos.y +floorSize.y + tri_height*4 + box_size.y*2 + ball_radius);
-	  Mball = createBall(ball_radius, Mball_pos, ball_mass,ball_bounce);
-	  
-
-	  
-	  balls.add(createBall(ball_radius, ball_pos1, ball_mass,ball_bounce));
-	  balls.add(createBall(ball_radius, ball_pos2, ball_mass,ball_bounce));
-
+	  world.beginBulkCreate();
+	  scene.createBodies();
+	  world.endBulkCreate();
+	  Mball = scene.getMainBall();
   }
   	public void setupFloors(){
-
-	  	//Left Wall
-  	
-  		Polygon wallShape = new Polygon();
-  		wallShape.setAsBox(0, windowHeight);
-
-  		FixtureDef wallFixture = new FixtureDef();
-  		wallFixture.density = 1;
-  		wallFixture.restitution = 0.3f;
-  		wallFixture.shape = wallShape;
-  	
-  		//Define body info
-      	RigidBodyInfo leftWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(0, 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-  		//Define body info
-      	RigidBodyInfo rightWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(toCord(windowWidth), 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-
-  		RigidBody leftWall = world.createBody(leftWallDef);
-  		leftWall.createFixture(wallFixture);
-
-        //create
-  		RigidBody rightWall = world.createBody(rightWallDef);
-  		rightWall.createFixture(wallFixture);
-   
-        
-  		//Ground
-  		RigidBodyInfo groundDef = new RigidBodyInfo();
-  		groundDef.position.set(floorPos);
-  		groundDef.type = RigidBodyType.STATIC;
-     
-  		Polygon groundShape = new Polygon();
-  		groundShape.setAsBox(floorSize.x,floorSize.y);
-      
-  		FixtureDef groundFixture = new FixtureDef();
-  		groundFixture.density = 1f;
-     	groundFixture.restitution = 0.3f;
-     	groundFixture.shape = groundShape;
-     
-     	RigidBody floor = world.createBody(groundDef);
-     	floor.createFixture(groundFixture);
-  }
+  		scene.setupFloors();
+  	}
   public void setupDisplay(){
   	try {
           Display.setDisplayMode(new DisplayMode(windowWidth, windowHeight));
@@ -601,7 +460,7 @@ public class RigiBo2{
   public void doStep() {
 	  switch(gameState){
 	  	case RUNNING:
-	  		world.step(dt, 8, 3);
+	  		scene.step();
 	  		break;
 	  	case RESET:
 	  		destroyBodies();
@@ -14,19 +14,18 @@ import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 import static org.lwjgl.opengl.GL11.*;
 import physics.collision.ContactListener;
-import physics.collision.shapes.Circle;
 import physics.collision.shapes.Polygon;
 import physics.dynamics.Fixture;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
 import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
 import physics.dynamics.Pool;
 import physics.dynamics.contacts.Contact;
 import physics.tools.Vec;
+import headless.LevelThreeScene;
 
 
 public class RigiBo3{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 	 float fade = 0f;
 	//display info
 	int windowHeight = 800;
@@ -85,16 +84,17 @@ public class RigiBo3{
 	float spacing = .45f;
 
 
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true); //World space
+	LevelThreeScene scene = new LevelThreeScene();
+	Pool world = scene.getWorld(); //World space
 	
 	
 	
 	
-	ArrayList<RigidBody> crates = new ArrayList<RigidBody>(); //Crates
-	ArrayList<RigidBody> triangles = new ArrayList<RigidBody>();
-	ArrayList<RigidBody> rectangles = new ArrayList<RigidBody>();
-	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
-	ArrayList<RigidBody> tramps = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> crates = scene.getCrates(); //Crates
+	ArrayList<RigidBody> triangles = scene.getTriangles();
+	ArrayList<RigidBody> rectangles = scene.getRectangles();
+	ArrayList<RigidBody> balls = scene.getBalls();
+	ArrayList<RigidBody> tramps = scene.getTramps();
 	float floorX = (windowWidth/5) + (windowWidth/5)/2;
 	Vec floorPos = new Vec(toCord(windowWidth)/2,4.0f);
 	Vec floorSize = new Vec(toCord(floorX),0.25f);
@@ -180,7 +180,7 @@ public class RigiBo3{
     	
   	  for(RigidBody crate : tramps){
   			glPushMatrix();
-  			Vec bodyPosition = crate.getPosition().mul(30);
+  			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
   			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
   			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 
@@ -203,7 +203,7 @@ public class RigiBo3{
   public void renderRectangles(){
 	  for(RigidBody crate : rectangles){
 			glPushMatrix();
-			Vec bodyPosition = crate.getPosition().mul(30);
+			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
 			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 
@@ -290,7 +290,7 @@ public class RigiBo3{
   public void renderBoxes(){
 	   for(RigidBody crate : crates){
 			glPushMatrix();
-			Vec bodyPosition = crate.getPosition().mul(30);
+			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
 			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 
@@ -317,7 +317,7 @@ public class RigiBo3{
 
 	   for(RigidBody tri : triangles){
 				glPushMatrix();
-				Vec bodyPosition = tri.getPosition().mul(30);
+				Vec bodyPosition = renderPosition.set(tri.getPosition()).mulLocal(30);
 				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 				glRotated(Math.toDegrees(tri.getAngle()), 0, 0, 1);
 				tex_boxOpen.bind();
@@ -336,7 +336,7 @@ public class RigiBo3{
 
 	   for(RigidBody ball : balls){
 				glPushMatrix();
-				Vec bodyPosition = ball.getPosition().mul(30);
+				Vec bodyPosition = renderPosition.set(ball.getPosition()).mulLocal(30);
 				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 				glRotated(Math.toDegrees(ball.getAngle()), 0, 0, 1);
 				tex_ballRed.bind();
@@ -350,7 +350,7 @@ public class RigiBo3{
 			}
 	   
 	  	glPushMatrix();
-		Vec bodyPosition = Mball.getPosition().mul(30);
+		Vec bodyPosition = renderPosition.set(Mball.getPosition()).mulLocal(30);
 		glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 		glRotated(Math.toDegrees(Mball.getAngle()), 0, 0, 1);
 		
@@ -510,167 +510,20 @@ public class RigiBo3{
   	}
 			
   }
-  private RigidBody createBall(float radius, Vec pos, float d, float r){
-	   	
-	  RigidBodyInfo ballDef = new RigidBodyInfo();
-      ballDef.position.set(pos);
-      ballDef.type = RigidBodyType.DYNAMIC;
- 	
-      Circle c = new Circle();
-      c.m_radius = radius;
-      
-      FixtureDef ballFixture = new FixtureDef();
-      ballFixture.density = d;
-      ballFixture.restitution = r;
-      ballFixture.shape = c;
-
-      RigidBody ball = world.createBody(ballDef);
-      ball.createFixture(ballFixture);
-
-      
-      return ball;
-  }
-  
-  private RigidBody createRect(Vec size, Vec pos, float d, float r,RigidBodyType rt){
-	   	
-  	  RigidBodyInfo bodyDef = new RigidBodyInfo();
-      bodyDef.position.set(pos);
-      bodyDef.type = rt;
-      Polygon boxShape = new Polygon();
-      boxShape.setAsBox(size.x,size.y);
-      RigidBody body = world.createBody(bodyDef);
-      
-      FixtureDef boxFixture = new FixtureDef();
-      boxFixture.density = d;
-      boxFixture.restitution = r;
-      boxFixture.shape = boxShape;
-      
-      body.createFixture(boxFixture);   
-      
-      return body;
-  }
-
   public void destroyBodies(){
-	
-	  world.destroyBody(Mball);
-	  for(RigidBody crate:crates){
-		  world.destroyBody(crate);
-	  }
-	  for(RigidBody tri:triangles){
-		  world.destroyBody(tri);
-	  }
-	  for(RigidBody ball:balls){
-		  world.destroyBody(ball);
-	  }
-	  
-	  for(RigidBody ball:rectangles){
-		  world.destroyBody(ball);
-	  }
-	  triangles = new ArrayList<RigidBody>();
-	  crates = new ArrayList<RigidBody>();
-	  balls = new ArrayList<RigidBody>();
-	  rectangles = new ArrayList<RigidBody>();
+	  scene.destroyBodies();
   }
   
   
   public void createBodies(){
-	  	  
-	  rectangles.add(createRect(rect_size, box1_pos, box_mass,box_bounce, RigidBodyType.KINEMATIC));
-	  rectangles.add(createRect(floor2_size, floor2_pos, box_mass,box_bounce, RigidBodyType.STATIC));
-	  rectangles.add(createRect(floorStart_size, floorStart_pos, box_mass,box_bounce, RigidBodyType.STATIC));
-	  tramps.add(createRect(tramp_size, tramp_pos, box_mass,1.2f, RigidBodyType.STATIC));
-	  tramps.add(createRect(tramp2_size, tramp2_pos, box_mass,1.2f, RigidBodyType.STATIC));
-	  
-	  Vec stand = new Vec(floorStart_size.y, floorStart_size.x);
-	  Vec stand2 = new Vec(floor2_pos.x + floor2_size.x -.2f, floor2_pos.y + floor2_size.y + stand.y);
-	  rectangles.add(createRect(stand, stand2, box_mass,1.2f, RigidBodyType.STATIC));
-	  
-	  for(float i = 0; i <= 5 ; i++){
-		  Vec pos = new Vec(domo_pos.x + i, domo_pos.y);
-		  crates.add(createRect(domo_size, pos, domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  }
- 
-	  crates.add(createRect(new Vec(.9f,.9f), new Vec(10.5f,11f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	  
-	  
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(4.3f,7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(4.3f,8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(4.3f,9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(4.3f,10), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(5.4f,7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(5.4f,8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(5.4f,9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(5.4f,10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(6.5f,7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(6.5f,8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(6.5f,9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(6.5f,10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(7.6f,7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(7.6f,8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(7.6f,9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.5f,.5f), new Vec(7.6f,10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
-	  crates.add(createRect(new Vec(.4f,.4f), new Vec(.5f,10.8f), domo_mass, domo_bounce, RigidBodyType.STATIC));
-	 
-	  rectangles.add(createRect(new Vec(.05f,.1f), MStand_pos, 0.0f,0.0f,RigidBodyType.STATIC));
-	  rectangles.add(createRect(wall_size, wall_pos, box_mass,box_bounce, RigidBodyType.STATIC));
-
-	 
-	  //BALLS
-	 
-	  Mball = createBall(ball_radius, Mball_pos, ball_mass,ball_bounce);
-	  balls.add(createBall(ball_radius, topBall_pos, ball_mass,ball_bounce));
-	  balls.add(createBall(ball_radius, domoBall_pos, ball_mass+.2f,ball_bounce));
-	  balls.add(createBall(ball_radius, new Vec(stand2.x,stand2.y + stand.y + ball_radius), ball_mass - .2f,ball_bounce));
-
+	  world.beginBulkCreate();
+	  scene.createBodies();
+	  world.endBulkCreate();
+	  Mball = scene.getMainBall();
   }
   	public void setupFloors(){
-
-	  	//Left Wall
-  	
-  		Polygon wallShape = new Polygon();
-  		wallShape.setAsBox(0, windowHeight);
-
-  		FixtureDef wallFixture = new FixtureDef();
-  		wallFixture.density = 1;
-  		wallFixture.restitution = 0.3f;
-  		wallFixture.shape = wallShape;
-  	
-  		//Define body info
-      	RigidBodyInfo leftWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(0, 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-  		//Define body info
-      	RigidBodyInfo rightWallDef = new RigidBodyInfo();
-  		leftWallDef.position.set(toCord(windowWidth), 0);
-  		leftWallDef.type = RigidBodyType.STATIC;
-
-  		RigidBody leftWall = world.createBody(leftWallDef);
-  		leftWall.createFixture(wallFixture);
-
-        //create
-  		RigidBody rightWall = world.createBody(rightWallDef);
-  		rightWall.createFixture(wallFixture);
-   
-        
-  		//Ground
-  		RigidBodyInfo groundDef = new RigidBodyInfo();
-  		groundDef.position.set(floorPos);
-  		groundDef.type = RigidBodyType.STATIC;
-     
-  		Polygon groundShape = new Polygon();
-  		groundShape.setAsBox(floorSize.x,floorSize.y);
-      
-  		FixtureDef groundFixture = new FixtureDef();
-  		groundFixture.density = 1f;
-     	groundFixture.restitution = 0.3f;
-     	groundFixture.shape = groundShape;
-     
-     	RigidBody floor = world.createBody(groundDef);
-     	floor.createFixture(groundFixture);
-  }
+  		scene.setupFloors();
+  	}
   public void setupDisplay(){
   	try {
           Display.setDisplayMode(new DisplayMode(windowWidth, windowHeight));
@@ -711,10 +564,9 @@ public class RigiBo3{
   }
   public void doStep() {
 
-	  rectangles.get(0).setAngularVelocity(aVel);
 	  switch(gameState){
 	  	case RUNNING:
-	  		world.step(dt, 8, 3);
+	  		scene.step();
 	  		break;
 	  	case RESET:
 	  		destroyBodies();
@@ -19,31 +19,26 @@ import org.newdawn.slick.opengl.TextureLoader;
 import static org.lwjgl.opengl.GL11.*;
 
 //Physics Libraries
-import physics.collision.shapes.Polygon;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
-import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.CrateScene;
 
 
 public class demoCrate{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 	 float fade = 0f;
 	//display info
 	int windowHeight = 800;
 	int windowWidth = 720;
 	float wallBorder = 0f;
-	float wall = 0f;
 
 	float crateSize = 2.3f; //size of crate
 	boolean boxcreated = false; //initial box flag
 	
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true); //World space
-	ArrayList<RigidBody> crates = new ArrayList<RigidBody>(); //Crates
+	CrateScene scene = new CrateScene();
+	ArrayList<RigidBody> crates = scene.getCrates(); //Crates
 	
 	int crateCount = 0; //number of crates created
-	float dt = 1/60f; //delta time
 	
 	//textures
 	Texture tex_crate;
@@ -70,7 +65,7 @@ public class demoCrate{
        	//crates
         for(RigidBody crate : crates){
 			glPushMatrix();
-			Vec bodyPosition = crate.getPosition().mul(30);
+			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
 			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 			
@@ -109,22 +104,9 @@ public class demoCrate{
     				  //create new box
                       case Keyboard.KEY_SPACE:
                     	  Vec bodyPosition = new Vec(Mouse.getX(), Mouse.getY()).mul(0.5f).mul(1 / 30f);
-                    	  RigidBodyInfo crateDef = new RigidBodyInfo();
-                          crateDef.position.set(bodyPosition);
-                          crateDef.type = RigidBodyType.DYNAMIC;
-                          
-                          Polygon crateShape = new Polygon();
-                          crateShape.setAsBox(crateSize, crateSize);
-              
-                          FixtureDef crateFixture = new FixtureDef();
-                          crateFixture.density = .03f;
-                          crateFixture.shape = crateShape;
-                          
-                          RigidBody newcrate = world.createBody(crateDef);
-                          newcrate.createFixture(crateFixture);
+                    	  scene.createCrate(bodyPosition);
                           
                           if(boxcreated)crateCount++;
-                          crates.add(newcrate);
                           boxcreated = true;
                           break;    
                       
@@ -176,56 +158,7 @@ public class demoCrate{
     }
     
     public void setupFloors(){
-
-    	//Left Wall
-    	
-    	//Define body info
-    	RigidBodyInfo leftWallDef = new RigidBodyInfo();
-    	leftWallDef.position.set(wall, 0);
-    	leftWallDef.type = RigidBodyType.STATIC;
-        
-    	//Wall shape
-    	Polygon leftWallShape = new Polygon();
-        leftWallShape.setAsBox(0, 1000);
-      
-        //Wall attributes
-        FixtureDef leftWallFixture = new FixtureDef();
-        leftWallFixture.density = 1;
-        leftWallFixture.restitution = 0.3f;
-        leftWallFixture.shape = leftWallShape;
-        
-        //create
-        RigidBody leftWall = world.createBody(leftWallDef);
-        leftWall.createFixture(leftWallFixture);
-
-          
-//          BodyDef rightWallDef = new BodyDef();
-//          rightWallDef.position.set(((windowWidth/30)/2)-wall, 0);
-//          rightWallDef.type = BodyType.STATIC;
-//          PolygonShape rightWallShape = new PolygonShape();
-//          rightWallShape.setAsBox(0, 1000);
-//          Body rightWall = world.createBody(rightWallDef);
-//          FixtureDef rightWallFixture = new FixtureDef();
-//          rightWallFixture.density = 1;
-//          rightWallFixture.restitution = 0.3f;
-//          rightWallFixture.shape = rightWallShape;
-//          rightWall.createFixture(rightWallFixture);
-          
-        //Ground
-       RigidBodyInfo groundDef = new RigidBodyInfo();
-       groundDef.position.set(0, wall);
-       groundDef.type = RigidBodyType.STATIC;
-       
-       Polygon groundShape = new Polygon();
-       groundShape.setAsBox(1000, 0);
-        
-       FixtureDef groundFixture = new FixtureDef();
-       groundFixture.density = 1f;
-       groundFixture.restitution = 0.3f;
-       groundFixture.shape = groundShape;
-       
-       RigidBody ground = world.createBody(groundDef);
-       ground.createFixture(groundFixture);
+    	scene.create();
     }
     public void setupDisplay(){
     	try {
@@ -256,7 +189,7 @@ public class demoCrate{
     	System.exit(0);
     }
     public void doStep() {
-        world.step(dt, 8, 3);
+        scene.step();
     }
     public void start(){
     	setupDisplay();
@@ -16,37 +16,30 @@ import org.lwjgl.opengl.DisplayMode;
 import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 
-import physics.collision.shapes.Circle;
-import physics.collision.shapes.Polygon;
 
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
 
-import physics.dynamics.FixtureDef;
-import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.FloodScene;
 import static org.lwjgl.opengl.GL11.*;
 
 
 public class demoFlood{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 	
 	//Display Info
 	int windowHeight = 800;
 	int windowWidth = 720; 
 	float wallBorder = 0.0f;
-	float wall = 0.0f;
 		
 	//ball
 	float ball_radius = 0.30f;
 
-	float dt = 1/90f;
 	float crateSize = 2.3f;
-	Vec wallmid_size = new Vec(3.0f,.25f);
 	boolean initballMade = false;
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true);
-	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
-	ArrayList<RigidBody> walls = new ArrayList<RigidBody>();
+	FloodScene scene = new FloodScene();
+	ArrayList<RigidBody> balls = scene.getBalls();
+	ArrayList<RigidBody> walls = scene.getWalls();
 	int ballCount = 0;
 	Texture tex_ball;
 	Texture tex_background;
@@ -81,7 +74,7 @@ public class demoFlood{
 
  	   for(RigidBody ball : balls){
  				glPushMatrix();
- 				Vec bodyPosition = ball.getPosition().mul(30);
+ 				Vec bodyPosition = renderPosition.set(ball.getPosition()).mulLocal(30);
  				glTranslatef(bodyPosition.x, bodyPosition.y, 0);
  				glRotated(Math.toDegrees(ball.getAngle()), 0, 0, 1);
  				tex_ball.bind();
@@ -140,8 +133,9 @@ public class demoFlood{
     	System.exit(0);
     }
     public void doStep() {
-    	createBall(ball_radius, 5.0f,14.0f,0.2f,0.1f);
-        world.step(dt, 8, 3);
+    	scene.step();
+    	ballCount = balls.size() - 1;
+    	initballMade = true;
     }
     public void renderDisplay() {
         //if(ballCount > 0){
@@ -159,49 +153,6 @@ public class demoFlood{
     
     }
 
-    public void createBall(float radius, float x_pos, float y_pos, float density, float r){
-    	
-    	 RigidBodyInfo ballDef = new RigidBodyInfo();
-         ballDef.position.set(x_pos,y_pos);
-         ballDef.type = RigidBodyType.DYNAMIC;
-    	
-         Circle c = new Circle();
-         c.m_radius = radius;
-         
-         FixtureDef ballFixture = new FixtureDef();
-         ballFixture.density = density;
-         ballFixture.shape = c;
-         ballFixture.restitution = r;
-         
-         RigidBody ball = world.createBody(ballDef);
-         ball.createFixture(ballFixture);
-         
-         if(initballMade)ballCount++;
-         balls.add(ball);
-         initballMade = true;
-    }
-    
-    public void createWall(float width, float height, float x_pos, float y_pos, float angle){
-    	
-   	 	RigidBodyInfo wallDef = new RigidBodyInfo();
-        wallDef.position.set(x_pos,y_pos);
-        wallDef.type = RigidBodyType.STATIC;
-        wallDef.angle = angle;
-   	
-        Polygon wallShape = new Polygon();
-        wallShape.setAsBox(width,height);
-        
-        FixtureDef wallFixture = new FixtureDef();
-        wallFixture.shape = wallShape;
-        wallFixture.restitution = 0.3f;
-        
-        RigidBody wall = world.createBody(wallDef);
-        wall.createFixture(wallFixture);
-        wall.setFixedRotation(true);
-        walls.add(wall);
-   }
-   
-    
     public void inputListener() {
 
     	 
@@ -215,10 +166,7 @@ public class demoFlood{
     			switch (Keyboard.getEventKey()) {
 
                       case Keyboard.KEY_SPACE:
-//                    	  createBall(ball_radius, 10.0f,10.0f,0.3f);
-                    	  createWall(wallmid_size.x, wallmid_size.y, 10f, 8f, (float)Math.toRadians(45));
-                    	//  createWall(wallmid_size.x, wallmid_size.y, 7f, 12f, 0.0f);
-                    	  createWall(wallmid_size.x, wallmid_size.y, 4f, 8f, (float)Math.toRadians(-45));
+                    	  scene.createFunnel();
                           break;    
                       case Keyboard.KEY_BACK:
                     	  closeWindow();
@@ -266,42 +214,7 @@ public class demoFlood{
     	}
     
     public void setupFloors(){
-
-          RigidBodyInfo leftWallDef = new RigidBodyInfo();
-          leftWallDef.position.set(wall, 0);
-          leftWallDef.type = RigidBodyType.STATIC;
-          Polygon leftWallShape = new Polygon();
-          leftWallShape.setAsBox(0, 1000);
-          RigidBody leftWall = world.createBody(leftWallDef);
-          FixtureDef leftWallFixture = new FixtureDef();
-          leftWallFixture.density = 1;
-          leftWallFixture.restitution = 0.3f;
-          leftWallFixture.shape = leftWallShape;
-          leftWall.createFixture(leftWallFixture);
-
-//          BodyDef rightWallDef = new BodyDef();
-//          rightWallDef.position.set(((windowWidth/30)/2)-wall, 0);
-//          rightWallDef.type = BodyType.STATIC;
-//          PolygonShape rightWallShape = new PolygonShape();
-//          rightWallShape.setAsBox(0, 1000);
-//          Body rightWall = world.createBody(rightWallDef);
-//          FixtureDef rightWallFixture = new FixtureDef();
-//          rightWallFixture.density = 1;
-//          rightWallFixture.restitution = 0.3f;
-//          rightWallFixture.shape = rightWallShape;
-//          rightWall.createFixture(rightWallFixture);
-          
-          RigidBodyInfo groundDef = new RigidBodyInfo();
-          groundDef.position.set(0, wall);
-          groundDef.type = RigidBodyType.STATIC;
-          Polygon groundShape = new Polygon();
-          groundShape.setAsBox(1000, 0);
-          RigidBody ground = world.createBody(groundDef);
-          FixtureDef groundFixture = new FixtureDef();
-          groundFixture.density = 1f;
-          groundFixture.restitution = 0.3f;
-          groundFixture.shape = groundShape;
-          ground.createFixture(groundFixture);
+    	scene.create();
     }
     public Texture loadTexture(String key){
     	try {
@@ -16,13 +16,9 @@ import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 
 
-import physics.collision.shapes.Polygon;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
-import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.FrictionScene;
 import static org.lwjgl.opengl.GL11.*;
 
 public class demoFriction{
@@ -31,14 +27,10 @@ public class demoFriction{
 	int windowHeight = 1000;
 	int windowWidth = 1000;
 	float wallBorder = 2.4f;
-	float wall = 0.0f;
-	float dt = 1/60f;
 	float crateSize = 1.5f;
-	Vec platformSize = new Vec(7.0f,.5f);
 	boolean boxcreated = false;
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true);
+	FrictionScene scene = new FrictionScene();
 	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
-	RigidBody platform;
 	int crateCount = 0;
 	Texture tex_box;
 	Texture tex_ice;
@@ -46,19 +38,15 @@ public class demoFriction{
 	Texture tex_background;
 	
 	RigidBody floor_ice;
-	Vec ice_pos = new Vec(7.0f,10f);
 	Vec ice_size = new Vec(7f,0.25f);
 	
 	RigidBody floor_conc;
-	Vec conc_pos = new Vec(7.0f,2.0f);
 	Vec conc_size = new Vec(7f,0.25f);
 	
 	RigidBody body_ice;
-	Vec bodyice_pos = new Vec(7.0f,11.0f);
 	Vec bodyice_size = new Vec(1.5f,1.5f);
 	
 	RigidBody body_conc;
-	Vec bodyconc_pos = new Vec(7.0f,3.0f);
 	Vec bodyconc_size = new Vec(1.5f,1.5f);
 
     private enum State {
@@ -133,7 +121,7 @@ public class demoFriction{
     	System.exit(0);
     }
     public void doStep() {
-        world.step(dt, 8, 3);
+        scene.step();
     }
     public void renderDisplay() {
         //if(crateCount > 0){
@@ -277,115 +265,11 @@ public class demoFriction{
     }
     
     public void setupFloors(){
-
-    	//ice definition
-   	 	RigidBodyInfo pivotDef = new RigidBodyInfo();
-   	 	pivotDef.position.set(ice_pos);
-        pivotDef.type = RigidBodyType.STATIC;
-      
-        //ice shape
-        Polygon pivotShape = new Polygon();
-        pivotShape.setAsBox(ice_size.x, ice_size.y);
-        FixtureDef iceFixture = new FixtureDef();
-        iceFixture.friction = 0.0f;
-        iceFixture.shape = pivotShape;
-
-        
-        //create ice
-        floor_ice = world.createBody(pivotDef);
-        floor_ice.createFixture(iceFixture);
-
-          
-      	//conc definition
-        RigidBodyInfo concDef = new RigidBodyInfo();
-        concDef.position.set(conc_pos);
-        concDef.type = RigidBodyType.STATIC;
-             
-        //conc shape
-        Polygon concShape = new Polygon();
-        concShape.setAsBox(ice_size.x, ice_size.y);
-        FixtureDef concFixture = new FixtureDef();
-        concFixture.friction = 7.0f;
-        concFixture.shape = concShape;
-
-         floor_conc = world.createBody(concDef);
-         floor_conc.createFixture(concFixture);
-          
-   	  RigidBodyInfo bodyiceDef = new RigidBodyInfo();
-      bodyiceDef.position.set(bodyice_pos);
-      bodyiceDef.type = RigidBodyType.DYNAMIC;
-      
-      RigidBodyInfo bodyconcDef = new RigidBodyInfo();
-      bodyconcDef.position.set(bodyconc_pos);
-      bodyconcDef.type = RigidBodyType.DYNAMIC;
-      
-      Polygon crateShape = new Polygon();
-      crateShape.setAsBox(crateSize, crateSize);
-
-      FixtureDef bodyiceFixture = new FixtureDef();
-      bodyiceFixture.density = .03f;
-      bodyiceFixture.shape = crateShape;
-      
-      FixtureDef bodyconcFixture = new FixtureDef();
-      bodyconcFixture.density = .03f;
-      bodyconcFixture.shape = crateShape;
-      
-      body_ice = world.createBody(bodyiceDef);
-      body_ice.createFixture(bodyiceFixture);
-      
-      body_conc = world.createBody(bodyconcDef);
-      body_conc.createFixture(bodyconcFixture);
-     
-         
-         
-          RigidBodyInfo leftWallDef = new RigidBodyInfo();
-          leftWallDef.position.set(wall, 0);
-          leftWallDef.type = RigidBodyType.STATIC;
-          Polygon leftWallShape = new Polygon();
-          leftWallShape.setAsBox(0, 1000);
-          RigidBody leftWall = world.createBody(leftWallDef);
-          FixtureDef leftWallFixture = new FixtureDef();
-          leftWallFixture.density = 1;
-          leftWallFixture.restitution = 0.3f;
-          leftWallFixture.shape = leftWallShape;
-          leftWall.createFixture(leftWallFixture);
-
-          RigidBodyInfo rightWallDef = new RigidBodyInfo();
-          rightWallDef.position.set(((windowWidth/30)/2)-wall, 0);
-          rightWallDef.type = RigidBodyType.STATIC;
-          Polygon rightWallShape = new Polygon();
-          rightWallShape.setAsBox(0, 1000);
-          RigidBody rightWall = world.createBody(rightWallDef);
-          FixtureDef rightWallFixture = new FixtureDef();
-          rightWallFixture.density = 1;
-          rightWallFixture.restitution = 0.3f;
-          rightWallFixture.shape = rightWallShape;
-          rightWall.createFixture(rightWallFixture);
-          
-          RigidBodyInfo groundDef = new RigidBodyInfo();
-          groundDef.position.set(0, wall);
-          groundDef.type = RigidBodyType.STATIC;
-          Polygon groundShape = new Polygon();
-          groundShape.setAsBox(1000, 0);
-          RigidBody ground = world.createBody(groundDef);
-          FixtureDef groundFixture = new FixtureDef();
-          groundFixture.density = 1f;
-          groundFixture.restitution = 0.3f;
-          groundFixture.shape = groundShape;
-          ground.createFixture(groundFixture);
-          
-          RigidBodyInfo platformDef = new RigidBodyInfo();
-          platformDef.position.set(5.0f, 5.0f);
-          platformDef.type = RigidBodyType.KINEMATIC;
-          
-          Polygon platformShape = new Polygon();
-          platformShape.setAsBox(platformSize.x,platformSize.y);
-          platform = world.createBody(groundDef);
-          FixtureDef platformFix = new FixtureDef();
-          platformFix.density = 1f;
-          platformFix.restitution = 0.3f;
-          platformFix.shape = groundShape;
-          platform.createFixture(platformFix);
+    	scene.create();
+    	floor_ice = scene.getIceFloor();
+    	floor_conc = scene.getConcreteFloor();
+    	body_ice = scene.getIceBody();
+    	body_conc = scene.getConcreteBody();
     }
     public Texture loadTexture(String key){
     	try {
@@ -15,35 +15,27 @@ import org.lwjgl.opengl.DisplayMode;
 import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 
-import physics.collision.shapes.Polygon;
 import physics.dynamics.RigidBody;
-import physics.dynamics.RigidBodyInfo;
-import physics.dynamics.RigidBodyType;
-import physics.dynamics.FixtureDef;
-import physics.dynamics.Pool;
 import physics.tools.Vec;
+import headless.WheelScene;
 import static org.lwjgl.opengl.GL11.*;
 
 public class demoWheel{
+	Vec renderPosition = new Vec(); //Body position in pixels, reused every frame
 
 
 	int windowHeight = 800;
 	int windowWidth = 720;
 	float wallBorder = 2.4f;
-	float wall = 0.0f;
-	float dt = 1/60f;
 	float crateSize = 1.5f;
-	Vec platformSize = new Vec(7.0f,.5f);
 	boolean boxcreated = false;
-	Pool world = new Pool(new Vec(0.0f,-9.8f),true);
-	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
-	RigidBody platform;
+	WheelScene scene = new WheelScene();
+	ArrayList<RigidBody> crates = scene.getCrates();
 	int crateCount = 0;
 	Texture crate_tex;
 	Texture background;
 	Texture tex_loo;
 	RigidBody pivot;
-	Vec pivot_pos = new Vec(6.5f,7.0f);
 	Vec pivot_size = new Vec(4f,0.25f);
     public enum State {
     }
@@ -111,8 +103,7 @@ public class demoWheel{
     	System.exit(0);
     }
     public void doStep() {
-    	pivot.setAngularVelocity(1.5f);
-        world.step(dt, 8, 3);
+        scene.step();
     }
     public void renderDisplay() {
         //if(crateCount > 0){
@@ -128,7 +119,7 @@ public class demoWheel{
     	glPopMatrix();
         float size = (crateSize)*30;
     	glPushMatrix();
-		Vec bodyPositio = pivot.getPosition().mul(30);
+		Vec bodyPositio = renderPosition.set(pivot.getPosition()).mulLocal(30);
 		glTranslatef(bodyPositio.x, bodyPositio.y, 0);
 		glRotated(Math.toDegrees(pivot.getAngle()), 0, 0, 1);
 		//pivot_tex.bind();
@@ -143,7 +134,7 @@ public class demoWheel{
 		glPopMatrix();
         for(RigidBody crate : crates){
 			glPushMatrix();
-			Vec bodyPosition = crate.getPosition().mul(30);
+			Vec bodyPosition = renderPosition.set(crate.getPosition()).mulLocal(30);
 			glTranslatef(bodyPosition.x, bodyPosition.y, 0);
 			glRotated(Math.toDegrees(crate.getAngle()), 0, 0, 1);
 			
@@ -173,22 +164,9 @@ public class demoWheel{
                       case Keyboard.KEY_SPACE:
                     	  if(crateCount==0){
                     	  Vec bodyPosition = new Vec(Mouse.getX(), Mouse.getY()).mul(0.5f).mul(1 / 30f);
-                    	  RigidBodyInfo crateDef = new RigidBodyInfo();
-                          crateDef.position.set(bodyPosition);
-                          crateDef.type = RigidBodyType.DYNAMIC;
-                          
-                          Polygon crateShape = new Polygon();
-                          crateShape.setAsBox(crateSize, crateSize);
-              
-                          FixtureDef crateFixture = new FixtureDef();
-                          crateFixture.density = .03f;
-                          crateFixture.shape = crateShape;
-                          
-                          RigidBody crate = world.createBody(crateDef);
-                          crate.createFixture(crateFixture);
+                    	  scene.createCrate(bodyPosition);
                           
                           if(boxcreated)crateCount++;
-                          crates.add(crate);
                           boxcreated = true;
                     	  }
                           break;    
@@ -224,69 +202,8 @@ public class demoWheel{
     	}
     
     public void setupFloors(){
-
-    	//pivot definition
-   	 RigidBodyInfo pivotDef = new RigidBodyInfo();
-        pivotDef.position.set(pivot_pos);
-        pivotDef.type = RigidBodyType.KINEMATIC;
-        
-        //pivot shape
-        Polygon pivotShape = new Polygon();
-        pivotShape.setAsBox(pivot_size.x, pivot_size.y);
-        FixtureDef pivotFixture = new FixtureDef();
-        pivotFixture.shape = pivotShape;
-        
-        //create pivot
-        pivot = world.createBody(pivotDef);
-        pivot.createFixture(pivotFixture);
-          RigidBodyInfo leftWallDef = new RigidBodyInfo();
-          leftWallDef.position.set(wall, 0);
-          leftWallDef.type = RigidBodyType.STATIC;
-          Polygon leftWallShape = new Polygon();
-          leftWallShape.setAsBox(0, 1000);
-          RigidBody leftWall = world.createBody(leftWallDef);
-          FixtureDef leftWallFixture = new FixtureDef();
-          leftWallFixture.density = 1;
-          leftWallFixture.restitution = 0.3f;
-          leftWallFixture.shape = leftWallShape;
-          leftWall.createFixture(leftWallFixture);
-
-          RigidBodyInfo rightWallDef = new RigidBodyInfo();
-          rightWallDef.position.set(((windowWidth/30)/2)-wall, 0);
-          rightWallDef.type = RigidBodyType.STATIC;
-          Polygon rightWallShape = new Polygon();
-          rightWallShape.setAsBox(0, 1000);
-          RigidBody rightWall = world.createBody(rightWallDef);
-          FixtureDef rightWallFixture = new FixtureDef();
-          rightWallFixture.density = 1;
-          rightWallFixture.restitution = 0.3f;
-          rightWallFixture.shape = rightWallShape;
-          rightWall.createFixture(rightWallFixture);
-          
-          RigidBodyInfo groundDef = new RigidBodyInfo();
-          groundDef.position.set(0, wall);
-          groundDef.type = RigidBodyType.STATIC;
-          Polygon groundShape = new Polygon();
-          groundShape.setAsBox(1000, 0);
-          RigidBody ground = world.createBody(groundDef);
-          FixtureDef groundFixture = new FixtureDef();
-          groundFixture.density = 1f;
-          groundFixture.restitution = 0.3f;
-          groundFixture.shape = groundShape;
-          ground.createFixture(groundFixture);
-          
-          RigidBodyInfo platformDef = new RigidBodyInfo();
-          platformDef.position.set(5.0f, 5.0f);
-          platformDef.type = RigidBodyType.KINEMATIC;
-          
-          Polygon platformShape = new Polygon();
-          platformShape.setAsBox(platformSize.x,platformSize.y);
-          platform = world.createBody(groundDef);
-          FixtureDef platformFix = new FixtureDef();
-          platformFix.density = 1f;
-          platformFix.restitution = 0.3f;
-          platformFix.shape = groundShape;
-          platform.createFixture(platformFix);
+    	scene.create();
+    	pivot = scene.getPivot();
     }
     public Texture loadTexture(String key){
     	try {
@@ -0,0 +1,111 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * The crate demo: a left wall and a floor, and big crates the player drops
+ * in. The headless run drops a crate every second until there are twelve.
+ */
+public class CrateScene extends Scene {
+
+	float wall = 0f;
+	float crateSize = 2.3f;
+
+	int dropInterval = 60;
+	int dropCount = 12;
+
+	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
+
+	public CrateScene() {
+	}
+
+	public CrateScene(BroadPhaseStrategy strategy) {
+		super(strategy);
+	}
+
+	@Override
+	public String getName() {
+		return "crate";
+	}
+
+	public ArrayList<RigidBody> getCrates() {
+		return crates;
+	}
+
+	@Override
+	public void create() {
+		//Left Wall
+
+		//Define body info
+		RigidBodyInfo leftWallDef = new RigidBodyInfo();
+		leftWallDef.position.set(wall, 0);
+		leftWallDef.type = RigidBodyType.STATIC;
+
+		//Wall shape
+		Polygon leftWallShape = new Polygon();
+		leftWallShape.setAsBox(0, 1000);
+
+		//Wall attributes
+		FixtureDef leftWallFixture = new FixtureDef();
+		leftWallFixture.density = 1;
+		leftWallFixture.restitution = 0.3f;
+		leftWallFixture.shape = leftWallShape;
+
+		//create
+		RigidBody leftWall = world.createBody(leftWallDef);
+		leftWall.createFixture(leftWallFixture);
+
+		//Ground
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.position.set(0, wall);
+		groundDef.type = RigidBodyType.STATIC;
+
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(1000, 0);
+
+		FixtureDef groundFixture = new FixtureDef();
+		groundFixture.density = 1f;
+		groundFixture.restitution = 0.3f;
+		groundFixture.shape = groundShape;
+
+		RigidBody ground = world.createBody(groundDef);
+		ground.createFixture(groundFixture);
+	}
+
+	@Override
+	public void play(int step) {
+		if (step % dropInterval == 0 && crates.size() < dropCount) {
+			int i = crates.size();
+			createCrate(new Vec(3.0f + (i % 3) * 5.0f, 20.0f));
+		}
+	}
+
+	/**
+	 * Drop a new crate centered at the given position.
+	 */
+	public RigidBody createCrate(Vec position) {
+		RigidBodyInfo crateDef = new RigidBodyInfo();
+		crateDef.position.set(position);
+		crateDef.type = RigidBodyType.DYNAMIC;
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(crateSize, crateSize);
+
+		FixtureDef crateFixture = new FixtureDef();
+		crateFixture.density = .03f;
+		crateFixture.shape = crateShape;
+
+		RigidBody crate = world.createBody(crateDef);
+		crate.createFixture(crateFixture);
+		crates.add(crate);
+		return crate;
+	}
+}
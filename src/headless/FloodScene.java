@@ -0,0 +1,136 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * The flooding demo: a ball is dropped in every frame and piles up against
+ * the left wall. The player can add a funnel of two slanted walls, which the
+ * headless run does on the first step.
+ */
+public class FloodScene extends Scene {
+
+	float wall = 0.0f;
+	float ball_radius = 0.30f;
+	Vec wallmid_size = new Vec(3.0f, .25f);
+
+	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> walls = new ArrayList<RigidBody>();
+
+	public FloodScene() {
+		dt = 1 / 90f;
+	}
+
+	public FloodScene(BroadPhaseStrategy strategy) {
+		super(strategy);
+		dt = 1 / 90f;
+	}
+
+	@Override
+	public String getName() {
+		return "flood";
+	}
+
+	public ArrayList<RigidBody> getBalls() {
+		return balls;
+	}
+
+	public ArrayList<RigidBody> getWalls() {
+		return walls;
+	}
+
+	@Override
+	public void create() {
+		RigidBodyInfo leftWallDef = new RigidBodyInfo();
+		leftWallDef.position.set(wall, 0);
+		leftWallDef.type = RigidBodyType.STATIC;
+		Polygon leftWallShape = new Polygon();
+		leftWallShape.setAsBox(0, 1000);
+		RigidBody leftWall = world.createBody(leftWallDef);
+		FixtureDef leftWallFixture = new FixtureDef();
+		leftWallFixture.density = 1;
+		leftWallFixture.restitution = 0.3f;
+		leftWallFixture.shape = leftWallShape;
+		leftWall.createFixture(leftWallFixture);
+
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.position.set(0, wall);
+		groundDef.type = RigidBodyType.STATIC;
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(1000, 0);
+		RigidBody ground = world.createBody(groundDef);
+		FixtureDef groundFixture = new FixtureDef();
+		groundFixture.density = 1f;
+		groundFixture.restitution = 0.3f;
+		groundFixture.shape = groundShape;
+		ground.createFixture(groundFixture);
+	}
+
+	@Override
+	public void play(int step) {
+		if (step == 0) {
+			createFunnel();
+		}
+	}
+
+	@Override
+	public void step() {
+		createBall(ball_radius, 5.0f, 14.0f, 0.2f, 0.1f);
+		world.step(dt, 8, 3);
+	}
+
+	/**
+	 * Add the two slanted walls the player places with the space bar.
+	 */
+	public void createFunnel() {
+		createWall(wallmid_size.x, wallmid_size.y, 10f, 8f, (float) Math.toRadians(45));
+		createWall(wallmid_size.x, wallmid_size.y, 4f, 8f, (float) Math.toRadians(-45));
+	}
+
+	public RigidBody createBall(float radius, float x_pos, float y_pos, float density, float r) {
+		RigidBodyInfo ballDef = new RigidBodyInfo();
+		ballDef.position.set(x_pos, y_pos);
+		ballDef.type = RigidBodyType.DYNAMIC;
+
+		Circle c = new Circle();
+		c.m_radius = radius;
+
+		FixtureDef ballFixture = new FixtureDef();
+		ballFixture.density = density;
+		ballFixture.shape = c;
+		ballFixture.restitution = r;
+
+		RigidBody ball = world.createBody(ballDef);
+		ball.createFixture(ballFixture);
+		balls.add(ball);
+		return ball;
+	}
+
+	public RigidBody createWall(float width, float height, float x_pos, float y_pos, float angle) {
+		RigidBodyInfo wallDef = new RigidBodyInfo();
+		wallDef.position.set(x_pos, y_pos);
+		wallDef.type = RigidBodyType.STATIC;
+		wallDef.angle = angle;
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(width, height);
+
+		FixtureDef wallFixture = new FixtureDef();
+		wallFixture.shape = wallShape;
+		wallFixture.restitution = 0.3f;
+
+		RigidBody wall = world.createBody(wallDef);
+		wall.createFixture(wallFixture);
+		wall.setFixedRotation(true);
+		walls.add(wall);
+		return wall;
+	}
+}
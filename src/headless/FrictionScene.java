@@ -0,0 +1,167 @@
+package headless;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * The friction demo: one crate on a frictionless ice shelf and one on a
+ * rough concrete shelf, which the player pushes around with the mouse. The
+ * headless run pushes both crates to the right for the first two seconds.
+ */
+public class FrictionScene extends Scene {
+
+	int windowWidth = 1000;
+	float wall = 0.0f;
+	float crateSize = 1.5f;
+
+	Vec ice_pos = new Vec(7.0f, 10f);
+	Vec ice_size = new Vec(7f, 0.25f);
+	Vec conc_pos = new Vec(7.0f, 2.0f);
+	Vec bodyice_pos = new Vec(7.0f, 11.0f);
+	Vec bodyconc_pos = new Vec(7.0f, 3.0f);
+
+	int pushSteps = 120;
+	Vec pushForce = new Vec(2.0f, 0.0f);
+
+	RigidBody floor_ice;
+	RigidBody floor_conc;
+	RigidBody body_ice;
+	RigidBody body_conc;
+	RigidBody platform;
+
+	@Override
+	public String getName() {
+		return "friction";
+	}
+
+	public RigidBody getIceFloor() {
+		return floor_ice;
+	}
+
+	public RigidBody getConcreteFloor() {
+		return floor_conc;
+	}
+
+	public RigidBody getIceBody() {
+		return body_ice;
+	}
+
+	public RigidBody getConcreteBody() {
+		return body_conc;
+	}
+
+	@Override
+	public void create() {
+		//ice definition
+		RigidBodyInfo pivotDef = new RigidBodyInfo();
+		pivotDef.position.set(ice_pos);
+		pivotDef.type = RigidBodyType.STATIC;
+
+		//ice shape
+		Polygon pivotShape = new Polygon();
+		pivotShape.setAsBox(ice_size.x, ice_size.y);
+		FixtureDef iceFixture = new FixtureDef();
+		iceFixture.friction = 0.0f;
+		iceFixture.shape = pivotShape;
+
+		//create ice
+		floor_ice = world.createBody(pivotDef);
+		floor_ice.createFixture(iceFixture);
+
+		//conc definition
+		RigidBodyInfo concDef = new RigidBodyInfo();
+		concDef.position.set(conc_pos);
+		concDef.type = RigidBodyType.STATIC;
+
+		//conc shape
+		Polygon concShape = new Polygon();
+		concShape.setAsBox(ice_size.x, ice_size.y);
+		FixtureDef concFixture = new FixtureDef();
+		concFixture.friction = 7.0f;
+		concFixture.shape = concShape;
+
+		floor_conc = world.createBody(concDef);
+		floor_conc.createFixture(concFixture);
+
+		RigidBodyInfo bodyiceDef = new RigidBodyInfo();
+		bodyiceDef.position.set(bodyice_pos);
+		bodyiceDef.type = RigidBodyType.DYNAMIC;
+
+		RigidBodyInfo bodyconcDef = new RigidBodyInfo();
+		bodyconcDef.position.set(bodyconc_pos);
+		bodyconcDef.type = RigidBodyType.DYNAMIC;
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(crateSize, crateSize);
+
+		FixtureDef bodyiceFixture = new FixtureDef();
+		bodyiceFixture.density = .03f;
+		bodyiceFixture.shape = crateShape;
+
+		FixtureDef bodyconcFixture = new FixtureDef();
+		bodyconcFixture.density = .03f;
+		bodyconcFixture.shape = crateShape;
+
+		body_ice = world.createBody(bodyiceDef);
+		body_ice.createFixture(bodyiceFixture);
+
+		body_conc = world.createBody(bodyconcDef);
+		body_conc.createFixture(bodyconcFixture);
+
+		RigidBodyInfo leftWallDef = new RigidBodyInfo();
+		leftWallDef.position.set(wall, 0);
+		leftWallDef.type = RigidBodyType.STATIC;
+		Polygon leftWallShape = new Polygon();
+		leftWallShape.setAsBox(0, 1000);
+		RigidBody leftWall = world.createBody(leftWallDef);
+		FixtureDef leftWallFixture = new FixtureDef();
+		leftWallFixture.density = 1;
+		leftWallFixture.restitution = 0.3f;
+		leftWallFixture.shape = leftWallShape;
+		leftWall.createFixture(leftWallFixture);
+
+		RigidBodyInfo rightWallDef = new RigidBodyInfo();
+		rightWallDef.position.set(((windowWidth / 30) / 2) - wall, 0);
+		rightWallDef.type = RigidBodyType.STATIC;
+		Polygon rightWallShape = new Polygon();
+		rightWallShape.setAsBox(0, 1000);
+		RigidBody rightWall = world.createBody(rightWallDef);
+		FixtureDef rightWallFixture = new FixtureDef();
+		rightWallFixture.density = 1;
+		rightWallFixture.restitution = 0.3f;
+		rightWallFixture.shape = rightWallShape;
+		rightWall.createFixture(rightWallFixture);
+
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.position.set(0, wall);
+		groundDef.type = RigidBodyType.STATIC;
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(1000, 0);
+		RigidBody ground = world.createBody(groundDef);
+		FixtureDef groundFixture = new FixtureDef();
+		groundFixture.density = 1f;
+		groundFixture.restitution = 0.3f;
+		groundFixture.shape = groundShape;
+		ground.createFixture(groundFixture);
+
+		// The platform ends up as a second copy of the ground.
+		platform = world.createBody(groundDef);
+		FixtureDef platformFix = new FixtureDef();
+		platformFix.density = 1f;
+		platformFix.restitution = 0.3f;
+		platformFix.shape = groundShape;
+		platform.createFixture(platformFix);
+	}
+
+	@Override
+	public void play(int step) {
+		if (step < pushSteps) {
+			body_ice.applyForce(pushForce, body_ice.getPosition());
+			body_conc.applyForce(pushForce, body_conc.getPosition());
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package headless;
+
+import physics.dynamics.Pool;
+import physics.dynamics.StepProfile;
+
+/**
+ * Steps the frontend scenes with no display and no frame rate cap, and reports
+ * how many steps per second each one runs at. Every run of a scene does
+ * exactly the same work, so the numbers can be compared between builds.
+ * With {@code profile}, also prints where the time of an average step went.
+ *
+ * Usage: HeadlessRunner [scene|all] [steps] [profile]
+ */
+public class HeadlessRunner {
+
+	/**
+	 * The names of all the scenes, in the order {@code all} runs them.
+	 */
+	public static final String[] SCENES = { "crate", "flood", "wheel", "friction", "level1", "level2", "level3" };
+
+	public static void main(String[] args) {
+		String name = args.length > 0 ? args[0] : "all";
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+		boolean profile = args.length > 2 && args[2].equals("profile");
+
+		if (name.equals("all")) {
+			for (String sceneName : SCENES) {
+				run(createScene(sceneName), steps, profile);
+			}
+		}
+		else {
+			Scene scene = createScene(name);
+			if (scene == null) {
+				System.err.println("Unknown scene " + name + ", expected one of:");
+				for (String sceneName : SCENES) {
+					System.err.println("  " + sceneName);
+				}
+				System.exit(1);
+			}
+			run(scene, steps, profile);
+		}
+	}
+
+	/**
+	 * @return a new scene with the given name, or null if there is no such
+	 *         scene.
+	 */
+	public static Scene createScene(String name) {
+		if (name.equals("crate")) {
+			return new CrateScene();
+		}
+		if (name.equals("flood")) {
+			return new FloodScene();
+		}
+		if (name.equals("wheel")) {
+			return new WheelScene();
+		}
+		if (name.equals("friction")) {
+			return new FrictionScene();
+		}
+		if (name.equals("level1")) {
+			return new LevelOneScene();
+		}
+		if (name.equals("level2")) {
+			return new LevelTwoScene();
+		}
+		if (name.equals("level3")) {
+			return new LevelThreeScene();
+		}
+		return null;
+	}
+
+	/**
+	 * Create the scene and step it as fast as possible.
+	 *
+	 * @return the steps per second.
+	 */
+	public static double run(Scene scene, int steps) {
+		return run(scene, steps, false);
+	}
+
+	/**
+	 * Create the scene and step it as fast as possible, optionally printing the
+	 * average step profile afterwards.
+	 *
+	 * @return the steps per second.
+	 */
+	public static double run(Scene scene, int steps, boolean profile) {
+		scene.create();
+		final StepProfile total = new StepProfile();
+		if (profile) {
+			scene.getWorld().setStepProfiling(true);
+			scene.getWorld().setStepProfileListener(new StepProfile.Listener() {
+				public void stepProfiled(Pool world, StepProfile stepProfile) {
+					total.add(stepProfile);
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < steps; i++) {
+			scene.play(i);
+			scene.step();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double stepsPerSecond = steps / seconds;
+
+		System.out.printf("%-9s %6d steps %6d bodies %10.1f steps/s %8.3f ms/step%n", scene.getName(), steps,
+				scene.getWorld().getBodyCount(), stepsPerSecond, seconds * 1e3 / steps);
+		if (profile) {
+			printProfile(total, steps);
+		}
+		return stepsPerSecond;
+	}
+
+	private static void printProfile(StepProfile total, int steps) {
+		double ms = 1e-6 / steps;
+		System.out.printf("  ms/step: new contacts %.3f, collide %.3f, solve %.3f (integrate %.3f, velocity %.3f, "
+				+ "position %.3f), toi %.3f, clear forces %.3f%n", total.findNewContactsNanos * ms,
+				total.collideNanos * ms, total.solveNanos * ms, total.solveIntegrateNanos * ms,
+				total.solveVelocityNanos * ms, total.solvePositionNanos * ms, total.solveTOINanos * ms,
+				total.clearForcesNanos * ms);
+		System.out.printf("  per step: %d islands, %d awake bodies, %d island contacts, %d contacts, %d proxies moved, "
+				+ "%d pairs, %d gjk iters, %d toi iters%n", total.islandCount / steps, total.awakeBodyCount / steps,
+				total.islandContactCount / steps, total.contactCount / steps, total.proxiesMoved / steps,
+				total.pairsFound / steps, total.gjkIters / steps, total.toiIters / steps);
+	}
+}
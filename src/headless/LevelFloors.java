@@ -0,0 +1,56 @@
+package headless;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.Pool;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * The walls and floor shared by all the puzzle levels.
+ */
+class LevelFloors {
+
+	static void create(Pool world, int windowWidth, int windowHeight, Vec floorPos, Vec floorSize) {
+		//Left Wall
+
+		Polygon wallShape = new Polygon();
+		wallShape.setAsBox(0, windowHeight);
+
+		FixtureDef wallFixture = new FixtureDef();
+		wallFixture.density = 1;
+		wallFixture.restitution = 0.3f;
+		wallFixture.shape = wallShape;
+
+		// Both walls were meant to be placed here, but only the left one
+		// moves, to the right edge; the right one stays at the origin.
+		RigidBodyInfo leftWallDef = new RigidBodyInfo();
+		leftWallDef.position.set((windowWidth / 30f) / 2, 0);
+		leftWallDef.type = RigidBodyType.STATIC;
+		RigidBodyInfo rightWallDef = new RigidBodyInfo();
+
+		RigidBody leftWall = world.createBody(leftWallDef);
+		leftWall.createFixture(wallFixture);
+
+		RigidBody rightWall = world.createBody(rightWallDef);
+		rightWall.createFixture(wallFixture);
+
+		//Ground
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.position.set(floorPos);
+		groundDef.type = RigidBodyType.STATIC;
+
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(floorSize.x, floorSize.y);
+
+		FixtureDef groundFixture = new FixtureDef();
+		groundFixture.density = 1f;
+		groundFixture.restitution = 0.3f;
+		groundFixture.shape = groundShape;
+
+		RigidBody floor = world.createBody(groundDef);
+		floor.createFixture(groundFixture);
+	}
+}
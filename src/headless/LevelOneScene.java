@@ -0,0 +1,155 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Puzzle level 1 ({@code frontend.RigiBo}): a ball on top of a pyramid of six
+ * crates, which the player clicks away one at a time to bring the ball down
+ * onto the floor. The headless run removes a crate every two seconds, in the
+ * order they were created.
+ */
+public class LevelOneScene extends Scene {
+
+	int windowHeight = 800;
+	int windowWidth = 720;
+
+	//BALL DATA
+	float ball_radius = .45f;
+	float ball_bounce = .4f;
+	float ball_mass = .3f;
+
+	//BOX DATA
+	float box_size = toCord((windowWidth / 5) / 2) - .20f;
+	float box_bounce = 0.1f;
+	float box_mass = 0.3f;
+
+	float spacing = .45f;
+
+	float floorX = (windowWidth / 5) + (windowWidth / 5) / 2;
+	Vec floorPos = new Vec(toCord(windowWidth) / 2, 4.0f);
+	Vec floorSize = new Vec(toCord(floorX), 0.25f);
+
+	int removeInterval = 120;
+
+	RigidBody ball;
+	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
+
+	@Override
+	public String getName() {
+		return "level1";
+	}
+
+	public RigidBody getBall() {
+		return ball;
+	}
+
+	public ArrayList<RigidBody> getCrates() {
+		return crates;
+	}
+
+	@Override
+	public void create() {
+		setupFloors();
+		createBodies();
+	}
+
+	@Override
+	public void play(int step) {
+		if (step > 0 && step % removeInterval == 0 && !crates.isEmpty()) {
+			world.destroyBody(crates.remove(0));
+		}
+	}
+
+	public float toCord(float a) {
+		float p = (a / 30) / 2;
+		return p;
+	}
+
+	private RigidBody createBall(float radius, Vec pos, float d, float r) {
+		RigidBodyInfo ballDef = new RigidBodyInfo();
+		ballDef.position.set(pos);
+		ballDef.type = RigidBodyType.DYNAMIC;
+
+		Circle c = new Circle();
+		c.m_radius = radius;
+
+		FixtureDef ballFixture = new FixtureDef();
+		ballFixture.density = d;
+		ballFixture.restitution = r;
+		ballFixture.shape = c;
+
+		RigidBody ball = world.createBody(ballDef);
+		ball.createFixture(ballFixture);
+
+		return ball;
+	}
+
+	private RigidBody createBox(Vec pos, float d, float r) {
+		RigidBodyInfo bodyDef = new RigidBodyInfo();
+		bodyDef.position.set(pos);
+		bodyDef.type = RigidBodyType.DYNAMIC;
+
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(box_size, box_size);
+		RigidBody body = world.createBody(bodyDef);
+
+		FixtureDef boxFixture = new FixtureDef();
+		boxFixture.density = d;
+		boxFixture.restitution = r;
+		boxFixture.shape = boxShape;
+		body.createFixture(boxFixture);
+
+		return body;
+	}
+
+	/**
+	 * Destroy the ball and the crates, so the level can be created again with
+	 * {@link #createBodies()}.
+	 */
+	public void destroyBodies() {
+		world.destroyBody(ball);
+		for (RigidBody crate : crates) {
+			world.destroyBody(crate);
+		}
+		crates.clear();
+	}
+
+	/**
+	 * Create the ball and the crates.
+	 */
+	public void createBodies() {
+		//BOXES
+		Vec box1_pos = new Vec(floorPos.x, floorPos.y + floorSize.y + box_size);
+		Vec box2_pos = new Vec(floorPos.x - box_size * 2 - spacing, floorPos.y + floorSize.y + box_size);
+		Vec box3_pos = new Vec(floorPos.x + box_size * 2 + spacing, floorPos.y + floorSize.y + box_size);
+		Vec box4_pos = new Vec(floorPos.x - box_size - spacing / 2, floorPos.y + floorSize.y + box_size * 2 + box_size);
+		Vec box5_pos = new Vec(floorPos.x + box_size + spacing / 2, floorPos.y + floorSize.y + box_size * 2 + box_size);
+		Vec box6_pos = new Vec(floorPos.x, floorPos.y + floorSize.y + box_size * 4 + box_size);
+
+		crates.add(createBox(box1_pos, box_mass, box_bounce));
+		crates.add(createBox(box2_pos, box_mass, box_bounce));
+		crates.add(createBox(box3_pos, box_mass, box_bounce));
+		crates.add(createBox(box4_pos, box_mass, box_bounce));
+		crates.add(createBox(box5_pos, box_mass, box_bounce));
+		crates.add(createBox(box6_pos, box_mass, box_bounce));
+
+		//BALL
+		Vec ball_pos = new Vec(floorPos.x, floorPos.y + floorSize.y + box_size * 6 + ball_radius);
+		ball = createBall(ball_radius, ball_pos, ball_mass, ball_bounce);
+	}
+
+	/**
+	 * Create the walls and the floor.
+	 */
+	public void setupFloors() {
+		LevelFloors.create(world, windowWidth, windowHeight, floorPos, floorSize);
+	}
+}
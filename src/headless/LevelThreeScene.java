@@ -0,0 +1,269 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Puzzle level 3 ({@code frontend.RigiBo3}): a row of dominoes, towers of
+ * crates, trampolines and a spinning kinematic paddle. The headless run
+ * removes a crate every second, in the order they were created.
+ */
+public class LevelThreeScene extends Scene {
+
+	int windowHeight = 800;
+	int windowWidth = 720;
+
+	//BALL DATA
+	Vec Mball_pos = new Vec(3f, 5.2f + .1f);
+	float ball_radius = .45f;
+	float ball_bounce = .2f;
+	float ball_mass = .3f;
+	Vec MStand_pos = new Vec(3f, 5.2f);
+	//BOX DATA
+	float box_bounce = 0.1f;
+	float box_mass = 0.3f;
+	Vec topBall_pos = new Vec(.5f, 11.25f);
+	Vec domoBall_pos = new Vec(1f, 13f);
+
+	//RECTANGLE
+	Vec rect_size = new Vec(1.3f, .2f);
+
+	//2ND FLOOR
+	Vec floor2_size = new Vec(4f, .2f);
+	Vec floor2_pos = new Vec(5f, 11f);
+
+	Vec wall_size = new Vec(.2f, 5.2f);
+	Vec wall_pos = new Vec(1.2f, 6f);
+
+	Vec floorStart_size = new Vec(.5f, .2f);
+	Vec floorStart_pos = new Vec(1.5f, 12f);
+
+	//DOMINOES
+	Vec domo_size = new Vec(.2f, .75f);
+	Vec domo_pos = new Vec(3f, floor2_pos.y + floor2_size.y + domo_size.y);
+	float domo_mass = .3f;
+	float domo_bounce = .1f;
+
+	Vec tramp_pos = new Vec(.5f, 1.3f);
+	Vec tramp_size = new Vec(.5f, .5f);
+
+	Vec tramp2_pos = new Vec(1.9f, 1.3f);
+	Vec tramp2_size = new Vec(.5f, .5f);
+
+	float spacing = .45f;
+
+	float floorX = (windowWidth / 5) + (windowWidth / 5) / 2;
+	Vec floorPos = new Vec(toCord(windowWidth) / 2, 4.0f);
+	Vec floorSize = new Vec(toCord(floorX), 0.25f);
+
+	float aVel = 4f;
+	Vec box1_pos = new Vec(floorPos.x + floorPos.x / 2 + spacing * 3 + .2f, floorPos.y + floorSize.y + 3.5f);
+
+	int removeInterval = 80;
+
+	RigidBody Mball;
+	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> triangles = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> rectangles = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> tramps = new ArrayList<RigidBody>();
+
+	public LevelThreeScene() {
+		dt = 1 / 80f;
+	}
+
+	public LevelThreeScene(BroadPhaseStrategy strategy) {
+		super(strategy);
+		dt = 1 / 80f;
+	}
+
+	@Override
+	public String getName() {
+		return "level3";
+	}
+
+	/**
+	 * @return the ball that has to reach the floor.
+	 */
+	public RigidBody getMainBall() {
+		return Mball;
+	}
+
+	public ArrayList<RigidBody> getCrates() {
+		return crates;
+	}
+
+	public ArrayList<RigidBody> getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * @return the fixed pieces of the level. The first one is the spinning
+	 *         paddle.
+	 */
+	public ArrayList<RigidBody> getRectangles() {
+		return rectangles;
+	}
+
+	public ArrayList<RigidBody> getBalls() {
+		return balls;
+	}
+
+	public ArrayList<RigidBody> getTramps() {
+		return tramps;
+	}
+
+	@Override
+	public void create() {
+		setupFloors();
+		createBodies();
+	}
+
+	@Override
+	public void play(int step) {
+		if (step > 0 && step % removeInterval == 0 && !crates.isEmpty()) {
+			world.destroyBody(crates.remove(0));
+		}
+	}
+
+	@Override
+	public void step() {
+		rectangles.get(0).setAngularVelocity(aVel);
+		world.step(dt, 8, 3);
+	}
+
+	public float toCord(float a) {
+		float p = (a / 30) / 2;
+		return p;
+	}
+
+	private RigidBody createBall(float radius, Vec pos, float d, float r) {
+		RigidBodyInfo ballDef = new RigidBodyInfo();
+		ballDef.position.set(pos);
+		ballDef.type = RigidBodyType.DYNAMIC;
+
+		Circle c = new Circle();
+		c.m_radius = radius;
+
+		FixtureDef ballFixture = new FixtureDef();
+		ballFixture.density = d;
+		ballFixture.restitution = r;
+		ballFixture.shape = c;
+
+		RigidBody ball = world.createBody(ballDef);
+		ball.createFixture(ballFixture);
+
+		return ball;
+	}
+
+	private RigidBody createRect(Vec size, Vec pos, float d, float r, RigidBodyType rt) {
+		RigidBodyInfo bodyDef = new RigidBodyInfo();
+		bodyDef.position.set(pos);
+		bodyDef.type = rt;
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(size.x, size.y);
+		RigidBody body = world.createBody(bodyDef);
+
+		FixtureDef boxFixture = new FixtureDef();
+		boxFixture.density = d;
+		boxFixture.restitution = r;
+		boxFixture.shape = boxShape;
+
+		body.createFixture(boxFixture);
+
+		return body;
+	}
+
+	/**
+	 * Destroy the level's bodies, so it can be created again with
+	 * {@link #createBodies()}. The trampolines are left alone, so every reset
+	 * adds another pair on top of the old ones.
+	 */
+	public void destroyBodies() {
+		world.destroyBody(Mball);
+		for (RigidBody crate : crates) {
+			world.destroyBody(crate);
+		}
+		for (RigidBody tri : triangles) {
+			world.destroyBody(tri);
+		}
+		for (RigidBody ball : balls) {
+			world.destroyBody(ball);
+		}
+
+		for (RigidBody ball : rectangles) {
+			world.destroyBody(ball);
+		}
+		triangles.clear();
+		crates.clear();
+		balls.clear();
+		rectangles.clear();
+	}
+
+	/**
+	 * Create the balls, dominoes, crates, trampolines and fixed pieces.
+	 */
+	public void createBodies() {
+		rectangles.add(createRect(rect_size, box1_pos, box_mass, box_bounce, RigidBodyType.KINEMATIC));
+		rectangles.add(createRect(floor2_size, floor2_pos, box_mass, box_bounce, RigidBodyType.STATIC));
+		rectangles.add(createRect(floorStart_size, floorStart_pos, box_mass, box_bounce, RigidBodyType.STATIC));
+		tramps.add(createRect(tramp_size, tramp_pos, box_mass, 1.2f, RigidBodyType.STATIC));
+		tramps.add(createRect(tramp2_size, tramp2_pos, box_mass, 1.2f, RigidBodyType.STATIC));
+
+		Vec stand = new Vec(floorStart_size.y, floorStart_size.x);
+		Vec stand2 = new Vec(floor2_pos.x + floor2_size.x - .2f, floor2_pos.y + floor2_size.y + stand.y);
+		rectangles.add(createRect(stand, stand2, box_mass, 1.2f, RigidBodyType.STATIC));
+
+		for (float i = 0; i <= 5; i++) {
+			Vec pos = new Vec(domo_pos.x + i, domo_pos.y);
+			crates.add(createRect(domo_size, pos, domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		}
+
+		crates.add(createRect(new Vec(.9f, .9f), new Vec(10.5f, 11f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(4.3f, 7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(4.3f, 8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(4.3f, 9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(4.3f, 10), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(5.4f, 7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(5.4f, 8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(5.4f, 9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(5.4f, 10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(6.5f, 7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(6.5f, 8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(6.5f, 9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(6.5f, 10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(7.6f, 7f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(7.6f, 8f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(7.6f, 9f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.5f, .5f), new Vec(7.6f, 10f), domo_mass, domo_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createRect(new Vec(.4f, .4f), new Vec(.5f, 10.8f), domo_mass, domo_bounce, RigidBodyType.STATIC));
+
+		rectangles.add(createRect(new Vec(.05f, .1f), MStand_pos, 0.0f, 0.0f, RigidBodyType.STATIC));
+		rectangles.add(createRect(wall_size, wall_pos, box_mass, box_bounce, RigidBodyType.STATIC));
+
+		//BALLS
+		Mball = createBall(ball_radius, Mball_pos, ball_mass, ball_bounce);
+		balls.add(createBall(ball_radius, topBall_pos, ball_mass, ball_bounce));
+		balls.add(createBall(ball_radius, domoBall_pos, ball_mass + .2f, ball_bounce));
+		balls.add(createBall(ball_radius, new Vec(stand2.x, stand2.y + stand.y + ball_radius), ball_mass - .2f, ball_bounce));
+	}
+
+	/**
+	 * Create the walls and the floor.
+	 */
+	public void setupFloors() {
+		LevelFloors.create(world, windowWidth, windowHeight, floorPos, floorSize);
+	}
+}
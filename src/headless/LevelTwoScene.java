@@ -0,0 +1,226 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.shapes.Circle;
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * Puzzle level 2 ({@code frontend.RigiBo2}): planks, triangles and balls
+ * stacked to the left of the floor, with the main ball resting on top. The
+ * headless run removes a piece every second: first the planks, then the
+ * triangles, then the other balls.
+ */
+public class LevelTwoScene extends Scene {
+
+	int windowHeight = 800;
+	int windowWidth = 720;
+
+	//BALL DATA
+	float ball_radius = .45f;
+	float ball_bounce = .4f;
+	float ball_mass = .3f;
+
+	//BOX DATA
+	Vec box_size = new Vec(toCord((windowWidth / 5)), .2f);
+	float box_bounce = 0.1f;
+	float box_mass = 0.3f;
+
+	//TRIANGLE DATA
+	float tri_height = 1f;
+	float tri_base = 1f;
+
+	float spacing = .45f;
+
+	float floorX = (windowWidth / 5) + (windowWidth / 5) / 2;
+	Vec floorPos = new Vec(toCord(windowWidth) / 2, 4.0f);
+	Vec floorSize = new Vec(toCord(floorX), 0.25f);
+
+	int removeInterval = 80;
+
+	RigidBody Mball;
+	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> triangles = new ArrayList<RigidBody>();
+	ArrayList<RigidBody> balls = new ArrayList<RigidBody>();
+
+	public LevelTwoScene() {
+		dt = 1 / 80f;
+	}
+
+	public LevelTwoScene(BroadPhaseStrategy strategy) {
+		super(strategy);
+		dt = 1 / 80f;
+	}
+
+	@Override
+	public String getName() {
+		return "level2";
+	}
+
+	/**
+	 * @return the ball that has to reach the floor.
+	 */
+	public RigidBody getMainBall() {
+		return Mball;
+	}
+
+	public ArrayList<RigidBody> getCrates() {
+		return crates;
+	}
+
+	public ArrayList<RigidBody> getTriangles() {
+		return triangles;
+	}
+
+	public ArrayList<RigidBody> getBalls() {
+		return balls;
+	}
+
+	@Override
+	public void create() {
+		setupFloors();
+		createBodies();
+	}
+
+	@Override
+	public void play(int step) {
+		if (step == 0 || step % removeInterval != 0) {
+			return;
+		}
+		if (!crates.isEmpty()) {
+			world.destroyBody(crates.remove(0));
+		}
+		else if (!triangles.isEmpty()) {
+			world.destroyBody(triangles.remove(0));
+		}
+		else if (!balls.isEmpty()) {
+			world.destroyBody(balls.remove(0));
+		}
+	}
+
+	public float toCord(float a) {
+		float p = (a / 30) / 2;
+		return p;
+	}
+
+	private RigidBody createBall(float radius, Vec pos, float d, float r) {
+		RigidBodyInfo ballDef = new RigidBodyInfo();
+		ballDef.position.set(pos);
+		ballDef.type = RigidBodyType.DYNAMIC;
+
+		Circle c = new Circle();
+		c.m_radius = radius;
+
+		FixtureDef ballFixture = new FixtureDef();
+		ballFixture.density = d;
+		ballFixture.restitution = r;
+		ballFixture.shape = c;
+
+		RigidBody ball = world.createBody(ballDef);
+		ball.createFixture(ballFixture);
+
+		return ball;
+	}
+
+	private RigidBody createBox(Vec pos, float d, float r, RigidBodyType rt) {
+		RigidBodyInfo bodyDef = new RigidBodyInfo();
+		bodyDef.position.set(pos);
+		bodyDef.type = rt;
+		Polygon boxShape = new Polygon();
+		boxShape.setAsBox(box_size.x, box_size.y);
+		RigidBody body = world.createBody(bodyDef);
+
+		FixtureDef boxFixture = new FixtureDef();
+		boxFixture.density = d;
+		boxFixture.restitution = r;
+		boxFixture.shape = boxShape;
+
+		body.createFixture(boxFixture);
+
+		return body;
+	}
+
+	private RigidBody createTriangle(Vec pos, float d, float r) {
+		Vec vertices[] = new Vec[3];
+		vertices[2] = new Vec(0, tri_height);
+		vertices[1] = new Vec(tri_base, -tri_height);
+		vertices[0] = new Vec(-tri_base, -tri_height);
+		RigidBodyInfo bodyDef = new RigidBodyInfo();
+		bodyDef.position.set(pos);
+		bodyDef.type = RigidBodyType.DYNAMIC;
+		bodyDef.angle = 0f;
+		Polygon boxShape = new Polygon();
+		boxShape.set(vertices, 3);
+
+		RigidBody body = world.createBody(bodyDef);
+
+		FixtureDef boxFixture = new FixtureDef();
+		boxFixture.density = d;
+		boxFixture.restitution = r;
+		boxFixture.shape = boxShape;
+		boxFixture.friction = 0.6f;
+		body.createFixture(boxFixture);
+
+		return body;
+	}
+
+	/**
+	 * Destroy every ball, plank and triangle, so the level can be created again
+	 * with {@link #createBodies()}.
+	 */
+	public void destroyBodies() {
+		world.destroyBody(Mball);
+		for (RigidBody crate : crates) {
+			world.destroyBody(crate);
+		}
+		for (RigidBody tri : triangles) {
+			world.destroyBody(tri);
+		}
+		for (RigidBody ball : balls) {
+			world.destroyBody(ball);
+		}
+		triangles.clear();
+		crates.clear();
+		balls.clear();
+	}
+
+	/**
+	 * Create the balls, planks and triangles.
+	 */
+	public void createBodies() {
+		//BOXES
+		Vec box1_pos = new Vec(floorPos.x - floorPos.x / 2 + spacing, floorPos.y + floorSize.y + tri_height * 4 + box_size.y);
+		Vec box2_pos = new Vec(floorPos.x - floorPos.x / 2 + spacing * 2 + box_size.x - spacing, 12f - ball_radius - box_size.y);
+
+		crates.add(createBox(box1_pos, box_mass, box_bounce, RigidBodyType.DYNAMIC));
+		crates.add(createBox(box2_pos, box_mass, box_bounce, RigidBodyType.STATIC));
+
+		//TRIANGLES
+		Vec tri_pos1 = new Vec(floorPos.x - floorPos.x / 2 + spacing, floorPos.y + floorSize.y + tri_height);
+		Vec tri_pos2 = new Vec(floorPos.x - floorPos.x / 2 + spacing, floorPos.y + floorSize.y + tri_height * 3);
+		triangles.add(createTriangle(tri_pos1, 0.1f, 0.2f));
+		triangles.add(createTriangle(tri_pos2, 0.1f, 0.2f));
+		//BALLS
+		Vec ball_pos1 = new Vec(floorPos.x - floorPos.x / 2 + spacing + box_size.x - spacing, floorPos.y + floorSize.y + tri_height * 4 + box_size.y * 2 + ball_radius);
+		Vec ball_pos2 = new Vec(floorPos.x - floorPos.x / 2 + spacing * 2 + box_size.x - spacing, 12f);
+		//MBALL
+		Vec Mball_pos = new Vec(floorPos.x - floorPos.x / 2 + spacing - box_size.x + spacing, floorPos.y + floorSize.y + tri_height * 4 + box_size.y * 2 + ball_radius);
+		Mball = createBall(ball_radius, Mball_pos, ball_mass, ball_bounce);
+
+		balls.add(createBall(ball_radius, ball_pos1, ball_mass, ball_bounce));
+		balls.add(createBall(ball_radius, ball_pos2, ball_mass, ball_bounce));
+	}
+
+	/**
+	 * Create the walls and the floor.
+	 */
+	public void setupFloors() {
+		LevelFloors.create(world, windowWidth, windowHeight, floorPos, floorSize);
+	}
+}
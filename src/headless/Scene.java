@@ -0,0 +1,65 @@
+package headless;
+
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.dynamics.Pool;
+import physics.tools.Vec;
+
+/**
+ * The physics side of one of the frontend scenes: the world, the bodies in
+ * it and what happens to it every frame, without any rendering or input. The
+ * frontends build their scene through one of these, and the
+ * {@link HeadlessRunner} steps the same scene with no display attached.
+ *
+ * Scenes that wait for the player to do something script it in
+ * {@link #play(int)}, so headless runs exercise the same bodies and contacts a
+ * player would. The frontends never call it.
+ */
+public abstract class Scene {
+
+	protected final Pool world;
+
+	protected float dt = 1 / 60f;
+
+	protected Scene() {
+		world = new Pool(new Vec(0.0f, -9.8f), true);
+	}
+
+	/**
+	 * @param strategy
+	 *            where the broad-phase of the world stores its proxies.
+	 */
+	protected Scene(BroadPhaseStrategy strategy) {
+		world = new Pool(new Vec(0.0f, -9.8f), true, strategy);
+	}
+
+	public Pool getWorld() {
+		return world;
+	}
+
+	public float getTimeStep() {
+		return dt;
+	}
+
+	/**
+	 * @return the name the headless runner knows this scene by.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Create the bodies the scene starts with.
+	 */
+	public abstract void create();
+
+	/**
+	 * Do what a player would do before the given step.
+	 */
+	public void play(int step) {
+	}
+
+	/**
+	 * Advance the scene by one frame.
+	 */
+	public void step() {
+		world.step(dt, 8, 3);
+	}
+}
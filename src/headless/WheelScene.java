@@ -0,0 +1,138 @@
+package headless;
+
+import java.util.ArrayList;
+
+import physics.collision.shapes.Polygon;
+import physics.dynamics.FixtureDef;
+import physics.dynamics.RigidBody;
+import physics.dynamics.RigidBodyInfo;
+import physics.dynamics.RigidBodyType;
+import physics.tools.Vec;
+
+/**
+ * The wheel demo: a kinematic paddle spinning between two walls, and a crate
+ * the player drops onto it. The headless run drops the crate on the first
+ * step.
+ */
+public class WheelScene extends Scene {
+
+	int windowWidth = 720;
+	float wall = 0.0f;
+	float crateSize = 1.5f;
+	Vec pivot_pos = new Vec(6.5f, 7.0f);
+	Vec pivot_size = new Vec(4f, 0.25f);
+	float pivotSpeed = 1.5f;
+
+	RigidBody pivot;
+	RigidBody platform;
+	ArrayList<RigidBody> crates = new ArrayList<RigidBody>();
+
+	@Override
+	public String getName() {
+		return "wheel";
+	}
+
+	public RigidBody getPivot() {
+		return pivot;
+	}
+
+	public ArrayList<RigidBody> getCrates() {
+		return crates;
+	}
+
+	@Override
+	public void create() {
+		//pivot definition
+		RigidBodyInfo pivotDef = new RigidBodyInfo();
+		pivotDef.position.set(pivot_pos);
+		pivotDef.type = RigidBodyType.KINEMATIC;
+
+		//pivot shape
+		Polygon pivotShape = new Polygon();
+		pivotShape.setAsBox(pivot_size.x, pivot_size.y);
+		FixtureDef pivotFixture = new FixtureDef();
+		pivotFixture.shape = pivotShape;
+
+		//create pivot
+		pivot = world.createBody(pivotDef);
+		pivot.createFixture(pivotFixture);
+
+		RigidBodyInfo leftWallDef = new RigidBodyInfo();
+		leftWallDef.position.set(wall, 0);
+		leftWallDef.type = RigidBodyType.STATIC;
+		Polygon leftWallShape = new Polygon();
+		leftWallShape.setAsBox(0, 1000);
+		RigidBody leftWall = world.createBody(leftWallDef);
+		FixtureDef leftWallFixture = new FixtureDef();
+		leftWallFixture.density = 1;
+		leftWallFixture.restitution = 0.3f;
+		leftWallFixture.shape = leftWallShape;
+		leftWall.createFixture(leftWallFixture);
+
+		RigidBodyInfo rightWallDef = new RigidBodyInfo();
+		rightWallDef.position.set(((windowWidth / 30) / 2) - wall, 0);
+		rightWallDef.type = RigidBodyType.STATIC;
+		Polygon rightWallShape = new Polygon();
+		rightWallShape.setAsBox(0, 1000);
+		RigidBody rightWall = world.createBody(rightWallDef);
+		FixtureDef rightWallFixture = new FixtureDef();
+		rightWallFixture.density = 1;
+		rightWallFixture.restitution = 0.3f;
+		rightWallFixture.shape = rightWallShape;
+		rightWall.createFixture(rightWallFixture);
+
+		RigidBodyInfo groundDef = new RigidBodyInfo();
+		groundDef.position.set(0, wall);
+		groundDef.type = RigidBodyType.STATIC;
+		Polygon groundShape = new Polygon();
+		groundShape.setAsBox(1000, 0);
+		RigidBody ground = world.createBody(groundDef);
+		FixtureDef groundFixture = new FixtureDef();
+		groundFixture.density = 1f;
+		groundFixture.restitution = 0.3f;
+		groundFixture.shape = groundShape;
+		ground.createFixture(groundFixture);
+
+		// The platform ends up as a second copy of the ground.
+		platform = world.createBody(groundDef);
+		FixtureDef platformFix = new FixtureDef();
+		platformFix.density = 1f;
+		platformFix.restitution = 0.3f;
+		platformFix.shape = groundShape;
+		platform.createFixture(platformFix);
+	}
+
+	@Override
+	public void play(int step) {
+		if (step == 0) {
+			createCrate(new Vec(pivot_pos.x - 2.0f, pivot_pos.y + 4.0f));
+		}
+	}
+
+	@Override
+	public void step() {
+		pivot.setAngularVelocity(pivotSpeed);
+		world.step(dt, 8, 3);
+	}
+
+	/**
+	 * Drop a new crate centered at the given position.
+	 */
+	public RigidBody createCrate(Vec position) {
+		RigidBodyInfo crateDef = new RigidBodyInfo();
+		crateDef.position.set(position);
+		crateDef.type = RigidBodyType.DYNAMIC;
+
+		Polygon crateShape = new Polygon();
+		crateShape.setAsBox(crateSize, crateSize);
+
+		FixtureDef crateFixture = new FixtureDef();
+		crateFixture.density = .03f;
+		crateFixture.shape = crateShape;
+
+		RigidBody crate = world.createBody(crateDef);
+		crate.createFixture(crateFixture);
+		crates.add(crate);
+		return crate;
+	}
+}
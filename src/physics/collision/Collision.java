@@ -19,8 +19,21 @@ public class Collision {
 	public static final int NULL_FEATURE = Integer.MAX_VALUE;
 	
 	private final IWorldPool pool;
+	private final Distance distance;
 	
 	public Collision(IWorldPool argPool) {
+		this(argPool, null);
+	}
+	
+	/**
+	 * Create a collision that uses its own distance instead of the pool's, so it
+	 * can be used on another thread alongside the pool's collision.
+	 * 
+	 * @param argPool
+	 * @param argDistance
+	 *            the distance to use, or null to use the pool's
+	 */
+	public Collision(IWorldPool argPool, Distance argDistance) {
 		incidentEdge[0] = new ClipVertex();
 		incidentEdge[1] = new ClipVertex();
 		clipPoints1[0] = new ClipVertex();
@@ -28,6 +41,7 @@ public class Collision {
 		clipPoints2[0] = new ClipVertex();
 		clipPoints2[1] = new ClipVertex();
 		pool = argPool;
+		distance = argDistance;
 	}
 	
 	private final DistanceInput input = new DistanceInput();
@@ -52,7 +66,8 @@ public class Collision {
 		
 		cache.count = 0;
 		
-		pool.getDistance().distance(output, cache, input);
+		final Distance dist = distance != null ? distance : pool.getDistance();
+		dist.distance(output, cache, input);
 		// djm note: anything significant about 10.0f?
 		return output.distance < 10.0f * Settings.EPSILON;
 	}
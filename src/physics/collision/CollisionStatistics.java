@@ -0,0 +1,63 @@
+package physics.collision;
+
+import physics.tools.MathUtils;
+
+/**
+ * Counters for the distance and time of impact routines of one world.
+ * Get them with {@link physics.dynamics.Pool#getStatistics(CollisionStatistics)}.
+ */
+public class CollisionStatistics {
+	/** number of gjk distance calls */
+	public int gjkCalls;
+
+	/** total gjk iterations */
+	public int gjkIters;
+
+	/** most gjk iterations taken by one call */
+	public int gjkMaxIters;
+
+	/** number of time of impact calls */
+	public int toiCalls;
+
+	/** total time of impact iterations */
+	public int toiIters;
+
+	/** most time of impact iterations taken by one call */
+	public int toiMaxIters;
+
+	/** total root finder iterations */
+	public int toiRootIters;
+
+	/** most root finder iterations taken by one push back */
+	public int toiMaxRootIters;
+
+	/** time of impact calls that skipped the root finder, because the shapes could not come close */
+	public int toiCulled;
+
+	public void setZero() {
+		gjkCalls = 0;
+		gjkIters = 0;
+		gjkMaxIters = 0;
+		toiCalls = 0;
+		toiIters = 0;
+		toiMaxIters = 0;
+		toiRootIters = 0;
+		toiMaxRootIters = 0;
+		toiCulled = 0;
+	}
+
+	public void add(Distance distance) {
+		gjkCalls += distance.gjkCalls;
+		gjkIters += distance.gjkIters;
+		gjkMaxIters = MathUtils.max(gjkMaxIters, distance.gjkMaxIters);
+	}
+
+	public void add(TimeOfImpact toi) {
+		toiCalls += toi.toiCalls;
+		toiIters += toi.toiIters;
+		toiMaxIters = MathUtils.max(toiMaxIters, toi.toiMaxIters);
+		toiRootIters += toi.toiRootIters;
+		toiMaxRootIters = MathUtils.max(toiMaxRootIters, toi.toiMaxRootIters);
+		toiCulled += toi.toiCulled;
+	}
+}
@@ -18,9 +18,31 @@ import physics.tools.Vec;
  */
 public class Distance {
 	
-	public static int GJK_CALLS = 0;
-	public static int GJK_ITERS = 0;
-	public static int GJK_MAX_ITERS = 20;
+	/**
+	 * The most support point iterations one distance call will take.
+	 */
+	public static final int MAX_ITERS = 20;
+	
+	// statistics for this instance, reset with resetStatistics()
+	public int gjkCalls = 0;
+	public int gjkIters = 0;
+	public int gjkMaxIters = 0;
+	
+	public final void resetStatistics() {
+		gjkCalls = 0;
+		gjkIters = 0;
+		gjkMaxIters = 0;
+	}
+	
+	/**
+	 * Add the statistics of another instance to this one, used to fold the
+	 * counts of per-thread instances back into the world's.
+	 */
+	public final void addStatistics(Distance other) {
+		gjkCalls += other.gjkCalls;
+		gjkIters += other.gjkIters;
+		gjkMaxIters = MathUtils.max(gjkMaxIters, other.gjkMaxIters);
+	}
 
 	/**
 	 */
@@ -562,7 +584,7 @@ public class Distance {
 	 * @param input
 	 */
 	public final void distance(final DistanceOutput output, final SimplexCache cache, final DistanceInput input) {
-		GJK_CALLS++;
+		++gjkCalls;
 		
 		final DistanceProxy proxyA = input.proxyA;
 		final DistanceProxy proxyB = input.proxyB;
@@ -587,7 +609,7 @@ public class Distance {
 		
 		// Main iteration loop
 		int iter = 0;
-		while (iter < GJK_MAX_ITERS) {
+		while (iter < MAX_ITERS) {
 			
 			// Copy simplex so we can identify duplicates.
 			saveCount = simplex.m_count;
@@ -646,7 +668,7 @@ public class Distance {
 			
 			// Iteration count is equated to the number of support point calls.
 			++iter;
-			++GJK_ITERS;
+			++gjkIters;
 			
 			// Check for duplicate support points. This is the main termination criteria.
 			boolean duplicate = false;
@@ -666,7 +688,7 @@ public class Distance {
 			++simplex.m_count;
 		}
 		
-		GJK_MAX_ITERS = MathUtils.max(GJK_MAX_ITERS, iter);
+		gjkMaxIters = MathUtils.max(gjkMaxIters, iter);
 		
 		// Prepare output.
 		simplex.getWitnessPoints(output.pointA, output.pointB);
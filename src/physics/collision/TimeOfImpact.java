@@ -18,11 +18,34 @@ import physics.tools.Vec;
 public class TimeOfImpact {
 	public static final int MAX_ITERATIONS = 1000;
 	
-	public static int toiCalls = 0;
-	public static int toiIters = 0;
-	public static int toiMaxIters = 0;
-	public static int toiRootIters = 0;
-	public static int toiMaxRootIters = 0;
+	// statistics for this instance, reset with resetStatistics()
+	public int toiCalls = 0;
+	public int toiIters = 0;
+	public int toiMaxIters = 0;
+	public int toiRootIters = 0;
+	public int toiMaxRootIters = 0;
+	public int toiCulled = 0;
+	
+	public final void resetStatistics() {
+		toiCalls = 0;
+		toiIters = 0;
+		toiMaxIters = 0;
+		toiRootIters = 0;
+		toiMaxRootIters = 0;
+		toiCulled = 0;
+	}
+	
+	/**
+	 * Add the statistics of another instance to this one.
+	 */
+	public final void addStatistics(TimeOfImpact other) {
+		toiCalls += other.toiCalls;
+		toiIters += other.toiIters;
+		toiMaxIters = MathUtils.max(toiMaxIters, other.toiMaxIters);
+		toiRootIters += other.toiRootIters;
+		toiMaxRootIters = MathUtils.max(toiMaxRootIters, other.toiMaxRootIters);
+		toiCulled += other.toiCulled;
+	}
 	
 	/**
 	 * Input parameters for TOI
@@ -64,10 +87,64 @@ public class TimeOfImpact {
 	
 	
 	private final IWorldPool pool;
+	private final Distance distance;
 	
 	public TimeOfImpact(IWorldPool argPool){
+		this(argPool, null);
+	}
+	
+	/**
+	 * Create a time of impact that uses its own distance instead of the pool's,
+	 * so it can be used on another thread alongside the pool's.
+	 * 
+	 * @param argPool
+	 * @param argDistance
+	 *            the distance to use, or null to use the pool's
+	 */
+	public TimeOfImpact(IWorldPool argPool, Distance argDistance){
 		pool = argPool;
+		distance = argDistance;
+	}
+	/**
+	 * Lower bound on the distance between the core shapes over [0, tMax]. Each
+	 * shape stays within its farthest vertex from the center of mass, whatever
+	 * it rotates, while the center moves along a straight line.
+	 */
+	private static float sweptBoundsGap(Sweep sweepA, float extentA, Sweep sweepB, float extentB, float tMax) {
+		final float ax = sweepA.c0.x + tMax * (sweepA.c.x - sweepA.c0.x);
+		final float ay = sweepA.c0.y + tMax * (sweepA.c.y - sweepA.c0.y);
+		final float bx = sweepB.c0.x + tMax * (sweepB.c.x - sweepB.c0.x);
+		final float by = sweepB.c0.y + tMax * (sweepB.c.y - sweepB.c0.y);
+		
+		final float gapX = MathUtils.max(MathUtils.min(sweepB.c0.x, bx) - MathUtils.max(sweepA.c0.x, ax),
+				MathUtils.min(sweepA.c0.x, ax) - MathUtils.max(sweepB.c0.x, bx));
+		final float gapY = MathUtils.max(MathUtils.min(sweepB.c0.y, by) - MathUtils.max(sweepA.c0.y, ay),
+				MathUtils.min(sweepA.c0.y, ay) - MathUtils.max(sweepB.c0.y, by));
+		return MathUtils.max(gapX, gapY) - extentA - extentB;
 	}
+	
+	/**
+	 * Farthest any point of the core shape moves over the whole sweep.
+	 */
+	private static float sweepMotion(Sweep sweep, float extent) {
+		final float dx = sweep.c.x - sweep.c0.x;
+		final float dy = sweep.c.y - sweep.c0.y;
+		return MathUtils.sqrt(dx * dx + dy * dy) + MathUtils.abs(sweep.a - sweep.a0) * extent;
+	}
+	
+	/**
+	 * Farthest vertex of the core shape from the center of mass.
+	 */
+	private static float coreExtent(DistanceProxy proxy, Vec localCenter) {
+		float maxLengthSquared = 0.0f;
+		for (int i = 0; i < proxy.m_count; ++i) {
+			final float dx = proxy.m_vertices[i].x - localCenter.x;
+			final float dy = proxy.m_vertices[i].y - localCenter.y;
+			maxLengthSquared = MathUtils.max(maxLengthSquared, dx * dx + dy * dy);
+		}
+		return MathUtils.sqrt(maxLengthSquared);
+	}
+	
 	/**
 	 * Compute the upper bound on time before two shapes penetrate. Time is represented as
 	 * a fraction between [0,tMax]. This uses a swept separating axis and may miss some
@@ -109,6 +186,23 @@ public class TimeOfImpact {
 		
 		assert (target > tolerance);
 		
+		// The root finder can only report touching where the core shapes come
+		// closer than the target. Skip it when the bounds the shapes sweep over
+		// until tMax stay further apart than that, with a slop to spare.
+		final float extentA = coreExtent(proxyA, sweepA.localCenter);
+		final float extentB = coreExtent(proxyB, sweepB.localCenter);
+		final float cullDistance = target + tolerance + Settings.linearSlop;
+		if (sweptBoundsGap(sweepA, extentA, sweepB, extentB, tMax) > cullDistance) {
+			++toiCulled;
+			output.state = TOIOutputState.SEPARATED;
+			output.t = tMax;
+			return;
+		}
+		
+		// No point of a shape moves further than its center plus its farthest
+		// vertex turning, so slow pairs can be skipped after the first distance.
+		final float motion = tMax * (sweepMotion(sweepA, extentA) + sweepMotion(sweepB, extentB));
+		
 		float t1 = 0f;
 		int iter = 0;
 		
@@ -128,7 +222,8 @@ public class TimeOfImpact {
 			// to get a separating axis
 			distanceInput.transformA = xfA;
 			distanceInput.transformB = xfB;
-			pool.getDistance().distance(distanceOutput, cache, distanceInput);
+			final Distance dist = distance != null ? distance : pool.getDistance();
+			dist.distance(distanceOutput, cache, distanceInput);
 			
 			// System.out.printf("Dist: %f at points %f, %f and %f, %f.  %d iterations\n",
 			// distanceOutput.distance, distanceOutput.pointA.x, distanceOutput.pointA.y,
@@ -152,6 +247,13 @@ public class TimeOfImpact {
 				break;
 			}
 			
+			if (iter == 0 && distanceOutput.distance - motion > cullDistance) {
+				++toiCulled;
+				output.state = TOIOutputState.SEPARATED;
+				output.t = tMax;
+				break;
+			}
+			
 			// Initialize the separating axis.
 			fcn.initialize(cache, proxyA, sweepA, proxyB, sweepB, t1);
 			
@@ -1,7 +1,5 @@
 package physics.collision;
 
-import physics.collision.broadphase.DynamicTreeNode;
-
 /**
  * callback for  DynamicTree}
  */
@@ -9,6 +7,8 @@ public interface TreeCallback {
 	
 	/**
 	 * Callback from a query request.  
+	 * @param proxyId the id of the proxy that overlaps the query
+	 * @return false to stop the query
 	 */
-	public boolean treeCallback(DynamicTreeNode node);
+	public boolean treeCallback(int proxyId);
 }
@@ -1,10 +1,9 @@
 package physics.collision.broadphase;
 
-import java.util.Arrays;
-
 import physics.collision.AABB;
 import physics.collision.PairCallback;
 import physics.collision.TreeCallback;
+import physics.tools.MathUtils;
 import physics.tools.Vec;
 
 /**
@@ -13,41 +12,92 @@ import physics.tools.Vec;
  * This broad-phase does not persist pairs. Instead, this reports potentially new pairs.
  * It is up to the client to consume the new pairs and to track subsequent overlap.
  * 
+ * Static proxies are kept apart in their own {@link DynamicTree}, which is rebuilt from
+ * the top down whenever static proxies were created, moved or destroyed since the last
+ * updatePairs. Their ids have the {@link #STATIC_PROXY} bit set. They never enter the
+ * move buffer: instead the moving proxies query both trees, and a new or moved static
+ * proxy buffers the moving proxies it overlaps.
  */
 public class BroadPhase implements TreeCallback {
 	
 	public static final int NULL_PROXY = -1;
 	
-	private final DynamicTree m_tree;
+	/**
+	 * Set in the ids of static proxies.
+	 */
+	public static final int STATIC_PROXY = 1 << 30;
+	
+	/**
+	 * Pair buffers up to this size are sorted with an insertion sort instead of
+	 * the radix sort.
+	 */
+	public static final int INSERTION_SORT_THRESHOLD = 32;
+	
+	private final BroadPhaseStrategy m_tree;
+	private final DynamicTree m_staticTree = new DynamicTree();
+	private boolean m_staticTreeChanged;
 	
 	private int m_proxyCount;
 	
-	private DynamicTreeNode[] m_moveBuffer;
+	private int[] m_moveBuffer;
 	private int m_moveCapacity;
 	private int m_moveCount;
 	
-	private Pair[] m_pairBuffer;
+	/**
+	 * The index of each proxy in the move buffer, or NULL_PROXY when it is not
+	 * buffered, so a proxy is buffered once and unbuffered in O(1).
+	 */
+	private int[] m_moveSlots;
+	
+	/**
+	 * Pairs packed as (proxyIdA << 32) | proxyIdB with proxyIdA < proxyIdB, so
+	 * sorting the keys sorts the pairs by A and then B.
+	 */
+	private long[] m_pairBuffer;
+	private long[] m_sortBuffer;
 	private int m_pairCapacity;
 	private int m_pairCount;
 	
-	private DynamicTreeNode m_queryProxy;
+	// one 256 bucket histogram for each byte of a pair key
+	private final int[] m_radixCounts = new int[8 * 256];
+	
+	private int m_queryProxyId;
+	// added to the ids the tree being queried reports
+	private int m_queryTag;
+	private final AABB m_queryAABB = new AABB();
+	private final AABB m_overlapAABB = new AABB();
+	
+	private final QueryWrapper m_queryWrapper = new QueryWrapper();
+	private final TouchCallback m_touchCallback = new TouchCallback();
 	
 	public BroadPhase() {
+		this(new DynamicTree());
+	}
+	
+	/**
+	 * Create a broad-phase that stores its proxies in the given tree.
+	 * 
+	 * @param strategy
+	 *            {@link DynamicTree} or {@link DynamicTreeFlatNodes}
+	 */
+	public BroadPhase(BroadPhaseStrategy strategy) {
 		m_proxyCount = 0;
 		
 		m_pairCapacity = 16;
 		m_pairCount = 0;
-		m_pairBuffer = new Pair[m_pairCapacity];
-		for (int i = 0; i < m_pairCapacity; i++) {
-			m_pairBuffer[i] = new Pair();
-		}
+		m_pairBuffer = new long[m_pairCapacity];
+		m_sortBuffer = new long[m_pairCapacity];
 		
 		m_moveCapacity = 16;
 		m_moveCount = 0;
-		m_moveBuffer = new DynamicTreeNode[m_moveCapacity];
+		m_moveBuffer = new int[m_moveCapacity];
+		m_moveSlots = new int[m_moveCapacity];
+		for (int i = 0; i < m_moveCapacity; ++i) {
+			m_moveSlots[i] = NULL_PROXY;
+		}
 		
-		m_tree = new DynamicTree();
-		m_queryProxy = null;
+		m_tree = strategy;
+		m_queryProxyId = NULL_PROXY;
 	}
 	
 	/**
@@ -58,11 +108,63 @@ public class BroadPhase implements TreeCallback {
 	 * @param userData
 	 * @return
 	 */
-	public final DynamicTreeNode createProxy(final AABB aabb, Object userData) {
-		DynamicTreeNode node = m_tree.createProxy(aabb, userData);
+	public final int createProxy(final AABB aabb, Object userData) {
+		return createProxy(aabb, userData, false);
+	}
+	
+	/**
+	 * Create a proxy with an initial AABB. Pairs are not reported until
+	 * updatePairs is called.
+	 * 
+	 * @param aabb
+	 * @param userData
+	 * @param isStatic
+	 *            true for the proxies of static bodies, which go in the
+	 *            static tree.
+	 * @return
+	 */
+	public final int createProxy(final AABB aabb, Object userData, boolean isStatic) {
 		++m_proxyCount;
-		bufferMove(node);
-		return node;
+		if (isStatic) {
+			int proxyId = m_staticTree.createProxy(aabb, userData) | STATIC_PROXY;
+			m_staticTreeChanged = true;
+			touchOverlapping(proxyId);
+			return proxyId;
+		}
+		int proxyId = m_tree.createProxy(aabb, userData);
+		bufferMove(proxyId);
+		return proxyId;
+	}
+
+	/**
+	 * Create many proxies at once, as if createProxy was called for each in
+	 * order, letting the tree build itself in one pass. Pairs are not reported
+	 * until updatePairs is called.
+	 *
+	 * @param aabbs
+	 * @param userData
+	 * @param count
+	 * @param isStatic
+	 *            true if all of them are proxies of static bodies.
+	 * @param proxyIds
+	 *            receives the proxy ids
+	 */
+	public final void createProxies(final AABB[] aabbs, Object[] userData, int count, boolean isStatic,
+			int[] proxyIds) {
+		m_proxyCount += count;
+		if (isStatic) {
+			m_staticTree.createProxies(aabbs, userData, count, proxyIds);
+			m_staticTreeChanged = true;
+			for (int i = 0; i < count; ++i) {
+				proxyIds[i] |= STATIC_PROXY;
+				touchOverlapping(proxyIds[i]);
+			}
+			return;
+		}
+		m_tree.createProxies(aabbs, userData, count, proxyIds);
+		for (int i = 0; i < count; ++i) {
+			bufferMove(proxyIds[i]);
+		}
 	}
 	
 	/**
@@ -70,35 +172,89 @@ public class BroadPhase implements TreeCallback {
 	 * 
 	 * @param proxyId
 	 */
-	public final void destroyProxy(DynamicTreeNode proxy) {
-		unbufferMove(proxy);
+	public final void destroyProxy(int proxyId) {
 		--m_proxyCount;
-		m_tree.destroyProxy(proxy);
+		if (isStatic(proxyId)) {
+			m_staticTree.destroyProxy(proxyId & ~STATIC_PROXY);
+			m_staticTreeChanged = true;
+			return;
+		}
+		unbufferMove(proxyId);
+		m_tree.destroyProxy(proxyId);
 	}
 	
 	/**
 	 * Call MoveProxy as many times as you like, then when you are done
 	 * call UpdatePairs to finalized the proxy pairs (for your time step).
 	 */
-	public final void moveProxy(DynamicTreeNode proxy, final AABB aabb, final Vec displacement) {
-		boolean buffer = m_tree.moveProxy(proxy, aabb, displacement);
+	public final void moveProxy(int proxyId, final AABB aabb, final Vec displacement) {
+		if (isStatic(proxyId)) {
+			if (m_staticTree.moveProxy(proxyId & ~STATIC_PROXY, aabb, displacement)) {
+				m_staticTreeChanged = true;
+				touchOverlapping(proxyId);
+			}
+			return;
+		}
+		boolean buffer = m_tree.moveProxy(proxyId, aabb, displacement);
 		if (buffer) {
-			bufferMove(proxy);
+			bufferMove(proxyId);
 		}
 	}
 	
-	public boolean testOverlap(DynamicTreeNode proxyA, DynamicTreeNode proxyB) {
-		AABB a = proxyA.aabb;
-		AABB b = proxyB.aabb;
-		if (b.lowerBound.x - a.upperBound.x > 0.0f || b.lowerBound.y - a.upperBound.y > 0.0f) {
-			return false;
+	/**
+	 * Call to trigger a re-processing of the proxy's pairs on the next call
+	 * to UpdatePairs. For a static proxy, the moving proxies it overlaps are
+	 * re-processed instead.
+	 */
+	public final void touchProxy(int proxyId) {
+		if (isStatic(proxyId)) {
+			touchOverlapping(proxyId);
+			return;
 		}
-		
-		if (a.lowerBound.x - b.upperBound.x > 0.0f || a.lowerBound.y - b.upperBound.y > 0.0f) {
-			return false;
+		bufferMove(proxyId);
+	}
+	
+	public boolean testOverlap(int proxyIdA, int proxyIdB) {
+		if (isStatic(proxyIdA) == false && isStatic(proxyIdB) == false) {
+			return m_tree.testOverlap(proxyIdA, proxyIdB);
 		}
-		
-		return true;
+		getFatAABB(proxyIdA, m_overlapAABB);
+		getFatAABB(proxyIdB, m_queryAABB);
+		return AABB.testOverlap(m_overlapAABB, m_queryAABB);
+	}
+	
+	/**
+	 * Get the fat AABB of a proxy.
+	 * 
+	 * @param proxyId
+	 * @param out
+	 */
+	public final void getFatAABB(int proxyId, final AABB out) {
+		if (isStatic(proxyId)) {
+			m_staticTree.getFatAABB(proxyId & ~STATIC_PROXY, out);
+			return;
+		}
+		m_tree.getFatAABB(proxyId, out);
+	}
+	
+	/**
+	 * Get the user data of a proxy.
+	 * 
+	 * @param proxyId
+	 * @return
+	 */
+	public final Object getUserData(int proxyId) {
+		if (isStatic(proxyId)) {
+			return m_staticTree.getUserData(proxyId & ~STATIC_PROXY);
+		}
+		return m_tree.getUserData(proxyId);
+	}
+	
+	/**
+	 * @return true if the proxy is in the static tree.
+	 */
+	public static final boolean isStatic(int proxyId) {
+		return (proxyId & STATIC_PROXY) != 0;
 	}
 	
 	/**
@@ -110,6 +266,21 @@ public class BroadPhase implements TreeCallback {
 		return m_proxyCount;
 	}
 	
+	/**
+	 * @return the number of proxies moved since the last updatePairs.
+	 */
+	public final int getMoveCount() {
+		return m_moveCount;
+	}
+	
+	/**
+	 * @return the number of distinct pairs the last updatePairs found, before
+	 *         the callback filtered them.
+	 */
+	public final int getPairCount() {
+		return m_pairCount;
+	}
+	
 	
 	/**
 	 * Update the pairs. This results in pair callbacks. This can only add pairs.
@@ -121,20 +292,30 @@ public class BroadPhase implements TreeCallback {
 		// Reset pair buffer
 		m_pairCount = 0;
 		
+		if (m_staticTreeChanged) {
+			m_staticTree.rebuildTopDown();
+			m_staticTreeChanged = false;
+		}
+		
 		// Perform tree queries for all moving proxies.
 		for (int i = 0; i < m_moveCount; ++i) {
-			m_queryProxy = m_moveBuffer[i];
-			if (m_queryProxy == null) {
+			m_queryProxyId = m_moveBuffer[i];
+			if (m_queryProxyId == NULL_PROXY) {
+				// destroyed after it was buffered
 				continue;
 			}
+			m_moveSlots[m_queryProxyId] = NULL_PROXY;
 			
 			// We have to query the tree with the fat AABB so that
 			// we don't fail to create a pair that may touch later.
-			// final AABB fatAABB = m_tree.getFatAABB(m_queryProxy);
-			
 			// Query tree, create pairs and add them pair buffer.
-
-			m_tree.query(this, m_queryProxy.aabb);
+			m_queryTag = 0;
+			m_tree.queryProxy(this, m_queryProxyId);
+			
+			// Then the static tree.
+			m_queryTag = STATIC_PROXY;
+			m_tree.getFatAABB(m_queryProxyId, m_queryAABB);
+			m_staticTree.query(this, m_queryAABB);
 		}
 
 		
@@ -142,29 +323,91 @@ public class BroadPhase implements TreeCallback {
 		m_moveCount = 0;
 		
 		// Sort the pair buffer to expose duplicates.
-		Arrays.sort(m_pairBuffer, 0, m_pairCount);
+		sortPairs();
+		
+		// Remove duplicate pairs.
+		final long[] pairs = m_pairBuffer;
+		int uniqueCount = 0;
+		for (int i = 0; i < m_pairCount; ++i) {
+			if (uniqueCount == 0 || pairs[i] != pairs[uniqueCount - 1]) {
+				pairs[uniqueCount++] = pairs[i];
+			}
+		}
+		m_pairCount = uniqueCount;
 		
 		// Send the pairs back to the client.
-		int i = 0;
-		while (i < m_pairCount) {
-			Pair primaryPair = m_pairBuffer[i];
-			Object userDataA = m_tree.getUserData(primaryPair.proxyIdA);
-			Object userDataB = m_tree.getUserData(primaryPair.proxyIdB);
+		for (int i = 0; i < m_pairCount; ++i) {
+			Object userDataA = getUserData((int) (pairs[i] >>> 32));
+			Object userDataB = getUserData((int) pairs[i]);
 			
 			// log.debug("returning pair: "+userDataA+", "+userDataB);
 			callback.addPair(userDataA, userDataB);
-			++i;
-			
-			// Skip any duplicate pairs.
-			while (i < m_pairCount) {
-				Pair pair = m_pairBuffer[i];
-				if (pair.proxyIdA != primaryPair.proxyIdA || pair.proxyIdB != primaryPair.proxyIdB) {
-					break;
+		}
+	}
+	
+	/**
+	 * Sort the pair buffer with a least significant digit radix sort, one byte
+	 * at a time. Bytes that are the same in every key (usually the high bytes of
+	 * both proxy ids) are skipped. Short buffers use an insertion sort.
+	 */
+	private final void sortPairs() {
+		final int count = m_pairCount;
+		long[] keys = m_pairBuffer;
+		
+		if (count <= INSERTION_SORT_THRESHOLD) {
+			for (int i = 1; i < count; ++i) {
+				final long key = keys[i];
+				int j = i - 1;
+				while (j >= 0 && keys[j] > key) {
+					keys[j + 1] = keys[j];
+					--j;
 				}
-				// log.debug("skipping duplicate");
-				++i;
+				keys[j + 1] = key;
+			}
+			return;
+		}
+		
+		final int[] counts = m_radixCounts;
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = 0;
+		}
+		for (int i = 0; i < count; ++i) {
+			final long key = keys[i];
+			for (int b = 0; b < 8; ++b) {
+				++counts[(b << 8) | (int) ((key >>> (b << 3)) & 0xff)];
 			}
 		}
+		
+		long[] sorted = m_sortBuffer;
+		for (int b = 0; b < 8; ++b) {
+			final int offset = b << 8;
+			final int shift = b << 3;
+			if (counts[offset | (int) ((keys[0] >>> shift) & 0xff)] == count) {
+				// every key has the same digit here
+				continue;
+			}
+			
+			// Turn the histogram into bucket start positions.
+			int start = 0;
+			for (int d = 0; d < 256; ++d) {
+				final int bucket = counts[offset + d];
+				counts[offset + d] = start;
+				start += bucket;
+			}
+			
+			for (int i = 0; i < count; ++i) {
+				final long key = keys[i];
+				sorted[counts[offset | (int) ((key >>> shift) & 0xff)]++] = key;
+			}
+			
+			final long[] temp = keys;
+			keys = sorted;
+			sorted = temp;
+		}
+		
+		// Both buffers have the same capacity, so just keep whichever ended up sorted.
+		m_pairBuffer = keys;
+		m_sortBuffer = sorted;
 	}
 	
 	/**
@@ -175,7 +418,24 @@ public class BroadPhase implements TreeCallback {
 	 * @param aabb
 	 */
 	public final void query(final TreeCallback callback, final AABB aabb) {
-		m_tree.query(callback, aabb);
+		// Don't query the static tree if the callback stopped the query. The
+		// callback may query again, so put back the state of an outer query.
+		final QueryWrapper wrapper = m_queryWrapper;
+		final TreeCallback outerCallback = wrapper.callback;
+		final int outerTag = wrapper.tag;
+		final boolean outerStopped = wrapper.stopped;
+		wrapper.callback = callback;
+		wrapper.tag = 0;
+		wrapper.stopped = false;
+		m_tree.query(wrapper, aabb);
+		if (!wrapper.stopped) {
+			wrapper.callback = callback;
+			wrapper.tag = STATIC_PROXY;
+			m_staticTree.query(wrapper, aabb);
+		}
+		wrapper.callback = outerCallback;
+		wrapper.tag = outerTag;
+		wrapper.stopped = outerStopped;
 	}
 	
 	/**
@@ -187,64 +447,138 @@ public class BroadPhase implements TreeCallback {
 		return m_tree.computeHeight();
 	}
 	
-	protected final void bufferMove(DynamicTreeNode node) {
+	/**
+	 * Get the tree that stores the proxies that are not static.
+	 * 
+	 * @return
+	 */
+	public final BroadPhaseStrategy getStrategy() {
+		return m_tree;
+	}
+	
+	/**
+	 * Get the tree that stores the static proxies.
+	 * 
+	 * @return
+	 */
+	public final DynamicTree getStaticTree() {
+		return m_staticTree;
+	}
+	
+	/**
+	 * Pack two proxy ids into one key, smaller id first. Proxy ids are never
+	 * negative, so sorting keys sorts the pairs by the first id and then the
+	 * second.
+	 * 
+	 * @param proxyIdA
+	 * @param proxyIdB
+	 * @return
+	 */
+	public static final long pairKey(int proxyIdA, int proxyIdB) {
+		assert (proxyIdA >= 0 && proxyIdB >= 0);
+		if (proxyIdA < proxyIdB) {
+			return ((long) proxyIdA << 32) | proxyIdB;
+		}
+		return ((long) proxyIdB << 32) | proxyIdA;
+	}
+	
+	protected final void bufferMove(int proxyId) {
+		if (proxyId >= m_moveSlots.length) {
+			int[] old = m_moveSlots;
+			m_moveSlots = new int[MathUtils.max(proxyId + 1, old.length * 2)];
+			System.arraycopy(old, 0, m_moveSlots, 0, old.length);
+			for (int i = old.length; i < m_moveSlots.length; ++i) {
+				m_moveSlots[i] = NULL_PROXY;
+			}
+		}
+		else if (m_moveSlots[proxyId] != NULL_PROXY) {
+			// Already buffered, its pairs are found once.
+			return;
+		}
+		
 		if (m_moveCount == m_moveCapacity) {
-			DynamicTreeNode[] old = m_moveBuffer;
+			int[] old = m_moveBuffer;
 			m_moveCapacity *= 2;
-			m_moveBuffer = new DynamicTreeNode[m_moveCapacity];
-			for (int i = 0; i < old.length; i++) {
-				m_moveBuffer[i] = old[i];
-			}
+			m_moveBuffer = new int[m_moveCapacity];
+			System.arraycopy(old, 0, m_moveBuffer, 0, old.length);
 		}
 		
-		m_moveBuffer[m_moveCount] = node;
+		m_moveSlots[proxyId] = m_moveCount;
+		m_moveBuffer[m_moveCount] = proxyId;
 		++m_moveCount;
 	}
 	
-	protected final void unbufferMove(DynamicTreeNode proxy) {
-		for (int i = 0; i < m_moveCount; i++) {
-			if (m_moveBuffer[i] == proxy) {
-				m_moveBuffer[i] = null;
-			}
+	/**
+	 * Take a proxy out of the move buffer. Its slot is left as NULL_PROXY for
+	 * updatePairs to skip.
+	 */
+	protected final void unbufferMove(int proxyId) {
+		if (proxyId >= m_moveSlots.length || m_moveSlots[proxyId] == NULL_PROXY) {
+			return;
 		}
+		m_moveBuffer[m_moveSlots[proxyId]] = NULL_PROXY;
+		m_moveSlots[proxyId] = NULL_PROXY;
+	}
+	
+	/**
+	 * Buffer the moving proxies that overlap a static proxy, so they find it
+	 * on the next call to UpdatePairs.
+	 */
+	private final void touchOverlapping(int staticProxyId) {
+		m_staticTree.getFatAABB(staticProxyId & ~STATIC_PROXY, m_overlapAABB);
+		m_tree.query(m_touchCallback, m_overlapAABB);
 	}
 	
 	// private final PairStack pairStack = new PairStack();
 	/**
 	 * This is called from DynamicTree::query when we are gathering pairs.
 	 */
-	public final boolean treeCallback(DynamicTreeNode proxy) {
+	public final boolean treeCallback(int proxyId) {
+		proxyId |= m_queryTag;
 		
 		// log.debug("Got a proxy back");
 		// A proxy cannot form a pair with itself.
-		if (proxy == m_queryProxy) {
+		if (proxyId == m_queryProxyId) {
 			// log.debug("It was us...");
 			return true;
 		}
 		
 		// Grow the pair buffer as needed.
 		if (m_pairCount == m_pairCapacity) {
-			Pair[] oldBuffer = m_pairBuffer;
+			long[] oldBuffer = m_pairBuffer;
 			m_pairCapacity *= 2;
-			m_pairBuffer = new Pair[m_pairCapacity];
-			for (int i = 0; i < oldBuffer.length; i++) {
-				m_pairBuffer[i] = oldBuffer[i];
-			}
-			for (int i = oldBuffer.length; i < m_pairCapacity; i++) {
-				m_pairBuffer[i] = new Pair();
-			}
+			m_pairBuffer = new long[m_pairCapacity];
+			System.arraycopy(oldBuffer, 0, m_pairBuffer, 0, oldBuffer.length);
+			m_sortBuffer = new long[m_pairCapacity];
 		}
 		
-		if (proxy.id < m_queryProxy.id) {
-			m_pairBuffer[m_pairCount].proxyIdA = proxy.id;
-			m_pairBuffer[m_pairCount].proxyIdB = m_queryProxy.id;
-		}
-		else {
-			m_pairBuffer[m_pairCount].proxyIdA = m_queryProxy.id;
-			m_pairBuffer[m_pairCount].proxyIdB = proxy.id;
-		}
+		m_pairBuffer[m_pairCount] = pairKey(proxyId, m_queryProxyId);
 		
 		++m_pairCount;
 		return true;
 	}
+	
+	/**
+	 * Marks the ids the static tree reports for a query callback.
+	 */
+	private static class QueryWrapper implements TreeCallback {
+		TreeCallback callback;
+		int tag;
+		boolean stopped;
+		
+		public boolean treeCallback(int proxyId) {
+			if (callback.treeCallback(proxyId | tag)) {
+				return true;
+			}
+			stopped = true;
+			return false;
+		}
+	}
+	
+	private class TouchCallback implements TreeCallback {
+		public boolean treeCallback(int proxyId) {
+			bufferMove(proxyId);
+			return true;
+		}
+	}
 }
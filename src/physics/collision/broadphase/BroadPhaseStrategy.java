@@ -0,0 +1,108 @@
+package physics.collision.broadphase;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.tools.Vec;
+
+/**
+ * The spatial structure used by the {@link BroadPhase} to store proxies. Proxies
+ * are referred to by integer ids, which stay valid until the proxy is destroyed.
+ */
+public interface BroadPhaseStrategy {
+
+	/**
+	 * Create a proxy. Provide a tight fitting AABB and a userData pointer.
+	 *
+	 * @param aabb
+	 * @param userData
+	 * @return the proxy id
+	 */
+	int createProxy(AABB aabb, Object userData);
+
+	/**
+	 * Create many proxies at once, as if createProxy was called for each in
+	 * order. The structure may build itself in one pass instead of taking
+	 * the proxies in one at a time.
+	 *
+	 * @param aabbs
+	 *            tight fitting AABBs, from index 0
+	 * @param userData
+	 *            the userData of each proxy
+	 * @param count
+	 *            the number of proxies to create
+	 * @param proxyIds
+	 *            receives the proxy ids
+	 */
+	void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds);
+
+	/**
+	 * Destroy a proxy
+	 *
+	 * @param proxyId
+	 */
+	void destroyProxy(int proxyId);
+
+	/**
+	 * Move a proxy with a swepted AABB. If the proxy has moved outside of its
+	 * fattened AABB, then the proxy is removed from the tree and re-inserted.
+	 * Otherwise the function returns immediately.
+	 *
+	 * @return true if the proxy was re-inserted.
+	 */
+	boolean moveProxy(int proxyId, AABB aabb, Vec displacement);
+
+	Object getUserData(int proxyId);
+
+	/**
+	 * Copy the fattened AABB of a proxy.
+	 *
+	 * @param proxyId
+	 * @param out
+	 */
+	void getFatAABB(int proxyId, AABB out);
+
+	/**
+	 * Test if the fattened AABBs of two proxies overlap.
+	 *
+	 * @param proxyIdA
+	 * @param proxyIdB
+	 * @return
+	 */
+	boolean testOverlap(int proxyIdA, int proxyIdB);
+
+	/**
+	 * Query an AABB for overlapping proxies. The callback class is called for
+	 * each proxy that overlaps the supplied AABB.
+	 *
+	 * @param callback
+	 * @param aabb
+	 */
+	void query(TreeCallback callback, AABB aabb);
+
+	/**
+	 * Query the proxies whose fattened AABB overlaps the fattened AABB of the
+	 * given proxy. The proxy itself may or may not be reported.
+	 *
+	 * @param callback
+	 * @param proxyId
+	 */
+	void queryProxy(TreeCallback callback, int proxyId);
+
+	/**
+	 * Compute the height of the tree.
+	 */
+	int computeHeight();
+
+	int getHeight();
+
+	int getMaxBalance();
+
+	float getAreaRatio();
+
+	int getInsertionCount();
+
+	/**
+	 * Validate this tree. For testing.
+	 */
+	void validate();
+}
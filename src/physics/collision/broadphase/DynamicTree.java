@@ -16,9 +16,21 @@ import physics.tools.Vec;
  * small amounts without triggering a tree update.
  * 
  */
-public class DynamicTree {
+public class DynamicTree implements BroadPhaseStrategy {
   public static final int MAX_STACK_SIZE = 64;
 
+  /**
+   * The tree is rebuilt when its area ratio grows past this factor of the ratio after the last
+   * rebuild.
+   */
+  public static final float DEFAULT_REBUILD_AREA_GROWTH = 1.5f;
+
+  /**
+   * The area ratio is checked after this many insertions, or after as many insertions as there are
+   * proxies if that is more.
+   */
+  public static final int MIN_QUALITY_CHECK_INTERVAL = 256;
+
   private int m_root;
   private DynamicTreeNode[] m_nodes;
   private int m_nodeCount;
@@ -28,6 +40,11 @@ public class DynamicTree {
 
   private int m_insertionCount;
 
+  private float m_rebuildAreaGrowth = DEFAULT_REBUILD_AREA_GROWTH;
+  private float m_rebuiltAreaRatio;
+  private int m_nextQualityCheck = MIN_QUALITY_CHECK_INTERVAL;
+  private int m_rebuildCount;
+
   private final Vec[] drawVecs = new Vec[4];
   private final DynamicIntStack intStack = new DynamicIntStack(10);
 
@@ -60,7 +77,45 @@ public class DynamicTree {
    * @param userData
    * @return
    */
-  public final DynamicTreeNode createProxy(final AABB aabb, Object userData) {
+  public final int createProxy(final AABB aabb, Object userData) {
+    int proxyId = allocateLeaf(aabb, userData);
+
+    insertLeaf(proxyId);
+    checkQuality();
+
+    return proxyId;
+  }
+
+  /**
+   * Create many proxies at once. When they at least double the number of proxies, as when a level
+   * is loaded, the leaves are not inserted one at a time: the whole tree is built once with
+   * {@link #rebuildTopDown()}, in O(n log n) and with a better shape than the insertions would
+   * give. Fewer proxies are inserted one at a time.
+   */
+  public final void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds) {
+    final int leafCount = (m_nodeCount + 1) / 2;
+    if (count < MathUtils.max(leafCount, 2)) {
+      for (int i = 0; i < count; ++i) {
+        proxyIds[i] = createProxy(aabbs[i], userData[i]);
+      }
+      return;
+    }
+
+    // The leaves are not in the tree until the rebuild finds them.
+    for (int i = 0; i < count; ++i) {
+      proxyIds[i] = allocateLeaf(aabbs[i], userData[i]);
+    }
+    rebuildTopDown();
+
+    // Start over the quality checks from the new tree.
+    m_rebuiltAreaRatio = getAreaRatio();
+    m_nextQualityCheck = m_insertionCount + MathUtils.max(MIN_QUALITY_CHECK_INTERVAL, leafCount + count);
+  }
+
+  /**
+   * Allocate a leaf with the fattened AABB, not yet in the tree.
+   */
+  private final int allocateLeaf(final AABB aabb, Object userData) {
     int proxyId = allocateNode();
 
     // Fatten the aabb
@@ -70,10 +125,7 @@ public class DynamicTree {
     node.aabb.upperBound.x = aabb.upperBound.x + Settings.aabbExtension;
     node.aabb.upperBound.y = aabb.upperBound.y + Settings.aabbExtension;
     node.userData = userData;
-
-    insertLeaf(proxyId);
-
-    return node;
+    return proxyId;
   }
 
   /**
@@ -81,9 +133,7 @@ public class DynamicTree {
    * 
    * @param proxyId
    */
-  public final void destroyProxy(DynamicTreeNode proxy) {
-    assert (proxy != null);
-    int proxyId = proxy.id;
+  public final void destroyProxy(int proxyId) {
     assert (0 <= proxyId && proxyId < m_nodeCapacity);
     assert (m_nodes[proxyId].isLeaf());
 
@@ -98,9 +148,7 @@ public class DynamicTree {
    * 
    * @return true if the proxy was re-inserted.
    */
-  public final boolean moveProxy(DynamicTreeNode proxy, final AABB aabb, Vec displacement) {
-	assert(proxy != null);
-	int proxyId = proxy.id;
+  public final boolean moveProxy(int proxyId, final AABB aabb, Vec displacement) {
     assert (0 <= proxyId && proxyId < m_nodeCapacity);
     final DynamicTreeNode node = m_nodes[proxyId];
     assert (node.isLeaf());
@@ -140,6 +188,7 @@ public class DynamicTree {
     node.aabb.upperBound.y = upperBound.y;
 
     insertLeaf(proxyId);
+    checkQuality();
     return true;
   }
 
@@ -153,6 +202,17 @@ public class DynamicTree {
     return m_nodes[proxyId].aabb;
   }
 
+  public final void getFatAABB(int proxyId, AABB out) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    out.set(m_nodes[proxyId].aabb);
+  }
+
+  public final boolean testOverlap(int proxyIdA, int proxyIdB) {
+    assert (0 <= proxyIdA && proxyIdA < m_nodeCapacity);
+    assert (0 <= proxyIdB && proxyIdB < m_nodeCapacity);
+    return AABB.testOverlap(m_nodes[proxyIdA].aabb, m_nodes[proxyIdB].aabb);
+  }
+
   /**
    * Query an AABB for overlapping proxies. The callback class is called for each proxy that
    * overlaps the supplied AABB.
@@ -174,7 +234,7 @@ public class DynamicTree {
 
       if (AABB.testOverlap(node.aabb, aabb)) {
         if (node.isLeaf()) {
-          boolean proceed = callback.treeCallback(node);
+          boolean proceed = callback.treeCallback(nodeId);
           if (!proceed) {
             return;
           }
@@ -186,6 +246,11 @@ public class DynamicTree {
     }
   }
   
+  public final void queryProxy(TreeCallback callback, int proxyId) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    query(callback, m_nodes[proxyId].aabb);
+  }
+
   /**
    * Compute the height of the tree.
    */
@@ -358,6 +423,255 @@ public class DynamicTree {
     validate();
   }
 
+  public static final int REBUILD_BIN_COUNT = 16;
+
+  private int[] m_buildLeaves = new int[16];
+  // the fattened AABB of each build leaf, kept in the same order, (lower x, lower y, upper x,
+  // upper y)
+  private float[] m_buildBounds = new float[64];
+  private int[] m_buildStack = new int[64];
+  private int[] m_buildNodes = new int[16];
+  private final float[] m_binBounds = new float[4 * REBUILD_BIN_COUNT];
+  private final int[] m_binCounts = new int[REBUILD_BIN_COUNT];
+  private final float[] m_binRightCosts = new float[REBUILD_BIN_COUNT];
+
+  /**
+   * Rebuild the tree from the top down. Each node splits its leaves on the longer axis of their
+   * centers, at the bin boundary with the lowest surface area heuristic: the perimeter of each
+   * half times its number of leaves. Proxy ids do not change. Takes O(n log n) for n proxies, so
+   * unlike {@link #rebuildBottomUp()} it can be used outside of testing.
+   */
+  public void rebuildTopDown() {
+    int count = 0;
+
+    // Build array of leaves. Free the rest.
+    for (int i = 0; i < m_nodeCapacity; ++i) {
+      if (m_nodes[i].height < 0) {
+        // free node in pool
+        continue;
+      }
+
+      if (m_nodes[i].isLeaf()) {
+        if (count == m_buildLeaves.length) {
+          m_buildLeaves = copyOf(m_buildLeaves, count * 2);
+          m_buildBounds = copyOf(m_buildBounds, count * 8);
+        }
+        final AABB aabb = m_nodes[i].aabb;
+        m_nodes[i].parent = NULL_NODE;
+        m_buildBounds[4 * count] = aabb.lowerBound.x;
+        m_buildBounds[4 * count + 1] = aabb.lowerBound.y;
+        m_buildBounds[4 * count + 2] = aabb.upperBound.x;
+        m_buildBounds[4 * count + 3] = aabb.upperBound.y;
+        m_buildLeaves[count++] = i;
+      } else {
+        freeNode(i);
+      }
+    }
+
+    m_root = NULL_NODE;
+    if (count == 0) {
+      return;
+    }
+
+    // Each range of leaves is split into a new node until it holds one leaf. A stack entry is
+    // (start, end, parent, 1 or 2 for the child of the parent it becomes).
+    final int[] leaves = m_buildLeaves;
+    int built = 0;
+    int top = 0;
+    m_buildStack[top++] = 0;
+    m_buildStack[top++] = count;
+    m_buildStack[top++] = NULL_NODE;
+    m_buildStack[top++] = 0;
+    while (top > 0) {
+      final int child = m_buildStack[--top];
+      final int parent = m_buildStack[--top];
+      final int end = m_buildStack[--top];
+      final int start = m_buildStack[--top];
+
+      int nodeId;
+      if (end - start == 1) {
+        nodeId = leaves[start];
+      } else {
+        nodeId = allocateNode();
+        if (built == m_buildNodes.length) {
+          m_buildNodes = copyOf(m_buildNodes, built * 2);
+        }
+        m_buildNodes[built++] = nodeId;
+      }
+
+      m_nodes[nodeId].parent = parent;
+      if (parent == NULL_NODE) {
+        m_root = nodeId;
+      } else if (child == 1) {
+        m_nodes[parent].child1 = nodeId;
+      } else {
+        m_nodes[parent].child2 = nodeId;
+      }
+
+      if (end - start == 1) {
+        continue;
+      }
+
+      final int mid = partitionLeaves(start, end);
+      if (top + 8 > m_buildStack.length) {
+        m_buildStack = copyOf(m_buildStack, m_buildStack.length * 2);
+      }
+      m_buildStack[top++] = start;
+      m_buildStack[top++] = mid;
+      m_buildStack[top++] = nodeId;
+      m_buildStack[top++] = 1;
+      m_buildStack[top++] = mid;
+      m_buildStack[top++] = end;
+      m_buildStack[top++] = nodeId;
+      m_buildStack[top++] = 2;
+    }
+
+    // Children were built after their parents, so fix the nodes from the last one back.
+    for (int i = built - 1; i >= 0; --i) {
+      final DynamicTreeNode node = m_nodes[m_buildNodes[i]];
+      final DynamicTreeNode child1 = m_nodes[node.child1];
+      final DynamicTreeNode child2 = m_nodes[node.child2];
+      node.aabb.combine(child1.aabb, child2.aabb);
+      node.height = 1 + MathUtils.max(child1.height, child2.height);
+    }
+  }
+
+  /**
+   * Order the build leaves in [start, end) into two halves as described in
+   * {@link #rebuildTopDown()}.
+   *
+   * @return the start of the second half, strictly between start and end.
+   */
+  private final int partitionLeaves(int start, int end) {
+    final int[] leaves = m_buildLeaves;
+    final float[] leafBounds = m_buildBounds;
+
+    // Bounds of the leaf centers, doubled.
+    float lowerX = Float.MAX_VALUE, lowerY = Float.MAX_VALUE;
+    float upperX = -Float.MAX_VALUE, upperY = -Float.MAX_VALUE;
+    for (int i = start; i < end; ++i) {
+      final int i4 = 4 * i;
+      final float cx = leafBounds[i4] + leafBounds[i4 + 2];
+      final float cy = leafBounds[i4 + 1] + leafBounds[i4 + 3];
+      lowerX = MathUtils.min(lowerX, cx);
+      lowerY = MathUtils.min(lowerY, cy);
+      upperX = MathUtils.max(upperX, cx);
+      upperY = MathUtils.max(upperY, cy);
+    }
+
+    final boolean splitX = upperX - lowerX >= upperY - lowerY;
+    final int axis = splitX ? 0 : 1;
+    final float lower = splitX ? lowerX : lowerY;
+    final float extent = splitX ? upperX - lowerX : upperY - lowerY;
+    if (extent <= 0.0f) {
+      // All centers are the same, any split is as good.
+      return (start + end) >>> 1;
+    }
+    final float binScale = REBUILD_BIN_COUNT * 0.999f / extent;
+
+    final float[] bounds = m_binBounds;
+    final int[] counts = m_binCounts;
+    for (int b = 0; b < REBUILD_BIN_COUNT; ++b) {
+      counts[b] = 0;
+      bounds[4 * b] = Float.MAX_VALUE;
+      bounds[4 * b + 1] = Float.MAX_VALUE;
+      bounds[4 * b + 2] = -Float.MAX_VALUE;
+      bounds[4 * b + 3] = -Float.MAX_VALUE;
+    }
+    for (int i = start; i < end; ++i) {
+      final int i4 = 4 * i;
+      final int b = bin(leafBounds, i4 + axis, lower, binScale);
+      ++counts[b];
+      final int b4 = 4 * b;
+      bounds[b4] = MathUtils.min(bounds[b4], leafBounds[i4]);
+      bounds[b4 + 1] = MathUtils.min(bounds[b4 + 1], leafBounds[i4 + 1]);
+      bounds[b4 + 2] = MathUtils.max(bounds[b4 + 2], leafBounds[i4 + 2]);
+      bounds[b4 + 3] = MathUtils.max(bounds[b4 + 3], leafBounds[i4 + 3]);
+    }
+
+    // Sweep the bins from the right to get the cost of every right half, then from the left.
+    final float[] rightCosts = m_binRightCosts;
+    float rLowerX = Float.MAX_VALUE, rLowerY = Float.MAX_VALUE;
+    float rUpperX = -Float.MAX_VALUE, rUpperY = -Float.MAX_VALUE;
+    int rightCount = 0;
+    for (int b = REBUILD_BIN_COUNT - 1; b > 0; --b) {
+      final int b4 = 4 * b;
+      rLowerX = MathUtils.min(rLowerX, bounds[b4]);
+      rLowerY = MathUtils.min(rLowerY, bounds[b4 + 1]);
+      rUpperX = MathUtils.max(rUpperX, bounds[b4 + 2]);
+      rUpperY = MathUtils.max(rUpperY, bounds[b4 + 3]);
+      rightCount += counts[b];
+      rightCosts[b] = rightCount == 0 ? Float.MAX_VALUE : 2.0f * (rUpperX - rLowerX + rUpperY - rLowerY) * rightCount;
+    }
+
+    float lLowerX = Float.MAX_VALUE, lLowerY = Float.MAX_VALUE;
+    float lUpperX = -Float.MAX_VALUE, lUpperY = -Float.MAX_VALUE;
+    int leftCount = 0;
+    float bestCost = Float.MAX_VALUE;
+    int bestBin = -1;
+    for (int b = 1; b < REBUILD_BIN_COUNT; ++b) {
+      final int b4 = 4 * (b - 1);
+      lLowerX = MathUtils.min(lLowerX, bounds[b4]);
+      lLowerY = MathUtils.min(lLowerY, bounds[b4 + 1]);
+      lUpperX = MathUtils.max(lUpperX, bounds[b4 + 2]);
+      lUpperY = MathUtils.max(lUpperY, bounds[b4 + 3]);
+      leftCount += counts[b - 1];
+      if (leftCount == 0 || rightCosts[b] == Float.MAX_VALUE) {
+        continue;
+      }
+      final float cost = 2.0f * (lUpperX - lLowerX + lUpperY - lLowerY) * leftCount + rightCosts[b];
+      if (cost < bestCost) {
+        bestCost = cost;
+        bestBin = b;
+      }
+    }
+    // The centers span the bins, so the first and last bins are never empty.
+    assert (bestBin > 0);
+
+    int i = start;
+    int j = end - 1;
+    while (i <= j) {
+      if (bin(leafBounds, 4 * i + axis, lower, binScale) < bestBin) {
+        ++i;
+      } else {
+        final int temp = leaves[i];
+        leaves[i] = leaves[j];
+        leaves[j] = temp;
+        final int i4 = 4 * i;
+        final int j4 = 4 * j;
+        for (int k = 0; k < 4; ++k) {
+          final float bound = leafBounds[i4 + k];
+          leafBounds[i4 + k] = leafBounds[j4 + k];
+          leafBounds[j4 + k] = bound;
+        }
+        --j;
+      }
+    }
+    assert (start < i && i < end);
+    return i;
+  }
+
+  /**
+   * @param index the index of the lower bound on the split axis in the build bounds.
+   */
+  private static final int bin(float[] leafBounds, int index, float lower, float binScale) {
+    final float center = leafBounds[index] + leafBounds[index + 2];
+    final int b = (int) ((center - lower) * binScale);
+    return b < 0 ? 0 : b >= REBUILD_BIN_COUNT ? REBUILD_BIN_COUNT - 1 : b;
+  }
+
+  private static final float[] copyOf(float[] old, int length) {
+    final float[] array = new float[length];
+    System.arraycopy(old, 0, array, 0, old.length);
+    return array;
+  }
+
+  private static final int[] copyOf(int[] old, int length) {
+    final int[] array = new int[length];
+    System.arraycopy(old, 0, array, 0, old.length);
+    return array;
+  }
+
   private final int allocateNode() {
     if (m_freeList == NULL_NODE) {
       assert (m_nodeCount == m_nodeCapacity);
@@ -408,6 +722,50 @@ public class DynamicTree {
     return m_insertionCount;
   }
 
+  /**
+   * Set when the tree rebuilds itself from the top down: once its area ratio has grown past the
+   * given factor of the ratio right after the last rebuild. The ratio is checked after every
+   * {@link #MIN_QUALITY_CHECK_INTERVAL} insertions, or every as many insertions as there are
+   * proxies, so checking costs O(1) per insertion.
+   * 
+   * @param areaGrowth the factor, {@link #DEFAULT_REBUILD_AREA_GROWTH} by default. 0 turns the
+   *        rebuilds off.
+   */
+  public void setRebuildAreaGrowth(float areaGrowth) {
+    assert (areaGrowth == 0.0f || areaGrowth >= 1.0f);
+    m_rebuildAreaGrowth = areaGrowth;
+  }
+
+  public float getRebuildAreaGrowth() {
+    return m_rebuildAreaGrowth;
+  }
+
+  /**
+   * @return the number of times the tree rebuilt itself.
+   */
+  public int getRebuildCount() {
+    return m_rebuildCount;
+  }
+
+  private final void checkQuality() {
+    if (m_insertionCount < m_nextQualityCheck || m_rebuildAreaGrowth == 0.0f) {
+      return;
+    }
+    final int leafCount = (m_nodeCount + 1) / 2;
+    m_nextQualityCheck = m_insertionCount + MathUtils.max(MIN_QUALITY_CHECK_INTERVAL, leafCount);
+
+    final float areaRatio = getAreaRatio();
+    if (m_rebuiltAreaRatio > 0.0f && areaRatio <= m_rebuildAreaGrowth * m_rebuiltAreaRatio) {
+      return;
+    }
+
+    // The first check has nothing to compare with, so it rebuilds to know the ratio of a good
+    // tree.
+    rebuildTopDown();
+    m_rebuiltAreaRatio = getAreaRatio();
+    ++m_rebuildCount;
+  }
+
   private final AABB combinedAABB = new AABB();
 
   private final void insertLeaf(int leaf) {
@@ -518,6 +876,7 @@ public class DynamicTree {
 
       m_nodes[index].height = 1 + MathUtils.max(m_nodes[child1].height, m_nodes[child2].height);
       m_nodes[index].aabb.combine(m_nodes[child1].aabb, m_nodes[child2].aabb);
+      rotate(index);
 
       index = m_nodes[index].parent;
     }
@@ -560,6 +919,7 @@ public class DynamicTree {
 
         m_nodes[index].aabb.combine(m_nodes[child1].aabb, m_nodes[child2].aabb);
         m_nodes[index].height = 1 + MathUtils.max(m_nodes[child1].height, m_nodes[child2].height);
+        rotate(index);
 
         index = m_nodes[index].parent;
       }
@@ -695,6 +1055,108 @@ public class DynamicTree {
     return iA;
   }
 
+  // Swap a child of node A with a grandchild under its other child if that makes the other child
+  // smaller. The children's AABBs must be up to date. A keeps its AABB.
+  private void rotate(int iA) {
+    final DynamicTreeNode A = m_nodes[iA];
+    if (A.height < 2) {
+      return;
+    }
+
+    final int iB = A.child1;
+    final int iC = A.child2;
+    final DynamicTreeNode B = m_nodes[iB];
+    final DynamicTreeNode C = m_nodes[iC];
+
+    // The perimeter each swap saves: B with F or G leaves C as (B, G) or (F, B), C with D or E
+    // leaves B as (C, E) or (D, C).
+    float bestGain = 0.0f;
+    int swap = 0;
+    if (C.isLeaf() == false) {
+      final float area = C.aabb.getPerimeter();
+      combinedAABB.combine(B.aabb, m_nodes[C.child2].aabb);
+      float gain = area - combinedAABB.getPerimeter();
+      if (gain > bestGain) {
+        bestGain = gain;
+        swap = 1;
+      }
+      combinedAABB.combine(m_nodes[C.child1].aabb, B.aabb);
+      gain = area - combinedAABB.getPerimeter();
+      if (gain > bestGain) {
+        bestGain = gain;
+        swap = 2;
+      }
+    }
+    if (B.isLeaf() == false) {
+      final float area = B.aabb.getPerimeter();
+      combinedAABB.combine(C.aabb, m_nodes[B.child2].aabb);
+      float gain = area - combinedAABB.getPerimeter();
+      if (gain > bestGain) {
+        bestGain = gain;
+        swap = 3;
+      }
+      combinedAABB.combine(m_nodes[B.child1].aabb, C.aabb);
+      gain = area - combinedAABB.getPerimeter();
+      if (gain > bestGain) {
+        bestGain = gain;
+        swap = 4;
+      }
+    }
+
+    switch (swap) {
+      case 1: {
+        // B <-> F
+        final int iF = C.child1;
+        A.child1 = iF;
+        C.child1 = iB;
+        finishRotation(A, iA, C, iC, iF, iB);
+        break;
+      }
+      case 2: {
+        // B <-> G
+        final int iG = C.child2;
+        A.child1 = iG;
+        C.child2 = iB;
+        finishRotation(A, iA, C, iC, iG, iB);
+        break;
+      }
+      case 3: {
+        // C <-> D
+        final int iD = B.child1;
+        A.child2 = iD;
+        B.child1 = iC;
+        finishRotation(A, iA, B, iB, iD, iC);
+        break;
+      }
+      case 4: {
+        // C <-> E
+        final int iE = B.child2;
+        A.child2 = iE;
+        B.child2 = iC;
+        finishRotation(A, iA, B, iB, iE, iC);
+        break;
+      }
+      default:
+        break;
+    }
+  }
+
+  // Fix the parents, AABB and heights after grandchild iUp of A moved up into A and child iDown
+  // moved down into child P.
+  private void finishRotation(DynamicTreeNode A, int iA, DynamicTreeNode P, int iP, int iUp,
+      int iDown) {
+    final DynamicTreeNode up = m_nodes[iUp];
+    final DynamicTreeNode down = m_nodes[iDown];
+    up.parent = iA;
+    down.parent = iP;
+
+    final DynamicTreeNode child1 = m_nodes[P.child1];
+    final DynamicTreeNode child2 = m_nodes[P.child2];
+    P.aabb.combine(child1.aabb, child2.aabb);
+    P.height = 1 + MathUtils.max(child1.height, child2.height);
+    A.height = 1 + MathUtils.max(m_nodes[A.child1].height, m_nodes[A.child2].height);
+  }
+
   private void validateStructure(int index) {
     if (index == NULL_NODE) {
       return;
@@ -0,0 +1,717 @@
+package physics.collision.broadphase;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.tools.MathUtils;
+import physics.tools.Settings;
+import physics.tools.Vec;
+
+/**
+ * A {@link DynamicTree} that keeps its nodes in flat primitive arrays instead of
+ * {@link DynamicTreeNode} objects. Node i has its fattened AABB at
+ * m_aabbs[4 * i] (lower x, lower y, upper x, upper y) and its links in
+ * m_parent[i], m_child1[i] and m_child2[i]. Inserts and removes leaves like
+ * {@link DynamicTree}, so given the proxies one at a time the two hand out the
+ * same proxy ids, find the same pairs and can be swapped without changing the
+ * simulation. A bulk creation breaks this, see {@link #createProxies}. The
+ * trees themselves are not the same: only {@link DynamicTree} rotates nodes
+ * to shrink them and rebuilds itself when its area ratio degrades. Neither
+ * moves a leaf to another id or changes which nodes are free, so the ids
+ * still match.
+ */
+public class DynamicTreeFlatNodes implements BroadPhaseStrategy {
+  public static final int NULL_NODE = -1;
+
+  private int m_root;
+  private float[] m_aabbs;
+  private int[] m_parent;
+  private int[] m_child1;
+  private int[] m_child2;
+  private int[] m_height;
+  private Object[] m_userData;
+  private int m_nodeCount;
+  private int m_nodeCapacity;
+
+  private int m_freeList;
+
+  private int m_insertionCount;
+
+  private int[] m_stack = new int[64];
+  private final AABB m_queryAABB = new AABB();
+
+  public DynamicTreeFlatNodes() {
+    m_root = NULL_NODE;
+    m_nodeCount = 0;
+    m_nodeCapacity = 16;
+    m_aabbs = new float[4 * m_nodeCapacity];
+    m_parent = new int[m_nodeCapacity];
+    m_child1 = new int[m_nodeCapacity];
+    m_child2 = new int[m_nodeCapacity];
+    m_height = new int[m_nodeCapacity];
+    m_userData = new Object[m_nodeCapacity];
+
+    // Build a linked list for the free list.
+    for (int i = 0; i < m_nodeCapacity; i++) {
+      m_parent[i] = i + 1;
+      m_height[i] = -1;
+    }
+    m_parent[m_nodeCapacity - 1] = NULL_NODE;
+    m_freeList = 0;
+
+    m_insertionCount = 0;
+  }
+
+  public final int createProxy(final AABB aabb, Object userData) {
+    int proxyId = allocateNode();
+
+    // Fatten the aabb
+    final int i4 = 4 * proxyId;
+    m_aabbs[i4] = aabb.lowerBound.x - Settings.aabbExtension;
+    m_aabbs[i4 + 1] = aabb.lowerBound.y - Settings.aabbExtension;
+    m_aabbs[i4 + 2] = aabb.upperBound.x + Settings.aabbExtension;
+    m_aabbs[i4 + 3] = aabb.upperBound.y + Settings.aabbExtension;
+    m_userData[proxyId] = userData;
+
+    insertLeaf(proxyId);
+
+    return proxyId;
+  }
+
+  /**
+   * Insert the proxies one at a time. A {@link DynamicTree} that is given
+   * enough proxies at once allocates all their leaves before it builds the
+   * tree in one pass, so from there on its proxy ids and the order of its
+   * pairs differ from this tree.
+   */
+  public final void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds) {
+    for (int i = 0; i < count; ++i) {
+      proxyIds[i] = createProxy(aabbs[i], userData[i]);
+    }
+  }
+
+  public final void destroyProxy(int proxyId) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    assert (isLeaf(proxyId));
+
+    removeLeaf(proxyId);
+    freeNode(proxyId);
+  }
+
+  public final boolean moveProxy(int proxyId, final AABB aabb, Vec displacement) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    assert (isLeaf(proxyId));
+
+    final float[] aabbs = m_aabbs;
+    final int i4 = 4 * proxyId;
+    if (aabbs[i4] > aabb.lowerBound.x && aabbs[i4 + 1] > aabb.lowerBound.y
+        && aabb.upperBound.x > aabbs[i4 + 2] && aabb.upperBound.y > aabbs[i4 + 3]) {
+      return false;
+    }
+
+    removeLeaf(proxyId);
+
+    // Extend AABB
+    final Vec lowerBound = aabb.lowerBound;
+    final Vec upperBound = aabb.upperBound;
+    lowerBound.x -= Settings.aabbExtension;
+    lowerBound.y -= Settings.aabbExtension;
+    upperBound.x += Settings.aabbExtension;
+    upperBound.y += Settings.aabbExtension;
+
+    // Predict AABB displacement.
+    final float dx = displacement.x * Settings.aabbMultiplier;
+    final float dy = displacement.y * Settings.aabbMultiplier;
+    if (dx < 0.0f) {
+      lowerBound.x += dx;
+    } else {
+      upperBound.x += dx;
+    }
+
+    if (dy < 0.0f) {
+      lowerBound.y += dy;
+    } else {
+      upperBound.y += dy;
+    }
+    aabbs[i4] = lowerBound.x;
+    aabbs[i4 + 1] = lowerBound.y;
+    aabbs[i4 + 2] = upperBound.x;
+    aabbs[i4 + 3] = upperBound.y;
+
+    insertLeaf(proxyId);
+    return true;
+  }
+
+  public final Object getUserData(int proxyId) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    return m_userData[proxyId];
+  }
+
+  public final void getFatAABB(int proxyId, AABB out) {
+    assert (0 <= proxyId && proxyId < m_nodeCapacity);
+    final int i4 = 4 * proxyId;
+    out.lowerBound.x = m_aabbs[i4];
+    out.lowerBound.y = m_aabbs[i4 + 1];
+    out.upperBound.x = m_aabbs[i4 + 2];
+    out.upperBound.y = m_aabbs[i4 + 3];
+  }
+
+  public final boolean testOverlap(int proxyIdA, int proxyIdB) {
+    assert (0 <= proxyIdA && proxyIdA < m_nodeCapacity);
+    assert (0 <= proxyIdB && proxyIdB < m_nodeCapacity);
+    final float[] aabbs = m_aabbs;
+    final int a4 = 4 * proxyIdA;
+    final int b4 = 4 * proxyIdB;
+    if (aabbs[b4] - aabbs[a4 + 2] > 0.0f || aabbs[b4 + 1] - aabbs[a4 + 3] > 0.0f) {
+      return false;
+    }
+
+    if (aabbs[a4] - aabbs[b4 + 2] > 0.0f || aabbs[a4 + 1] - aabbs[b4 + 3] > 0.0f) {
+      return false;
+    }
+
+    return true;
+  }
+
+  public final void query(TreeCallback callback, AABB aabb) {
+    final float[] aabbs = m_aabbs;
+    final float lowerX = aabb.lowerBound.x;
+    final float lowerY = aabb.lowerBound.y;
+    final float upperX = aabb.upperBound.x;
+    final float upperY = aabb.upperBound.y;
+
+    int count = 0;
+    m_stack[count++] = m_root;
+
+    while (count > 0) {
+      int nodeId = m_stack[--count];
+      if (nodeId == NULL_NODE) {
+        continue;
+      }
+
+      final int i4 = 4 * nodeId;
+      if (lowerX - aabbs[i4 + 2] > 0.0f || lowerY - aabbs[i4 + 3] > 0.0f
+          || aabbs[i4] - upperX > 0.0f || aabbs[i4 + 1] - upperY > 0.0f) {
+        continue;
+      }
+
+      if (m_child1[nodeId] == NULL_NODE) {
+        boolean proceed = callback.treeCallback(nodeId);
+        if (!proceed) {
+          return;
+        }
+      } else {
+        if (count + 2 > m_stack.length) {
+          final int[] old = m_stack;
+          m_stack = new int[old.length * 2];
+          System.arraycopy(old, 0, m_stack, 0, count);
+        }
+        m_stack[count++] = m_child1[nodeId];
+        m_stack[count++] = m_child2[nodeId];
+      }
+    }
+  }
+
+  public final void queryProxy(TreeCallback callback, int proxyId) {
+    getFatAABB(proxyId, m_queryAABB);
+    query(callback, m_queryAABB);
+  }
+
+  public final int computeHeight() {
+    return computeHeight(m_root);
+  }
+
+  private final int computeHeight(int nodeId) {
+    assert (0 <= nodeId && nodeId < m_nodeCapacity);
+
+    if (isLeaf(nodeId)) {
+      return 0;
+    }
+    int height1 = computeHeight(m_child1[nodeId]);
+    int height2 = computeHeight(m_child2[nodeId]);
+    return 1 + MathUtils.max(height1, height2);
+  }
+
+  public void validate() {
+    validateStructure(m_root);
+    validateMetrics(m_root);
+
+    int freeCount = 0;
+    int freeIndex = m_freeList;
+    while (freeIndex != NULL_NODE) {
+      assert (0 <= freeIndex && freeIndex < m_nodeCapacity);
+      freeIndex = m_parent[freeIndex];
+      ++freeCount;
+    }
+
+    assert (getHeight() == computeHeight());
+
+    assert (m_nodeCount + freeCount == m_nodeCapacity);
+  }
+
+  public int getHeight() {
+    if (m_root == NULL_NODE) {
+      return 0;
+    }
+    return m_height[m_root];
+  }
+
+  public int getMaxBalance() {
+    int maxBalance = 0;
+    for (int i = 0; i < m_nodeCapacity; ++i) {
+      if (m_height[i] <= 1) {
+        continue;
+      }
+
+      assert (isLeaf(i) == false);
+
+      int balance = MathUtils.abs(m_height[m_child2[i]] - m_height[m_child1[i]]);
+      maxBalance = MathUtils.max(maxBalance, balance);
+    }
+
+    return maxBalance;
+  }
+
+  public float getAreaRatio() {
+    if (m_root == NULL_NODE) {
+      return 0.0f;
+    }
+
+    float rootArea = perimeter(m_root);
+
+    float totalArea = 0.0f;
+    for (int i = 0; i < m_nodeCapacity; ++i) {
+      if (m_height[i] < 0) {
+        // Free node in pool
+        continue;
+      }
+
+      totalArea += perimeter(i);
+    }
+
+    return totalArea / rootArea;
+  }
+
+  public int getInsertionCount() {
+    return m_insertionCount;
+  }
+
+  private final boolean isLeaf(int nodeId) {
+    return m_child1[nodeId] == NULL_NODE;
+  }
+
+  private final float perimeter(int nodeId) {
+    final int i4 = 4 * nodeId;
+    return 2.0f * (m_aabbs[i4 + 2] - m_aabbs[i4] + m_aabbs[i4 + 3] - m_aabbs[i4 + 1]);
+  }
+
+  /**
+   * Perimeter of the AABB that encloses both nodes.
+   */
+  private final float combinedPerimeter(int nodeA, int nodeB) {
+    final float[] aabbs = m_aabbs;
+    final int a4 = 4 * nodeA;
+    final int b4 = 4 * nodeB;
+    final float lowerX = aabbs[a4] < aabbs[b4] ? aabbs[a4] : aabbs[b4];
+    final float lowerY = aabbs[a4 + 1] < aabbs[b4 + 1] ? aabbs[a4 + 1] : aabbs[b4 + 1];
+    final float upperX = aabbs[a4 + 2] > aabbs[b4 + 2] ? aabbs[a4 + 2] : aabbs[b4 + 2];
+    final float upperY = aabbs[a4 + 3] > aabbs[b4 + 3] ? aabbs[a4 + 3] : aabbs[b4 + 3];
+    return 2.0f * (upperX - lowerX + upperY - lowerY);
+  }
+
+  /**
+   * Set the AABB of a node to enclose two other nodes.
+   */
+  private final void combine(int nodeId, int nodeA, int nodeB) {
+    final float[] aabbs = m_aabbs;
+    final int i4 = 4 * nodeId;
+    final int a4 = 4 * nodeA;
+    final int b4 = 4 * nodeB;
+    aabbs[i4] = aabbs[a4] < aabbs[b4] ? aabbs[a4] : aabbs[b4];
+    aabbs[i4 + 1] = aabbs[a4 + 1] < aabbs[b4 + 1] ? aabbs[a4 + 1] : aabbs[b4 + 1];
+    aabbs[i4 + 2] = aabbs[a4 + 2] > aabbs[b4 + 2] ? aabbs[a4 + 2] : aabbs[b4 + 2];
+    aabbs[i4 + 3] = aabbs[a4 + 3] > aabbs[b4 + 3] ? aabbs[a4 + 3] : aabbs[b4 + 3];
+  }
+
+  private final int allocateNode() {
+    if (m_freeList == NULL_NODE) {
+      assert (m_nodeCount == m_nodeCapacity);
+
+      m_nodeCapacity *= 2;
+      m_aabbs = copyOf(m_aabbs, 4 * m_nodeCapacity);
+      m_parent = copyOf(m_parent, m_nodeCapacity);
+      m_child1 = copyOf(m_child1, m_nodeCapacity);
+      m_child2 = copyOf(m_child2, m_nodeCapacity);
+      m_height = copyOf(m_height, m_nodeCapacity);
+      final Object[] oldUserData = m_userData;
+      m_userData = new Object[m_nodeCapacity];
+      System.arraycopy(oldUserData, 0, m_userData, 0, oldUserData.length);
+
+      // Build a linked list for the free list.
+      for (int i = m_nodeCount; i < m_nodeCapacity; i++) {
+        m_parent[i] = i + 1;
+        m_height[i] = -1;
+      }
+      m_parent[m_nodeCapacity - 1] = NULL_NODE;
+      m_freeList = m_nodeCount;
+    }
+    int nodeId = m_freeList;
+    m_freeList = m_parent[nodeId];
+
+    m_parent[nodeId] = NULL_NODE;
+    m_child1[nodeId] = NULL_NODE;
+    m_child2[nodeId] = NULL_NODE;
+    m_height[nodeId] = 0;
+    m_userData[nodeId] = null;
+    ++m_nodeCount;
+    return nodeId;
+  }
+
+  private static final int[] copyOf(int[] old, int length) {
+    final int[] array = new int[length];
+    System.arraycopy(old, 0, array, 0, old.length);
+    return array;
+  }
+
+  private static final float[] copyOf(float[] old, int length) {
+    final float[] array = new float[length];
+    System.arraycopy(old, 0, array, 0, old.length);
+    return array;
+  }
+
+  /**
+   * returns a node to the pool
+   */
+  private final void freeNode(int nodeId) {
+    assert (nodeId != NULL_NODE);
+    assert (0 < m_nodeCount);
+    m_parent[nodeId] = m_freeList;
+    m_height[nodeId] = -1;
+    m_userData[nodeId] = null;
+    m_freeList = nodeId;
+    m_nodeCount--;
+  }
+
+  private final void insertLeaf(int leaf) {
+    m_insertionCount++;
+
+    if (m_root == NULL_NODE) {
+      m_root = leaf;
+      m_parent[m_root] = NULL_NODE;
+      return;
+    }
+
+    // find the best sibling
+    int index = m_root;
+    while (isLeaf(index) == false) {
+      int child1 = m_child1[index];
+      int child2 = m_child2[index];
+
+      float area = perimeter(index);
+
+      float combinedArea = combinedPerimeter(index, leaf);
+
+      // Cost of creating a new parent for this node and the new leaf
+      float cost = 2.0f * combinedArea;
+
+      // Minimum cost of pushing the leaf further down the tree
+      float inheritanceCost = 2.0f * (combinedArea - area);
+
+      // Cost of descending into child1
+      float cost1;
+      if (isLeaf(child1)) {
+        cost1 = combinedPerimeter(leaf, child1) + inheritanceCost;
+      } else {
+        float oldArea = perimeter(child1);
+        float newArea = combinedPerimeter(leaf, child1);
+        cost1 = (newArea - oldArea) + inheritanceCost;
+      }
+
+      // Cost of descending into child2
+      float cost2;
+      if (isLeaf(child2)) {
+        cost2 = combinedPerimeter(leaf, child2) + inheritanceCost;
+      } else {
+        float oldArea = perimeter(child2);
+        float newArea = combinedPerimeter(leaf, child2);
+        cost2 = newArea - oldArea + inheritanceCost;
+      }
+
+      // Descend according to the minimum cost.
+      if (cost < cost1 && cost < cost2) {
+        break;
+      }
+
+      // Descend
+      if (cost1 < cost2) {
+        index = child1;
+      } else {
+        index = child2;
+      }
+    }
+
+    int sibling = index;
+    int oldParent = m_parent[sibling];
+    int newParent = allocateNode();
+    m_parent[newParent] = oldParent;
+    m_userData[newParent] = null;
+    combine(newParent, leaf, sibling);
+    m_height[newParent] = m_height[sibling] + 1;
+
+    if (oldParent != NULL_NODE) {
+      // The sibling was not the root.
+      if (m_child1[oldParent] == sibling) {
+        m_child1[oldParent] = newParent;
+      } else {
+        m_child2[oldParent] = newParent;
+      }
+    } else {
+      // The sibling was the root.
+      m_root = newParent;
+    }
+    m_child1[newParent] = sibling;
+    m_child2[newParent] = leaf;
+    m_parent[sibling] = newParent;
+    m_parent[leaf] = newParent;
+
+    // Walk back up the tree fixing heights and AABBs
+    index = m_parent[leaf];
+    while (index != NULL_NODE) {
+      index = balance(index);
+
+      int child1 = m_child1[index];
+      int child2 = m_child2[index];
+
+      assert (child1 != NULL_NODE);
+      assert (child2 != NULL_NODE);
+
+      m_height[index] = 1 + MathUtils.max(m_height[child1], m_height[child2]);
+      combine(index, child1, child2);
+
+      index = m_parent[index];
+    }
+  }
+
+  private final void removeLeaf(int leaf) {
+    if (leaf == m_root) {
+      m_root = NULL_NODE;
+      return;
+    }
+
+    int parent = m_parent[leaf];
+    int grandParent = m_parent[parent];
+    int sibling;
+    if (m_child1[parent] == leaf) {
+      sibling = m_child2[parent];
+    } else {
+      sibling = m_child1[parent];
+    }
+
+    if (grandParent != NULL_NODE) {
+      // Destroy parent and connect sibling to grandParent.
+      if (m_child1[grandParent] == parent) {
+        m_child1[grandParent] = sibling;
+      } else {
+        m_child2[grandParent] = sibling;
+      }
+      m_parent[sibling] = grandParent;
+      freeNode(parent);
+
+      // Adjust ancestor bounds.
+      int index = grandParent;
+      while (index != NULL_NODE) {
+        index = balance(index);
+
+        int child1 = m_child1[index];
+        int child2 = m_child2[index];
+
+        combine(index, child1, child2);
+        m_height[index] = 1 + MathUtils.max(m_height[child1], m_height[child2]);
+
+        index = m_parent[index];
+      }
+    } else {
+      m_root = sibling;
+      m_parent[sibling] = NULL_NODE;
+      freeNode(parent);
+    }
+  }
+
+  // Perform a left or right rotation if node A is imbalanced.
+  // Returns the new root index.
+  private int balance(int iA) {
+    assert (iA != NULL_NODE);
+
+    if (isLeaf(iA) || m_height[iA] < 2) {
+      return iA;
+    }
+
+    int iB = m_child1[iA];
+    int iC = m_child2[iA];
+    assert (0 <= iB && iB < m_nodeCapacity);
+    assert (0 <= iC && iC < m_nodeCapacity);
+
+    int balance = m_height[iC] - m_height[iB];
+
+    // Rotate C up
+    if (balance > 1) {
+      int iF = m_child1[iC];
+      int iG = m_child2[iC];
+      assert (0 <= iF && iF < m_nodeCapacity);
+      assert (0 <= iG && iG < m_nodeCapacity);
+
+      // Swap A and C
+      m_child1[iC] = iA;
+      m_parent[iC] = m_parent[iA];
+      m_parent[iA] = iC;
+
+      // A's old parent should point to C
+      int cParent = m_parent[iC];
+      if (cParent != NULL_NODE) {
+        if (m_child1[cParent] == iA) {
+          m_child1[cParent] = iC;
+        } else {
+          assert (m_child2[cParent] == iA);
+          m_child2[cParent] = iC;
+        }
+      } else {
+        m_root = iC;
+      }
+
+      // Rotate
+      if (m_height[iF] > m_height[iG]) {
+        m_child2[iC] = iF;
+        m_child2[iA] = iG;
+        m_parent[iG] = iA;
+        combine(iA, iB, iG);
+        combine(iC, iA, iF);
+
+        m_height[iA] = 1 + MathUtils.max(m_height[iB], m_height[iG]);
+        m_height[iC] = 1 + MathUtils.max(m_height[iA], m_height[iF]);
+      } else {
+        m_child2[iC] = iG;
+        m_child2[iA] = iF;
+        m_parent[iF] = iA;
+        combine(iA, iB, iF);
+        combine(iC, iA, iG);
+
+        m_height[iA] = 1 + MathUtils.max(m_height[iB], m_height[iF]);
+        m_height[iC] = 1 + MathUtils.max(m_height[iA], m_height[iG]);
+      }
+
+      return iC;
+    }
+
+    // Rotate B up
+    if (balance < -1) {
+      int iD = m_child1[iB];
+      int iE = m_child2[iB];
+      assert (0 <= iD && iD < m_nodeCapacity);
+      assert (0 <= iE && iE < m_nodeCapacity);
+
+      // Swap A and B
+      m_child1[iB] = iA;
+      m_parent[iB] = m_parent[iA];
+      m_parent[iA] = iB;
+
+      // A's old parent should point to B
+      int bParent = m_parent[iB];
+      if (bParent != NULL_NODE) {
+        if (m_child1[bParent] == iA) {
+          m_child1[bParent] = iB;
+        } else {
+          assert (m_child2[bParent] == iA);
+          m_child2[bParent] = iB;
+        }
+      } else {
+        m_root = iB;
+      }
+
+      // Rotate
+      if (m_height[iD] > m_height[iE]) {
+        m_child2[iB] = iD;
+        m_child1[iA] = iE;
+        m_parent[iE] = iA;
+        combine(iA, iC, iE);
+        combine(iB, iA, iD);
+
+        m_height[iA] = 1 + MathUtils.max(m_height[iC], m_height[iE]);
+        m_height[iB] = 1 + MathUtils.max(m_height[iA], m_height[iD]);
+      } else {
+        m_child2[iB] = iE;
+        m_child1[iA] = iD;
+        m_parent[iD] = iA;
+        combine(iA, iC, iD);
+        combine(iB, iA, iE);
+
+        m_height[iA] = 1 + MathUtils.max(m_height[iC], m_height[iD]);
+        m_height[iB] = 1 + MathUtils.max(m_height[iA], m_height[iE]);
+      }
+
+      return iB;
+    }
+
+    return iA;
+  }
+
+  private void validateStructure(int index) {
+    if (index == NULL_NODE) {
+      return;
+    }
+
+    if (index == m_root) {
+      assert (m_parent[index] == NULL_NODE);
+    }
+
+    int child1 = m_child1[index];
+    int child2 = m_child2[index];
+
+    if (isLeaf(index)) {
+      assert (child1 == NULL_NODE);
+      assert (child2 == NULL_NODE);
+      assert (m_height[index] == 0);
+      return;
+    }
+
+    assert (0 <= child1 && child1 < m_nodeCapacity);
+    assert (0 <= child2 && child2 < m_nodeCapacity);
+
+    assert (m_parent[child1] == index);
+    assert (m_parent[child2] == index);
+
+    validateStructure(child1);
+    validateStructure(child2);
+  }
+
+  private void validateMetrics(int index) {
+    if (index == NULL_NODE) {
+      return;
+    }
+
+    int child1 = m_child1[index];
+    int child2 = m_child2[index];
+
+    if (isLeaf(index)) {
+      assert (child1 == NULL_NODE);
+      assert (child2 == NULL_NODE);
+      assert (m_height[index] == 0);
+      return;
+    }
+
+    assert (0 <= child1 && child1 < m_nodeCapacity);
+    assert (0 <= child2 && child2 < m_nodeCapacity);
+
+    int height = 1 + MathUtils.max(m_height[child1], m_height[child2]);
+    assert (m_height[index] == height);
+
+    final int i4 = 4 * index;
+    final int a4 = 4 * child1;
+    final int b4 = 4 * child2;
+    assert (m_aabbs[i4] == MathUtils.min(m_aabbs[a4], m_aabbs[b4]));
+    assert (m_aabbs[i4 + 1] == MathUtils.min(m_aabbs[a4 + 1], m_aabbs[b4 + 1]));
+    assert (m_aabbs[i4 + 2] == MathUtils.max(m_aabbs[a4 + 2], m_aabbs[b4 + 2]));
+    assert (m_aabbs[i4 + 3] == MathUtils.max(m_aabbs[a4 + 3], m_aabbs[b4 + 3]));
+
+    validateMetrics(child1);
+    validateMetrics(child2);
+  }
+}
@@ -0,0 +1,661 @@
+package physics.collision.broadphase;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.tools.MathUtils;
+import physics.tools.Settings;
+import physics.tools.Vec;
+
+/**
+ * Stores proxies in a uniform grid of square cells, hashed so that only the
+ * cells in use take up memory. A proxy is listed in every cell its fattened
+ * AABB touches. Moving a proxy only updates the cells it enters and leaves,
+ * which is much cheaper than a tree remove and insert when most proxies are
+ * about the same size as a cell, like a pile of equal balls.
+ *
+ * Proxies that touch more than {@link #MAX_CELLS_PER_PROXY} cells, like long
+ * floors and walls, are kept in a separate list that every query tests.
+ *
+ * The table uses open addressing with linear probing. Cell i has its key in
+ * m_keys[i] and its proxies in m_cellProxies[i][0, m_cellCounts[i]). Proxy i
+ * has its fattened AABB at m_aabbs[4 * i] (lower x, lower y, upper x, upper y)
+ * and its cell range at m_ranges[4 * i] in the same order.
+ */
+public class SpatialHash implements BroadPhaseStrategy {
+
+	public static final float DEFAULT_CELL_SIZE = 1.0f;
+
+	public static final int MAX_CELLS_PER_PROXY = 64;
+
+	public static final int NULL_PROXY = -1;
+
+	private static final int ALLOCATED = -2;
+
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	/** cell coordinates are clamped to this, so no key is EMPTY */
+	private static final int MAX_CELL = 1 << 30;
+
+	private final float m_inverseCellSize;
+
+	private float[] m_aabbs;
+	private int[] m_ranges;
+	private int[] m_largeIndex;
+	private int[] m_next;
+	private int[] m_queryMarks;
+	private Object[] m_userData;
+	private int m_proxyCapacity;
+	private int m_proxyCount;
+	private int m_freeList;
+
+	private int[] m_largeProxies = new int[4];
+	private int m_largeCount;
+
+	private long[] m_keys;
+	private int[][] m_cellProxies;
+	private int[] m_cellCounts;
+	private int m_shift;
+	private int m_cellCount;
+
+	private int m_queryMark;
+	private int m_insertionCount;
+
+	private final AABB m_queryAABB = new AABB();
+
+	public SpatialHash() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * @param cellSize
+	 *            the width of a cell in meters. About the size of the most
+	 *            common fattened AABB works best.
+	 */
+	public SpatialHash(float cellSize) {
+		assert (cellSize > 0.0f);
+		m_inverseCellSize = 1.0f / cellSize;
+
+		m_proxyCapacity = 16;
+		m_aabbs = new float[4 * m_proxyCapacity];
+		m_ranges = new int[4 * m_proxyCapacity];
+		m_largeIndex = new int[m_proxyCapacity];
+		m_next = new int[m_proxyCapacity];
+		m_queryMarks = new int[m_proxyCapacity];
+		m_userData = new Object[m_proxyCapacity];
+		for (int i = 0; i < m_proxyCapacity; i++) {
+			m_next[i] = i + 1;
+		}
+		m_next[m_proxyCapacity - 1] = NULL_PROXY;
+		m_freeList = 0;
+
+		final int tableSize = 64;
+		m_keys = new long[tableSize];
+		m_cellProxies = new int[tableSize][];
+		m_cellCounts = new int[tableSize];
+		m_shift = 64 - Integer.numberOfTrailingZeros(tableSize);
+		for (int i = 0; i < tableSize; i++) {
+			m_keys[i] = EMPTY;
+		}
+	}
+
+	public final int createProxy(final AABB aabb, Object userData) {
+		final int proxyId = allocateProxy();
+
+		// Fatten the aabb
+		final int i4 = 4 * proxyId;
+		m_aabbs[i4] = aabb.lowerBound.x - Settings.aabbExtension;
+		m_aabbs[i4 + 1] = aabb.lowerBound.y - Settings.aabbExtension;
+		m_aabbs[i4 + 2] = aabb.upperBound.x + Settings.aabbExtension;
+		m_aabbs[i4 + 3] = aabb.upperBound.y + Settings.aabbExtension;
+		m_userData[proxyId] = userData;
+		m_queryMarks[proxyId] = 0;
+
+		computeRange(proxyId);
+		insertProxy(proxyId);
+		return proxyId;
+	}
+
+	/**
+	 * Proxies go in their cells in O(1) each, so they are simply created one
+	 * at a time.
+	 */
+	public final void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds) {
+		for (int i = 0; i < count; ++i) {
+			proxyIds[i] = createProxy(aabbs[i], userData[i]);
+		}
+	}
+
+	public final void destroyProxy(int proxyId) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		assert (m_next[proxyId] == ALLOCATED);
+
+		removeProxy(proxyId);
+		m_userData[proxyId] = null;
+		m_next[proxyId] = m_freeList;
+		m_freeList = proxyId;
+		--m_proxyCount;
+	}
+
+	public final boolean moveProxy(int proxyId, final AABB aabb, Vec displacement) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		assert (m_next[proxyId] == ALLOCATED);
+
+		final float[] aabbs = m_aabbs;
+		final int i4 = 4 * proxyId;
+		if (aabbs[i4] <= aabb.lowerBound.x && aabbs[i4 + 1] <= aabb.lowerBound.y
+				&& aabb.upperBound.x <= aabbs[i4 + 2] && aabb.upperBound.y <= aabbs[i4 + 3]) {
+			return false;
+		}
+
+		// Extend AABB
+		float lowerX = aabb.lowerBound.x - Settings.aabbExtension;
+		float lowerY = aabb.lowerBound.y - Settings.aabbExtension;
+		float upperX = aabb.upperBound.x + Settings.aabbExtension;
+		float upperY = aabb.upperBound.y + Settings.aabbExtension;
+
+		// Predict AABB displacement.
+		final float dx = displacement.x * Settings.aabbMultiplier;
+		final float dy = displacement.y * Settings.aabbMultiplier;
+		if (dx < 0.0f) {
+			lowerX += dx;
+		}
+		else {
+			upperX += dx;
+		}
+		if (dy < 0.0f) {
+			lowerY += dy;
+		}
+		else {
+			upperY += dy;
+		}
+		aabbs[i4] = lowerX;
+		aabbs[i4 + 1] = lowerY;
+		aabbs[i4 + 2] = upperX;
+		aabbs[i4 + 3] = upperY;
+
+		final int[] ranges = m_ranges;
+		final int oldLowerX = ranges[i4];
+		final int oldLowerY = ranges[i4 + 1];
+		final int oldUpperX = ranges[i4 + 2];
+		final int oldUpperY = ranges[i4 + 3];
+		final boolean wasLarge = m_largeIndex[proxyId] != NULL_PROXY;
+		computeRange(proxyId);
+		final int newLowerX = ranges[i4];
+		final int newLowerY = ranges[i4 + 1];
+		final int newUpperX = ranges[i4 + 2];
+		final int newUpperY = ranges[i4 + 3];
+
+		if (wasLarge || isLarge(proxyId)) {
+			if (wasLarge == false || isLarge(proxyId) == false) {
+				ranges[i4] = oldLowerX;
+				ranges[i4 + 1] = oldLowerY;
+				ranges[i4 + 2] = oldUpperX;
+				ranges[i4 + 3] = oldUpperY;
+				removeProxy(proxyId);
+				computeRange(proxyId);
+				insertProxy(proxyId);
+			}
+			return true;
+		}
+
+		// Leave the cells that are not in the new range, enter the ones that
+		// were not in the old range.
+		for (int x = oldLowerX; x <= oldUpperX; ++x) {
+			for (int y = oldLowerY; y <= oldUpperY; ++y) {
+				if (x < newLowerX || x > newUpperX || y < newLowerY || y > newUpperY) {
+					removeFromCell(x, y, proxyId);
+				}
+			}
+		}
+		for (int x = newLowerX; x <= newUpperX; ++x) {
+			for (int y = newLowerY; y <= newUpperY; ++y) {
+				if (x < oldLowerX || x > oldUpperX || y < oldLowerY || y > oldUpperY) {
+					addToCell(x, y, proxyId);
+				}
+			}
+		}
+		++m_insertionCount;
+		return true;
+	}
+
+	public final Object getUserData(int proxyId) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		return m_userData[proxyId];
+	}
+
+	public final void getFatAABB(int proxyId, AABB out) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		final int i4 = 4 * proxyId;
+		out.lowerBound.x = m_aabbs[i4];
+		out.lowerBound.y = m_aabbs[i4 + 1];
+		out.upperBound.x = m_aabbs[i4 + 2];
+		out.upperBound.y = m_aabbs[i4 + 3];
+	}
+
+	public final boolean testOverlap(int proxyIdA, int proxyIdB) {
+		assert (0 <= proxyIdA && proxyIdA < m_proxyCapacity);
+		assert (0 <= proxyIdB && proxyIdB < m_proxyCapacity);
+		final float[] aabbs = m_aabbs;
+		final int a4 = 4 * proxyIdA;
+		final int b4 = 4 * proxyIdB;
+		if (aabbs[b4] - aabbs[a4 + 2] > 0.0f || aabbs[b4 + 1] - aabbs[a4 + 3] > 0.0f) {
+			return false;
+		}
+
+		if (aabbs[a4] - aabbs[b4 + 2] > 0.0f || aabbs[a4 + 1] - aabbs[b4 + 3] > 0.0f) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Query an AABB for overlapping proxies. Each proxy is reported once, even
+	 * if it shares several cells with the AABB. Queries bigger than the number
+	 * of cells in use walk the table instead of the cells of the AABB.
+	 */
+	public final void query(TreeCallback callback, AABB aabb) {
+		final float lowerX = aabb.lowerBound.x;
+		final float lowerY = aabb.lowerBound.y;
+		final float upperX = aabb.upperBound.x;
+		final float upperY = aabb.upperBound.y;
+		final int mark = nextQueryMark();
+
+		final int cellLowerX = cell(lowerX);
+		final int cellLowerY = cell(lowerY);
+		final int cellUpperX = cell(upperX);
+		final int cellUpperY = cell(upperY);
+		final long cells = ((long) cellUpperX - cellLowerX + 1) * ((long) cellUpperY - cellLowerY + 1);
+
+		if (cells > m_cellCount) {
+			for (int i = 0; i < m_keys.length; ++i) {
+				if (m_keys[i] != EMPTY
+						&& queryCell(i, callback, mark, lowerX, lowerY, upperX, upperY) == false) {
+					return;
+				}
+			}
+		}
+		else {
+			for (int x = cellLowerX; x <= cellUpperX; ++x) {
+				for (int y = cellLowerY; y <= cellUpperY; ++y) {
+					final int slot = findCell(key(x, y));
+					if (slot != NULL_PROXY && queryCell(slot, callback, mark, lowerX, lowerY, upperX, upperY) == false) {
+						return;
+					}
+				}
+			}
+		}
+
+		final float[] aabbs = m_aabbs;
+		for (int i = 0; i < m_largeCount; ++i) {
+			final int proxyId = m_largeProxies[i];
+			final int i4 = 4 * proxyId;
+			if (lowerX - aabbs[i4 + 2] > 0.0f || lowerY - aabbs[i4 + 3] > 0.0f || aabbs[i4] - upperX > 0.0f
+					|| aabbs[i4 + 1] - upperY > 0.0f) {
+				continue;
+			}
+			if (callback.treeCallback(proxyId) == false) {
+				return;
+			}
+		}
+	}
+
+	public final void queryProxy(TreeCallback callback, int proxyId) {
+		getFatAABB(proxyId, m_queryAABB);
+		query(callback, m_queryAABB);
+	}
+
+	private final boolean queryCell(int slot, TreeCallback callback, int mark, float lowerX, float lowerY,
+			float upperX, float upperY) {
+		final float[] aabbs = m_aabbs;
+		final int[] proxies = m_cellProxies[slot];
+		final int count = m_cellCounts[slot];
+		for (int i = 0; i < count; ++i) {
+			final int proxyId = proxies[i];
+			if (m_queryMarks[proxyId] == mark) {
+				continue;
+			}
+			m_queryMarks[proxyId] = mark;
+
+			final int i4 = 4 * proxyId;
+			if (lowerX - aabbs[i4 + 2] > 0.0f || lowerY - aabbs[i4 + 3] > 0.0f || aabbs[i4] - upperX > 0.0f
+					|| aabbs[i4 + 1] - upperY > 0.0f) {
+				continue;
+			}
+			if (callback.treeCallback(proxyId) == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The grid has no height.
+	 */
+	public final int computeHeight() {
+		return 0;
+	}
+
+	public int getHeight() {
+		return 0;
+	}
+
+	public int getMaxBalance() {
+		return 0;
+	}
+
+	public float getAreaRatio() {
+		return 0.0f;
+	}
+
+	/**
+	 * @return the number of times a proxy was put in its cells.
+	 */
+	public int getInsertionCount() {
+		return m_insertionCount;
+	}
+
+	/**
+	 * @return the number of cells with proxies in them.
+	 */
+	public int getCellCount() {
+		return m_cellCount;
+	}
+
+	/**
+	 * @return the number of proxies too big for the cells.
+	 */
+	public int getLargeProxyCount() {
+		return m_largeCount;
+	}
+
+	public void validate() {
+		int entries = 0;
+		for (int i = 0; i < m_keys.length; ++i) {
+			if (m_keys[i] == EMPTY) {
+				continue;
+			}
+			assert (m_cellCounts[i] > 0);
+			assert (findCell(m_keys[i]) == i);
+			entries += m_cellCounts[i];
+		}
+
+		int expected = 0;
+		int proxies = 0;
+		for (int proxyId = 0; proxyId < m_proxyCapacity; ++proxyId) {
+			if (m_next[proxyId] != ALLOCATED) {
+				continue;
+			}
+			++proxies;
+			if (isLarge(proxyId)) {
+				assert (m_largeProxies[m_largeIndex[proxyId]] == proxyId);
+				continue;
+			}
+			final int i4 = 4 * proxyId;
+			for (int x = m_ranges[i4]; x <= m_ranges[i4 + 2]; ++x) {
+				for (int y = m_ranges[i4 + 1]; y <= m_ranges[i4 + 3]; ++y) {
+					final int slot = findCell(key(x, y));
+					assert (slot != NULL_PROXY);
+					assert (indexInCell(slot, proxyId) != NULL_PROXY);
+					++expected;
+				}
+			}
+		}
+
+		assert (entries == expected);
+		assert (proxies == m_proxyCount);
+	}
+
+	private final int allocateProxy() {
+		if (m_freeList == NULL_PROXY) {
+			final int oldCapacity = m_proxyCapacity;
+			m_proxyCapacity *= 2;
+			m_aabbs = copyOf(m_aabbs, 4 * m_proxyCapacity);
+			m_ranges = copyOf(m_ranges, 4 * m_proxyCapacity);
+			m_largeIndex = copyOf(m_largeIndex, m_proxyCapacity);
+			m_next = copyOf(m_next, m_proxyCapacity);
+			m_queryMarks = copyOf(m_queryMarks, m_proxyCapacity);
+			final Object[] oldUserData = m_userData;
+			m_userData = new Object[m_proxyCapacity];
+			System.arraycopy(oldUserData, 0, m_userData, 0, oldCapacity);
+
+			for (int i = oldCapacity; i < m_proxyCapacity; i++) {
+				m_next[i] = i + 1;
+			}
+			m_next[m_proxyCapacity - 1] = NULL_PROXY;
+			m_freeList = oldCapacity;
+		}
+		final int proxyId = m_freeList;
+		m_freeList = m_next[proxyId];
+		m_next[proxyId] = ALLOCATED;
+		++m_proxyCount;
+		return proxyId;
+	}
+
+	private static final float[] copyOf(float[] old, int length) {
+		final float[] array = new float[length];
+		System.arraycopy(old, 0, array, 0, old.length);
+		return array;
+	}
+
+	private static final int[] copyOf(int[] old, int length) {
+		final int[] array = new int[length];
+		System.arraycopy(old, 0, array, 0, old.length);
+		return array;
+	}
+
+	private final int cell(float coordinate) {
+		// Clamp before flooring, the fast floor wraps around below
+		// Integer.MIN_VALUE.
+		final float scaled = coordinate * m_inverseCellSize;
+		return scaled < -MAX_CELL ? -MAX_CELL : scaled > MAX_CELL ? MAX_CELL : MathUtils.floor(scaled);
+	}
+
+	private final void computeRange(int proxyId) {
+		final int i4 = 4 * proxyId;
+		m_ranges[i4] = cell(m_aabbs[i4]);
+		m_ranges[i4 + 1] = cell(m_aabbs[i4 + 1]);
+		m_ranges[i4 + 2] = cell(m_aabbs[i4 + 2]);
+		m_ranges[i4 + 3] = cell(m_aabbs[i4 + 3]);
+	}
+
+	private final boolean isLarge(int proxyId) {
+		final int i4 = 4 * proxyId;
+		final long cells = ((long) m_ranges[i4 + 2] - m_ranges[i4] + 1) * ((long) m_ranges[i4 + 3] - m_ranges[i4 + 1] + 1);
+		return cells > MAX_CELLS_PER_PROXY;
+	}
+
+	/**
+	 * Put the proxy in the cells of its range, or in the large proxies.
+	 */
+	private final void insertProxy(int proxyId) {
+		++m_insertionCount;
+		if (isLarge(proxyId)) {
+			if (m_largeCount == m_largeProxies.length) {
+				m_largeProxies = copyOf(m_largeProxies, m_largeCount * 2);
+			}
+			m_largeIndex[proxyId] = m_largeCount;
+			m_largeProxies[m_largeCount++] = proxyId;
+			return;
+		}
+		m_largeIndex[proxyId] = NULL_PROXY;
+		final int i4 = 4 * proxyId;
+		for (int x = m_ranges[i4]; x <= m_ranges[i4 + 2]; ++x) {
+			for (int y = m_ranges[i4 + 1]; y <= m_ranges[i4 + 3]; ++y) {
+				addToCell(x, y, proxyId);
+			}
+		}
+	}
+
+	/**
+	 * Take the proxy out of the cells of its current range, or out of the
+	 * large proxies.
+	 */
+	private final void removeProxy(int proxyId) {
+		final int index = m_largeIndex[proxyId];
+		if (index != NULL_PROXY) {
+			final int last = m_largeProxies[--m_largeCount];
+			m_largeProxies[index] = last;
+			m_largeIndex[last] = index;
+			m_largeIndex[proxyId] = NULL_PROXY;
+			return;
+		}
+		final int i4 = 4 * proxyId;
+		for (int x = m_ranges[i4]; x <= m_ranges[i4 + 2]; ++x) {
+			for (int y = m_ranges[i4 + 1]; y <= m_ranges[i4 + 3]; ++y) {
+				removeFromCell(x, y, proxyId);
+			}
+		}
+	}
+
+	private static final long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	private final int home(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> m_shift);
+	}
+
+	/**
+	 * @return the slot of the cell, or NULL_PROXY if it is empty.
+	 */
+	private final int findCell(long key) {
+		final long[] keys = m_keys;
+		final int mask = keys.length - 1;
+		int slot = home(key);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return NULL_PROXY;
+	}
+
+	private final int indexInCell(int slot, int proxyId) {
+		final int[] proxies = m_cellProxies[slot];
+		for (int i = m_cellCounts[slot] - 1; i >= 0; --i) {
+			if (proxies[i] == proxyId) {
+				return i;
+			}
+		}
+		return NULL_PROXY;
+	}
+
+	private final void addToCell(int x, int y, int proxyId) {
+		if (2 * (m_cellCount + 1) > m_keys.length) {
+			growTable();
+		}
+
+		final long key = key(x, y);
+		final long[] keys = m_keys;
+		final int mask = keys.length - 1;
+		int slot = home(key);
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			m_cellCounts[slot] = 0;
+			if (m_cellProxies[slot] == null) {
+				m_cellProxies[slot] = new int[4];
+			}
+			++m_cellCount;
+		}
+
+		int[] proxies = m_cellProxies[slot];
+		final int count = m_cellCounts[slot];
+		if (count == proxies.length) {
+			proxies = copyOf(proxies, count * 2);
+			m_cellProxies[slot] = proxies;
+		}
+		proxies[count] = proxyId;
+		m_cellCounts[slot] = count + 1;
+	}
+
+	private final void removeFromCell(int x, int y, int proxyId) {
+		final int slot = findCell(key(x, y));
+		assert (slot != NULL_PROXY);
+		final int index = indexInCell(slot, proxyId);
+		assert (index != NULL_PROXY);
+
+		final int count = m_cellCounts[slot] - 1;
+		final int[] proxies = m_cellProxies[slot];
+		proxies[index] = proxies[count];
+		m_cellCounts[slot] = count;
+		if (count == 0) {
+			deleteCell(slot);
+		}
+	}
+
+	/**
+	 * Empty a slot, shifting back the cells after it that would no longer be
+	 * found. The proxy arrays are swapped along so none are lost.
+	 */
+	private final void deleteCell(int slot) {
+		final long[] keys = m_keys;
+		final int mask = keys.length - 1;
+		int hole = slot;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == EMPTY) {
+				break;
+			}
+			final int homeSlot = home(keys[next]);
+			// the cell can stay if its home is in (hole, next]
+			final boolean stays = hole <= next ? (hole < homeSlot && homeSlot <= next) : (hole < homeSlot || homeSlot <= next);
+			if (stays) {
+				continue;
+			}
+			keys[hole] = keys[next];
+			m_cellCounts[hole] = m_cellCounts[next];
+			final int[] proxies = m_cellProxies[hole];
+			m_cellProxies[hole] = m_cellProxies[next];
+			m_cellProxies[next] = proxies;
+			hole = next;
+		}
+		keys[hole] = EMPTY;
+		m_cellCounts[hole] = 0;
+		--m_cellCount;
+	}
+
+	private final void growTable() {
+		final long[] oldKeys = m_keys;
+		final int[][] oldProxies = m_cellProxies;
+		final int[] oldCounts = m_cellCounts;
+
+		final int size = oldKeys.length * 2;
+		m_keys = new long[size];
+		m_cellProxies = new int[size][];
+		m_cellCounts = new int[size];
+		m_shift = 64 - Integer.numberOfTrailingZeros(size);
+		for (int i = 0; i < size; i++) {
+			m_keys[i] = EMPTY;
+		}
+
+		final int mask = size - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == EMPTY) {
+				continue;
+			}
+			int slot = home(oldKeys[i]);
+			while (m_keys[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			m_keys[slot] = oldKeys[i];
+			m_cellProxies[slot] = oldProxies[i];
+			m_cellCounts[slot] = oldCounts[i];
+		}
+	}
+
+	private final int nextQueryMark() {
+		if (m_queryMark == Integer.MAX_VALUE) {
+			for (int i = 0; i < m_proxyCapacity; i++) {
+				m_queryMarks[i] = 0;
+			}
+			m_queryMark = 0;
+		}
+		return ++m_queryMark;
+	}
+}
@@ -0,0 +1,651 @@
+package physics.collision.broadphase;
+
+import java.util.Arrays;
+
+import physics.collision.AABB;
+import physics.collision.TreeCallback;
+import physics.tools.MathUtils;
+import physics.tools.Settings;
+import physics.tools.Vec;
+
+/**
+ * Sort and sweep on the x and y axes. Each axis keeps the lower and upper
+ * bounds of every fattened AABB in one sorted array, and a moving bound is
+ * insertion sorted to its new place. Two proxies start or stop overlapping
+ * exactly when a bound passes a bound of the other proxy, so the overlapping
+ * pairs are kept up to date as the bounds move. When proxies only move a
+ * little each step, like the planks, dominoes and crates of a wide level,
+ * a move is a few swaps instead of a tree remove and insert.
+ *
+ * The pairs are the same as the ones a {@link DynamicTree} finds: bounds that
+ * touch count as overlapping, and a proxy gets a new fattened AABB under the
+ * same conditions as in the tree.
+ *
+ * Endpoint i of an axis has its value in m_values[axis][i] and its proxy in
+ * m_endpoints[axis][i] as (proxyId << 1 | upper). Equal values keep lower
+ * bounds before upper bounds. Proxy i has its fattened AABB at m_aabbs[4 * i]
+ * (lower x, lower y, upper x, upper y), the index of its endpoints at
+ * m_positions[4 * i] in the same order, and the proxies it overlaps in
+ * m_overlaps[i][0, m_overlapCounts[i]).
+ */
+public class SweepAndPrune implements BroadPhaseStrategy {
+
+	public static final int NULL_PROXY = -1;
+
+	private static final int ALLOCATED = -2;
+
+	private static final int X = 0;
+	private static final int Y = 1;
+
+	private float[] m_aabbs;
+	private int[] m_positions;
+	private int[] m_next;
+	private int[][] m_overlaps;
+	private int[] m_overlapCounts;
+	private Object[] m_userData;
+	private int m_proxyCapacity;
+	private int m_proxyCount;
+	private int m_freeList;
+
+	private final float[][] m_values = new float[2][];
+	private final int[][] m_endpoints = new int[2][];
+	private int m_endpointCount;
+
+	private int m_insertionCount;
+
+	private final AABB m_moveAABB = new AABB();
+
+	public SweepAndPrune() {
+		m_proxyCapacity = 16;
+		m_aabbs = new float[4 * m_proxyCapacity];
+		m_positions = new int[4 * m_proxyCapacity];
+		m_next = new int[m_proxyCapacity];
+		m_overlaps = new int[m_proxyCapacity][];
+		m_overlapCounts = new int[m_proxyCapacity];
+		m_userData = new Object[m_proxyCapacity];
+		for (int i = 0; i < m_proxyCapacity; i++) {
+			m_next[i] = i + 1;
+		}
+		m_next[m_proxyCapacity - 1] = NULL_PROXY;
+		m_freeList = 0;
+
+		for (int axis = X; axis <= Y; axis++) {
+			m_values[axis] = new float[2 * m_proxyCapacity];
+			m_endpoints[axis] = new int[2 * m_proxyCapacity];
+		}
+	}
+
+	public final int createProxy(final AABB aabb, Object userData) {
+		final int proxyId = allocateProxy();
+
+		// Fatten the aabb
+		final int i4 = 4 * proxyId;
+		m_aabbs[i4] = aabb.lowerBound.x - Settings.aabbExtension;
+		m_aabbs[i4 + 1] = aabb.lowerBound.y - Settings.aabbExtension;
+		m_aabbs[i4 + 2] = aabb.upperBound.x + Settings.aabbExtension;
+		m_aabbs[i4 + 3] = aabb.upperBound.y + Settings.aabbExtension;
+		m_userData[proxyId] = userData;
+		m_overlapCounts[proxyId] = 0;
+
+		// Sort in the x bounds first. Until the y bounds are in, the proxy is
+		// as good as beyond every other proxy, so it overlaps nothing. The y
+		// bounds then come in from the top and find the overlaps.
+		final int count = m_endpointCount;
+		appendEndpoint(X, count, proxyId, false);
+		appendEndpoint(X, count + 1, proxyId, true);
+		appendEndpoint(Y, count, proxyId, false);
+		appendEndpoint(Y, count + 1, proxyId, true);
+		m_endpointCount = count + 2;
+		moveEndpoint(X, count, m_aabbs[i4], false);
+		moveEndpoint(X, count + 1, m_aabbs[i4 + 2], false);
+		moveEndpoint(Y, m_positions[i4 + 1], m_aabbs[i4 + 1], true);
+		moveEndpoint(Y, count + 1, m_aabbs[i4 + 3], true);
+
+		++m_insertionCount;
+		return proxyId;
+	}
+
+	/**
+	 * Create many proxies at once. Sorting in the bounds one proxy at a time
+	 * takes O(n) swaps each when the proxies come in no particular order, so
+	 * when they at least double the number of proxies the bounds are appended,
+	 * both axes are sorted once and the pairs are found again in one sweep.
+	 * Fewer proxies are sorted in one at a time.
+	 */
+	public final void createProxies(AABB[] aabbs, Object[] userData, int count, int[] proxyIds) {
+		if (count < MathUtils.max(m_proxyCount, 2)) {
+			for (int i = 0; i < count; ++i) {
+				proxyIds[i] = createProxy(aabbs[i], userData[i]);
+			}
+			return;
+		}
+
+		for (int i = 0; i < count; ++i) {
+			final int proxyId = allocateProxy();
+			final AABB aabb = aabbs[i];
+			final int i4 = 4 * proxyId;
+			m_aabbs[i4] = aabb.lowerBound.x - Settings.aabbExtension;
+			m_aabbs[i4 + 1] = aabb.lowerBound.y - Settings.aabbExtension;
+			m_aabbs[i4 + 2] = aabb.upperBound.x + Settings.aabbExtension;
+			m_aabbs[i4 + 3] = aabb.upperBound.y + Settings.aabbExtension;
+			m_userData[proxyId] = userData[i];
+			m_overlapCounts[proxyId] = 0;
+
+			final int index = m_endpointCount;
+			for (int axis = X; axis <= Y; axis++) {
+				appendEndpoint(axis, index, proxyId, false);
+				appendEndpoint(axis, index + 1, proxyId, true);
+				m_values[axis][index] = m_aabbs[i4 + axis];
+				m_values[axis][index + 1] = m_aabbs[i4 + 2 + axis];
+			}
+			m_endpointCount = index + 2;
+			proxyIds[i] = proxyId;
+		}
+		m_insertionCount += count;
+
+		sortAxis(X);
+		sortAxis(Y);
+		findOverlaps();
+	}
+
+	public final void destroyProxy(int proxyId) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		assert (m_next[proxyId] == ALLOCATED);
+
+		final int[] overlaps = m_overlaps[proxyId];
+		for (int i = 0; i < m_overlapCounts[proxyId]; ++i) {
+			removeOverlap(overlaps[i], proxyId);
+		}
+		m_overlapCounts[proxyId] = 0;
+
+		final int i4 = 4 * proxyId;
+		for (int axis = X; axis <= Y; axis++) {
+			// the upper bound is after the lower one, so take it out first
+			removeEndpoint(axis, m_positions[i4 + 2 + axis], m_endpointCount);
+			removeEndpoint(axis, m_positions[i4 + axis], m_endpointCount - 1);
+		}
+		m_endpointCount -= 2;
+
+		m_userData[proxyId] = null;
+		m_next[proxyId] = m_freeList;
+		m_freeList = proxyId;
+		--m_proxyCount;
+	}
+
+	/**
+	 * Move a proxy with a swepted AABB. The proxy gets a new fattened AABB
+	 * under the same test as a {@link DynamicTree}, its bounds are sorted to
+	 * their new places and the overlaps they start and end are updated.
+	 */
+	public final boolean moveProxy(int proxyId, final AABB aabb, Vec displacement) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		assert (m_next[proxyId] == ALLOCATED);
+
+		getFatAABB(proxyId, m_moveAABB);
+		if (m_moveAABB.contains(aabb)) {
+			return false;
+		}
+
+		// Extend AABB
+		float lowerX = aabb.lowerBound.x - Settings.aabbExtension;
+		float lowerY = aabb.lowerBound.y - Settings.aabbExtension;
+		float upperX = aabb.upperBound.x + Settings.aabbExtension;
+		float upperY = aabb.upperBound.y + Settings.aabbExtension;
+
+		// Predict AABB displacement.
+		final float dx = displacement.x * Settings.aabbMultiplier;
+		final float dy = displacement.y * Settings.aabbMultiplier;
+		if (dx < 0.0f) {
+			lowerX += dx;
+		}
+		else {
+			upperX += dx;
+		}
+		if (dy < 0.0f) {
+			lowerY += dy;
+		}
+		else {
+			upperY += dy;
+		}
+
+		moveBounds(proxyId, X, lowerX, upperX);
+		moveBounds(proxyId, Y, lowerY, upperY);
+		++m_insertionCount;
+		return true;
+	}
+
+	public final Object getUserData(int proxyId) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		return m_userData[proxyId];
+	}
+
+	public final void getFatAABB(int proxyId, AABB out) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		final int i4 = 4 * proxyId;
+		out.lowerBound.x = m_aabbs[i4];
+		out.lowerBound.y = m_aabbs[i4 + 1];
+		out.upperBound.x = m_aabbs[i4 + 2];
+		out.upperBound.y = m_aabbs[i4 + 3];
+	}
+
+	public final boolean testOverlap(int proxyIdA, int proxyIdB) {
+		assert (0 <= proxyIdA && proxyIdA < m_proxyCapacity);
+		assert (0 <= proxyIdB && proxyIdB < m_proxyCapacity);
+		final float[] aabbs = m_aabbs;
+		final int a4 = 4 * proxyIdA;
+		final int b4 = 4 * proxyIdB;
+		if (aabbs[b4] - aabbs[a4 + 2] > 0.0f || aabbs[b4 + 1] - aabbs[a4 + 3] > 0.0f) {
+			return false;
+		}
+
+		if (aabbs[a4] - aabbs[b4 + 2] > 0.0f || aabbs[a4 + 1] - aabbs[b4 + 3] > 0.0f) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Query an AABB for overlapping proxies. Sweeps the x axis up to the upper
+	 * bound of the AABB, so this is linear in the number of proxies. Queries
+	 * for the overlaps of a proxy should use
+	 * {@link #queryProxy(TreeCallback, int)}.
+	 */
+	public final void query(TreeCallback callback, AABB aabb) {
+		final float lowerX = aabb.lowerBound.x;
+		final float lowerY = aabb.lowerBound.y;
+		final float upperX = aabb.upperBound.x;
+		final float upperY = aabb.upperBound.y;
+
+		final float[] values = m_values[X];
+		final int[] endpoints = m_endpoints[X];
+		final float[] aabbs = m_aabbs;
+		for (int i = 0; i < m_endpointCount; ++i) {
+			if (values[i] - upperX > 0.0f) {
+				return;
+			}
+			if ((endpoints[i] & 1) != 0) {
+				continue;
+			}
+			final int proxyId = endpoints[i] >> 1;
+			final int i4 = 4 * proxyId;
+			if (lowerX - aabbs[i4 + 2] > 0.0f || lowerY - aabbs[i4 + 3] > 0.0f || aabbs[i4 + 1] - upperY > 0.0f) {
+				continue;
+			}
+			if (callback.treeCallback(proxyId) == false) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Report the proxies the proxy overlaps, which are kept up to date as the
+	 * proxies move. The proxy itself is not reported.
+	 */
+	public final void queryProxy(TreeCallback callback, int proxyId) {
+		assert (0 <= proxyId && proxyId < m_proxyCapacity);
+		final int[] overlaps = m_overlaps[proxyId];
+		final int count = m_overlapCounts[proxyId];
+		for (int i = 0; i < count; ++i) {
+			if (callback.treeCallback(overlaps[i]) == false) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The sorted axes have no height.
+	 */
+	public final int computeHeight() {
+		return 0;
+	}
+
+	public int getHeight() {
+		return 0;
+	}
+
+	public int getMaxBalance() {
+		return 0;
+	}
+
+	public float getAreaRatio() {
+		return 0.0f;
+	}
+
+	/**
+	 * @return the number of times the bounds of a proxy were sorted in.
+	 */
+	public int getInsertionCount() {
+		return m_insertionCount;
+	}
+
+	/**
+	 * @return the number of overlapping pairs.
+	 */
+	public int getPairCount() {
+		int count = 0;
+		for (int proxyId = 0; proxyId < m_proxyCapacity; ++proxyId) {
+			count += m_overlapCounts[proxyId];
+		}
+		return count / 2;
+	}
+
+	public void validate() {
+		assert (m_endpointCount == 2 * m_proxyCount);
+		for (int axis = X; axis <= Y; axis++) {
+			final float[] values = m_values[axis];
+			final int[] endpoints = m_endpoints[axis];
+			for (int i = 0; i < m_endpointCount; ++i) {
+				final int proxyId = endpoints[i] >> 1;
+				final int upper = endpoints[i] & 1;
+				assert (m_next[proxyId] == ALLOCATED);
+				assert (m_positions[4 * proxyId + 2 * upper + axis] == i);
+				assert (values[i] == m_aabbs[4 * proxyId + 2 * upper + axis]);
+				if (i > 0) {
+					assert (comesBefore(values[i - 1], endpoints[i - 1], values[i], endpoints[i]) || values[i - 1] == values[i]
+							&& (endpoints[i - 1] & 1) == (endpoints[i] & 1));
+				}
+			}
+		}
+
+		int proxies = 0;
+		for (int proxyId = 0; proxyId < m_proxyCapacity; ++proxyId) {
+			if (m_next[proxyId] != ALLOCATED) {
+				continue;
+			}
+			++proxies;
+			int overlapping = 0;
+			for (int other = 0; other < m_proxyCapacity; ++other) {
+				if (other == proxyId || m_next[other] != ALLOCATED) {
+					continue;
+				}
+				final boolean listed = indexOfOverlap(proxyId, other) != NULL_PROXY;
+				assert (listed == testOverlap(proxyId, other));
+				if (listed) {
+					++overlapping;
+				}
+			}
+			assert (overlapping == m_overlapCounts[proxyId]);
+		}
+		assert (proxies == m_proxyCount);
+	}
+
+	/**
+	 * Sort in new bounds of a proxy on one axis. The bound moving in the
+	 * direction of the other goes first, so the lower bound stays before the
+	 * upper one.
+	 */
+	private final void moveBounds(int proxyId, int axis, float lower, float upper) {
+		final int i4 = 4 * proxyId;
+		if (lower > m_aabbs[i4 + axis]) {
+			moveEndpoint(axis, m_positions[i4 + 2 + axis], upper, true);
+			moveEndpoint(axis, m_positions[i4 + axis], lower, true);
+		}
+		else {
+			moveEndpoint(axis, m_positions[i4 + axis], lower, true);
+			moveEndpoint(axis, m_positions[i4 + 2 + axis], upper, true);
+		}
+	}
+
+	/**
+	 * Give an endpoint a new value and swap it down or up to its place. When
+	 * a lower bound passes an upper bound, or the other way around, the two
+	 * proxies start or stop overlapping on this axis, and their pair is added
+	 * or removed if they overlap on the other axis.
+	 */
+	private final void moveEndpoint(int axis, int index, float value, boolean updateOverlaps) {
+		final float[] values = m_values[axis];
+		final int[] endpoints = m_endpoints[axis];
+		final int[] positions = m_positions;
+		final int endpoint = endpoints[index];
+		final int proxyId = endpoint >> 1;
+		final boolean upper = (endpoint & 1) != 0;
+		final int other = 1 - axis;
+
+		int i = index;
+		while (i > 0 && comesBefore(value, endpoint, values[i - 1], endpoints[i - 1])) {
+			final int passed = endpoints[i - 1];
+			values[i] = values[i - 1];
+			endpoints[i] = passed;
+			positions[position(passed, axis)] = i;
+			--i;
+
+			final boolean passedUpper = (passed & 1) != 0;
+			if (updateOverlaps && upper != passedUpper) {
+				final int passedId = passed >> 1;
+				if (overlapsOn(other, proxyId, passedId)) {
+					if (upper) {
+						removePair(proxyId, passedId);
+					}
+					else {
+						addPair(proxyId, passedId);
+					}
+				}
+			}
+		}
+
+		if (i == index) {
+			final int count = m_endpointCount;
+			while (i + 1 < count && comesBefore(values[i + 1], endpoints[i + 1], value, endpoint)) {
+				final int passed = endpoints[i + 1];
+				values[i] = values[i + 1];
+				endpoints[i] = passed;
+				positions[position(passed, axis)] = i;
+				++i;
+
+				final boolean passedUpper = (passed & 1) != 0;
+				if (updateOverlaps && upper != passedUpper) {
+					final int passedId = passed >> 1;
+					if (overlapsOn(other, proxyId, passedId)) {
+						if (upper) {
+							addPair(proxyId, passedId);
+						}
+						else {
+							removePair(proxyId, passedId);
+						}
+					}
+				}
+			}
+		}
+
+		values[i] = value;
+		endpoints[i] = endpoint;
+		positions[position(endpoint, axis)] = i;
+		m_aabbs[position(endpoint, axis)] = value;
+	}
+
+	/**
+	 * Sort all the endpoints of an axis at once. Each endpoint becomes a key
+	 * with its value in the high bits, made to compare as an int, then the
+	 * upper bit, so equal values keep lower bounds first, then the proxy id.
+	 */
+	private final void sortAxis(int axis) {
+		final float[] values = m_values[axis];
+		final int[] endpoints = m_endpoints[axis];
+		final int count = m_endpointCount;
+		final long[] keys = new long[count];
+		for (int i = 0; i < count; ++i) {
+			// + 0.0f turns -0.0f into 0.0f, which compare the same as floats
+			final int bits = Float.floatToIntBits(values[i] + 0.0f);
+			final int sortable = bits ^ ((bits >> 31) & 0x7fffffff);
+			final int endpoint = endpoints[i];
+			keys[i] = (long) sortable << 32 | (long) (endpoint & 1) << 31 | endpoint >> 1;
+		}
+		Arrays.sort(keys);
+
+		for (int i = 0; i < count; ++i) {
+			final int endpoint = (int) (keys[i] & 0x7fffffff) << 1 | (int) (keys[i] >>> 31) & 1;
+			final int position = position(endpoint, axis);
+			values[i] = m_aabbs[position];
+			endpoints[i] = endpoint;
+			m_positions[position] = i;
+		}
+	}
+
+	/**
+	 * Find every overlapping pair again from sorted axes. Sweeping the x
+	 * axis, a proxy whose lower bound comes up overlaps on x the proxies
+	 * whose lower bound came before and upper bound has not yet.
+	 */
+	private final void findOverlaps() {
+		for (int proxyId = 0; proxyId < m_proxyCapacity; ++proxyId) {
+			m_overlapCounts[proxyId] = 0;
+		}
+
+		final int[] active = new int[m_proxyCount];
+		final int[] activeIndex = new int[m_proxyCapacity];
+		int activeCount = 0;
+		final int[] endpoints = m_endpoints[X];
+		for (int i = 0; i < m_endpointCount; ++i) {
+			final int proxyId = endpoints[i] >> 1;
+			if ((endpoints[i] & 1) != 0) {
+				final int last = active[--activeCount];
+				active[activeIndex[proxyId]] = last;
+				activeIndex[last] = activeIndex[proxyId];
+				continue;
+			}
+
+			for (int j = 0; j < activeCount; ++j) {
+				if (overlapsOn(Y, proxyId, active[j])) {
+					addPair(proxyId, active[j]);
+				}
+			}
+			activeIndex[proxyId] = activeCount;
+			active[activeCount++] = proxyId;
+		}
+	}
+
+	/**
+	 * @return true if endpoint a belongs strictly before endpoint b.
+	 */
+	private static final boolean comesBefore(float valueA, int endpointA, float valueB, int endpointB) {
+		return valueA < valueB || (valueA == valueB && (endpointA & 1) == 0 && (endpointB & 1) != 0);
+	}
+
+	/**
+	 * @return the index of the endpoint in m_aabbs and m_positions.
+	 */
+	private static final int position(int endpoint, int axis) {
+		return 4 * (endpoint >> 1) + 2 * (endpoint & 1) + axis;
+	}
+
+	private final boolean overlapsOn(int axis, int proxyIdA, int proxyIdB) {
+		final int[] positions = m_positions;
+		final int a4 = 4 * proxyIdA + axis;
+		final int b4 = 4 * proxyIdB + axis;
+		return positions[a4] < positions[b4 + 2] && positions[b4] < positions[a4 + 2];
+	}
+
+	/**
+	 * Put a new endpoint at the end of an axis.
+	 */
+	private final void appendEndpoint(int axis, int index, int proxyId, boolean upper) {
+		final int endpoint = proxyId << 1 | (upper ? 1 : 0);
+		m_values[axis][index] = Float.MAX_VALUE;
+		m_endpoints[axis][index] = endpoint;
+		m_positions[position(endpoint, axis)] = index;
+	}
+
+	/**
+	 * Take an endpoint out of an axis of count endpoints, shifting down the
+	 * ones after it.
+	 */
+	private final void removeEndpoint(int axis, int index, int count) {
+		final float[] values = m_values[axis];
+		final int[] endpoints = m_endpoints[axis];
+		System.arraycopy(values, index + 1, values, index, count - index - 1);
+		System.arraycopy(endpoints, index + 1, endpoints, index, count - index - 1);
+		for (int i = index; i < count - 1; ++i) {
+			m_positions[position(endpoints[i], axis)] = i;
+		}
+	}
+
+	private final void addPair(int proxyIdA, int proxyIdB) {
+		assert (indexOfOverlap(proxyIdA, proxyIdB) == NULL_PROXY);
+		addOverlap(proxyIdA, proxyIdB);
+		addOverlap(proxyIdB, proxyIdA);
+	}
+
+	private final void removePair(int proxyIdA, int proxyIdB) {
+		removeOverlap(proxyIdA, proxyIdB);
+		removeOverlap(proxyIdB, proxyIdA);
+	}
+
+	private final void addOverlap(int proxyId, int other) {
+		int[] overlaps = m_overlaps[proxyId];
+		final int count = m_overlapCounts[proxyId];
+		if (overlaps == null) {
+			overlaps = new int[4];
+			m_overlaps[proxyId] = overlaps;
+		}
+		else if (count == overlaps.length) {
+			overlaps = copyOf(overlaps, count * 2);
+			m_overlaps[proxyId] = overlaps;
+		}
+		overlaps[count] = other;
+		m_overlapCounts[proxyId] = count + 1;
+	}
+
+	private final void removeOverlap(int proxyId, int other) {
+		final int index = indexOfOverlap(proxyId, other);
+		assert (index != NULL_PROXY);
+		final int count = m_overlapCounts[proxyId] - 1;
+		final int[] overlaps = m_overlaps[proxyId];
+		overlaps[index] = overlaps[count];
+		m_overlapCounts[proxyId] = count;
+	}
+
+	private final int indexOfOverlap(int proxyId, int other) {
+		final int[] overlaps = m_overlaps[proxyId];
+		for (int i = m_overlapCounts[proxyId] - 1; i >= 0; --i) {
+			if (overlaps[i] == other) {
+				return i;
+			}
+		}
+		return NULL_PROXY;
+	}
+
+	private final int allocateProxy() {
+		if (m_freeList == NULL_PROXY) {
+			final int oldCapacity = m_proxyCapacity;
+			m_proxyCapacity *= 2;
+			m_aabbs = copyOf(m_aabbs, 4 * m_proxyCapacity);
+			m_positions = copyOf(m_positions, 4 * m_proxyCapacity);
+			m_next = copyOf(m_next, m_proxyCapacity);
+			m_overlapCounts = copyOf(m_overlapCounts, m_proxyCapacity);
+			final int[][] oldOverlaps = m_overlaps;
+			m_overlaps = new int[m_proxyCapacity][];
+			System.arraycopy(oldOverlaps, 0, m_overlaps, 0, oldCapacity);
+			final Object[] oldUserData = m_userData;
+			m_userData = new Object[m_proxyCapacity];
+			System.arraycopy(oldUserData, 0, m_userData, 0, oldCapacity);
+			for (int axis = X; axis <= Y; axis++) {
+				m_values[axis] = copyOf(m_values[axis], 2 * m_proxyCapacity);
+				m_endpoints[axis] = copyOf(m_endpoints[axis], 2 * m_proxyCapacity);
+			}
+
+			for (int i = oldCapacity; i < m_proxyCapacity; i++) {
+				m_next[i] = i + 1;
+			}
+			m_next[m_proxyCapacity - 1] = NULL_PROXY;
+			m_freeList = oldCapacity;
+		}
+		final int proxyId = m_freeList;
+		m_freeList = m_next[proxyId];
+		m_next[proxyId] = ALLOCATED;
+		++m_proxyCount;
+		return proxyId;
+	}
+
+	private static final float[] copyOf(float[] old, int length) {
+		final float[] array = new float[length];
+		System.arraycopy(old, 0, array, 0, old.length);
+		return array;
+	}
+
+	private static final int[] copyOf(int[] old, int length) {
+		final int[] array = new int[length];
+		System.arraycopy(old, 0, array, 0, old.length);
+		return array;
+	}
+}
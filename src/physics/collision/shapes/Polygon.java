@@ -469,7 +469,10 @@ public class Polygon extends Shape {
 		return m_normals;
 	}
 
-	/** Get the centroid and apply the supplied transform. */
+	/**
+	 * Get the centroid and apply the supplied transform. Allocates a new
+	 * vector, see {@link #centroidToOut(Transform, Vec)}.
+	 */
 	public Vec centroid(final Transform xf) {
 		return Transform.mul(xf, m_centroid);
 	}
@@ -0,0 +1,143 @@
+package physics.dataStorage;
+
+/**
+ * Open addressing hash set of non-negative longs. Uses linear probing, and
+ * removal shifts the following entries back instead of leaving tombstones,
+ * so lookups never slow down as keys come and go. Does not allocate unless
+ * it has to grow.
+ */
+public class LongHashSet {
+
+  private static final long EMPTY = -1L;
+
+  private long[] keys;
+  private int mask;
+  private int size;
+
+  public LongHashSet(int initialCapacity) {
+    int capacity = 16;
+    while (capacity < initialCapacity * 2) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean contains(long key) {
+    assert (key >= 0);
+    int index = indexOf(key);
+    while (true) {
+      final long k = keys[index];
+      if (k == key) {
+        return true;
+      }
+      if (k == EMPTY) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /**
+   * @return false if the key was already in the set
+   */
+  public boolean add(long key) {
+    assert (key >= 0);
+    // keep the load factor at or below one half
+    if ((size + 1) * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+
+    int index = indexOf(key);
+    while (true) {
+      final long k = keys[index];
+      if (k == key) {
+        return false;
+      }
+      if (k == EMPTY) {
+        keys[index] = key;
+        ++size;
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /**
+   * @return false if the key was not in the set
+   */
+  public boolean remove(long key) {
+    assert (key >= 0);
+    int index = indexOf(key);
+    while (true) {
+      final long k = keys[index];
+      if (k == EMPTY) {
+        return false;
+      }
+      if (k == key) {
+        break;
+      }
+      index = (index + 1) & mask;
+    }
+
+    // Shift back any following keys that would no longer be reachable.
+    int hole = index;
+    int next = (hole + 1) & mask;
+    while (keys[next] != EMPTY) {
+      final int home = indexOf(keys[next]);
+      // move the key if its home slot is not in (hole, next]
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[hole] = EMPTY;
+    --size;
+    return true;
+  }
+
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = EMPTY;
+    }
+    size = 0;
+  }
+
+  private int indexOf(long key) {
+    // 64 bit finalizer from MurmurHash3
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < capacity; i++) {
+      keys[i] = EMPTY;
+    }
+  }
+
+  private void rehash(int capacity) {
+    final long[] old = keys;
+    allocate(capacity);
+    for (int i = 0; i < old.length; i++) {
+      final long key = old[i];
+      if (key == EMPTY) {
+        continue;
+      }
+      int index = indexOf(key);
+      while (keys[index] != EMPTY) {
+        index = (index + 1) & mask;
+      }
+      keys[index] = key;
+    }
+  }
+}
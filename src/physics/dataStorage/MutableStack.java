@@ -35,10 +35,13 @@ public class MutableStack<E, T extends E> implements IDynamicStack<E> {
   @SuppressWarnings("unchecked")
   private void extendStack(int argSize) {
     T[] newStack = (T[]) Array.newInstance(sClass, argSize);
+    int first = 0;
     if (stack != null) {
       System.arraycopy(stack, 0, newStack, 0, size);
+      // the old objects are kept, only the new slots need filling.
+      first = size;
     }
-    for (int i = 0; i < newStack.length; i++) {
+    for (int i = first; i < newStack.length; i++) {
       try {
         if (params != null) {
           newStack[i] = sClass.getConstructor(params).newInstance(args);
@@ -0,0 +1,183 @@
+package physics.dynamics;
+
+import physics.tools.MathUtils;
+
+/**
+ * This is an internal class. Structure-of-arrays copy of the solver state of
+ * the bodies in one island. Vector quantities are packed as x, y pairs, so
+ * body slot i lives at [2 * i] and [2 * i + 1]. The island loads the bodies
+ * into their island slots, integrates and solves over the arrays, and writes
+ * the result back to the bodies once at the end of the step.
+ *
+ * Static bodies can be part of more than one island, so they never use their
+ * island slot. Each constraint that touches a static body gets its own
+ * read-only slot after the island bodies instead.
+ */
+public class BodyStateStore {
+
+	/** center of mass, x y pairs */
+	public float[] position = new float[0];
+	public float[] angle = new float[0];
+
+	/** linear velocity, x y pairs */
+	public float[] velocity = new float[0];
+	public float[] angularVelocity = new float[0];
+
+	/** force, x y pairs */
+	public float[] force = new float[0];
+	public float[] torque = new float[0];
+
+	public float[] invMass = new float[0];
+	public float[] invI = new float[0];
+
+	/** inverse mass and inertia scaled by the mass, used by the position solver */
+	public float[] positionInvMass = new float[0];
+	public float[] positionInvI = new float[0];
+
+	/** linear and angular damping pairs */
+	public float[] damping = new float[0];
+
+	/** local center of mass, x y pairs */
+	public float[] localCenter = new float[0];
+
+	/** body origin transform, stored as cos sin pairs and x y pairs */
+	public float[] rotation = new float[0];
+	public float[] origin = new float[0];
+
+	/** number of island slots */
+	public int bodyCount;
+
+	/** number of used slots, island slots followed by static slots */
+	public int count;
+
+	private int m_capacity;
+
+	/**
+	 * Load the island bodies into slots [0, bodyCount).
+	 *
+	 * @param bodies
+	 * @param bodyCount
+	 * @param staticCapacity
+	 *            the maximum number of static slots that will be added
+	 */
+	public void load(RigidBody[] bodies, int bodyCount, int staticCapacity) {
+		reserve(bodyCount + staticCapacity);
+
+		this.bodyCount = bodyCount;
+		count = bodyCount;
+
+		for (int i = 0; i < bodyCount; ++i) {
+			store(i, bodies[i]);
+		}
+	}
+
+	/**
+	 * Get the slot of a body for a constraint. Static bodies get a new slot.
+	 *
+	 * @param body
+	 * @return
+	 */
+	public int slotOf(RigidBody body) {
+		if (body.getType() != RigidBodyType.STATIC) {
+			assert (body.m_islandIndex < bodyCount);
+			return body.m_islandIndex;
+		}
+
+		assert (count < m_capacity);
+		final int slot = count++;
+		store(slot, body);
+		return slot;
+	}
+
+	/**
+	 * Write the solved state of the island bodies back to the bodies. The previous
+	 * center and angle are kept in the sweep for continuous collision.
+	 *
+	 * @param bodies
+	 */
+	public void writeBack(RigidBody[] bodies) {
+		for (int i = 0; i < bodyCount; ++i) {
+			final RigidBody b = bodies[i];
+			if (b.getType() == RigidBodyType.STATIC) {
+				continue;
+			}
+
+			b.m_sweep.c0.set(b.m_sweep.c);
+			b.m_sweep.a0 = b.m_sweep.a;
+
+			b.m_sweep.c.x = position[2 * i];
+			b.m_sweep.c.y = position[2 * i + 1];
+			b.m_sweep.a = angle[i];
+			b.m_linearVelocity.x = velocity[2 * i];
+			b.m_linearVelocity.y = velocity[2 * i + 1];
+			b.m_angularVelocity = angularVelocity[i];
+
+			b.synchronizeTransform();
+		}
+	}
+
+	/**
+	 * Recompute the origin transform of a slot from its center and angle. This
+	 * matches {@link RigidBody#synchronizeTransform()}.
+	 *
+	 * @param i
+	 */
+	public final void synchronizeTransform(int i) {
+		final float c = MathUtils.cos(angle[i]), s = MathUtils.sin(angle[i]);
+		rotation[2 * i] = c;
+		rotation[2 * i + 1] = s;
+		final float lx = localCenter[2 * i];
+		final float ly = localCenter[2 * i + 1];
+		origin[2 * i] = position[2 * i] - c * lx - (-s) * ly;
+		origin[2 * i + 1] = position[2 * i + 1] - s * lx - c * ly;
+	}
+
+	private void store(int i, RigidBody b) {
+		position[2 * i] = b.m_sweep.c.x;
+		position[2 * i + 1] = b.m_sweep.c.y;
+		angle[i] = b.m_sweep.a;
+		velocity[2 * i] = b.m_linearVelocity.x;
+		velocity[2 * i + 1] = b.m_linearVelocity.y;
+		angularVelocity[i] = b.m_angularVelocity;
+		force[2 * i] = b.m_force.x;
+		force[2 * i + 1] = b.m_force.y;
+		torque[i] = b.m_torque;
+		invMass[i] = b.m_invMass;
+		invI[i] = b.m_invI;
+		positionInvMass[i] = b.m_mass * b.m_invMass;
+		positionInvI[i] = b.m_mass * b.m_invI;
+		damping[2 * i] = b.m_linearDamping;
+		damping[2 * i + 1] = b.m_angularDamping;
+		localCenter[2 * i] = b.m_sweep.localCenter.x;
+		localCenter[2 * i + 1] = b.m_sweep.localCenter.y;
+		rotation[2 * i] = b.m_xf.R.col1.x;
+		rotation[2 * i + 1] = b.m_xf.R.col1.y;
+		origin[2 * i] = b.m_xf.position.x;
+		origin[2 * i + 1] = b.m_xf.position.y;
+	}
+
+	private void reserve(int capacity) {
+		if (capacity <= m_capacity) {
+			return;
+		}
+		final int newCapacity = MathUtils.max(capacity, m_capacity * 2);
+
+		// Contents are reloaded every step, so there is nothing to copy.
+		position = new float[2 * newCapacity];
+		angle = new float[newCapacity];
+		velocity = new float[2 * newCapacity];
+		angularVelocity = new float[newCapacity];
+		force = new float[2 * newCapacity];
+		torque = new float[newCapacity];
+		invMass = new float[newCapacity];
+		invI = new float[newCapacity];
+		positionInvMass = new float[newCapacity];
+		positionInvI = new float[newCapacity];
+		damping = new float[2 * newCapacity];
+		localCenter = new float[2 * newCapacity];
+		rotation = new float[2 * newCapacity];
+		origin = new float[2 * newCapacity];
+
+		m_capacity = newCapacity;
+	}
+}
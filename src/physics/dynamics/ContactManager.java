@@ -3,7 +3,7 @@ package physics.dynamics;
 import physics.collision.ContactListener;
 import physics.collision.PairCallback;
 import physics.collision.broadphase.BroadPhase;
-import physics.collision.broadphase.DynamicTreeNode;
+import physics.dataStorage.LongHashSet;
 import physics.dynamics.contacts.Contact;
 import physics.dynamics.contacts.ContactEdge;
 
@@ -20,11 +20,26 @@ public class ContactManager implements PairCallback {
 	
 	private final Pool pool;
 	
+	// proxy pair keys of all live contacts
+	private final LongHashSet m_pairKeys = new LongHashSet(256);
+	
+	// null when the narrow phase runs serially
+	ParallelNarrowPhase m_narrowPhase = null;
+	
+	// contacts with an awake body that is not static, or null to walk the contact list
+	private Contact[] m_awakeContacts = null;
+	private int m_awakeContactCount;
+	private Contact[] m_collideContacts = new Contact[16];
+	
 	public ContactManager(Pool argPool) {
+		this(argPool, new BroadPhase());
+	}
+	
+	public ContactManager(Pool argPool, BroadPhase broadPhase) {
 		m_contactList = null;
 		m_contactCount = 0;
 		m_contactListener = null;
-		m_broadPhase = new BroadPhase();
+		m_broadPhase = broadPhase;
 		pool = argPool;
 	}
 	
@@ -47,23 +62,9 @@ public class ContactManager implements PairCallback {
 		}
 		
 		// Does a contact already exist?
-		ContactEdge edge = bodyB.getContactList();
-		while (edge != null) {
-			if (edge.other == bodyA) {
-				Fixture fA = edge.contact.getFixtureA();
-				Fixture fB = edge.contact.getFixtureB();
-				if (fA == fixtureA && fB == fixtureB) {
-					// A contact already exists.
-					return;
-				}
-				
-				if (fA == fixtureB && fB == fixtureA) {
-					// A contact already exists.
-					return;
-				}
-			}
-			
-			edge = edge.next;
+		final long pairKey = BroadPhase.pairKey(fixtureA.m_proxyId, fixtureB.m_proxyId);
+		if (m_pairKeys.contains(pairKey)) {
+			return;
 		}
 		
 		// Does a joint override collision? is at least one body dynamic?
@@ -73,6 +74,11 @@ public class ContactManager implements PairCallback {
 		
 		// Call the factory.
 		Contact c = pool.popContact(fixtureA, fixtureB);
+		if (c == null) {
+			return;
+		}
+		c.m_pairKey = pairKey;
+		m_pairKeys.add(pairKey);
 		
 		// Contact creation may swap fixtures.
 		fixtureA = c.getFixtureA();
@@ -112,7 +118,12 @@ public class ContactManager implements PairCallback {
 		}
 		bodyB.m_contactList = c.m_nodeB;
 		
+		if (m_awakeContacts != null && (bodyA.m_awakeIndex >= 0 || bodyB.m_awakeIndex >= 0)) {
+			addAwakeContact(c);
+		}
+		
 		++m_contactCount;
+		assert (m_pairKeys.size() == m_contactCount);
 	}
 	
 	public void findNewContacts() {
@@ -129,6 +140,10 @@ public class ContactManager implements PairCallback {
 			m_contactListener.endContact(c);
 		}
 		
+		if (c.isTouching() && fixtureA.isSensor() == false && fixtureB.isSensor() == false) {
+			IslandManager.touchingEnded(bodyA, bodyB);
+		}
+		
 		// Remove from the world.
 		if (c.m_prev != null) {
 			c.m_prev.m_next = c.m_next;
@@ -168,9 +183,16 @@ public class ContactManager implements PairCallback {
 			bodyB.m_contactList = c.m_nodeB.next;
 		}
 		
+		m_pairKeys.remove(c.m_pairKey);
+		
+		if (c.m_awakeIndex >= 0) {
+			removeAwakeContact(c);
+		}
+		
 		// Call the factory.
 		pool.pushContact(c);
 		--m_contactCount;
+		assert (m_pairKeys.size() == m_contactCount);
 	}
 	
 	/**
@@ -179,48 +201,266 @@ public class ContactManager implements PairCallback {
 	 * contact list.
 	 */
 	public void collide() {
+		if (m_awakeContacts != null) {
+			collideAwake(m_narrowPhase);
+			return;
+		}
+		
+		if (m_narrowPhase != null) {
+			collideParallel(m_narrowPhase);
+			return;
+		}
+		
 		// Update awake contacts.
 		Contact c = m_contactList;
 		while (c != null) {
-			Fixture fixtureA = c.getFixtureA();
-			Fixture fixtureB = c.getFixtureB();
-			RigidBody bodyA = fixtureA.getBody();
-			RigidBody bodyB = fixtureB.getBody();
-			
+			c = collide(c);
+		}
+	}
+	
+	/**
+	 * Update one contact, or destroy it if it is no longer needed.
+	 * 
+	 * @param c
+	 * @return the next contact in the list
+	 */
+	private Contact collide(Contact c) {
+		Fixture fixtureA = c.getFixtureA();
+		Fixture fixtureB = c.getFixtureB();
+		RigidBody bodyA = fixtureA.getBody();
+		RigidBody bodyB = fixtureB.getBody();
+		
+		if (bodyA.isAwake() == false && bodyB.isAwake() == false) {
+			return c.getNext();
+		}
+		
+		final Contact next = c.getNext();
+		if (isDead(c)) {
+			destroy(c);
+			return next;
+		}
+		
+		// The contact persists.
+		c.update(m_contactListener);
+		return next;
+	}
+	
+	/**
+	 * Check if a contact should be destroyed because of filtering or because
+	 * its proxies stopped overlapping.
+	 * 
+	 * @param c
+	 * @return
+	 */
+	private boolean isDead(Contact c) {
+		Fixture fixtureA = c.getFixtureA();
+		Fixture fixtureB = c.getFixtureB();
+		RigidBody bodyA = fixtureA.getBody();
+		RigidBody bodyB = fixtureB.getBody();
+		
+		// is this contact flagged for filtering?
+		if ((c.m_flags & Contact.FILTER_FLAG) == Contact.FILTER_FLAG) {
+			// Should these bodies collide?
+			if (bodyB.shouldCollide(bodyA) == false) {
+				return true;
+			}
+							
+			// Clear the filtering flag.
+			c.m_flags &= ~Contact.FILTER_FLAG;
+		}
+		
+		int proxyIdA = fixtureA.m_proxyId;
+		int proxyIdB = fixtureB.m_proxyId;
+		boolean overlap = m_broadPhase.testOverlap(proxyIdA, proxyIdB);
+		
+		// Here we destroy contacts that cease to overlap in the broad-phase.
+		return overlap == false;
+	}
+	
+	/**
+	 * Same as the serial collide, but the manifolds are evaluated concurrently.
+	 * Waking bodies, destroying contacts and the listener callbacks still happen
+	 * on this thread in contact list order, exactly as the serial collide does
+	 * them. The only difference a listener can see is that all the manifolds are
+	 * already updated when the first callback happens.
+	 * 
+	 * @param narrowPhase
+	 */
+	private void collideParallel(ParallelNarrowPhase narrowPhase) {
+		narrowPhase.clear();
+		
+		// Collect the contacts of awake bodies. Nothing is changed yet, so
+		// destroyed contacts can't wake anything up out of order.
+		for (Contact c = m_contactList; c != null; c = c.getNext()) {
+			RigidBody bodyA = c.getFixtureA().getBody();
+			RigidBody bodyB = c.getFixtureB().getBody();
 			if (bodyA.isAwake() == false && bodyB.isAwake() == false) {
-				c = c.getNext();
 				continue;
 			}
 			
-			// is this contact flagged for filtering?
-			if ((c.m_flags & Contact.FILTER_FLAG) == Contact.FILTER_FLAG) {
-				// Should these bodies collide?
-				if (bodyB.shouldCollide(bodyA) == false) {
-					Contact cNuke = c;
-					c = cNuke.getNext();
-					destroy(cNuke);
-					continue;
-				}
-								
-				// Clear the filtering flag.
-				c.m_flags &= ~Contact.FILTER_FLAG;
+			if (isDead(c)) {
+				narrowPhase.addDestroy(c);
 			}
-			
-			DynamicTreeNode proxyIdA = fixtureA.m_proxy;
-			DynamicTreeNode proxyIdB = fixtureB.m_proxy;
-			boolean overlap = m_broadPhase.testOverlap(proxyIdA, proxyIdB);
-			
-			// Here we destroy contacts that cease to overlap in the broad-phase.
-			if (overlap == false) {
+			else {
+				narrowPhase.add(c);
+			}
+		}
+		
+		narrowPhase.updateManifolds();
+		
+		// Replay the serial collide.
+		int updateIndex = 0;
+		int destroyIndex = 0;
+		final int updateCount = narrowPhase.getContactCount();
+		final int destroyCount = narrowPhase.getDestroyCount();
+		Contact c = m_contactList;
+		while (c != null) {
+			if (updateIndex < updateCount && narrowPhase.getContact(updateIndex) == c) {
+				++updateIndex;
+				c.finishUpdate(m_contactListener);
+				c = c.getNext();
+			}
+			else if (destroyIndex < destroyCount && narrowPhase.getDestroy(destroyIndex) == c) {
+				++destroyIndex;
 				Contact cNuke = c;
 				c = cNuke.getNext();
 				destroy(cNuke);
-				continue;
 			}
-			
-			// The contact persists.
-			c.update(m_contactListener);
-			c = c.getNext();
+			else {
+				// Both bodies were asleep, but an earlier contact may have woken them.
+				c = collide(c);
+			}
+		}
+		assert (updateIndex == updateCount && destroyIndex == destroyCount);
+	}
+	
+	/**
+	 * Keep the contacts of the awake bodies in a set, so collide only looks at
+	 * them. The world adds and removes the bodies.
+	 * 
+	 * @param flag
+	 */
+	void setAwakeContacts(boolean flag) {
+		if (flag && m_awakeContacts == null) {
+			m_awakeContacts = new Contact[16];
+		}
+		else if (flag == false && m_awakeContacts != null) {
+			for (int i = 0; i < m_awakeContactCount; ++i) {
+				m_awakeContacts[i].m_awakeIndex = -1;
+			}
+			m_awakeContacts = null;
+			m_awakeContactCount = 0;
+		}
+	}
+	
+	/**
+	 * @return the number of contacts with an awake body that is not static, or
+	 *         0 if they are not kept in a set.
+	 */
+	public int getAwakeContactCount() {
+		return m_awakeContactCount;
+	}
+	
+	/**
+	 * Called after a body was added to the awake bodies of the world.
+	 */
+	void addAwakeContacts(RigidBody body) {
+		if (m_awakeContacts == null) {
+			return;
+		}
+		for (ContactEdge ce = body.m_contactList; ce != null; ce = ce.next) {
+			if (ce.contact.m_awakeIndex < 0) {
+				addAwakeContact(ce.contact);
+			}
+		}
+	}
+	
+	/**
+	 * Called after a body was removed from the awake bodies of the world.
+	 */
+	void removeAwakeContacts(RigidBody body) {
+		if (m_awakeContacts == null) {
+			return;
+		}
+		for (ContactEdge ce = body.m_contactList; ce != null; ce = ce.next) {
+			if (ce.contact.m_awakeIndex >= 0 && ce.other.m_awakeIndex < 0) {
+				removeAwakeContact(ce.contact);
+			}
+		}
+	}
+	
+	private void addAwakeContact(Contact c) {
+		if (m_awakeContactCount == m_awakeContacts.length) {
+			final Contact[] old = m_awakeContacts;
+			m_awakeContacts = new Contact[old.length * 2];
+			System.arraycopy(old, 0, m_awakeContacts, 0, old.length);
+		}
+		c.m_awakeIndex = m_awakeContactCount;
+		m_awakeContacts[m_awakeContactCount++] = c;
+	}
+	
+	private void removeAwakeContact(Contact c) {
+		final Contact last = m_awakeContacts[--m_awakeContactCount];
+		m_awakeContacts[c.m_awakeIndex] = last;
+		last.m_awakeIndex = c.m_awakeIndex;
+		m_awakeContacts[m_awakeContactCount] = null;
+		c.m_awakeIndex = -1;
+	}
+	
+	/**
+	 * Collide the contacts in the awake set. The set changes while contacts are
+	 * destroyed and bodies are woken, so it is copied first. Contacts that are
+	 * woken on the way are updated the next step, in both the serial and the
+	 * parallel narrow phase.
+	 * 
+	 * @param narrowPhase
+	 */
+	private void collideAwake(ParallelNarrowPhase narrowPhase) {
+		final int count = m_awakeContactCount;
+		if (m_collideContacts.length < count) {
+			m_collideContacts = new Contact[Math.max(m_collideContacts.length * 2, count)];
+		}
+		final Contact[] contacts = m_collideContacts;
+		System.arraycopy(m_awakeContacts, 0, contacts, 0, count);
+		
+		if (narrowPhase == null) {
+			for (int i = 0; i < count; ++i) {
+				final Contact c = contacts[i];
+				contacts[i] = null;
+				if (isDead(c)) {
+					destroy(c);
+				}
+				else {
+					c.update(m_contactListener);
+				}
+			}
+			return;
+		}
+		
+		narrowPhase.clear();
+		for (int i = 0; i < count; ++i) {
+			if (isDead(contacts[i])) {
+				narrowPhase.addDestroy(contacts[i]);
+			}
+			else {
+				narrowPhase.add(contacts[i]);
+			}
+		}
+		
+		narrowPhase.updateManifolds();
+		
+		// Replay in the order of the copy.
+		int updateIndex = 0;
+		for (int i = 0; i < count; ++i) {
+			final Contact c = contacts[i];
+			contacts[i] = null;
+			if (updateIndex < narrowPhase.getContactCount() && narrowPhase.getContact(updateIndex) == c) {
+				++updateIndex;
+				c.finishUpdate(m_contactListener);
+			}
+			else {
+				destroy(c);
+			}
 		}
 	}
 }
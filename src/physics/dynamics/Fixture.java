@@ -2,7 +2,6 @@ package physics.dynamics;
 
 import physics.collision.AABB;
 import physics.collision.broadphase.BroadPhase;
-import physics.collision.broadphase.DynamicTreeNode;
 import physics.collision.shapes.Mass;
 import physics.collision.shapes.Shape;
 import physics.collision.shapes.ShapeType;
@@ -31,7 +30,7 @@ public class Fixture {
 	public float m_friction;
 	public float m_restitution;
 	
-	public DynamicTreeNode m_proxy;
+	public int m_proxyId;
 	
 	public boolean m_isSensor;
 	
@@ -41,7 +40,7 @@ public class Fixture {
 		m_userData = null;
 		m_body = null;
 		m_next = null;
-		m_proxy = null;
+		m_proxyId = BroadPhase.NULL_PROXY;
 		m_shape = null;
 	}
 	
@@ -183,6 +182,14 @@ public class Fixture {
 	public AABB getAABB(){
 		return m_aabb;
 	}
+
+	/**
+	 * Compute the tight AABB of the shape at the current body transform.
+	 * @param aabb receives the AABB
+	 */
+	public void computeAABB(AABB aabb){
+		m_shape.computeAABB(aabb, m_body.m_xf);
+	}
 	
 	
 	// We need separation create/destroy functions from the constructor/destructor because
@@ -206,7 +213,7 @@ public class Fixture {
 	public void destroy(){
 		
 		// The proxy must be destroyed before calling this.
-		assert(m_proxy == null);
+		assert(m_proxyId == BroadPhase.NULL_PROXY);
 		
 		// Free the child shape.
 		// yeah woo jvm
@@ -216,11 +223,11 @@ public class Fixture {
 	
 	// These support body activation/deactivation.
 	public void createProxy(BroadPhase broadPhase, final Transform xf){
-		assert(m_proxy == null);
+		assert(m_proxyId == BroadPhase.NULL_PROXY);
 		
 		// Create proxy in the broad-phase.
 		m_shape.computeAABB( m_aabb, xf);
-		m_proxy = broadPhase.createProxy( m_aabb, this);
+		m_proxyId = broadPhase.createProxy( m_aabb, this, m_body.m_type == RigidBodyType.STATIC);
 	}
 	
 	/**
@@ -228,12 +235,12 @@ public class Fixture {
 	 * @param broadPhase
 	 */
 	public void destroyProxy(BroadPhase broadPhase){
-		if(m_proxy == null){
+		if(m_proxyId == BroadPhase.NULL_PROXY){
 			return;
 		}
 		
-		broadPhase.destroyProxy( m_proxy);
-		m_proxy = null;
+		broadPhase.destroyProxy( m_proxyId);
+		m_proxyId = BroadPhase.NULL_PROXY;
 	}
 	
 	private final AABB pool1 = new AABB();
@@ -246,7 +253,7 @@ public class Fixture {
 	 * @param xf2
 	 */
 	protected void synchronize(BroadPhase broadPhase, final Transform transform1, final Transform transform2){
-		if(m_proxy == null){
+		if(m_proxyId == BroadPhase.NULL_PROXY){
 			return;
 		}
 		
@@ -261,6 +268,6 @@ public class Fixture {
 		disp.x = transform2.position.x - transform1.position.x;
 		disp.y = transform2.position.y - transform1.position.y;
 		
-		broadPhase.moveProxy( m_proxy, m_aabb, disp);
+		broadPhase.moveProxy( m_proxyId, m_aabb, disp);
 	}
 }
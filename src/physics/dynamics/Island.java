@@ -1,5 +1,7 @@
 package physics.dynamics;
 
+import java.util.concurrent.ForkJoinPool;
+
 import physics.collision.ContactListener;
 import physics.dynamics.contacts.Contact;
 import physics.dynamics.contacts.ContactSolver;
@@ -44,18 +46,20 @@ public class Island {
 		
 		m_listener = listener;
 		
+		// grow by doubling, so a world whose contact count creeps up does not
+		// reallocate every step.
 		if(m_bodies == null || m_bodyCapacity > m_bodies.length){
-			m_bodies = new RigidBody[m_bodyCapacity];
+			m_bodies = new RigidBody[m_bodies == null ? m_bodyCapacity : MathUtils.max(m_bodyCapacity, m_bodies.length * 2)];
 		}
 
 		if(m_contacts == null || m_contactCapacity > m_contacts.length){
-			m_contacts = new Contact[m_contactCapacity];
+			m_contacts = new Contact[m_contacts == null ? m_contactCapacity : MathUtils.max(m_contactCapacity, m_contacts.length * 2)];
 		}
 		
 		// dynamic array
 		if(m_velocities == null || m_bodyCapacity > m_velocities.length){
 		  final Velocity[] old = m_velocities == null ? new Velocity[0] : m_velocities;
-			m_velocities = new Velocity[m_bodyCapacity];
+			m_velocities = new Velocity[m_bodies.length];
 			System.arraycopy(old, 0, m_velocities, 0, old.length);
 			for(int i=old.length; i<m_velocities.length; i++){
 				m_velocities[i] = new Velocity();
@@ -65,7 +69,7 @@ public class Island {
 		// dynamic array
 		if(m_positions == null || m_bodyCapacity > m_positions.length){
 		  final Position[] old = m_positions == null ? new Position[0] : m_positions;
-			m_positions = new Position[m_bodyCapacity];
+			m_positions = new Position[m_bodies.length];
 			System.arraycopy(old, 0, m_positions, 0, old.length);
 			for(int i=old.length; i<m_positions.length; i++){
 				m_positions[i] = new Position();
@@ -81,8 +85,32 @@ public class Island {
 	
 	private final ContactSolver contactSolver = new ContactSolver();
 	private final Vec translation = new Vec();
+	private final BodyStateStore m_store = new BodyStateStore();
+	
+	// solve stage timings, when the step is profiled
+	private long m_lapTime;
+	private long m_integrateNanos;
+	private long m_velocityNanos;
+	private long m_positionNanos;
 	
 	public void solve(TimeStep step, Vec gravity, boolean allowSleep){
+		if (step.bodyStateStore || step.contactSolverPool != null){
+			solveStore(step, gravity);
+		}
+		else{
+			solveBodies(step, gravity);
+		}
+
+		if (allowSleep){
+			updateSleep(step);
+		}
+	}
+	
+	private void solveBodies(TimeStep step, Vec gravity){
+		if (step.profile){
+			m_lapTime = System.nanoTime();
+		}
+		
 		// Integrate velocities and apply damping.
 		for (int i = 0; i < m_bodyCount; ++i){
 			RigidBody b = m_bodies[i];
@@ -106,24 +134,12 @@ public class Island {
 			float b1 = (a2 < 1.0f ? a2 : 1.0f);
 			b.m_angularVelocity *= 0.0f > b1 ? 0.0f : b1;
 		}
-
-		// Partition contacts so that contacts with static bodies are solved last.
-		int i1 = -1;
-		for (int i2 = 0; i2 < m_contactCount; ++i2){
-			Fixture fixtureA = m_contacts[i2].getFixtureA();
-			Fixture fixtureB = m_contacts[i2].getFixtureB();
-			RigidBody bodyA = fixtureA.getBody();
-			RigidBody bodyB = fixtureB.getBody();
-			boolean nonStatic = bodyA.getType() != RigidBodyType.STATIC && bodyB.getType() != RigidBodyType.STATIC;
-			if (nonStatic){
-				++i1;
-				//Swap(m_contacts[i1], m_contacts[i2]);
-				Contact temp = m_contacts[i1];
-				m_contacts[i1] = m_contacts[i2];
-				m_contacts[i2] = temp;
-			}
+		if (step.profile){
+			m_integrateNanos += lap();
 		}
 
+		partitionContacts();
+
 		// Initialize velocity constraints.
 		contactSolver.init(m_contacts, m_contactCount, step.dtRatio);
 		contactSolver.warmStart();
@@ -135,6 +151,9 @@ public class Island {
 
 		// Post-solve (store impulses for warm starting).
 		contactSolver.storeImpulses();
+		if (step.profile){
+			m_velocityNanos += lap();
+		}
 
 		// Integrate positions.
 		for (int i = 0; i < m_bodyCount; ++i){
@@ -175,6 +194,9 @@ public class Island {
 
 			// Note: shapes are synchronized later.
 		}
+		if (step.profile){
+			m_integrateNanos += lap();
+		}
 
 		// Iterate over constraints.
 		for (int i = 0; i < step.positionIterations; ++i){
@@ -185,42 +207,213 @@ public class Island {
 				break;
 			}
 		}
+		if (step.profile){
+			m_positionNanos += lap();
+		}
+	}
+	
+	private void solveStore(TimeStep step, Vec gravity){
+		if (step.profile){
+			m_lapTime = System.nanoTime();
+		}
+		
+		final BodyStateStore store = m_store;
+		store.load(m_bodies, m_bodyCount, 2 * m_contactCount);
+		
+		final float[] velocity = store.velocity;
+		final float[] angularVelocity = store.angularVelocity;
+		final float[] position = store.position;
+		final float[] angle = store.angle;
+		
+		// Integrate velocities and apply damping.
+		for (int i = 0; i < m_bodyCount; ++i){
+			if (m_bodies[i].getType() != RigidBodyType.DYNAMIC){
+				continue;
+			}
+			
+			velocity[2 * i] += (store.force[2 * i] * store.invMass[i] + gravity.x)*step.dt;
+			velocity[2 * i + 1] += (store.force[2 * i + 1] * store.invMass[i] + gravity.y)*step.dt;
+			angularVelocity[i] += step.dt * store.invI[i] * store.torque[i];
+			
+			float a = (1.0f - step.dt * store.damping[2 * i]);
+			float a1 = (0.0f > (a < 1.0f ? a : 1.0f) ? 0.0f : (a < 1.0f ? a : 1.0f));
+			velocity[2 * i] *= a1;
+			velocity[2 * i + 1] *= a1;
+			
+			float a2 = (1.0f - step.dt * store.damping[2 * i + 1]);
+			float b1 = (a2 < 1.0f ? a2 : 1.0f);
+			angularVelocity[i] *= 0.0f > b1 ? 0.0f : b1;
+		}
+		if (step.profile){
+			m_integrateNanos += lap();
+		}
+		
+		partitionContacts();
+		
+		// Initialize velocity constraints.
+		contactSolver.init(m_contacts, m_contactCount, step.dtRatio, store);
+		
+		// Large islands are solved color by color on the pool.
+		final ForkJoinPool forkJoinPool =
+			m_contactCount >= ContactSolver.MIN_COLORED_CONSTRAINTS ? step.contactSolverPool : null;
+		if (forkJoinPool != null){
+			contactSolver.colorConstraints(store);
+		}
+		
+		contactSolver.warmStart(store);
+		
+		// Solve velocity constraints.
+		if (forkJoinPool != null){
+			contactSolver.solveVelocityConstraints(store, step.velocityIterations, forkJoinPool);
+		}
+		else{
+			for (int i = 0; i < step.velocityIterations; ++i){
+				contactSolver.solveVelocityConstraints(store);
+			}
+		}
+		
+		// Post-solve (store impulses for warm starting).
+		contactSolver.storeImpulses();
+		if (step.profile){
+			m_velocityNanos += lap();
+		}
+		
+		// Integrate positions.
+		for (int i = 0; i < m_bodyCount; ++i){
+			if (m_bodies[i].getType() == RigidBodyType.STATIC){
+				continue;
+			}
+			
+			// Check for large velocities.
+			float tx = velocity[2 * i] * step.dt;
+			float ty = velocity[2 * i + 1] * step.dt;
+			float lengthSquared = tx * tx + ty * ty;
+			if (lengthSquared > Settings.maxTranslationSquared){
+				float ratio = Settings.maxTranslation / MathUtils.sqrt(lengthSquared);
+				velocity[2 * i] *= ratio;
+				velocity[2 * i + 1] *= ratio;
+			}
+			
+			float rotation = step.dt * angularVelocity[i];
+			if (rotation * rotation > Settings.maxRotationSquared)
+			{
+				float ratio = Settings.maxRotation / Math.abs(rotation);
+				angularVelocity[i] *= ratio;
+			}
+			
+			// Integrate
+			position[2 * i] += velocity[2 * i] * step.dt;
+			position[2 * i + 1] += velocity[2 * i + 1] * step.dt;
+			angle[i] += step.dt * angularVelocity[i];
+			
+			store.synchronizeTransform(i);
+		}
+		if (step.profile){
+			m_integrateNanos += lap();
+		}
+		
+		// Iterate over constraints.
+		if (forkJoinPool != null){
+			// Exits early the same way.
+			contactSolver.solvePositionConstraints(Settings.contactBaumgarte, store, step.positionIterations, forkJoinPool);
+		}
+		else{
+			for (int i = 0; i < step.positionIterations; ++i){
+				boolean contactsOkay = contactSolver.solvePositionConstraints(Settings.contactBaumgarte, store);
+				
+				if (contactsOkay){
+					// Exit early if the position errors are small.
+					break;
+				}
+			}
+		}
+		
+		if (step.profile){
+			m_positionNanos += lap();
+		}
+		
+		// Copy the state back, this also stores positions for continuous collision.
+		store.writeBack(m_bodies);
+		if (step.profile){
+			m_integrateNanos += lap();
+		}
+	}
+	
+	private long lap(){
+		final long time = System.nanoTime();
+		final long nanos = time - m_lapTime;
+		m_lapTime = time;
+		return nanos;
+	}
+	
+	/**
+	 * Add the solve stage timings of the islands solved with this island since
+	 * the last call to the profile.
+	 */
+	void addProfile(StepProfile profile){
+		profile.solveIntegrateNanos += m_integrateNanos;
+		profile.solveVelocityNanos += m_velocityNanos;
+		profile.solvePositionNanos += m_positionNanos;
+		m_integrateNanos = 0;
+		m_velocityNanos = 0;
+		m_positionNanos = 0;
+	}
+	
+	/**
+	 * Partition contacts so that contacts with static bodies are solved last.
+	 */
+	private void partitionContacts(){
+		int i1 = -1;
+		for (int i2 = 0; i2 < m_contactCount; ++i2){
+			Fixture fixtureA = m_contacts[i2].getFixtureA();
+			Fixture fixtureB = m_contacts[i2].getFixtureB();
+			RigidBody bodyA = fixtureA.getBody();
+			RigidBody bodyB = fixtureB.getBody();
+			boolean nonStatic = bodyA.getType() != RigidBodyType.STATIC && bodyB.getType() != RigidBodyType.STATIC;
+			if (nonStatic){
+				++i1;
+				//Swap(m_contacts[i1], m_contacts[i2]);
+				Contact temp = m_contacts[i1];
+				m_contacts[i1] = m_contacts[i2];
+				m_contacts[i2] = temp;
+			}
+		}
+	}
+	
+	private void updateSleep(TimeStep step){
+		float minSleepTime = Float.MAX_VALUE;
 
-		if (allowSleep){
-			float minSleepTime = Float.MAX_VALUE;
-
-			 float linTolSqr = Settings.linearSleepTolerance * Settings.linearSleepTolerance;
-			 float angTolSqr = Settings.angularSleepTolerance * Settings.angularSleepTolerance;
+		 float linTolSqr = Settings.linearSleepTolerance * Settings.linearSleepTolerance;
+		 float angTolSqr = Settings.angularSleepTolerance * Settings.angularSleepTolerance;
 
-			for (int i = 0; i < m_bodyCount; ++i){
-				RigidBody b = m_bodies[i];
-				if (b.getType() == RigidBodyType.STATIC){
-					continue;
-				}
+		for (int i = 0; i < m_bodyCount; ++i){
+			RigidBody b = m_bodies[i];
+			if (b.getType() == RigidBodyType.STATIC){
+				continue;
+			}
 
-				if ((b.m_flags & RigidBody.e_autoSleepFlag) == 0){
-					b.m_sleepTime = 0.0f;
-					minSleepTime = 0.0f;
-				}
-				Vec linVel = b.m_linearVelocity;
+			if ((b.m_flags & RigidBody.e_autoSleepFlag) == 0){
+				b.m_sleepTime = 0.0f;
+				minSleepTime = 0.0f;
+			}
+			Vec linVel = b.m_linearVelocity;
 
-				if ((b.m_flags & RigidBody.e_autoSleepFlag) == 0 ||
-					b.m_angularVelocity * b.m_angularVelocity > angTolSqr ||
-					linVel.x * linVel.x + linVel.y * linVel.y > linTolSqr){
-					b.m_sleepTime = 0.0f;
-					minSleepTime = 0.0f;
-				}
-				else{
-					b.m_sleepTime += step.dt;
-					minSleepTime = MathUtils.min(minSleepTime, b.m_sleepTime);
-				}
+			if ((b.m_flags & RigidBody.e_autoSleepFlag) == 0 ||
+				b.m_angularVelocity * b.m_angularVelocity > angTolSqr ||
+				linVel.x * linVel.x + linVel.y * linVel.y > linTolSqr){
+				b.m_sleepTime = 0.0f;
+				minSleepTime = 0.0f;
+			}
+			else{
+				b.m_sleepTime += step.dt;
+				minSleepTime = MathUtils.min(minSleepTime, b.m_sleepTime);
 			}
+		}
 
-			if (minSleepTime >= Settings.timeToSleep){
-				for (int i = 0; i < m_bodyCount; ++i){
-					RigidBody b = m_bodies[i];
-					b.setAwake(false);
-				}
+		if (minSleepTime >= Settings.timeToSleep){
+			for (int i = 0; i < m_bodyCount; ++i){
+				RigidBody b = m_bodies[i];
+				b.setAwake(false);
 			}
 		}
 	}
@@ -0,0 +1,394 @@
+package physics.dynamics;
+
+import physics.dynamics.contacts.Contact;
+import physics.dynamics.contacts.ContactEdge;
+import physics.tools.MathUtils;
+import physics.tools.Settings;
+
+/**
+ * Keeps the islands of a world from step to step, so a step only looks at the
+ * islands that are awake instead of searching the whole contact graph again.
+ *
+ * Islands merge when a touching contact joins them, which is found while the
+ * awake one is built. A contact that stops touching only marks its island
+ * dirty. A dirty island is split with a search over its own bodies, and only
+ * when that matters for sleeping: when it falls asleep, so that it wakes up in
+ * parts later, or when part of it has rested long enough to sleep on its own.
+ * Until then it is solved as one island, which gives the same motion.
+ */
+public class IslandManager {
+
+	// islands that may have an awake body, in no particular order
+	private PersistentIsland[] m_awakeIslands = new PersistentIsland[16];
+	private int m_awakeCount;
+	private int m_next;
+
+	private int m_islandCount;
+	private int m_splitCount;
+
+	// the island bodies flagged by the last solve
+	private RigidBody[] m_solvedBodies = new RigidBody[16];
+	private int m_solvedBodyCount;
+
+	private RigidBody[] m_stack = new RigidBody[16];
+	private RigidBody[] m_members = new RigidBody[16];
+
+	public int getIslandCount() {
+		return m_islandCount;
+	}
+
+	public int getAwakeIslandCount() {
+		return m_awakeCount;
+	}
+
+	/**
+	 * @return the number of times a dirty island was split so far.
+	 */
+	public int getSplitCount() {
+		return m_splitCount;
+	}
+
+	/**
+	 * Called when a touching contact between the two bodies stops touching or
+	 * is destroyed. Contacts with a sensor never join islands.
+	 */
+	public static void touchingEnded(RigidBody bodyA, RigidBody bodyB) {
+		if (bodyA.m_island != null && bodyA.m_island == bodyB.m_island) {
+			bodyA.m_island.m_dirty = true;
+		}
+	}
+
+	/**
+	 * Put a new body in an island of its own. Static and inactive bodies are
+	 * not kept in islands.
+	 */
+	void addBody(RigidBody body) {
+		if (body.m_island != null || body.getType() == RigidBodyType.STATIC || body.isActive() == false) {
+			return;
+		}
+
+		final PersistentIsland island = new PersistentIsland();
+		island.append(body);
+		++m_islandCount;
+		if (body.isAwake()) {
+			queue(island);
+		}
+	}
+
+	/**
+	 * Take a body out of its island, because it is destroyed, made static or
+	 * made inactive.
+	 */
+	void removeBody(RigidBody body) {
+		final PersistentIsland island = body.m_island;
+		if (island == null) {
+			return;
+		}
+
+		island.remove(body);
+		if (island.m_bodyCount == 0) {
+			dequeue(island);
+			--m_islandCount;
+		}
+		else {
+			island.m_dirty = true;
+		}
+	}
+
+	/**
+	 * Called when a body wakes up.
+	 */
+	void wake(RigidBody body) {
+		if (body.m_island != null) {
+			queue(body.m_island);
+		}
+	}
+
+	/**
+	 * Find the islands of all the bodies with a search over the contact graph,
+	 * like the world does every step without this.
+	 */
+	void rebuild(RigidBody bodyList) {
+		for (RigidBody b = bodyList; b != null; b = b.m_next) {
+			b.m_island = null;
+			b.m_islandPrev = null;
+			b.m_islandNext = null;
+			b.m_flags &= ~RigidBody.e_islandFlag;
+			for (ContactEdge ce = b.m_contactList; ce != null; ce = ce.next) {
+				ce.contact.m_flags &= ~Contact.ISLAND_FLAG;
+			}
+		}
+		for (int i = 0; i < m_awakeCount; ++i) {
+			m_awakeIslands[i] = null;
+		}
+		m_awakeCount = 0;
+		m_islandCount = 0;
+		m_solvedBodyCount = 0;
+
+		for (RigidBody b = bodyList; b != null; b = b.m_next) {
+			if (b.m_island != null || b.getType() == RigidBodyType.STATIC || b.isActive() == false) {
+				continue;
+			}
+			final PersistentIsland island = new PersistentIsland();
+			++m_islandCount;
+			if (grow(island, b)) {
+				queue(island);
+			}
+		}
+	}
+
+	/**
+	 * Forget all the islands.
+	 */
+	void clear(RigidBody bodyList) {
+		for (RigidBody b = bodyList; b != null; b = b.m_next) {
+			b.m_island = null;
+			b.m_islandPrev = null;
+			b.m_islandNext = null;
+		}
+		for (int i = 0; i < m_awakeCount; ++i) {
+			m_awakeIslands[i] = null;
+		}
+		m_awakeCount = 0;
+		m_islandCount = 0;
+		m_solvedBodyCount = 0;
+	}
+
+	/**
+	 * Clear the island flags set by the last solve and start over with the
+	 * first awake island.
+	 */
+	void beginSolve() {
+		for (int i = 0; i < m_solvedBodyCount; ++i) {
+			m_solvedBodies[i].m_flags &= ~RigidBody.e_islandFlag;
+			m_solvedBodies[i] = null;
+		}
+		m_solvedBodyCount = 0;
+		m_next = 0;
+	}
+
+	/**
+	 * Build the next awake island into the solver island. All its bodies are
+	 * woken and flagged, like the search does.
+	 *
+	 * @return false if there are no more awake islands this step.
+	 */
+	boolean buildNext(Island island) {
+		while (m_next < m_awakeCount) {
+			final PersistentIsland next = m_awakeIslands[m_next];
+
+			boolean awake = false;
+			float maxSleepTime = 0.0f;
+			for (RigidBody b = next.m_bodyList; b != null; b = b.m_islandNext) {
+				awake = awake || b.isAwake();
+				maxSleepTime = MathUtils.max(maxSleepTime, b.m_sleepTime);
+			}
+
+			if (next.m_dirty && (awake == false || maxSleepTime >= Settings.timeToSleep)) {
+				// Look at the first part again, the others are queued at the end.
+				split(next);
+				continue;
+			}
+
+			if (awake == false) {
+				dequeue(next);
+				continue;
+			}
+
+			build(next, island);
+			++m_next;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the bodies flagged by the solve so far, none of them static.
+	 */
+	RigidBody[] getSolvedBodies() {
+		return m_solvedBodies;
+	}
+
+	int getSolvedBodyCount() {
+		return m_solvedBodyCount;
+	}
+
+	private void build(PersistentIsland persistent, Island island) {
+		island.clear();
+
+		// Islands merged on the way are appended, so they are built too.
+		for (RigidBody b = persistent.m_bodyList; b != null; b = b.m_islandNext) {
+			assert (b.isActive() == true && b.getType() != RigidBodyType.STATIC);
+			island.add(b);
+			b.m_flags |= RigidBody.e_islandFlag;
+			b.setAwake(true);
+			addSolved(b);
+
+			for (ContactEdge ce = b.m_contactList; ce != null; ce = ce.next) {
+				final Contact contact = ce.contact;
+
+				// Has this contact already been added to the island?
+				if ((contact.m_flags & Contact.ISLAND_FLAG) == Contact.ISLAND_FLAG) {
+					continue;
+				}
+
+				if (contact.isTouching() == false || contact.m_fixtureA.m_isSensor || contact.m_fixtureB.m_isSensor) {
+					continue;
+				}
+
+				final RigidBody other = ce.other;
+				if (other.getType() == RigidBodyType.STATIC) {
+					// Static bodies join every island they touch, but never link them.
+					if ((other.m_flags & RigidBody.e_islandFlag) == 0) {
+						island.add(other);
+						other.m_flags |= RigidBody.e_islandFlag;
+						other.setAwake(true);
+					}
+				}
+				else if (other.m_island != persistent) {
+					merge(persistent, other.m_island);
+				}
+
+				if (contact.isEnabled()) {
+					island.add(contact);
+					contact.m_flags |= Contact.ISLAND_FLAG;
+				}
+			}
+		}
+
+		for (int i = 0; i < island.m_contactCount; ++i) {
+			island.m_contacts[i].m_flags &= ~Contact.ISLAND_FLAG;
+		}
+	}
+
+	/**
+	 * Move all the bodies of the other island to the end of the island.
+	 */
+	private void merge(PersistentIsland island, PersistentIsland other) {
+		// An island that was already built this step would have merged this one.
+		assert (other.m_awakeIndex < 0 || other.m_awakeIndex > m_next);
+
+		for (RigidBody b = other.m_bodyList; b != null; b = b.m_islandNext) {
+			b.m_island = island;
+		}
+		island.m_bodyTail.m_islandNext = other.m_bodyList;
+		other.m_bodyList.m_islandPrev = island.m_bodyTail;
+		island.m_bodyTail = other.m_bodyTail;
+		island.m_bodyCount += other.m_bodyCount;
+		island.m_dirty = island.m_dirty || other.m_dirty;
+
+		dequeue(other);
+		other.clear();
+		--m_islandCount;
+	}
+
+	/**
+	 * Split an island into its connected parts. The island keeps the part of
+	 * its first body, the other parts become new islands.
+	 */
+	private void split(PersistentIsland island) {
+		if (m_members.length < island.m_bodyCount) {
+			m_members = new RigidBody[MathUtils.max(m_members.length * 2, island.m_bodyCount)];
+		}
+		int memberCount = 0;
+		for (RigidBody b = island.m_bodyList; b != null; b = b.m_islandNext) {
+			m_members[memberCount++] = b;
+		}
+		for (int i = 0; i < memberCount; ++i) {
+			m_members[i].m_island = null;
+		}
+		island.clear();
+
+		grow(island, m_members[0]);
+		for (int i = 1; i < memberCount; ++i) {
+			final RigidBody seed = m_members[i];
+			if (seed.m_island != null) {
+				continue;
+			}
+			final PersistentIsland part = new PersistentIsland();
+			++m_islandCount;
+			if (grow(part, seed)) {
+				queue(part);
+			}
+		}
+
+		for (int i = 0; i < memberCount; ++i) {
+			m_members[i] = null;
+		}
+		++m_splitCount;
+	}
+
+	/**
+	 * Add the seed and all the bodies without an island that it is connected to
+	 * through touching contacts to the island.
+	 *
+	 * @return true if any of the bodies is awake.
+	 */
+	private boolean grow(PersistentIsland island, RigidBody seed) {
+		boolean awake = false;
+		int stackCount = 0;
+		island.append(seed);
+		m_stack[stackCount++] = seed;
+
+		while (stackCount > 0) {
+			final RigidBody b = m_stack[--stackCount];
+			m_stack[stackCount] = null;
+			awake = awake || b.isAwake();
+
+			for (ContactEdge ce = b.m_contactList; ce != null; ce = ce.next) {
+				final Contact contact = ce.contact;
+				if (contact.isTouching() == false || contact.m_fixtureA.m_isSensor || contact.m_fixtureB.m_isSensor) {
+					continue;
+				}
+
+				final RigidBody other = ce.other;
+				if (other.getType() == RigidBodyType.STATIC || other.m_island != null) {
+					continue;
+				}
+
+				island.append(other);
+				if (stackCount == m_stack.length) {
+					final RigidBody[] old = m_stack;
+					m_stack = new RigidBody[old.length * 2];
+					System.arraycopy(old, 0, m_stack, 0, old.length);
+				}
+				m_stack[stackCount++] = other;
+			}
+		}
+		return awake;
+	}
+
+	private void addSolved(RigidBody body) {
+		if (m_solvedBodyCount == m_solvedBodies.length) {
+			final RigidBody[] old = m_solvedBodies;
+			m_solvedBodies = new RigidBody[old.length * 2];
+			System.arraycopy(old, 0, m_solvedBodies, 0, old.length);
+		}
+		m_solvedBodies[m_solvedBodyCount++] = body;
+	}
+
+	private void queue(PersistentIsland island) {
+		if (island.m_awakeIndex >= 0) {
+			return;
+		}
+		if (m_awakeCount == m_awakeIslands.length) {
+			final PersistentIsland[] old = m_awakeIslands;
+			m_awakeIslands = new PersistentIsland[old.length * 2];
+			System.arraycopy(old, 0, m_awakeIslands, 0, old.length);
+		}
+		island.m_awakeIndex = m_awakeCount;
+		m_awakeIslands[m_awakeCount++] = island;
+	}
+
+	private void dequeue(PersistentIsland island) {
+		final int index = island.m_awakeIndex;
+		if (index < 0) {
+			return;
+		}
+		final PersistentIsland last = m_awakeIslands[--m_awakeCount];
+		m_awakeIslands[index] = last;
+		last.m_awakeIndex = index;
+		m_awakeIslands[m_awakeCount] = null;
+		island.m_awakeIndex = -1;
+	}
+}
@@ -0,0 +1,237 @@
+package physics.dynamics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import physics.collision.ContactListener;
+import physics.dynamics.contacts.Contact;
+import physics.tools.Vec;
+
+/**
+ * This is an internal class. Collects every island found during a step and
+ * then solves them concurrently on a fork-join pool. Each chunk of islands is
+ * solved by its own {@link Island} (and so its own contact solver), so the
+ * result of every island does not depend on how the work was scheduled.
+ */
+class ParallelIslandSolver {
+
+	/**
+	 * Number of chunks handed to the fork-join pool per worker thread. More
+	 * chunks than workers gives the pool something to steal when island sizes
+	 * are uneven.
+	 */
+	public static final int CHUNKS_PER_WORKER = 4;
+
+	private final ForkJoinPool m_forkJoinPool;
+
+	private RigidBody[] m_bodies = new RigidBody[16];
+	private Contact[] m_contacts = new Contact[16];
+	private int m_bodyCount;
+	private int m_contactCount;
+
+	// island i owns bodies [m_bodyStarts[i], m_bodyStarts[i + 1])
+	private int[] m_bodyStarts = new int[16];
+	private int[] m_contactStarts = new int[16];
+	private int m_islandCount;
+
+	// chunk i owns islands [m_chunkStarts[i], m_chunkStarts[i + 1])
+	private int[] m_chunkStarts = new int[16];
+	private int m_chunkCount;
+	private Island[] m_islands = new Island[0];
+
+	private TimeStep m_step;
+	private Vec m_gravity;
+	private boolean m_allowSleep;
+	private ContactListener m_listener;
+
+	public ParallelIslandSolver(ForkJoinPool forkJoinPool) {
+		m_forkJoinPool = forkJoinPool;
+		clear();
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return m_forkJoinPool;
+	}
+
+	public void clear() {
+		m_bodyCount = 0;
+		m_contactCount = 0;
+		m_islandCount = 0;
+		m_bodyStarts[0] = 0;
+		m_contactStarts[0] = 0;
+	}
+
+	public int getIslandCount() {
+		return m_islandCount;
+	}
+
+	/**
+	 * Copy an island that was built by the DFS so it can be solved later.
+	 */
+	public void add(Island island) {
+		if (m_bodyCount + island.m_bodyCount > m_bodies.length) {
+			final RigidBody[] old = m_bodies;
+			m_bodies = new RigidBody[Math.max(old.length * 2, m_bodyCount + island.m_bodyCount)];
+			System.arraycopy(old, 0, m_bodies, 0, m_bodyCount);
+		}
+		if (m_contactCount + island.m_contactCount > m_contacts.length) {
+			final Contact[] old = m_contacts;
+			m_contacts = new Contact[Math.max(old.length * 2, m_contactCount + island.m_contactCount)];
+			System.arraycopy(old, 0, m_contacts, 0, m_contactCount);
+		}
+		if (m_islandCount + 2 > m_bodyStarts.length) {
+			final int[] oldBodies = m_bodyStarts;
+			final int[] oldContacts = m_contactStarts;
+			m_bodyStarts = new int[oldBodies.length * 2];
+			m_contactStarts = new int[oldContacts.length * 2];
+			System.arraycopy(oldBodies, 0, m_bodyStarts, 0, m_islandCount + 1);
+			System.arraycopy(oldContacts, 0, m_contactStarts, 0, m_islandCount + 1);
+		}
+
+		System.arraycopy(island.m_bodies, 0, m_bodies, m_bodyCount, island.m_bodyCount);
+		System.arraycopy(island.m_contacts, 0, m_contacts, m_contactCount, island.m_contactCount);
+		m_bodyCount += island.m_bodyCount;
+		m_contactCount += island.m_contactCount;
+
+		++m_islandCount;
+		m_bodyStarts[m_islandCount] = m_bodyCount;
+		m_contactStarts[m_islandCount] = m_contactCount;
+	}
+
+	/**
+	 * Solve all the collected islands and wait for them to finish.
+	 */
+	public void solve(TimeStep step, Vec gravity, boolean allowSleep, ContactListener listener) {
+		if (m_islandCount == 0) {
+			return;
+		}
+
+		m_step = step;
+		m_gravity = gravity;
+		m_allowSleep = allowSleep;
+		m_listener = listener;
+
+		buildChunks();
+
+		if (m_chunkCount == 1) {
+			solveChunk(0);
+		}
+		else {
+			m_forkJoinPool.invoke(new ChunkTask(0, m_chunkCount));
+		}
+
+		m_step = null;
+		m_gravity = null;
+		m_listener = null;
+
+		// Static bodies can sit in several islands, and each island may put them
+		// to sleep. Solving islands one by one wakes a static body again when the
+		// next island is built, so replay that here in island order.
+		for (int i = 0; i < m_islandCount; ++i) {
+			final int start = m_bodyStarts[i];
+			final int end = m_bodyStarts[i + 1];
+
+			// The seed body is never static, so it tells us if the island slept.
+			final boolean awake = m_bodies[start].isAwake();
+			for (int j = start; j < end; ++j) {
+				final RigidBody b = m_bodies[j];
+				if (b.getType() == RigidBodyType.STATIC) {
+					b.setAwake(awake);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the solve stage timings of the workers' islands to the profile.
+	 */
+	public void addProfile(StepProfile profile) {
+		for (int i = 0; i < m_islands.length; i++) {
+			m_islands[i].addProfile(profile);
+		}
+	}
+
+	/**
+	 * Split the islands into contiguous chunks of about the same amount of work.
+	 */
+	private void buildChunks() {
+		final int maxChunks = Math.min(m_islandCount, m_forkJoinPool.getParallelism() * CHUNKS_PER_WORKER);
+		if (m_chunkStarts.length < maxChunks + 1) {
+			m_chunkStarts = new int[maxChunks + 1];
+		}
+
+		final int totalWork = m_bodyCount + m_contactCount;
+		final int workPerChunk = (totalWork + maxChunks - 1) / maxChunks;
+
+		m_chunkCount = 0;
+		m_chunkStarts[0] = 0;
+		int work = 0;
+		for (int i = 0; i < m_islandCount; ++i) {
+			work += m_bodyStarts[i + 1] - m_bodyStarts[i] + m_contactStarts[i + 1] - m_contactStarts[i];
+			if (work >= workPerChunk && m_chunkCount < maxChunks - 1) {
+				m_chunkStarts[++m_chunkCount] = i + 1;
+				work = 0;
+			}
+		}
+		if (m_chunkStarts[m_chunkCount] < m_islandCount) {
+			m_chunkStarts[++m_chunkCount] = m_islandCount;
+		}
+
+		if (m_islands.length < m_chunkCount) {
+			final Island[] old = m_islands;
+			m_islands = new Island[m_chunkCount];
+			System.arraycopy(old, 0, m_islands, 0, old.length);
+			for (int i = old.length; i < m_islands.length; i++) {
+				m_islands[i] = new Island();
+			}
+		}
+	}
+
+	private void solveChunk(int chunk) {
+		final int first = m_chunkStarts[chunk];
+		final int last = m_chunkStarts[chunk + 1];
+
+		// Size the island for the largest island in this chunk.
+		int bodyCapacity = 0;
+		int contactCapacity = 0;
+		for (int i = first; i < last; ++i) {
+			bodyCapacity = Math.max(bodyCapacity, m_bodyStarts[i + 1] - m_bodyStarts[i]);
+			contactCapacity = Math.max(contactCapacity, m_contactStarts[i + 1] - m_contactStarts[i]);
+		}
+
+		final Island island = m_islands[chunk];
+		island.init(bodyCapacity, contactCapacity, 0, m_listener);
+
+		for (int i = first; i < last; ++i) {
+			// Copy straight into the island, the DFS already set the island indices.
+			island.clear();
+			island.m_bodyCount = m_bodyStarts[i + 1] - m_bodyStarts[i];
+			island.m_contactCount = m_contactStarts[i + 1] - m_contactStarts[i];
+			System.arraycopy(m_bodies, m_bodyStarts[i], island.m_bodies, 0, island.m_bodyCount);
+			System.arraycopy(m_contacts, m_contactStarts[i], island.m_contacts, 0, island.m_contactCount);
+			island.solve(m_step, m_gravity, m_allowSleep);
+		}
+	}
+
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int m_first;
+		private final int m_last;
+
+		ChunkTask(int first, int last) {
+			m_first = first;
+			m_last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_last - m_first == 1) {
+				solveChunk(m_first);
+				return;
+			}
+			final int mid = (m_first + m_last) >>> 1;
+			invokeAll(new ChunkTask(m_first, mid), new ChunkTask(mid, m_last));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package physics.dynamics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import physics.collision.Collision;
+import physics.collision.Distance;
+import physics.dataStorage.IWorldPool;
+import physics.dynamics.contacts.Contact;
+
+/**
+ * This is an internal class. Collects the contacts that need a new manifold
+ * and evaluates them concurrently on a fork-join pool. Each chunk of contacts
+ * has its own {@link Collision} and {@link Distance}, since the ones in the
+ * world pool are shared scratch state. The chunks' distance statistics are
+ * added to the world pool's distance after every update.
+ */
+class ParallelNarrowPhase {
+
+	/**
+	 * Number of chunks handed to the fork-join pool per worker thread.
+	 */
+	public static final int CHUNKS_PER_WORKER = 4;
+
+	/**
+	 * Below this many contacts per chunk the manifolds are evaluated on the
+	 * stepping thread.
+	 */
+	public static final int MIN_CONTACTS_PER_CHUNK = 64;
+
+	private final ForkJoinPool m_forkJoinPool;
+	private final IWorldPool m_pool;
+
+	private Contact[] m_contacts = new Contact[16];
+	private int m_contactCount;
+
+	// contacts found to be dead while collecting, destroyed in list order later
+	private Contact[] m_destroys = new Contact[16];
+	private int m_destroyCount;
+
+	private Collision[] m_collisions = new Collision[0];
+	private Distance[] m_distances = new Distance[0];
+	private int m_chunkCount;
+
+	public ParallelNarrowPhase(ForkJoinPool forkJoinPool, IWorldPool pool) {
+		m_forkJoinPool = forkJoinPool;
+		m_pool = pool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return m_forkJoinPool;
+	}
+
+	public void clear() {
+		m_contactCount = 0;
+		m_destroyCount = 0;
+	}
+
+	/**
+	 * Add a contact that needs a new manifold.
+	 */
+	public void add(Contact contact) {
+		if (m_contactCount == m_contacts.length) {
+			final Contact[] old = m_contacts;
+			m_contacts = new Contact[old.length * 2];
+			System.arraycopy(old, 0, m_contacts, 0, m_contactCount);
+		}
+		m_contacts[m_contactCount++] = contact;
+	}
+
+	/**
+	 * Add a contact that should be destroyed.
+	 */
+	public void addDestroy(Contact contact) {
+		if (m_destroyCount == m_destroys.length) {
+			final Contact[] old = m_destroys;
+			m_destroys = new Contact[old.length * 2];
+			System.arraycopy(old, 0, m_destroys, 0, m_destroyCount);
+		}
+		m_destroys[m_destroyCount++] = contact;
+	}
+
+	public int getDestroyCount() {
+		return m_destroyCount;
+	}
+
+	public Contact getDestroy(int index) {
+		assert (index < m_destroyCount);
+		return m_destroys[index];
+	}
+
+	public int getContactCount() {
+		return m_contactCount;
+	}
+
+	public Contact getContact(int index) {
+		assert (index < m_contactCount);
+		return m_contacts[index];
+	}
+
+	/**
+	 * Call {@link Contact#updateManifold(Collision)} on all the collected
+	 * contacts and wait for them to finish.
+	 */
+	public void updateManifolds() {
+		final int maxChunks = m_forkJoinPool.getParallelism() * CHUNKS_PER_WORKER;
+		m_chunkCount = Math.max(1, Math.min(maxChunks, m_contactCount / MIN_CONTACTS_PER_CHUNK));
+
+		if (m_collisions.length < m_chunkCount) {
+			final Collision[] old = m_collisions;
+			m_collisions = new Collision[m_chunkCount];
+			System.arraycopy(old, 0, m_collisions, 0, old.length);
+			final Distance[] oldDistances = m_distances;
+			m_distances = new Distance[m_chunkCount];
+			System.arraycopy(oldDistances, 0, m_distances, 0, oldDistances.length);
+			for (int i = old.length; i < m_chunkCount; i++) {
+				m_distances[i] = new Distance();
+				m_collisions[i] = new Collision(m_pool, m_distances[i]);
+			}
+		}
+
+		if (m_chunkCount == 1) {
+			updateChunk(0);
+		}
+		else {
+			m_forkJoinPool.invoke(new ChunkTask(0, m_chunkCount));
+		}
+
+		final Distance distance = m_pool.getDistance();
+		for (int i = 0; i < m_chunkCount; i++) {
+			distance.addStatistics(m_distances[i]);
+			m_distances[i].resetStatistics();
+		}
+	}
+
+	private void updateChunk(int chunk) {
+		final int first = (int) ((long) m_contactCount * chunk / m_chunkCount);
+		final int last = (int) ((long) m_contactCount * (chunk + 1) / m_chunkCount);
+		final Collision collision = m_collisions[chunk];
+		for (int i = first; i < last; ++i) {
+			m_contacts[i].updateManifold(collision);
+		}
+	}
+
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int m_first;
+		private final int m_last;
+
+		ChunkTask(int first, int last) {
+			m_first = first;
+			m_last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_last - m_first == 1) {
+				updateChunk(m_first);
+				return;
+			}
+			final int mid = (m_first + m_last) >>> 1;
+			invokeAll(new ChunkTask(m_first, mid), new ChunkTask(mid, m_last));
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package physics.dynamics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import physics.collision.Distance;
+import physics.collision.TimeOfImpact;
+import physics.collision.TimeOfImpact.TOIInput;
+import physics.collision.TimeOfImpact.TOIOutput;
+import physics.collision.TimeOfImpact.TOIOutputState;
+import physics.dataStorage.IWorldPool;
+import physics.dynamics.contacts.Contact;
+import physics.dynamics.contacts.ContactEdge;
+
+/**
+ * This is an internal class. Finds the first time of impact of many non-bullet
+ * bodies concurrently on a fork-join pool, before the world resolves them one
+ * by one. Each chunk of bodies has its own {@link TimeOfImpact} and
+ * {@link Distance}, since the ones in the world pool are shared scratch state.
+ *
+ * A non-bullet body only looks for impacts with static and kinematic bodies,
+ * which the TOI pass does not move, and resolving it only changes its own
+ * sweep and its own contacts. So the impact found here is the one the search
+ * would find right before the body is resolved.
+ */
+class ParallelTOISearch {
+
+	/**
+	 * Number of chunks handed to the fork-join pool per worker thread.
+	 */
+	public static final int CHUNKS_PER_WORKER = 4;
+
+	/**
+	 * Below this many bodies per chunk the search runs on the stepping thread.
+	 */
+	public static final int MIN_BODIES_PER_CHUNK = 16;
+
+	private final ForkJoinPool m_forkJoinPool;
+	private final IWorldPool m_pool;
+
+	private RigidBody[] m_bodies = new RigidBody[16];
+	private Contact[] m_contacts = new Contact[16];
+	private float[] m_tois = new float[16];
+	private int m_bodyCount;
+
+	private TimeOfImpact[] m_timeOfImpacts = new TimeOfImpact[0];
+	private Distance[] m_distances = new Distance[0];
+	private TOIInput[] m_inputs = new TOIInput[0];
+	private TOIOutput[] m_outputs = new TOIOutput[0];
+	private int m_chunkCount;
+
+	public ParallelTOISearch(ForkJoinPool forkJoinPool, IWorldPool pool) {
+		m_forkJoinPool = forkJoinPool;
+		m_pool = pool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return m_forkJoinPool;
+	}
+
+	public void clear() {
+		for (int i = 0; i < m_bodyCount; ++i) {
+			m_bodies[i] = null;
+			m_contacts[i] = null;
+		}
+		m_bodyCount = 0;
+	}
+
+	/**
+	 * Add a non-bullet body whose impact should be found.
+	 */
+	public void add(RigidBody body) {
+		assert (body.isBullet() == false);
+		if (m_bodyCount == m_bodies.length) {
+			final int length = m_bodies.length * 2;
+			final RigidBody[] old = m_bodies;
+			m_bodies = new RigidBody[length];
+			System.arraycopy(old, 0, m_bodies, 0, m_bodyCount);
+			m_contacts = new Contact[length];
+			m_tois = new float[length];
+		}
+		m_bodies[m_bodyCount++] = body;
+	}
+
+	public int getBodyCount() {
+		return m_bodyCount;
+	}
+
+	public RigidBody getBody(int index) {
+		assert (index < m_bodyCount);
+		return m_bodies[index];
+	}
+
+	/**
+	 * @return the contact of the first impact, or null if the body has none.
+	 */
+	public Contact getContact(int index) {
+		assert (index < m_bodyCount);
+		return m_contacts[index];
+	}
+
+	/**
+	 * @return the time of the first impact, 1 if the body has none.
+	 */
+	public float getTOI(int index) {
+		assert (index < m_bodyCount);
+		return m_tois[index];
+	}
+
+	/**
+	 * Find the first impact of all the added bodies and wait for them to
+	 * finish.
+	 */
+	public void search() {
+		final int maxChunks = m_forkJoinPool.getParallelism() * CHUNKS_PER_WORKER;
+		m_chunkCount = Math.max(1, Math.min(maxChunks, m_bodyCount / MIN_BODIES_PER_CHUNK));
+
+		if (m_timeOfImpacts.length < m_chunkCount) {
+			final int oldLength = m_timeOfImpacts.length;
+			final TimeOfImpact[] old = m_timeOfImpacts;
+			m_timeOfImpacts = new TimeOfImpact[m_chunkCount];
+			System.arraycopy(old, 0, m_timeOfImpacts, 0, oldLength);
+			final Distance[] oldDistances = m_distances;
+			m_distances = new Distance[m_chunkCount];
+			System.arraycopy(oldDistances, 0, m_distances, 0, oldLength);
+			final TOIInput[] oldInputs = m_inputs;
+			m_inputs = new TOIInput[m_chunkCount];
+			System.arraycopy(oldInputs, 0, m_inputs, 0, oldLength);
+			final TOIOutput[] oldOutputs = m_outputs;
+			m_outputs = new TOIOutput[m_chunkCount];
+			System.arraycopy(oldOutputs, 0, m_outputs, 0, oldLength);
+			for (int i = oldLength; i < m_chunkCount; i++) {
+				m_distances[i] = new Distance();
+				m_timeOfImpacts[i] = new TimeOfImpact(m_pool, m_distances[i]);
+				m_inputs[i] = new TOIInput();
+				m_outputs[i] = new TOIOutput();
+			}
+		}
+
+		if (m_chunkCount == 1) {
+			searchChunk(0);
+		}
+		else {
+			m_forkJoinPool.invoke(new ChunkTask(0, m_chunkCount));
+		}
+
+		final Distance distance = m_pool.getDistance();
+		final TimeOfImpact timeOfImpact = m_pool.getTimeOfImpact();
+		for (int i = 0; i < m_chunkCount; i++) {
+			distance.addStatistics(m_distances[i]);
+			m_distances[i].resetStatistics();
+			timeOfImpact.addStatistics(m_timeOfImpacts[i]);
+			m_timeOfImpacts[i].resetStatistics();
+		}
+	}
+
+	private void searchChunk(int chunk) {
+		final int first = (int) ((long) m_bodyCount * chunk / m_chunkCount);
+		final int last = (int) ((long) m_bodyCount * (chunk + 1) / m_chunkCount);
+		final TimeOfImpact timeOfImpact = m_timeOfImpacts[chunk];
+		final TOIInput input = m_inputs[chunk];
+		final TOIOutput output = m_outputs[chunk];
+		for (int i = first; i < last; ++i) {
+			m_contacts[i] = findMinTOI(m_bodies[i], timeOfImpact, input, output);
+			m_tois[i] = output.t;
+		}
+	}
+
+	/**
+	 * Find the contact of the body with the earliest time of impact. This only
+	 * reads the world, so it can run on any thread with its own time of impact,
+	 * input and output.
+	 *
+	 * @param output
+	 *            holds the time of impact afterwards, 1 if there is none
+	 * @return the contact of the impact, or null if there is none
+	 */
+	static Contact findMinTOI(RigidBody body, TimeOfImpact timeOfImpact, TOIInput toiInput,
+			TOIOutput output) {
+		Contact toiContact = null;
+		float toi = 1.0f;
+		boolean found;
+		int count;
+		int iter = 0;
+
+		boolean bullet = body.isBullet();
+
+		// Iterate until all contacts agree on the minimum TOI. We have
+		// to iterate because the TOI algorithm may skip some intermediate
+		// collisions when objects rotate through each other.
+		do {
+			count = 0;
+			found = false;
+			for (ContactEdge ce = body.m_contactList; ce != null; ce = ce.next) {
+				if (ce.contact == toiContact) {
+					continue;
+				}
+
+				RigidBody other = ce.other;
+				RigidBodyType type = other.getType();
+
+				// Only bullets perform TOI with dynamic bodies.
+				if (bullet == true) {
+					// Bullets only perform TOI with bodies that have their TOI resolved.
+					if ((other.m_flags & RigidBody.e_toiFlag) == 0) {
+						continue;
+					}
+
+					// No repeated hits on non-static bodies
+					if (type != RigidBodyType.STATIC && (ce.contact.m_flags & Contact.BULLET_HIT_FLAG) != 0) {
+						continue;
+					}
+				}
+				else if (type == RigidBodyType.DYNAMIC) {
+					continue;
+				}
+
+				// Check for a disabled contact.
+				Contact contact = ce.contact;
+				if (contact.isEnabled() == false) {
+					continue;
+				}
+
+				// Prevent infinite looping.
+				if (contact.m_toiCount > 10) {
+					continue;
+				}
+
+				Fixture fixtureA = contact.m_fixtureA;
+				Fixture fixtureB = contact.m_fixtureB;
+
+				// Cull sensors.
+				if (fixtureA.isSensor() || fixtureB.isSensor()) {
+					continue;
+				}
+
+				RigidBody bodyA = fixtureA.m_body;
+				RigidBody bodyB = fixtureB.m_body;
+
+				// Compute the time of impact in interval [0, minTOI]
+				toiInput.proxyA.set(fixtureA.getShape());
+				toiInput.proxyB.set(fixtureB.getShape());
+				toiInput.sweepA.set(bodyA.m_sweep);
+				toiInput.sweepB.set(bodyB.m_sweep);
+				toiInput.tMax = toi;
+
+				timeOfImpact.timeOfImpact(output, toiInput);
+
+				if (output.state == TOIOutputState.TOUCHING && output.t < toi) {
+					toiContact = contact;
+					toi = output.t;
+					found = true;
+				}
+
+				++count;
+			}
+
+			++iter;
+		}
+		while (found && count > 1 && iter < 50);
+
+		output.t = toi;
+		return toiContact;
+	}
+
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int m_first;
+		private final int m_last;
+
+		ChunkTask(int first, int last) {
+			m_first = first;
+			m_last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_last - m_first == 1) {
+				searchChunk(m_first);
+				return;
+			}
+			final int mid = (m_first + m_last) >>> 1;
+			invokeAll(new ChunkTask(m_first, mid), new ChunkTask(mid, m_last));
+		}
+	}
+}
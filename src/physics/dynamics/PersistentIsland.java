@@ -0,0 +1,63 @@
+package physics.dynamics;
+
+/**
+ * This is an internal class. A group of dynamic and kinematic bodies that the
+ * {@link IslandManager} keeps together from step to step. The bodies are
+ * linked through {@link RigidBody#m_islandNext}.
+ */
+class PersistentIsland {
+
+	RigidBody m_bodyList;
+	RigidBody m_bodyTail;
+	int m_bodyCount;
+
+	/**
+	 * Set when a touching contact between two of the bodies ended or a body
+	 * left, so the bodies may not be connected any more.
+	 */
+	boolean m_dirty;
+
+	/** index in the awake islands of the manager, or -1 */
+	int m_awakeIndex = -1;
+
+	void append(RigidBody body) {
+		body.m_island = this;
+		body.m_islandPrev = m_bodyTail;
+		body.m_islandNext = null;
+		if (m_bodyTail != null) {
+			m_bodyTail.m_islandNext = body;
+		}
+		else {
+			m_bodyList = body;
+		}
+		m_bodyTail = body;
+		++m_bodyCount;
+	}
+
+	void remove(RigidBody body) {
+		assert (body.m_island == this);
+		if (body.m_islandPrev != null) {
+			body.m_islandPrev.m_islandNext = body.m_islandNext;
+		}
+		else {
+			m_bodyList = body.m_islandNext;
+		}
+		if (body.m_islandNext != null) {
+			body.m_islandNext.m_islandPrev = body.m_islandPrev;
+		}
+		else {
+			m_bodyTail = body.m_islandPrev;
+		}
+		body.m_island = null;
+		body.m_islandPrev = null;
+		body.m_islandNext = null;
+		--m_bodyCount;
+	}
+
+	void clear() {
+		m_bodyList = null;
+		m_bodyTail = null;
+		m_bodyCount = 0;
+		m_dirty = false;
+	}
+}
@@ -1,9 +1,20 @@
 package physics.dynamics;
 
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import physics.collision.AABB;
+import physics.collision.CollisionStatistics;
 import physics.collision.ContactListener;
+import physics.collision.Distance;
+import physics.collision.TimeOfImpact;
 import physics.collision.TimeOfImpact.TOIInput;
 import physics.collision.TimeOfImpact.TOIOutput;
-import physics.collision.TimeOfImpact.TOIOutputState;
+import physics.collision.broadphase.BroadPhase;
+import physics.collision.broadphase.BroadPhaseStrategy;
+import physics.collision.broadphase.DynamicTree;
+import physics.collision.broadphase.SpatialHash;
+import physics.collision.broadphase.SweepAndPrune;
 
 import physics.collision.shapes.ShapeType;
 
@@ -17,6 +28,7 @@ import physics.dynamics.contacts.ContactRegister;
 import physics.dynamics.contacts.TOISolver;
 import physics.tools.Settings;
 import physics.tools.Sweep;
+import physics.tools.Transform;
 import physics.tools.Vec;
 
 
@@ -33,9 +45,21 @@ public class Pool {
 	public static final int NEW_FIXTURE = 0x0001;
 	public static final int LOCKED = 0x0002;
 	public static final int CLEAR_FORCES = 0x0004;
+	public static final int BULK_CREATE = 0x0008;
+
+	/** {@link #exportTransforms(float[], int, int)}: write x, y, cos, sin instead of x, y, angle */
+	public static final int EXPORT_COS_SIN = 0x0001;
+	/** {@link #exportTransforms(float[], int, int)}: only write awake dynamic and kinematic bodies */
+	public static final int EXPORT_AWAKE = 0x0002;
+	/** {@link #exportTransforms(float[], int, int)}: only write bodies that moved since the last dirty export */
+	public static final int EXPORT_DIRTY = 0x0004;
 
 	// statistics gathering
+	/** @deprecated never updated, see {@link #setStepProfiling(boolean)} */
+	@Deprecated
 	public int activeContacts = 0;
+	/** @deprecated never updated, see {@link #setStepProfiling(boolean)} */
+	@Deprecated
 	public int contactPoolCount = 0;
 	
 	protected int m_flags;
@@ -69,6 +93,30 @@ public class Pool {
 	 */
 	private boolean m_continuousPhysics;
 	
+	private boolean m_bodyStateStore;
+	
+	private ForkJoinPool m_contactSolverPool;
+	
+	/** the islands kept from step to step, or null to search for them every step */
+	IslandManager m_islandManager;
+	
+	/** the profile of the last step, or null when steps are not profiled */
+	private StepProfile m_profile;
+	private StepProfile.Listener m_profileListener;
+	private long m_profileTime;
+	
+	// the awake dynamic and kinematic bodies, kept with the islands
+	private RigidBody[] m_awakeBodies = new RigidBody[16];
+	private int m_awakeBodyCount;
+	
+	// the bodies given fixtures since beginBulkCreate, and what endBulkCreate
+	// hands the broad-phase
+	private RigidBody[] m_bulkBodies = new RigidBody[16];
+	private int m_bulkBodyCount;
+	private AABB[] m_bulkAABBs = new AABB[16];
+	private Object[] m_bulkFixtures = new Object[16];
+	private int[] m_bulkProxyIds = new int[16];
+	
 	private ContactRegister[][] contactStacks = new ContactRegister[ShapeType.TYPE_COUNT][ShapeType.TYPE_COUNT];
 	
 	public Pool(Vec gravity, boolean doSleep){
@@ -85,6 +133,36 @@ public class Pool {
 	 *            improve performance by not simulating inactive bodies.
 	 */
 	public Pool(Vec gravity, boolean doSleep, IWorldPool argPool) {
+		this(gravity, doSleep, argPool, new DynamicTree());
+	}
+	
+	/**
+	 * Construct a world object.
+	 * 
+	 * @param gravity
+	 *            the world gravity vector.
+	 * @param doSleep
+	 *            improve performance by not simulating inactive bodies.
+	 * @param strategy
+	 *            where the broad-phase stores fixture proxies, a
+	 *            {@link DynamicTree}, a {@link SpatialHash} or a
+	 *            {@link SweepAndPrune}.
+	 */
+	public Pool(Vec gravity, boolean doSleep, BroadPhaseStrategy strategy) {
+		this(gravity, doSleep, new DefaultWorldPool(WORLD_POOL_SIZE, WORLD_POOL_CONTAINER_SIZE), strategy);
+	}
+	
+	/**
+	 * Construct a world object.
+	 * 
+	 * @param gravity
+	 *            the world gravity vector.
+	 * @param doSleep
+	 *            improve performance by not simulating inactive bodies.
+	 * @param strategy
+	 *            the tree the broad-phase stores fixture proxies in.
+	 */
+	public Pool(Vec gravity, boolean doSleep, IWorldPool argPool, BroadPhaseStrategy strategy) {
 		pool = argPool;
 		
 		m_bodyList = null;
@@ -102,7 +180,7 @@ public class Pool {
 		
 		m_inv_dt0 = 0f;
 		
-		m_contactManager = new ContactManager(this);
+		m_contactManager = new ContactManager(this, new BroadPhase(strategy));
 		
 		initializeRegisters();
 	}
@@ -118,6 +196,248 @@ public class Pool {
 		return m_allowSleep;
 	}
 	
+	/**
+	 * Solve islands concurrently on the common fork-join pool. Every island is
+	 * still solved exactly as it is on the stepping thread, so the result does
+	 * not change.
+	 * 
+	 * @param flag
+	 */
+	public void setParallelIslands(boolean flag){
+		setParallelIslands(flag ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * Solve islands concurrently on the given fork-join pool, or one by one on
+	 * the stepping thread if the pool is null.
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setParallelIslands(ForkJoinPool forkJoinPool){
+		assert (isLocked() == false);
+		if (forkJoinPool == null) {
+			m_islandSolver = null;
+		}
+		else if (m_islandSolver == null || m_islandSolver.getForkJoinPool() != forkJoinPool) {
+			m_islandSolver = new ParallelIslandSolver(forkJoinPool);
+		}
+	}
+	
+	public boolean isParallelIslands(){
+		return m_islandSolver != null;
+	}
+	
+	/**
+	 * Evaluate contact manifolds concurrently on the common fork-join pool. The
+	 * contact listener is still called on the stepping thread, in the same order
+	 * as before.
+	 * 
+	 * @param flag
+	 */
+	public void setParallelNarrowPhase(boolean flag){
+		setParallelNarrowPhase(flag ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * Evaluate contact manifolds concurrently on the given fork-join pool, or on
+	 * the stepping thread if the pool is null.
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setParallelNarrowPhase(ForkJoinPool forkJoinPool){
+		assert (isLocked() == false);
+		final ParallelNarrowPhase narrowPhase = m_contactManager.m_narrowPhase;
+		if (forkJoinPool == null) {
+			m_contactManager.m_narrowPhase = null;
+		}
+		else if (narrowPhase == null || narrowPhase.getForkJoinPool() != forkJoinPool) {
+			m_contactManager.m_narrowPhase = new ParallelNarrowPhase(forkJoinPool, pool);
+		}
+	}
+	
+	public boolean isParallelNarrowPhase(){
+		return m_contactManager.m_narrowPhase != null;
+	}
+	
+	/**
+	 * Find the time of impact of the non-bullet bodies concurrently on the
+	 * common fork-join pool, before resolving them one by one on the stepping
+	 * thread. Bullets are still handled one by one afterwards. The result does
+	 * not change.
+	 * 
+	 * @param flag
+	 */
+	public void setParallelTOI(boolean flag){
+		setParallelTOI(flag ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * Find the time of impact of the non-bullet bodies concurrently on the given
+	 * fork-join pool, or one by one on the stepping thread if the pool is null.
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setParallelTOI(ForkJoinPool forkJoinPool){
+		assert (isLocked() == false);
+		if (forkJoinPool == null) {
+			m_toiSearch = null;
+		}
+		else if (m_toiSearch == null || m_toiSearch.getForkJoinPool() != forkJoinPool) {
+			m_toiSearch = new ParallelTOISearch(forkJoinPool, pool);
+		}
+	}
+	
+	public boolean isParallelTOI(){
+		return m_toiSearch != null;
+	}
+	
+	/**
+	 * Solve islands over packed arrays of body state instead of the bodies
+	 * themselves. The bodies are only read at the start of the island solve and
+	 * written once at the end.
+	 * 
+	 * @param flag
+	 */
+	public void setBodyStateStore(boolean flag){
+		m_bodyStateStore = flag;
+	}
+	
+	public boolean isBodyStateStore(){
+		return m_bodyStateStore;
+	}
+	
+	/**
+	 * Solve the contact constraints of large islands concurrently on the common
+	 * fork-join pool. The constraints of an island are colored so that no two
+	 * constraints of a color share a body, and the colors are solved one after
+	 * the other. This solves the constraints in a different order than the
+	 * serial solver, so the result changes, but it does not depend on the number
+	 * of threads. Islands are solved over packed body state while this is on.
+	 * 
+	 * @param flag
+	 */
+	public void setParallelContactSolver(boolean flag){
+		setParallelContactSolver(flag ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * Solve the contact constraints of large islands by color on the given
+	 * fork-join pool, or in order if the pool is null.
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setParallelContactSolver(ForkJoinPool forkJoinPool){
+		assert (isLocked() == false);
+		m_contactSolverPool = forkJoinPool;
+	}
+	
+	public boolean isParallelContactSolver(){
+		return m_contactSolverPool != null;
+	}
+	
+	/**
+	 * Keep the islands from step to step instead of searching the contact graph
+	 * for them every step. Only the awake islands are looked at, so a step costs
+	 * about the same no matter how many bodies are asleep. Islands merge when
+	 * their bodies start touching, and are only split again when part of one
+	 * could sleep. The bodies of an island are solved in a different order than
+	 * the search finds them, so the result changes.
+	 * 
+	 * The awake bodies and the contacts of awake bodies are kept in sets too, so
+	 * the narrow phase, the TOI pass and clearing the forces also skip the
+	 * sleeping ones. Unlike the contact list walk, a contact is only updated
+	 * when one of its bodies is awake and not static, and contacts woken during
+	 * the narrow phase are updated the next step.
+	 * 
+	 * @param flag
+	 */
+	public void setPersistentIslands(boolean flag){
+		assert (isLocked() == false);
+		if (flag && m_islandManager == null) {
+			m_islandManager = new IslandManager();
+			m_islandManager.rebuild(m_bodyList);
+			m_contactManager.setAwakeContacts(true);
+			for (RigidBody b = m_bodyList; b != null; b = b.m_next) {
+				// Only bodies solved in a step have their TOI flag cleared.
+				b.m_flags |= RigidBody.e_toiFlag;
+				if (b.getType() != RigidBodyType.STATIC && b.isAwake()) {
+					addAwakeBody(b);
+				}
+			}
+		}
+		else if (flag == false && m_islandManager != null) {
+			m_islandManager.clear(m_bodyList);
+			m_islandManager = null;
+			m_contactManager.setAwakeContacts(false);
+			for (int i = 0; i < m_awakeBodyCount; ++i) {
+				m_awakeBodies[i].m_awakeIndex = -1;
+				m_awakeBodies[i] = null;
+			}
+			m_awakeBodyCount = 0;
+		}
+	}
+	
+	public boolean isPersistentIslands(){
+		return m_islandManager != null;
+	}
+	
+	/**
+	 * @return the persistent islands, or null if they are not kept.
+	 */
+	public IslandManager getIslandManager(){
+		return m_islandManager;
+	}
+	
+	/**
+	 * @return the number of awake dynamic and kinematic bodies, or 0 if the
+	 *         islands are not kept.
+	 */
+	public int getAwakeBodyCount(){
+		return m_awakeBodyCount;
+	}
+	
+	/**
+	 * @return the number of contacts with an awake dynamic or kinematic body,
+	 *         or 0 if the islands are not kept.
+	 */
+	public int getAwakeContactCount(){
+		return m_contactManager.getAwakeContactCount();
+	}
+	
+	/**
+	 * Called when a body becomes awake and not static while the islands are
+	 * kept.
+	 */
+	void addAwakeBody(RigidBody body) {
+		if (body.m_awakeIndex >= 0) {
+			return;
+		}
+		if (m_awakeBodyCount == m_awakeBodies.length) {
+			final RigidBody[] old = m_awakeBodies;
+			m_awakeBodies = new RigidBody[old.length * 2];
+			System.arraycopy(old, 0, m_awakeBodies, 0, old.length);
+		}
+		body.m_awakeIndex = m_awakeBodyCount;
+		m_awakeBodies[m_awakeBodyCount++] = body;
+		m_contactManager.addAwakeContacts(body);
+	}
+	
+	/**
+	 * Called when a body falls asleep, is made static or is destroyed.
+	 */
+	void removeAwakeBody(RigidBody body) {
+		final int index = body.m_awakeIndex;
+		if (index < 0) {
+			return;
+		}
+		final RigidBody last = m_awakeBodies[--m_awakeBodyCount];
+		m_awakeBodies[index] = last;
+		last.m_awakeIndex = index;
+		m_awakeBodies[m_awakeBodyCount] = null;
+		body.m_awakeIndex = -1;
+		m_contactManager.removeAwakeContacts(body);
+	}
+	
 	private void addType(IDynamicStack<Contact> creator, ShapeType type1,
 			ShapeType type2) {
 		ContactRegister register = new ContactRegister();
@@ -178,6 +498,149 @@ public class Pool {
 		return pool;
 	}
 	
+	/**
+	 * Get the world body list. With the returned body, use RigidBody.getNext()
+	 * to get the next body in the world list. A null body indicates the end of
+	 * the list.
+	 * 
+	 * @return the head of the world body list.
+	 */
+	public RigidBody getBodyList() {
+		return m_bodyList;
+	}
+	
+	public int getBodyCount() {
+		return m_bodyCount;
+	}
+
+	/**
+	 * Write the origin transform of the bodies into an array in one pass, for
+	 * rendering or sending over the network. Each body has a slot at its place
+	 * in the body list: x, y, angle, or x, y, cos, sin with
+	 * {@link #EXPORT_COS_SIN}. {@link #EXPORT_AWAKE} and {@link #EXPORT_DIRTY}
+	 * skip bodies, leaving their slots as they are, so the same array can be
+	 * kept up to date from step to step. Creating or destroying bodies moves
+	 * the slots, so do a full export after that.
+	 *
+	 * A dirty body is one whose pose differs from the one its last dirty export
+	 * wrote, so only one caller should use {@link #EXPORT_DIRTY}.
+	 *
+	 * @param out
+	 *            needs room for {@link #getBodyCount()} slots after offset
+	 * @param offset
+	 *            where the first slot starts
+	 * @param flags
+	 *            EXPORT_ flags or 0
+	 * @return the number of bodies written
+	 */
+	public int exportTransforms(float[] out, int offset, int flags) {
+		final int stride = (flags & EXPORT_COS_SIN) != 0 ? 4 : 3;
+		assert (offset + m_bodyCount * stride <= out.length);
+		int count = 0;
+		int index = offset;
+		for (RigidBody b = m_bodyList; b != null; b = b.m_next, index += stride) {
+			if (skipExport(b, flags)) {
+				continue;
+			}
+			final Transform xf = b.m_xf;
+			out[index] = xf.position.x;
+			out[index + 1] = xf.position.y;
+			if (stride == 4) {
+				out[index + 2] = xf.R.col1.x;
+				out[index + 3] = xf.R.col1.y;
+			}
+			else {
+				out[index + 2] = b.m_sweep.a;
+			}
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Same as {@link #exportTransforms(float[], int, int)}, into a buffer such
+	 * as a direct one mapped to a vertex buffer. The slots start at the
+	 * position of the buffer, which does not change.
+	 *
+	 * @return the number of bodies written
+	 */
+	public int exportTransforms(FloatBuffer out, int flags) {
+		final int stride = (flags & EXPORT_COS_SIN) != 0 ? 4 : 3;
+		assert (m_bodyCount * stride <= out.remaining());
+		int count = 0;
+		int index = out.position();
+		for (RigidBody b = m_bodyList; b != null; b = b.m_next, index += stride) {
+			if (skipExport(b, flags)) {
+				continue;
+			}
+			final Transform xf = b.m_xf;
+			out.put(index, xf.position.x);
+			out.put(index + 1, xf.position.y);
+			if (stride == 4) {
+				out.put(index + 2, xf.R.col1.x);
+				out.put(index + 3, xf.R.col1.y);
+			}
+			else {
+				out.put(index + 2, b.m_sweep.a);
+			}
+			++count;
+		}
+		return count;
+	}
+
+	private boolean skipExport(RigidBody b, int flags) {
+		if ((flags & EXPORT_AWAKE) != 0
+				&& ((b.m_flags & RigidBody.e_awakeFlag) == 0 || b.m_type == RigidBodyType.STATIC)) {
+			return true;
+		}
+		if ((flags & EXPORT_DIRTY) != 0) {
+			final Vec p = b.m_xf.position;
+			final float a = b.m_sweep.a;
+			if (p.x == b.m_exportX && p.y == b.m_exportY && a == b.m_exportAngle) {
+				return true;
+			}
+			b.m_exportX = p.x;
+			b.m_exportY = p.y;
+			b.m_exportAngle = a;
+		}
+		return false;
+	}
+	
+	/**
+	 * Get the world contact list. With the returned contact, use
+	 * Contact.getNext() to get the next contact in the world list. A null
+	 * contact indicates the end of the list.
+	 * 
+	 * @return the head of the world contact list.
+	 */
+	public Contact getContactList() {
+		return m_contactManager.m_contactList;
+	}
+	
+	public int getContactCount() {
+		return m_contactManager.m_contactCount;
+	}
+	
+	/**
+	 * Get the distance and time of impact counters of this world. They are
+	 * kept per world, so worlds stepped on different threads do not share them.
+	 * 
+	 * @param out
+	 */
+	public void getStatistics(CollisionStatistics out) {
+		out.setZero();
+		out.add(pool.getDistance());
+		out.add(pool.getTimeOfImpact());
+	}
+	
+	/**
+	 * Set the distance and time of impact counters of this world back to zero.
+	 */
+	public void resetStatistics() {
+		pool.getDistance().resetStatistics();
+		pool.getTimeOfImpact().resetStatistics();
+	}
+	
 	/**
 	 * create a rigid body given a definition. No reference to the definition
 	 * is retained.
@@ -202,6 +665,14 @@ public class Pool {
 		m_bodyList = b;
 		++m_bodyCount;
 		
+		if (m_islandManager != null) {
+			m_islandManager.addBody(b);
+			b.m_flags |= RigidBody.e_toiFlag;
+			if (b.getType() != RigidBodyType.STATIC && b.isAwake()) {
+				addAwakeBody(b);
+			}
+		}
+		
 		return b;
 	}
 	
@@ -229,6 +700,9 @@ public class Pool {
 		}
 		body.m_contactList = null;
 		
+		// A body waiting in a bulk creation is skipped at the end.
+		body.m_flags &= ~RigidBody.e_bulkFlag;
+		
 		Fixture f = body.m_fixtureList;
 		while (f != null) {
 			Fixture f0 = f;
@@ -240,6 +714,11 @@ public class Pool {
 		body.m_fixtureList = null;
 		body.m_fixtureCount = 0;
 		
+		if (m_islandManager != null) {
+			m_islandManager.removeBody(body);
+			removeAwakeBody(body);
+		}
+		
 		// Remove world body list.
 		if (body.m_prev != null) {
 			body.m_prev.m_next = body.m_next;
@@ -258,6 +737,137 @@ public class Pool {
 	
 	
 	
+	/**
+	 * Start creating bodies in bulk, as when a level is loaded or reset. Until
+	 * {@link #endBulkCreate()}, fixtures created with
+	 * {@link RigidBody#createFixture(FixtureDef)} get no broad-phase proxy and
+	 * do not update the mass of their body. Queries and ray casts do not find
+	 * them yet, and the mass of a body with new fixtures is reset at the end,
+	 * so set it with {@link RigidBody#setMassData} after that.
+	 * 
+	 * @warning Do not step the world until {@link #endBulkCreate()}.
+	 */
+	public void beginBulkCreate() {
+		assert (isLocked() == false);
+		assert (isBulkCreating() == false);
+		m_flags |= BULK_CREATE;
+	}
+	
+	/**
+	 * Create the proxies and mass of the fixtures created since
+	 * {@link #beginBulkCreate()}. The proxies are handed to the broad-phase
+	 * all at once, static ones and then the rest, so an empty or small tree
+	 * is built in one pass instead of taking them in one at a time.
+	 */
+	public void endBulkCreate() {
+		assert (isBulkCreating() == true);
+		m_flags &= ~BULK_CREATE;
+		
+		BroadPhase broadPhase = m_contactManager.m_broadPhase;
+		for (int pass = 0; pass < 2; ++pass) {
+			final boolean isStatic = pass == 0;
+			int count = 0;
+			for (int i = 0; i < m_bulkBodyCount; ++i) {
+				final RigidBody b = m_bulkBodies[i];
+				if ((b.m_flags & RigidBody.e_bulkFlag) == 0 || (b.m_type == RigidBodyType.STATIC) != isStatic) {
+					continue;
+				}
+				b.m_flags &= ~RigidBody.e_bulkFlag;
+				b.resetMassData();
+				
+				if ((b.m_flags & RigidBody.e_activeFlag) == 0) {
+					continue;
+				}
+				for (Fixture f = b.m_fixtureList; f != null; f = f.m_next) {
+					if (f.m_proxyId != BroadPhase.NULL_PROXY) {
+						continue;
+					}
+					if (count == m_bulkAABBs.length) {
+						growBulkArrays();
+					}
+					f.m_shape.computeAABB(f.m_aabb, b.m_xf);
+					m_bulkAABBs[count] = f.m_aabb;
+					m_bulkFixtures[count] = f;
+					++count;
+				}
+			}
+			
+			broadPhase.createProxies(m_bulkAABBs, m_bulkFixtures, count, isStatic, m_bulkProxyIds);
+			for (int i = 0; i < count; ++i) {
+				((Fixture) m_bulkFixtures[i]).m_proxyId = m_bulkProxyIds[i];
+				m_bulkAABBs[i] = null;
+				m_bulkFixtures[i] = null;
+			}
+		}
+		
+		for (int i = 0; i < m_bulkBodyCount; ++i) {
+			m_bulkBodies[i] = null;
+		}
+		m_bulkBodyCount = 0;
+		
+		m_flags |= NEW_FIXTURE;
+	}
+	
+	/**
+	 * @return true between {@link #beginBulkCreate()} and
+	 *         {@link #endBulkCreate()}.
+	 */
+	public boolean isBulkCreating() {
+		return (m_flags & BULK_CREATE) == BULK_CREATE;
+	}
+	
+	/**
+	 * Create a body for each definition, with the fixture of the same index
+	 * unless it is null, in one bulk creation. See
+	 * {@link #beginBulkCreate()}.
+	 * 
+	 * @warning This function is locked during callbacks.
+	 * @param defs
+	 * @param fixtureDefs
+	 *            as many as defs, or null for bodies without a fixture.
+	 * @return the bodies, in the order of their definitions.
+	 */
+	public RigidBody[] createBodies(RigidBodyInfo[] defs, FixtureDef[] fixtureDefs) {
+		assert (fixtureDefs == null || fixtureDefs.length == defs.length);
+		final RigidBody[] bodies = new RigidBody[defs.length];
+		beginBulkCreate();
+		for (int i = 0; i < defs.length; ++i) {
+			bodies[i] = createBody(defs[i]);
+			if (fixtureDefs != null && fixtureDefs[i] != null) {
+				bodies[i].createFixture(fixtureDefs[i]);
+			}
+		}
+		endBulkCreate();
+		return bodies;
+	}
+	
+	/**
+	 * Remember a body given a fixture during a bulk creation.
+	 */
+	void addBulkBody(RigidBody body) {
+		if ((body.m_flags & RigidBody.e_bulkFlag) == RigidBody.e_bulkFlag) {
+			return;
+		}
+		if (m_bulkBodyCount == m_bulkBodies.length) {
+			final RigidBody[] old = m_bulkBodies;
+			m_bulkBodies = new RigidBody[old.length * 2];
+			System.arraycopy(old, 0, m_bulkBodies, 0, old.length);
+		}
+		body.m_flags |= RigidBody.e_bulkFlag;
+		m_bulkBodies[m_bulkBodyCount++] = body;
+	}
+	
+	private void growBulkArrays() {
+		final int length = m_bulkAABBs.length * 2;
+		final AABB[] oldAABBs = m_bulkAABBs;
+		m_bulkAABBs = new AABB[length];
+		System.arraycopy(oldAABBs, 0, m_bulkAABBs, 0, oldAABBs.length);
+		final Object[] oldFixtures = m_bulkFixtures;
+		m_bulkFixtures = new Object[length];
+		System.arraycopy(oldFixtures, 0, m_bulkFixtures, 0, oldFixtures.length);
+		m_bulkProxyIds = new int[length];
+	}
+	
 	// djm pooling
 	private final TimeStep step = new TimeStep();
 	
@@ -273,10 +883,17 @@ public class Pool {
 	 *            for the position constraint solver.
 	 */
 	public void step(float dt, int velocityIterations, int positionIterations) {
+		final StepProfile profile = m_profile;
+		if (profile != null) {
+			beginProfile(profile);
+		}
+		
+		assert (isBulkCreating() == false);
+		
 		// log.debug("Starting step");
 		// If new fixtures were added, we need to find the new contacts.
 		if ((m_flags & NEW_FIXTURE) == NEW_FIXTURE) {
-			m_contactManager.findNewContacts();
+			findNewContacts(profile);
 			m_flags &= ~NEW_FIXTURE;
 		}
 		
@@ -295,18 +912,33 @@ public class Pool {
 		step.dtRatio = m_inv_dt0 * dt;
 		
 		step.warmStarting = m_warmStarting;
+		step.bodyStateStore = m_bodyStateStore;
+		step.contactSolverPool = m_contactSolverPool;
+		step.profile = profile != null;
 		
 		// Update contacts. This is where some contacts are destroyed.
 		m_contactManager.collide();
+		if (profile != null) {
+			profile.collideNanos += lap();
+		}
 		
 		// Integrate velocities, solve velocity constraints, and integrate positions.
 		if (step.dt > 0.0f) {
 			solve(step);
+			if (profile != null) {
+				profile.solveNanos += lap();
+			}
+			
+			// Look for new contacts.
+			findNewContacts(profile);
 		}
 		
 		// Handle TOI events.
 		if (m_continuousPhysics && step.dt > 0.0f) {
 			solveTOI();
+			if (profile != null) {
+				profile.solveTOINanos += lap();
+			}
 		}
 		
 		if (step.dt > 0.0f) {
@@ -315,9 +947,100 @@ public class Pool {
 		
 		if ((m_flags & CLEAR_FORCES) == CLEAR_FORCES) {
 			clearForces();
+			if (profile != null) {
+				profile.clearForcesNanos += lap();
+			}
 		}
 		
 		m_flags &= ~LOCKED;
+		
+		if (profile != null) {
+			endProfile(profile);
+		}
+	}
+	
+	/**
+	 * Time the steps of this world and count what they did, see
+	 * {@link StepProfile}. Off by default.
+	 * 
+	 * @param flag
+	 */
+	public void setStepProfiling(boolean flag) {
+		if (flag && m_profile == null) {
+			m_profile = new StepProfile();
+		}
+		else if (flag == false) {
+			m_profile = null;
+		}
+	}
+	
+	public boolean isStepProfiling() {
+		return m_profile != null;
+	}
+	
+	/**
+	 * @return the profile of the last step, or null if steps are not profiled.
+	 */
+	public StepProfile getStepProfile() {
+		return m_profile;
+	}
+	
+	/**
+	 * Register a listener that gets the profile at the end of every step, while
+	 * steps are profiled.
+	 * 
+	 * @param listener
+	 */
+	public void setStepProfileListener(StepProfile.Listener listener) {
+		m_profileListener = listener;
+	}
+	
+	private void beginProfile(StepProfile profile) {
+		profile.setZero();
+		// The distance and time of impact counters are kept for the whole world.
+		final Distance distance = pool.getDistance();
+		final TimeOfImpact timeOfImpact = pool.getTimeOfImpact();
+		profile.gjkCalls = -distance.gjkCalls;
+		profile.gjkIters = -distance.gjkIters;
+		profile.toiCalls = -timeOfImpact.toiCalls;
+		profile.toiIters = -timeOfImpact.toiIters;
+		m_profileTime = System.nanoTime();
+		profile.stepNanos = -m_profileTime;
+	}
+	
+	private void endProfile(StepProfile profile) {
+		profile.stepNanos += System.nanoTime();
+		profile.contactCount = m_contactManager.m_contactCount;
+		final Distance distance = pool.getDistance();
+		final TimeOfImpact timeOfImpact = pool.getTimeOfImpact();
+		profile.gjkCalls += distance.gjkCalls;
+		profile.gjkIters += distance.gjkIters;
+		profile.toiCalls += timeOfImpact.toiCalls;
+		profile.toiIters += timeOfImpact.toiIters;
+		if (m_profileListener != null) {
+			m_profileListener.stepProfiled(this, profile);
+		}
+	}
+	
+	private long lap() {
+		final long time = System.nanoTime();
+		final long nanos = time - m_profileTime;
+		m_profileTime = time;
+		return nanos;
+	}
+	
+	private void findNewContacts(StepProfile profile) {
+		if (profile == null) {
+			m_contactManager.findNewContacts();
+			return;
+		}
+		
+		final BroadPhase broadPhase = m_contactManager.m_broadPhase;
+		lap();
+		profile.proxiesMoved += broadPhase.getMoveCount();
+		m_contactManager.findNewContacts();
+		profile.pairsFound += broadPhase.getPairCount();
+		profile.findNewContactsNanos += lap();
 	}
 	
 	/**
@@ -328,6 +1051,15 @@ public class Pool {
 	 * @see setAutoClearForces
 	 */
 	public void clearForces() {
+		if (m_islandManager != null) {
+			// Sleeping bodies have no forces.
+			for (int i = 0; i < m_awakeBodyCount; ++i) {
+				m_awakeBodies[i].m_force.setZero();
+				m_awakeBodies[i].m_torque = 0.0f;
+			}
+			return;
+		}
+		
 		for (RigidBody body = m_bodyList; body != null; body = body.getNext()) {
 			body.m_force.setZero();
 			body.m_torque = 0.0f;
@@ -346,11 +1078,70 @@ public class Pool {
 
 	private final Island island = new Island();
 	private RigidBody[] stack = new RigidBody[10];
+	private ParallelIslandSolver m_islandSolver = null;
+	private ParallelTOISearch m_toiSearch = null;
 	
 	private void solve(TimeStep step) {
 		// Size the island for the worst case.
 		island.init(m_bodyCount, m_contactManager.m_contactCount, m_jointCount, m_contactManager.m_contactListener);
 		
+		final ParallelIslandSolver islandSolver = m_islandSolver;
+		if (islandSolver != null) {
+			islandSolver.clear();
+		}
+		
+		final IslandManager islandManager = m_islandManager;
+		if (islandManager != null) {
+			// Only the awake islands are built, and their flags cleared next step.
+			islandManager.beginSolve();
+			while (islandManager.buildNext(island)) {
+				solveIsland(step, islandSolver);
+			}
+		}
+		else {
+			buildIslands(step, islandSolver);
+		}
+		
+		if (islandSolver != null) {
+			islandSolver.solve(step, m_gravity, m_allowSleep, m_contactManager.m_contactListener);
+		}
+		
+		if (step.profile) {
+			island.addProfile(m_profile);
+			if (islandSolver != null) {
+				islandSolver.addProfile(m_profile);
+			}
+		}
+		
+		// Synchronize fixtures, check for out of range bodies.
+		if (islandManager != null) {
+			final RigidBody[] bodies = islandManager.getSolvedBodies();
+			final int bodyCount = islandManager.getSolvedBodyCount();
+			for (int i = 0; i < bodyCount; ++i) {
+				bodies[i].synchronizeFixtures();
+			}
+		}
+		else {
+			for (RigidBody b = m_bodyList; b != null; b = b.getNext()) {
+				// If a body was not in an island then it did not move.
+				if ((b.m_flags & RigidBody.e_islandFlag) == 0) {
+					continue;
+				}
+				
+				if (b.getType() == RigidBodyType.STATIC) {
+					continue;
+				}
+				
+				// Update fixtures (for broad-phase).
+				b.synchronizeFixtures();
+			}
+		}
+	}
+	
+	/**
+	 * Search the contact graph for the awake islands and solve them.
+	 */
+	private void buildIslands(TimeStep step, ParallelIslandSolver islandSolver) {
 		// Clear all the island flags.
 		for (RigidBody b = m_bodyList; b != null; b = b.m_next) {
 			b.m_flags &= ~RigidBody.e_islandFlag;
@@ -358,7 +1149,7 @@ public class Pool {
 		for (Contact c = m_contactManager.m_contactList; c != null; c = c.m_next) {
 			c.m_flags &= ~Contact.ISLAND_FLAG;
 		}
-
+		
 		// Build and simulate all awake islands.
 		int stackSize = m_bodyCount;
 		if (stack.length < stackSize) {
@@ -438,38 +1229,43 @@ public class Pool {
 				
 			}
 			
+			solveIsland(step, islandSolver);
+		}
+	}
+	
+	private void solveIsland(TimeStep step, ParallelIslandSolver islandSolver) {
+		if (step.profile) {
+			m_profile.islandCount++;
+			m_profile.islandContactCount += island.m_contactCount;
+		}
+		
+		if (islandSolver != null) {
+			// Solved later, together with all the other islands.
+			islandSolver.add(island);
+		}
+		else {
 			island.solve(step, m_gravity, m_allowSleep);
-			
-			// Post solve cleanup.
-			for (int i = 0; i < island.m_bodyCount; ++i) {
-				// Allow static bodies to participate in other islands.
-				RigidBody b = island.m_bodies[i];
-				if (b.getType() == RigidBodyType.STATIC) {
-					b.m_flags &= ~RigidBody.e_islandFlag;
-				}
-			}
 		}
 		
-		// Synchronize fixtures, check for out of range bodies.
-		for (RigidBody b = m_bodyList; b != null; b = b.getNext()) {
-			// If a body was not in an island then it did not move.
-			if ((b.m_flags & RigidBody.e_islandFlag) == 0) {
-				continue;
-			}
-			
+		// Post solve cleanup.
+		for (int i = 0; i < island.m_bodyCount; ++i) {
+			// Allow static bodies to participate in other islands.
+			RigidBody b = island.m_bodies[i];
 			if (b.getType() == RigidBodyType.STATIC) {
-				continue;
+				b.m_flags &= ~RigidBody.e_islandFlag;
+			}
+			else if (step.profile) {
+				m_profile.awakeBodyCount++;
 			}
-			
-			// Update fixtures (for broad-phase).
-			b.synchronizeFixtures();
 		}
-		
-		// Look for new contacts.
-		m_contactManager.findNewContacts();
 	}
 	
 	private void solveTOI() {
+		if (m_islandManager != null) {
+			solveTOISolvedBodies();
+			return;
+		}
+		
 		// Prepare all contacts.
 		for (Contact c = m_contactManager.m_contactList; c != null; c = c.m_next) {
 			// Enable the contact
@@ -493,6 +1289,7 @@ public class Pool {
 		}
 		
 		// Collide non-bullets.
+		final ParallelTOISearch toiSearch = m_toiSearch;
 		for (RigidBody body = m_bodyList; body != null; body = body.m_next) {
 			if ((body.m_flags & RigidBody.e_toiFlag) == RigidBody.e_toiFlag) {
 				continue;
@@ -502,10 +1299,18 @@ public class Pool {
 				continue;
 			}
 			
+			if (toiSearch != null) {
+				toiSearch.add(body);
+				continue;
+			}
+			
 			solveTOI(body);
 			
 			body.m_flags |= RigidBody.e_toiFlag;
 		}
+		if (toiSearch != null) {
+			solveTOI(toiSearch);
+		}
 		
 		// Collide bullets.
 		for (RigidBody body = m_bodyList; body != null; body = body.m_next) {
@@ -523,6 +1328,60 @@ public class Pool {
 		}
 	}
 	
+	/**
+	 * Same as solveTOI, but only the bodies solved this step and their contacts
+	 * are looked at. All the other bodies keep their TOI flag set.
+	 */
+	private void solveTOISolvedBodies() {
+		final RigidBody[] bodies = m_islandManager.getSolvedBodies();
+		final int bodyCount = m_islandManager.getSolvedBodyCount();
+		
+		// Prepare the contacts, and clear the TOI flag of the dynamic bodies.
+		for (int i = 0; i < bodyCount; ++i) {
+			final RigidBody body = bodies[i];
+			for (ContactEdge ce = body.m_contactList; ce != null; ce = ce.next) {
+				ce.contact.m_flags |= Contact.ENABLED_FLAG;
+				ce.contact.m_toiCount = 0;
+			}
+			if (body.getType() == RigidBodyType.DYNAMIC) {
+				body.m_flags &= ~RigidBody.e_toiFlag;
+			}
+		}
+		
+		// Collide non-bullets.
+		final ParallelTOISearch toiSearch = m_toiSearch;
+		for (int i = 0; i < bodyCount; ++i) {
+			final RigidBody body = bodies[i];
+			if ((body.m_flags & RigidBody.e_toiFlag) == RigidBody.e_toiFlag || body.isBullet() == true) {
+				continue;
+			}
+			
+			if (toiSearch != null) {
+				toiSearch.add(body);
+				continue;
+			}
+			
+			solveTOI(body);
+			
+			body.m_flags |= RigidBody.e_toiFlag;
+		}
+		if (toiSearch != null) {
+			solveTOI(toiSearch);
+		}
+		
+		// Collide bullets.
+		for (int i = 0; i < bodyCount; ++i) {
+			final RigidBody body = bodies[i];
+			if ((body.m_flags & RigidBody.e_toiFlag) == RigidBody.e_toiFlag) {
+				continue;
+			}
+			
+			solveTOI(body);
+			
+			body.m_flags |= RigidBody.e_toiFlag;
+		}
+	}
+	
 	private final TOIInput toiInput = new TOIInput();
 	private final TOIOutput toiOutput = new TOIOutput();
 	private final Sweep backup = new Sweep();
@@ -531,97 +1390,42 @@ public class Pool {
 
 	private Contact[] m_contacts = new Contact[Settings.maxTOIContacts];
 	
+	/**
+	 * Find the impacts of the collected non-bullet bodies concurrently, then
+	 * resolve them in the order they were collected.
+	 */
+	private void solveTOI(ParallelTOISearch toiSearch) {
+		toiSearch.search();
+		for (int i = 0; i < toiSearch.getBodyCount(); ++i) {
+			final RigidBody body = toiSearch.getBody(i);
+			resolveTOI(body, toiSearch.getContact(i), toiSearch.getTOI(i));
+			body.m_flags |= RigidBody.e_toiFlag;
+		}
+		toiSearch.clear();
+	}
+	
 	private void solveTOI(RigidBody body) {
 		// Find the minimum contact.
-		Contact toiContact = null;
-		float toi = 1.0f;
-		RigidBody toiOther = null;
-		boolean found;
-		int count;
-		int iter = 0;
-		
-		boolean bullet = body.isBullet();
-		
-		// Iterate until all contacts agree on the minimum TOI. We have
-		// to iterate because the TOI algorithm may skip some intermediate
-		// collisions when objects rotate through each other.
-		do {
-			count = 0;
-			found = false;
-			for (ContactEdge ce = body.m_contactList; ce != null; ce = ce.next) {
-				if (ce.contact == toiContact) {
-					continue;
-				}
-				
-				RigidBody other = ce.other;
-				RigidBodyType type = other.getType();
-				
-				// Only bullets perform TOI with dynamic bodies.
-				if (bullet == true) {
-					// Bullets only perform TOI with bodies that have their TOI resolved.
-					if ((other.m_flags & RigidBody.e_toiFlag) == 0) {
-						continue;
-					}
-					
-					// No repeated hits on non-static bodies
-					if (type != RigidBodyType.STATIC && (ce.contact.m_flags & Contact.BULLET_HIT_FLAG) != 0) {
-						continue;
-					}
-				}
-				else if (type == RigidBodyType.DYNAMIC) {
-					continue;
-				}
-				
-				// Check for a disabled contact.
-				Contact contact = ce.contact;
-				if (contact.isEnabled() == false) {
-					continue;
-				}
-				
-				// Prevent infinite looping.
-				if (contact.m_toiCount > 10) {
-					continue;
-				}
-				
-				Fixture fixtureA = contact.m_fixtureA;
-				Fixture fixtureB = contact.m_fixtureB;
-				
-				// Cull sensors.
-				if (fixtureA.isSensor() || fixtureB.isSensor()) {
-					continue;
-				}
-				
-				RigidBody bodyA = fixtureA.m_body;
-				RigidBody bodyB = fixtureB.m_body;
-				
-				// Compute the time of impact in interval [0, minTOI]
-				toiInput.proxyA.set(fixtureA.getShape());
-				toiInput.proxyB.set(fixtureB.getShape());
-				toiInput.sweepA.set(bodyA.m_sweep);
-				toiInput.sweepB.set(bodyB.m_sweep);
-				toiInput.tMax = toi;
-				
-				pool.getTimeOfImpact().timeOfImpact(toiOutput, toiInput);
-				
-				if (toiOutput.state == TOIOutputState.TOUCHING && toiOutput.t < toi) {
-					toiContact = contact;
-					toi = toiOutput.t;
-					toiOther = other;
-					found = true;
-				}
-				
-				++count;
-			}
-			
-			++iter;
-		}
-		while (found && count > 1 && iter < 50);
-		
+		Contact toiContact = ParallelTOISearch.findMinTOI(body, pool.getTimeOfImpact(), toiInput, toiOutput);
+		resolveTOI(body, toiContact, toiOutput.t);
+	}
+	
+	/**
+	 * Advance the body to its time of impact with the contact and push it out
+	 * of the static and kinematic bodies it touches there.
+	 * 
+	 * @param toiContact
+	 *            the contact of the first impact, or null if there is none
+	 */
+	private void resolveTOI(RigidBody body, Contact toiContact, float toi) {
 		if (toiContact == null) {
 			body.advance(1.0f);
 			return;
 		}
 		
+		final RigidBody toiOther = toiContact.m_fixtureA.m_body == body ? toiContact.m_fixtureB.m_body
+				: toiContact.m_fixtureA.m_body;
+		
 		backup.set(body.m_sweep);
 		body.advance(toi);
 		toiContact.update(m_contactManager.m_contactListener);
@@ -638,7 +1442,7 @@ public class Pool {
 			m_contacts = new Contact[Settings.maxTOIContacts];
 		}
 		
-		count = 0;
+		int count = 0;
 		for (ContactEdge ce = body.m_contactList; ce != null && count < Settings.maxTOIContacts; ce = ce.next) {
 			RigidBody other = ce.other;
 			RigidBodyType type = other.getType();
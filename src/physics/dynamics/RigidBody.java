@@ -24,6 +24,8 @@ public class RigidBody {
 	public static final int e_fixedRotationFlag = 0x0010;
 	public static final int e_activeFlag = 0x0020;
 	public static final int e_toiFlag = 0x0040;
+	/** waiting for its proxies and mass, see {@link Pool#beginBulkCreate()} */
+	public static final int e_bulkFlag = 0x0080;
 
 	public RigidBodyType m_type;
 
@@ -31,6 +33,23 @@ public class RigidBody {
 
 	public int m_islandIndex;
 
+	/**
+	 * The persistent island of this body and its neighbours in it, when the
+	 * world keeps islands from step to step.
+	 */
+	PersistentIsland m_island;
+	RigidBody m_islandPrev;
+	RigidBody m_islandNext;
+
+	/** index in the awake bodies of the world when it keeps islands, or -1 */
+	int m_awakeIndex = -1;
+
+	/**
+	 * The pose written by the last dirty export of the world, NaN until the
+	 * first one.
+	 */
+	float m_exportX = Float.NaN, m_exportY = Float.NaN, m_exportAngle = Float.NaN;
+
 	/**
 	 * The body origin transform.
 	 */
@@ -161,7 +180,13 @@ public class RigidBody {
 		Fixture fixture = new Fixture();
 		fixture.create(this, def);
 
-		if ((m_flags & e_activeFlag) == e_activeFlag) {
+		// In a bulk creation the world creates the proxy and adjusts the mass
+		// at the end.
+		final boolean bulk = m_world.isBulkCreating();
+		if (bulk) {
+			m_world.addBulkBody(this);
+		}
+		else if ((m_flags & e_activeFlag) == e_activeFlag) {
 			BroadPhase broadPhase = m_world.m_contactManager.m_broadPhase;
 			fixture.createProxy(broadPhase, m_xf);
 		}
@@ -173,7 +198,7 @@ public class RigidBody {
 		fixture.m_body = this;
 
 		// Adjust mass properties if needed.
-		if (fixture.m_density > 0.0f) {
+		if (fixture.m_density > 0.0f && !bulk) {
 			resetMassData();
 		}
 
@@ -267,11 +292,11 @@ public class RigidBody {
 		}
 
 		if ((m_flags & e_activeFlag) == e_activeFlag) {
-			assert (fixture.m_proxy != null);
+			assert (fixture.m_proxyId != BroadPhase.NULL_PROXY || (m_flags & e_bulkFlag) == e_bulkFlag);
 			BroadPhase broadPhase = m_world.m_contactManager.m_broadPhase;
 			fixture.destroyProxy(broadPhase);
 		} else {
-			assert (fixture.m_proxy == null);
+			assert (fixture.m_proxyId == BroadPhase.NULL_PROXY);
 		}
 
 		fixture.destroy();
@@ -318,7 +343,7 @@ public class RigidBody {
 	}
 
 	/**
-	 * Get the body transform for the body's origin.
+	 * Get the body transform for the body's origin. Do not modify.
 	 * 
 	 * @return the world transform of the body's origin.
 	 */
@@ -326,6 +351,14 @@ public class RigidBody {
 		return m_xf;
 	}
 
+	/**
+	 * Copy the body transform for the body's origin, to keep it past the next
+	 * step.
+	 */
+	public final void getTransformToOut(Transform out) {
+		out.set(m_xf);
+	}
+
 	/**
 	 * Get the world body origin position. Do not modify.
 	 * 
@@ -682,6 +715,7 @@ public class RigidBody {
 
 	/**
 	 * Get the world coordinates of a point given the local coordinates.
+	 * Allocates a new vector, see {@link #getWorldPointToOut(Vec, Vec)}.
 	 * 
 	 * @param localPoint
 	 *            a point on the body measured relative the the body's origin.
@@ -693,12 +727,16 @@ public class RigidBody {
 		return v;
 	}
 
+	/**
+	 * Same as {@link #getWorldPoint(Vec)}, into out. out can be the argument.
+	 */
 	public final void getWorldPointToOut(Vec localPoint, Vec out) {
 		Transform.mulToOut(m_xf, localPoint, out);
 	}
 
 	/**
 	 * Get the world coordinates of a vector given the local coordinates.
+	 * Allocates a new vector, see {@link #getWorldVectorToOut(Vec, Vec)}.
 	 * 
 	 * @param localVector
 	 *            a vector fixed in the body.
@@ -710,12 +748,16 @@ public class RigidBody {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #getWorldVector(Vec)}, into out. out can be the argument.
+	 */
 	public final void getWorldVectorToOut(Vec localVector, Vec out) {
 		Mat22.mulToOut(m_xf.R, localVector, out);
 	}
 
 	/**
 	 * Gets a local point relative to the body's origin given a world point.
+	 * Allocates a new vector, see {@link #getLocalPointToOut(Vec, Vec)}.
 	 * 
 	 * @param a
 	 *            point in world coordinates.
@@ -727,12 +769,16 @@ public class RigidBody {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #getLocalPoint(Vec)}, into out. out can be the argument.
+	 */
 	public final void getLocalPointToOut(Vec worldPoint, Vec out) {
 		Transform.mulTransToOut(m_xf, worldPoint, out);
 	}
 
 	/**
 	 * Gets a local vector given a world vector.
+	 * Allocates a new vector, see {@link #getLocalVectorToOut(Vec, Vec)}.
 	 * 
 	 * @param a
 	 *            vector in world coordinates.
@@ -744,12 +790,16 @@ public class RigidBody {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #getLocalVector(Vec)}, into out. out can be the argument.
+	 */
 	public final void getLocalVectorToOut(Vec worldVector, Vec out) {
 		Mat22.mulTransToOut(m_xf.R, worldVector, out);
 	}
 
 	/**
 	 * Get the world linear velocity of a world point attached to this body.
+	 * Allocates a new vector, see {@link #getLinearVelocityFromWorldPointToOut(Vec, Vec)}.
 	 * 
 	 * @param a
 	 *            point in world coordinates.
@@ -761,6 +811,9 @@ public class RigidBody {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #getLinearVelocityFromWorldPoint(Vec)}, into out. out can be the argument.
+	 */
 	public final void getLinearVelocityFromWorldPointToOut(Vec worldPoint,
 			Vec out) {
 		out.set(worldPoint).subLocal(m_sweep.c);
@@ -770,6 +823,7 @@ public class RigidBody {
 
 	/**
 	 * Get the world velocity of a local point.
+	 * Allocates a new vector, see {@link #getLinearVelocityFromLocalPointToOut(Vec, Vec)}.
 	 * 
 	 * @param a
 	 *            point in local coordinates.
@@ -781,6 +835,9 @@ public class RigidBody {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #getLinearVelocityFromLocalPoint(Vec)}, into out. out can be the argument.
+	 */
 	public final void getLinearVelocityFromLocalPointToOut(Vec localPoint,
 			Vec out) {
 		getWorldPointToOut(localPoint, out);
@@ -821,10 +878,44 @@ public class RigidBody {
 			return;
 		}
 
+		final boolean wasStatic = m_type == RigidBodyType.STATIC;
 		m_type = type;
 
+		// Static bodies are not kept in islands.
+		if (m_world.m_islandManager != null) {
+			if (m_type == RigidBodyType.STATIC) {
+				m_world.m_islandManager.removeBody(this);
+				m_world.removeAwakeBody(this);
+			} else {
+				m_world.m_islandManager.addBody(this);
+				if (isAwake()) {
+					m_world.addAwakeBody(this);
+				}
+			}
+		}
+
 		resetMassData();
 
+		// Static proxies are kept in their own tree, so move the proxies over.
+		// The contacts are keyed by the old proxy ids, so destroy them and let
+		// the next time step create them again under the new ids.
+		if (wasStatic != (m_type == RigidBodyType.STATIC) && (m_flags & e_activeFlag) == e_activeFlag) {
+			ContactEdge ce = m_contactList;
+			while (ce != null) {
+				ContactEdge ce0 = ce;
+				ce = ce.next;
+				m_world.m_contactManager.destroy(ce0.contact);
+			}
+			m_contactList = null;
+
+			BroadPhase broadPhase = m_world.m_contactManager.m_broadPhase;
+			for (Fixture f = m_fixtureList; f != null; f = f.m_next) {
+				f.destroyProxy(broadPhase);
+				f.createProxy(broadPhase, m_xf);
+			}
+			m_world.m_flags |= Pool.NEW_FIXTURE;
+		}
+
 		if (m_type == RigidBodyType.STATIC) {
 			m_linearVelocity.setZero();
 			m_angularVelocity = 0.0f;
@@ -894,8 +985,17 @@ public class RigidBody {
 			if ((m_flags & e_awakeFlag) == 0) {
 				m_flags |= e_awakeFlag;
 				m_sleepTime = 0.0f;
+				if (m_island != null) {
+					m_world.m_islandManager.wake(this);
+				}
+				if (m_world.m_islandManager != null && m_type != RigidBodyType.STATIC) {
+					m_world.addAwakeBody(this);
+				}
 			}
 		} else {
+			if (m_awakeIndex >= 0) {
+				m_world.removeAwakeBody(this);
+			}
 			m_flags &= ~e_awakeFlag;
 			m_sleepTime = 0.0f;
 			m_linearVelocity.setZero();
@@ -943,6 +1043,10 @@ public class RigidBody {
 			}
 
 			// Contacts are created the next time step.
+
+			if (m_world.m_islandManager != null) {
+				m_world.m_islandManager.addBody(this);
+			}
 		} else {
 			m_flags &= ~e_activeFlag;
 
@@ -960,6 +1064,10 @@ public class RigidBody {
 				m_world.m_contactManager.destroy(ce0.contact);
 			}
 			m_contactList = null;
+
+			if (m_world.m_islandManager != null) {
+				m_world.m_islandManager.removeBody(this);
+			}
 		}
 	}
 
@@ -0,0 +1,148 @@
+package physics.dynamics;
+
+/**
+ * Timings and counts of one {@link Pool#step(float, int, int)}. Turn them on
+ * with {@link Pool#setStepProfiling(boolean)}; when off, a step only checks for
+ * a null profile once per stage.
+ *
+ * The solve stages of islands solved on a fork-join pool are summed over the
+ * workers, so they can add up to more than the solve time.
+ */
+public class StepProfile {
+
+	/**
+	 * Called at the end of every profiled step, on the stepping thread. The
+	 * profile is reused by the next step, copy it to keep it.
+	 */
+	public static interface Listener {
+		public void stepProfiled(Pool world, StepProfile profile);
+	}
+
+	/** the whole step */
+	public long stepNanos;
+
+	/** finding new contacts in the broad-phase, at the start and after the solve */
+	public long findNewContactsNanos;
+
+	/** updating the contacts in the narrow phase */
+	public long collideNanos;
+
+	/** building and solving the islands, including the three stages below */
+	public long solveNanos;
+
+	/** integrating velocities and positions, including loading and storing the state */
+	public long solveIntegrateNanos;
+
+	/** initializing, warm starting and solving the velocity constraints */
+	public long solveVelocityNanos;
+
+	/** solving the position constraints */
+	public long solvePositionNanos;
+
+	/** continuous collision */
+	public long solveTOINanos;
+
+	/** clearing the forces */
+	public long clearForcesNanos;
+
+	/** number of islands solved */
+	public int islandCount;
+
+	/** number of dynamic and kinematic bodies solved in the islands */
+	public int awakeBodyCount;
+
+	/** number of contacts solved in the islands */
+	public int islandContactCount;
+
+	/** number of contacts in the world at the end of the step */
+	public int contactCount;
+
+	/** number of proxies that moved in the broad-phase */
+	public int proxiesMoved;
+
+	/** number of distinct proxy pairs the broad-phase found, before filtering */
+	public int pairsFound;
+
+	/** number of gjk distance calls */
+	public int gjkCalls;
+
+	/** total gjk iterations */
+	public int gjkIters;
+
+	/** number of time of impact calls */
+	public int toiCalls;
+
+	/** total time of impact iterations */
+	public int toiIters;
+
+	public void setZero() {
+		stepNanos = 0;
+		findNewContactsNanos = 0;
+		collideNanos = 0;
+		solveNanos = 0;
+		solveIntegrateNanos = 0;
+		solveVelocityNanos = 0;
+		solvePositionNanos = 0;
+		solveTOINanos = 0;
+		clearForcesNanos = 0;
+		islandCount = 0;
+		awakeBodyCount = 0;
+		islandContactCount = 0;
+		contactCount = 0;
+		proxiesMoved = 0;
+		pairsFound = 0;
+		gjkCalls = 0;
+		gjkIters = 0;
+		toiCalls = 0;
+		toiIters = 0;
+	}
+
+	public StepProfile set(StepProfile other) {
+		stepNanos = other.stepNanos;
+		findNewContactsNanos = other.findNewContactsNanos;
+		collideNanos = other.collideNanos;
+		solveNanos = other.solveNanos;
+		solveIntegrateNanos = other.solveIntegrateNanos;
+		solveVelocityNanos = other.solveVelocityNanos;
+		solvePositionNanos = other.solvePositionNanos;
+		solveTOINanos = other.solveTOINanos;
+		clearForcesNanos = other.clearForcesNanos;
+		islandCount = other.islandCount;
+		awakeBodyCount = other.awakeBodyCount;
+		islandContactCount = other.islandContactCount;
+		contactCount = other.contactCount;
+		proxiesMoved = other.proxiesMoved;
+		pairsFound = other.pairsFound;
+		gjkCalls = other.gjkCalls;
+		gjkIters = other.gjkIters;
+		toiCalls = other.toiCalls;
+		toiIters = other.toiIters;
+		return this;
+	}
+
+	/**
+	 * Add another profile to this one, to sum up several steps.
+	 */
+	public StepProfile add(StepProfile other) {
+		stepNanos += other.stepNanos;
+		findNewContactsNanos += other.findNewContactsNanos;
+		collideNanos += other.collideNanos;
+		solveNanos += other.solveNanos;
+		solveIntegrateNanos += other.solveIntegrateNanos;
+		solveVelocityNanos += other.solveVelocityNanos;
+		solvePositionNanos += other.solvePositionNanos;
+		solveTOINanos += other.solveTOINanos;
+		clearForcesNanos += other.clearForcesNanos;
+		islandCount += other.islandCount;
+		awakeBodyCount += other.awakeBodyCount;
+		islandContactCount += other.islandContactCount;
+		contactCount += other.contactCount;
+		proxiesMoved += other.proxiesMoved;
+		pairsFound += other.pairsFound;
+		gjkCalls += other.gjkCalls;
+		gjkIters += other.gjkIters;
+		toiCalls += other.toiCalls;
+		toiIters += other.toiIters;
+		return this;
+	}
+}
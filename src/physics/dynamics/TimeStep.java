@@ -1,5 +1,7 @@
 package physics.dynamics;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * This is an internal structure.
  */
@@ -19,4 +21,13 @@ public class TimeStep {
 	public int positionIterations;
 	
 	public boolean warmStarting;
+	
+	/** solve islands over a {@link BodyStateStore} */
+	public boolean bodyStateStore;
+	
+	/** solve the constraints of large islands by color on this pool, or in order if null */
+	public ForkJoinPool contactSolverPool;
+	
+	/** time the solve stages of each island, see {@link Island#addProfile(StepProfile)} */
+	public boolean profile;
 }
@@ -0,0 +1,272 @@
+package physics.dynamics;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps many independent worlds, spreading them across the workers of a
+ * fork-join pool. Each world is stepped start to finish by one worker, and
+ * idle workers steal the worlds that are left, so uneven worlds still keep
+ * every core busy. A world is stepped until it has taken the maximum number of
+ * steps or the stop condition holds, whichever comes first.
+ *
+ * The runner and its {@link Results} can be reused for any number of batches.
+ * Nothing is allocated while stepping, so the only garbage comes from the
+ * worlds themselves. One runner runs one batch at a time.
+ */
+public class WorldBatchRunner {
+
+	/**
+	 * Creates the worlds of a batch. Called on the worker threads, so world
+	 * setup is spread across cores too, and must be safe to call concurrently.
+	 */
+	public static interface WorldFactory {
+		public Pool createWorld(int index);
+	}
+
+	/**
+	 * Decides when a world is done before reaching the maximum step count.
+	 * Called on the worker threads after every step.
+	 */
+	public static interface StopCondition {
+		public boolean isDone(Pool world, int steps);
+	}
+
+	/**
+	 * Stops once every body in the world is asleep. Static bodies never sleep,
+	 * so they are skipped.
+	 */
+	public static final StopCondition ALL_ASLEEP = new StopCondition() {
+		public boolean isDone(Pool world, int steps) {
+			for (RigidBody b = world.getBodyList(); b != null; b = b.getNext()) {
+				if (b.getType() != RigidBodyType.STATIC && b.isAwake()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * Per world step counts and wall times of the last batch.
+	 */
+	public static class Results {
+		private Pool[] m_worlds = new Pool[0];
+		private int[] m_steps = new int[0];
+		private long[] m_nanos = new long[0];
+		private boolean[] m_done = new boolean[0];
+		private int m_count;
+		private long m_wallNanos;
+
+		void reset(int count) {
+			if (m_worlds.length < count) {
+				m_worlds = new Pool[count];
+				m_steps = new int[count];
+				m_nanos = new long[count];
+				m_done = new boolean[count];
+			}
+			for (int i = count; i < m_count; i++) {
+				m_worlds[i] = null;
+			}
+			m_count = count;
+		}
+
+		public int getWorldCount() {
+			return m_count;
+		}
+
+		/**
+		 * @return the world stepped in the given slot, also for worlds made by a
+		 *         {@link WorldFactory}.
+		 */
+		public Pool getWorld(int index) {
+			assert (index < m_count);
+			return m_worlds[index];
+		}
+
+		public int getStepCount(int index) {
+			assert (index < m_count);
+			return m_steps[index];
+		}
+
+		/**
+		 * @return true if the world stopped because its stop condition held.
+		 */
+		public boolean isDone(int index) {
+			assert (index < m_count);
+			return m_done[index];
+		}
+
+		/**
+		 * @return nanoseconds spent creating (if made by a factory) and stepping
+		 *         the world.
+		 */
+		public long getWorldNanos(int index) {
+			assert (index < m_count);
+			return m_nanos[index];
+		}
+
+		/**
+		 * @return nanoseconds from the start to the end of the whole batch.
+		 */
+		public long getWallNanos() {
+			return m_wallNanos;
+		}
+
+		public long getTotalStepCount() {
+			long total = 0;
+			for (int i = 0; i < m_count; i++) {
+				total += m_steps[i];
+			}
+			return total;
+		}
+	}
+
+	private final ForkJoinPool m_forkJoinPool;
+
+	private float m_dt = 1.0f / 60.0f;
+	private int m_velocityIterations = 8;
+	private int m_positionIterations = 3;
+	private int m_maxSteps = 600;
+	private StopCondition m_stopCondition = null;
+
+	// state of the running batch
+	private Results m_results;
+	private WorldFactory m_factory;
+
+	/**
+	 * Runs batches on the common fork-join pool.
+	 */
+	public WorldBatchRunner() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public WorldBatchRunner(ForkJoinPool forkJoinPool) {
+		assert (forkJoinPool != null);
+		m_forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Set the arguments passed to {@link Pool#step(float, int, int)}. Defaults
+	 * to 1/60 s with 8 velocity and 3 position iterations.
+	 */
+	public void setTimeStep(float dt, int velocityIterations, int positionIterations) {
+		m_dt = dt;
+		m_velocityIterations = velocityIterations;
+		m_positionIterations = positionIterations;
+	}
+
+	public void setMaxSteps(int maxSteps) {
+		assert (maxSteps >= 0);
+		m_maxSteps = maxSteps;
+	}
+
+	public int getMaxSteps() {
+		return m_maxSteps;
+	}
+
+	/**
+	 * @param condition
+	 *            stops a world early, or null to always take the maximum number
+	 *            of steps.
+	 */
+	public void setStopCondition(StopCondition condition) {
+		m_stopCondition = condition;
+	}
+
+	public StopCondition getStopCondition() {
+		return m_stopCondition;
+	}
+
+	/**
+	 * Step the given worlds and wait for all of them to finish.
+	 *
+	 * @param worlds
+	 * @param out
+	 *            receives the results, in the iteration order of the collection.
+	 */
+	public void run(Collection<Pool> worlds, Results out) {
+		out.reset(worlds.size());
+		int i = 0;
+		for (Pool world : worlds) {
+			assert (world.isLocked() == false);
+			out.m_worlds[i++] = world;
+		}
+		runBatch(null, out);
+	}
+
+	/**
+	 * Create count worlds with the factory, step them, and wait for all of them
+	 * to finish. The worlds are kept in the results.
+	 *
+	 * @param factory
+	 * @param count
+	 * @param out
+	 */
+	public void run(WorldFactory factory, int count, Results out) {
+		out.reset(count);
+		for (int i = 0; i < count; i++) {
+			out.m_worlds[i] = null;
+		}
+		runBatch(factory, out);
+	}
+
+	private void runBatch(WorldFactory factory, Results out) {
+		m_factory = factory;
+		m_results = out;
+		final long start = System.nanoTime();
+		if (out.m_count > 0) {
+			m_forkJoinPool.invoke(new WorldTask(0, out.m_count));
+		}
+		out.m_wallNanos = System.nanoTime() - start;
+		m_factory = null;
+		m_results = null;
+	}
+
+	private void runWorld(int index) {
+		final Results results = m_results;
+		final StopCondition condition = m_stopCondition;
+		final long start = System.nanoTime();
+
+		Pool world = results.m_worlds[index];
+		if (world == null) {
+			world = m_factory.createWorld(index);
+			results.m_worlds[index] = world;
+		}
+
+		int steps = 0;
+		boolean done = condition != null && condition.isDone(world, 0);
+		while (!done && steps < m_maxSteps) {
+			world.step(m_dt, m_velocityIterations, m_positionIterations);
+			++steps;
+			done = condition != null && condition.isDone(world, steps);
+		}
+
+		results.m_steps[index] = steps;
+		results.m_done[index] = done;
+		results.m_nanos[index] = System.nanoTime() - start;
+	}
+
+	private class WorldTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int m_first;
+		private final int m_last;
+
+		WorldTask(int first, int last) {
+			m_first = first;
+			m_last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_last - m_first == 1) {
+				runWorld(m_first);
+				return;
+			}
+			final int mid = (m_first + m_last) >>> 1;
+			invokeAll(new WorldTask(m_first, mid), new WorldTask(mid, m_last));
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package physics.dynamics.contacts;
 
+import physics.collision.Collision;
 import physics.collision.Manifold;
 import physics.collision.shapes.Circle;
 import physics.collision.shapes.ShapeType;
@@ -23,8 +24,8 @@ public class CircleContact extends Contact {
 	}
 	
 	@Override
-	public void evaluate(Manifold manifold, Transform xfA, Transform xfB) {
-		pool.getCollision().collideCircles(manifold,
+	public void evaluate(Collision collision, Manifold manifold, Transform xfA, Transform xfB) {
+		collision.collideCircles(manifold,
 				(Circle)m_fixtureA.getShape(), xfA,
 				(Circle)m_fixtureB.getShape(), xfB);
 	}
@@ -1,5 +1,6 @@
 package physics.dynamics.contacts;
 
+import physics.collision.Collision;
 import physics.collision.ContactID;
 import physics.collision.ContactListener;
 import physics.collision.Manifold;
@@ -9,6 +10,7 @@ import physics.collision.shapes.Shape;
 import physics.dataStorage.IWorldPool;
 import physics.dynamics.RigidBody;
 import physics.dynamics.Fixture;
+import physics.dynamics.IslandManager;
 import physics.tools.Transform;
 
 /**
@@ -44,6 +46,13 @@ public abstract class Contact {
 	public Fixture m_fixtureA;
 	public Fixture m_fixtureB;
 
+	// Proxy pair key of the fixtures, see BroadPhase.pairKey. Kept here because
+	// the proxies can be destroyed before the contact is.
+	public long m_pairKey;
+
+	// index in the awake contacts of the contact manager, or -1
+	public int m_awakeIndex = -1;
+
 	public Manifold m_manifold;
 
 	public float m_toiCount;
@@ -165,8 +174,8 @@ public abstract class Contact {
 		return m_fixtureB;
 	}
 
-	public abstract void evaluate(Manifold manifold, Transform xfA,
-			Transform xfB);
+	public abstract void evaluate(Collision collision, Manifold manifold,
+			Transform xfA, Transform xfB);
 
 	/**
 	 * Flag this contact for filtering. Filtering will occur the next time step.
@@ -177,38 +186,49 @@ public abstract class Contact {
 
 	// djm pooling
 	private final Manifold oldManifold = new Manifold();
+	
+	// result of updateManifold, applied by finishUpdate
+	private boolean m_touching;
 
 	public void update(ContactListener listener) {
+		updateManifold(pool.getCollision());
+		finishUpdate(listener);
+	}
+
+	/**
+	 * First half of {@link #update(ContactListener)}. Evaluates the new manifold
+	 * and carries the warm starting impulses over, but does not change the flags,
+	 * wake the bodies or call the listener. Only touches this contact, so
+	 * contacts can be updated concurrently as long as each thread uses its own
+	 * collision.
+	 * 
+	 * @param collision
+	 */
+	public void updateManifold(Collision collision) {
 		
 		oldManifold.set(m_manifold);
 
-		// Re-enable this contact.
-		m_flags |= ENABLED_FLAG;
-
 		boolean touching = false;
-		boolean wasTouching = (m_flags & TOUCHING_FLAG) == TOUCHING_FLAG;
 
 		boolean sensorA = m_fixtureA.isSensor();
 		boolean sensorB = m_fixtureB.isSensor();
 		boolean sensor = sensorA || sensorB;
 
-		RigidBody bodyA = m_fixtureA.getBody();
-		RigidBody bodyB = m_fixtureB.getBody();
-		Transform xfA = bodyA.getTransform();
-		Transform xfB = bodyB.getTransform();
+		Transform xfA = m_fixtureA.getBody().getTransform();
+		Transform xfB = m_fixtureB.getBody().getTransform();
 		//log.debug("TransformA: "+xfA);
 		//log.debug("TransformB: "+xfB);
 		
 		if (sensor) {
 			Shape shapeA = m_fixtureA.getShape();
 			Shape shapeB = m_fixtureB.getShape();
-			touching = pool.getCollision().testOverlap(shapeA, shapeB,
+			touching = collision.testOverlap(shapeA, shapeB,
 					xfA, xfB);
 
 			// Sensors don't generate manifolds.
 			m_manifold.pointCount = 0;
 		} else {
-			evaluate(m_manifold, xfA, xfB);
+			evaluate(collision, m_manifold, xfA, xfB);
 			touching = m_manifold.pointCount > 0;
 
 			// Match old contact ids to new contact ids and copy the
@@ -229,10 +249,33 @@ public abstract class Contact {
 					}
 				}
 			}
+		}
+		
+		m_touching = touching;
+	}
+
+	/**
+	 * Second half of {@link #update(ContactListener)}. Must be called on the
+	 * stepping thread after {@link #updateManifold(Collision)}.
+	 * 
+	 * @param listener
+	 */
+	public void finishUpdate(ContactListener listener) {
+		
+		// Re-enable this contact.
+		m_flags |= ENABLED_FLAG;
+
+		boolean touching = m_touching;
+		boolean wasTouching = (m_flags & TOUCHING_FLAG) == TOUCHING_FLAG;
+
+		boolean sensor = m_fixtureA.isSensor() || m_fixtureB.isSensor();
 
-			if (touching != wasTouching) {
-				bodyA.setAwake(true);
-				bodyB.setAwake(true);
+		if (sensor == false && touching != wasTouching) {
+			m_fixtureA.getBody().setAwake(true);
+			m_fixtureB.getBody().setAwake(true);
+			
+			if (wasTouching) {
+				IslandManager.touchingEnded(m_fixtureA.getBody(), m_fixtureB.getBody());
 			}
 		}
 
@@ -21,6 +21,10 @@ public class ContactConstraint {
     public RigidBody bodyA;
     public RigidBody bodyB;
 
+    /** body slots in the island's BodyStateStore, when one is used */
+    public int indexA;
+    public int indexB;
+
     public ManifoldType type;
     
     public float radius;
@@ -53,6 +57,8 @@ public class ContactConstraint {
     	K.set(cp.K);
     	bodyA = cp.bodyA;
     	bodyB = cp.bodyB;
+    	indexA = cp.indexA;
+    	indexB = cp.indexB;
     	type = cp.type;
     	radius = cp.radius;
     	friction = cp.friction;
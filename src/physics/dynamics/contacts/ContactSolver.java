@@ -1,10 +1,13 @@
 package physics.dynamics.contacts;
 
 
+import java.util.concurrent.ForkJoinPool;
+
 import physics.collision.Manifold;
 import physics.collision.ManifoldPoint;
 import physics.collision.WorldManifold;
 import physics.collision.shapes.Shape;
+import physics.dynamics.BodyStateStore;
 import physics.dynamics.RigidBody;
 import physics.dynamics.Fixture;
 import physics.tools.Mat22;
@@ -25,6 +28,12 @@ public class ContactSolver {
 	 */
 	public static final float k_maxConditionNumber = 100.0f;
 	
+	/**
+	 * Islands with fewer constraints than this are not worth coloring, handing
+	 * out the colors costs more than solving them in order.
+	 */
+	public static final int MIN_COLORED_CONSTRAINTS = 256;
+	
 	public ContactConstraint[] m_constraints;
 	public int m_constraintCount;
 	
@@ -35,6 +44,8 @@ public class ContactSolver {
 		}
 	}
 	
+	private final ParallelContactSolver m_parallelSolver = new ParallelContactSolver();
+	
 	// djm pooling
 	private final WorldManifold worldManifold = new WorldManifold();
 	private final Vec tangent = new Vec();
@@ -42,6 +53,14 @@ public class ContactSolver {
 	private final Vec temp2 = new Vec();
 	
 	public final void init(Contact[] contacts, int contactCount, float impulseRatio){
+		init(contacts, contactCount, impulseRatio, null);
+	}
+	
+	/**
+	 * Initialize the constraints. If a body store is given, the body velocities are
+	 * read from it and each constraint records the store slots of its bodies.
+	 */
+	public final void init(Contact[] contacts, int contactCount, float impulseRatio, BodyStateStore store){
 
 		m_constraintCount = contactCount;
 		
@@ -73,16 +92,33 @@ public class ContactSolver {
 			final float friction = Settings.mixFriction(fixtureA.getFriction(), fixtureB.getFriction());
 			final float restitution = Settings.mixRestitution(fixtureA.getRestitution(), fixtureB.getRestitution());
 
-			final Vec vA = bodyA.m_linearVelocity;
-			final Vec vB = bodyB.m_linearVelocity;
-			final float wA = bodyA.m_angularVelocity;
-			final float wB = bodyB.m_angularVelocity;
+			final ContactConstraint cc = m_constraints[i];
+			final float vAx, vAy, wA, vBx, vBy, wB;
+			if (store != null){
+				final int iA = store.slotOf(bodyA);
+				final int iB = store.slotOf(bodyB);
+				cc.indexA = iA;
+				cc.indexB = iB;
+				vAx = store.velocity[2 * iA];
+				vAy = store.velocity[2 * iA + 1];
+				wA = store.angularVelocity[iA];
+				vBx = store.velocity[2 * iB];
+				vBy = store.velocity[2 * iB + 1];
+				wB = store.angularVelocity[iB];
+			}
+			else{
+				vAx = bodyA.m_linearVelocity.x;
+				vAy = bodyA.m_linearVelocity.y;
+				wA = bodyA.m_angularVelocity;
+				vBx = bodyB.m_linearVelocity.x;
+				vBy = bodyB.m_linearVelocity.y;
+				wB = bodyB.m_angularVelocity;
+			}
 
 			assert(manifold.pointCount > 0);
 
 			worldManifold.initialize(manifold, bodyA.m_xf, radiusA, bodyB.m_xf, radiusB);
 
-			final ContactConstraint cc = m_constraints[i];
 			cc.bodyA = bodyA;
 			cc.bodyB = bodyB;
 			cc.manifold = manifold;
@@ -140,8 +176,8 @@ public class ContactSolver {
 				temp2.x = -wA * ccp.rA.y;
 				temp2.y = wA * ccp.rA.x;
 				//temp1.addLocal(vB).subLocal(vA).subLocal(temp2);
-				temp1.x = -wB * ccp.rB.y + vB.x - vA.x - temp2.x;
-				temp1.y = wB * ccp.rB.x + vB.y - vA.y - temp2.y;
+				temp1.x = -wB * ccp.rB.y + vBx - vAx - temp2.x;
+				temp1.y = wB * ccp.rB.x + vBy - vAy - temp2.y;
 				final Vec a = cc.normal;
 
 				
@@ -226,6 +262,44 @@ public class ContactSolver {
 		}
 	}
 	
+	/**
+	 * Warm start using the velocities in the body store.
+	 */
+	public void warmStart(final BodyStateStore store){
+		final float[] velocity = store.velocity;
+		final float[] angularVelocity = store.angularVelocity;
+		
+		for (int i = 0; i < m_constraintCount; ++i){
+			final ContactConstraint c = m_constraints[i];
+
+			final int iA = c.indexA;
+			final int iB = c.indexB;
+			final float invMassA = store.invMass[iA];
+			final float invIA = store.invI[iA];
+			final float invMassB = store.invMass[iB];
+			final float invIB = store.invI[iB];
+			final float nx = c.normal.x;
+			final float ny = c.normal.y;
+			final float tx = 1.0f * ny;
+			final float ty = -1.0f * nx;
+
+			for (int j = 0; j < c.pointCount; ++j){
+				final ContactConstraintPoint ccp = c.points[j];
+				
+				final float Px = ccp.normalImpulse * nx + ccp.tangentImpulse * tx;
+				final float Py = ccp.normalImpulse * ny + ccp.tangentImpulse * ty;
+
+				angularVelocity[iA] -= invIA * (ccp.rA.x * Py - ccp.rA.y * Px);
+				velocity[2 * iA] -= Px * invMassA;
+				velocity[2 * iA + 1] -= Py * invMassA;
+				
+				angularVelocity[iB] += invIB * (ccp.rB.x * Py - ccp.rB.y * Px);
+				velocity[2 * iB] += Px * invMassB;
+				velocity[2 * iB + 1] += Py * invMassB;
+			}
+		}
+	}
+	
 	//djm pooling from above
 	private final Vec dv = new Vec();
 	private final Vec a = new Vec();
@@ -523,6 +597,189 @@ public class ContactSolver {
 		}
 	}
 	
+	/**
+	 * Same as {@link #solveVelocityConstraints()}, but over the velocities in the
+	 * body store.
+	 */
+	public final void solveVelocityConstraints(final BodyStateStore store){
+		solveVelocityConstraints(m_constraints, 0, m_constraintCount, store);
+	}
+	
+	/**
+	 * Solve the constraints [first, last) over the velocities in the body
+	 * store. This only touches those constraints and the slots of their bodies,
+	 * so ranges that share no slot can be solved at the same time.
+	 */
+	static void solveVelocityConstraints(final ContactConstraint[] constraints, int first, int last,
+			final BodyStateStore store){
+		final float[] velocity = store.velocity;
+		final float[] angularVelocity = store.angularVelocity;
+		
+		for (int i = first; i < last; ++i){
+			final ContactConstraint c = constraints[i];
+			final int iA = c.indexA;
+			final int iB = c.indexB;
+			float vAx = velocity[2 * iA];
+			float vAy = velocity[2 * iA + 1];
+			float wA = angularVelocity[iA];
+			float vBx = velocity[2 * iB];
+			float vBy = velocity[2 * iB + 1];
+			float wB = angularVelocity[iB];
+			final float invMassA = store.invMass[iA];
+			final float invIA = store.invI[iA];
+			final float invMassB = store.invMass[iB];
+			final float invIB = store.invI[iB];
+			final float nx = c.normal.x;
+			final float ny = c.normal.y;
+			final float tx = 1.0f * ny;
+			final float ty = -1.0f * nx;
+			final float friction = c.friction;
+
+			assert(c.pointCount == 1 || c.pointCount == 2);
+
+			// Solve tangent constraints
+			for (int j = 0; j < c.pointCount; ++j){
+				final ContactConstraintPoint ccp = c.points[j];
+				final Vec rA = ccp.rA;
+				final Vec rB = ccp.rB;
+
+				final float dvx = -wB * rB.y + vBx - vAx + wA * rA.y;
+				final float dvy = wB * rB.x + vBy - vAy - wA * rA.x;
+
+				// Compute tangent force
+				final float vt = dvx * tx + dvy * ty;
+				float lambda = ccp.tangentMass * (-vt);
+
+				// Clamp the accumulated force
+				final float maxFriction = friction * ccp.normalImpulse;
+				final float newImpulse = MathUtils.clamp(ccp.tangentImpulse + lambda, -maxFriction, maxFriction);
+				lambda = newImpulse - ccp.tangentImpulse;
+
+				// Apply contact impulse
+				final float Px = tx * lambda;
+				final float Py = ty * lambda;
+				
+				vAx -= Px * invMassA;
+				vAy -= Py * invMassA;
+				wA -= invIA * (rA.x * Py - rA.y * Px);
+
+				vBx += Px * invMassB;
+				vBy += Py * invMassB;
+				wB += invIB * (rB.x * Py - rB.y * Px);
+
+				ccp.tangentImpulse = newImpulse;
+			}
+
+			// Solve normal constraints
+			if (c.pointCount == 1){
+				final ContactConstraintPoint ccp = c.points[0];
+				final Vec rA = ccp.rA;
+				final Vec rB = ccp.rB;
+
+				final float dvx = -wB * rB.y + vBx - vAx + wA * rA.y;
+				final float dvy = wB * rB.x + vBy - vAy - wA * rA.x;
+
+				// Compute normal impulse
+				final float vn = dvx * nx + dvy * ny;
+				float lambda = -ccp.normalMass * (vn - ccp.velocityBias);
+
+				// Clamp the accumulated impulse
+				final float a = ccp.normalImpulse + lambda;
+				final float newImpulse = (a > 0.0f ? a : 0.0f);
+				lambda = newImpulse - ccp.normalImpulse;
+
+				// Apply contact impulse
+				final float Px = nx * lambda;
+				final float Py = ny * lambda;
+				
+				vAx -= Px * invMassA;
+				vAy -= Py * invMassA;
+				wA -= invIA * (rA.x * Py - rA.y * Px);
+
+				vBx += Px * invMassB;
+				vBy += Py * invMassB;
+				wB += invIB * (rB.x * Py - rB.y * Px);
+				
+				ccp.normalImpulse = newImpulse;
+			}
+			else{
+				final ContactConstraintPoint cp1 = c.points[0];
+				final ContactConstraintPoint cp2 = c.points[1];
+				final float ax = cp1.normalImpulse;
+				final float ay = cp2.normalImpulse;
+
+				assert(ax >= 0.0f && ay >= 0.0f);
+				// Relative velocity at contact
+				final float dv1x = -wB * cp1.rB.y + vBx - vAx + wA * cp1.rA.y;
+				final float dv1y = wB * cp1.rB.x + vBy - vAy - wA * cp1.rA.x;
+				final float dv2x = -wB * cp2.rB.y + vBx - vAx + wA * cp2.rA.y;
+				final float dv2y = wB * cp2.rB.x + vBy - vAy - wA * cp2.rA.x;
+				
+				// Compute normal velocity
+				final float vn1 = dv1x * nx + dv1y * ny;
+				final float vn2 = dv2x * nx + dv2y * ny;
+
+				float bx = vn1 - cp1.velocityBias;
+				float by = vn2 - cp2.velocityBias;
+				final Mat22 K = c.K;
+				bx -= K.col1.x * ax + K.col2.x * ay;
+				by -= K.col1.y * ax + K.col2.y * ay;
+
+				// Same four cases as the scalar block solver, see above.
+				boolean solved = true;
+				final Mat22 R = c.normalMass;
+				float xx = - R.col1.x * bx - R.col2.x * by;
+				float xy = - R.col1.y * bx - R.col2.y * by;
+				if (!(xx >= 0.0f && xy >= 0.0f)){
+					xx = - cp1.normalMass * bx;
+					xy = 0.0f;
+					final float vn2Case2 = K.col1.y * xx + by;
+					if (!(xx >= 0.0f && vn2Case2 >= 0.0f)){
+						xx = 0.0f;
+						xy = - cp2.normalMass * by;
+						final float vn1Case3 = K.col2.x * xy + bx;
+						if (!(xy >= 0.0f && vn1Case3 >= 0.0f)){
+							xx = 0.0f;
+							xy = 0.0f;
+							// No solution, give up. This is hit sometimes, but it doesn't seem to matter.
+							solved = bx >= 0.0f && by >= 0.0f;
+						}
+					}
+				}
+
+				if (solved){
+					// Resubstitute for the incremental impulse
+					final float dx = xx - ax;
+					final float dy = xy - ay;
+
+					final float P1x = nx * dx;
+					final float P1y = ny * dx;
+					final float P2x = nx * dy;
+					final float P2y = ny * dy;
+
+					vAx -= invMassA * (P1x + P2x);
+					vAy -= invMassA * (P1y + P2y);
+					vBx += invMassB * (P1x + P2x);
+					vBy += invMassB * (P1y + P2y);
+
+					wA -= invIA * ((cp1.rA.x * P1y - cp1.rA.y * P1x) + (cp2.rA.x * P2y - cp2.rA.y * P2x));
+					wB += invIB * ((cp1.rB.x * P1y - cp1.rB.y * P1x) + (cp2.rB.x * P2y - cp2.rB.y * P2x));
+
+					// Accumulate
+					cp1.normalImpulse = xx;
+					cp2.normalImpulse = xy;
+				}
+			}
+
+			velocity[2 * iA] = vAx;
+			velocity[2 * iA + 1] = vAy;
+			angularVelocity[iA] = wA;
+			velocity[2 * iB] = vBx;
+			velocity[2 * iB + 1] = vBy;
+			angularVelocity[iB] = wB;
+		}
+	}
+	
 	public void storeImpulses(){
 		for( int i=0; i<m_constraintCount; i++){
 			final ContactConstraint c = m_constraints[i];
@@ -600,67 +857,121 @@ public class ContactSolver {
 		// push the separation above -linearSlop.
 		return minSeparation >= -1.5f * Settings.linearSlop;
 	}
-}
+	
+	/**
+	 * Same as {@link #solvePositionConstraints(float)}, but over the positions in
+	 * the body store.
+	 */
+	public final boolean solvePositionConstraints(float baumgarte, final BodyStateStore store){
+		final float minSeparation = solvePositionConstraints(m_constraints, 0, m_constraintCount, baumgarte, store, psolver);
 
-class PositionSolverManifold{
+		return minSeparation >= -1.5f * Settings.linearSlop;
+	}
 	
-	public final Vec normal = new Vec();
-	public final Vec point = new Vec();
-	public float separation;
+	/**
+	 * Sort the constraints into colors, so that no two constraints of a color
+	 * share a dynamic or kinematic body. Call after init with the same body
+	 * store, before the colored solve methods.
+	 * 
+	 * @param store
+	 */
+	public final void colorConstraints(final BodyStateStore store){
+		m_parallelSolver.color(m_constraints, m_constraintCount, store.bodyCount);
+	}
 	
-	// djm pooling
-	private final Vec pointA = new Vec();
-	private final Vec pointB = new Vec();
-	private final Vec temp = new Vec();
-	private final Vec planePoint = new Vec();
-	private final Vec clipPoint = new Vec();
+	/**
+	 * @return the number of colors found by the last call to colorConstraints.
+	 */
+	public final int getColorCount(){
+		return m_parallelSolver.getColorCount();
+	}
+	
+	/**
+	 * Run the given number of {@link #solveVelocityConstraints(BodyStateStore)}
+	 * iterations, solving the constraints of each color concurrently on the
+	 * fork-join pool.
+	 */
+	public final void solveVelocityConstraints(final BodyStateStore store, int iterations, ForkJoinPool forkJoinPool){
+		m_parallelSolver.solveVelocityConstraints(store, iterations, forkJoinPool);
+	}
+	
+	/**
+	 * Run up to the given number of
+	 * {@link #solvePositionConstraints(float, BodyStateStore)} iterations, solving
+	 * the constraints of each color concurrently on the fork-join pool. Stops
+	 * early once the position errors are small.
+	 * 
+	 * @return true if the position errors are small.
+	 */
+	public final boolean solvePositionConstraints(float baumgarte, final BodyStateStore store, int iterations,
+			ForkJoinPool forkJoinPool){
+		return m_parallelSolver.solvePositionConstraints(baumgarte, store, iterations, forkJoinPool);
+	}
 	
-	public void initialize(ContactConstraint cc, int index){
-		assert(cc.pointCount > 0);
+	/**
+	 * Solve the constraints [first, last) over the positions in the body store,
+	 * like {@link #solveVelocityConstraints(ContactConstraint[], int, int, BodyStateStore)}.
+	 * 
+	 * @return the smallest separation of the constraint points, or zero.
+	 */
+	static float solvePositionConstraints(final ContactConstraint[] constraints, int first, int last,
+			float baumgarte, final BodyStateStore store, final PositionSolverManifold psm){
+		final float[] position = store.position;
+		final float[] angle = store.angle;
+		float minSeparation = 0.0f;
 		
-		switch (cc.type){
-			case CIRCLES:{
-				cc.bodyA.getWorldPointToOut(cc.localPoint, pointA);
-				cc.bodyB.getWorldPointToOut(cc.points[0].localPoint, pointB);
-				if (MathUtils.distanceSquared(pointA, pointB) > Settings.EPSILON * Settings.EPSILON){
-					normal.set(pointB).subLocal(pointA);
-					normal.normalize();
-				}
-				else{
-					normal.set(1.0f, 0.0f);
-				}
+		for (int i = first; i < last; ++i){
+			final ContactConstraint c = constraints[i];
+			final int iA = c.indexA;
+			final int iB = c.indexB;
 
-				point.set(pointA).addLocal(pointB).mulLocal(.5f);
-				temp.set(pointB).subLocal(pointA);
-				separation = Vec.dot(temp, normal) - cc.radius;
-				break;
-			}
-	
-			case FACE_A:{
-				cc.bodyA.getWorldVectorToOut(cc.localNormal, normal);
-				cc.bodyA.getWorldPointToOut(cc.localPoint, planePoint);
-
-				cc.bodyB.getWorldPointToOut(cc.points[index].localPoint, clipPoint);
-				temp.set(clipPoint).subLocal(planePoint);
-				separation = Vec.dot(temp, normal) - cc.radius;
-				point.set(clipPoint);
-				break;
+			final float invMassA = store.positionInvMass[iA];
+			final float invIA = store.positionInvI[iA];
+			final float invMassB = store.positionInvMass[iB];
+			final float invIB = store.positionInvI[iB];
+
+			// Solve normal constraints
+			for (int j = 0; j < c.pointCount; ++j){
+				psm.initialize(c, j, store);
+				final Vec normal = psm.normal;
+				
+				final Vec point = psm.point;
+				final float separation = psm.separation;
+
+				final float rAx = point.x - position[2 * iA];
+				final float rAy = point.y - position[2 * iA + 1];
+				final float rBx = point.x - position[2 * iB];
+				final float rBy = point.y - position[2 * iB + 1];
+
+				// Track max constraint error.
+				minSeparation = MathUtils.min(minSeparation, separation);
+
+				// Prevent large corrections and allow slop.
+				final float C = MathUtils.clamp(baumgarte * (separation + Settings.linearSlop), -Settings.maxLinearCorrection, 0.0f);
+
+				// Compute the effective mass.
+				final float rnA = rAx * normal.y - rAy * normal.x;
+				final float rnB = rBx * normal.y - rBy * normal.x;
+				final float K = invMassA + invMassB + invIA * rnA * rnA + invIB * rnB * rnB;
+				
+				// Compute normal impulse
+				final float impulse = K > 0.0f ? - C / K : 0.0f;
+
+				final float Px = normal.x * impulse;
+				final float Py = normal.y * impulse;
+
+				position[2 * iA] -= Px * invMassA;
+				position[2 * iA + 1] -= Py * invMassA;
+				angle[iA] -= invIA * (rAx * Py - rAy * Px);
+				store.synchronizeTransform(iA);
+
+				position[2 * iB] += Px * invMassB;
+				position[2 * iB + 1] += Py * invMassB;
+				angle[iB] += invIB * (rBx * Py - rBy * Px);
+				store.synchronizeTransform(iB);
 			}
-	
-			case FACE_B:
-				{
-					cc.bodyB.getWorldVectorToOut(cc.localNormal, normal);
-					cc.bodyB.getWorldPointToOut(cc.localPoint, planePoint);
-	
-					cc.bodyA.getWorldPointToOut(cc.points[index].localPoint, clipPoint);
-					temp.set(clipPoint).subLocal(planePoint);
-					separation = Vec.dot(temp, normal) - cc.radius;
-					point.set(clipPoint);
-	
-					// Ensure normal points from A to B
-					normal.negateLocal();
-				}
-			break;
 		}
+
+		return minSeparation;
 	}
 }
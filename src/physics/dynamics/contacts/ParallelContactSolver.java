@@ -0,0 +1,278 @@
+package physics.dynamics.contacts;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import physics.dynamics.BodyStateStore;
+import physics.tools.Settings;
+
+/**
+ * This is an internal class. Colors the contact constraints of one island so
+ * that no two constraints of a color share a body slot, and then solves the
+ * constraints of each color concurrently on a fork-join pool, one color after
+ * the other.
+ *
+ * All the iterations of a pass run inside one fork-join task, so the pool is
+ * entered once per pass and not once per color.
+ *
+ * Static bodies get their own store slot for every constraint, so only the
+ * island slots are tracked. Constraints keep their order within a color, and
+ * the constraints of a color do not depend on each other, so the result does
+ * not depend on how the work was scheduled.
+ */
+class ParallelContactSolver {
+
+	/**
+	 * Number of chunks handed to the fork-join pool per worker thread.
+	 */
+	public static final int CHUNKS_PER_WORKER = 4;
+
+	/**
+	 * Colors smaller than this are not split any further.
+	 */
+	public static final int MIN_CONSTRAINTS_PER_CHUNK = 32;
+
+	/**
+	 * Colors are tracked with one bit per color. Constraints that find no free
+	 * color go to a last overflow color, which is solved in order.
+	 */
+	public static final int MAX_COLORS = 64;
+
+	// colors used by the constraints of each island slot, one bit per color
+	private long[] m_slotColors = new long[16];
+	private int[] m_constraintColors = new int[16];
+
+	// the constraints in color order
+	private ContactConstraint[] m_sorted = new ContactConstraint[16];
+
+	// color i owns constraints [m_colorStarts[i], m_colorStarts[i + 1])
+	private final int[] m_colorStarts = new int[MAX_COLORS + 2];
+	private int m_colorCount;
+	private int m_overflowStart;
+
+	private PositionSolverManifold[] m_manifolds = new PositionSolverManifold[0];
+	private float[] m_minSeparations = new float[0];
+
+	private BodyStateStore m_store;
+	private boolean m_positions;
+	private float m_baumgarte;
+	private int m_iterations;
+	private int m_maxChunks;
+	private boolean m_positionsOkay;
+	private int m_first;
+	private int m_count;
+	private int m_chunkCount;
+
+	public int getColorCount() {
+		return m_colorCount;
+	}
+
+	/**
+	 * Color the constraints and sort them by color. The constraints must have
+	 * their store slots set. The solver's own array is left in order, the
+	 * constraint objects are reused every step and their memory stays in that
+	 * order.
+	 */
+	public void color(ContactConstraint[] constraints, int constraintCount, int bodyCount) {
+		if (m_slotColors.length < bodyCount) {
+			m_slotColors = new long[Math.max(m_slotColors.length * 2, bodyCount)];
+		}
+		if (m_constraintColors.length < constraintCount) {
+			final int length = Math.max(m_constraintColors.length * 2, constraintCount);
+			m_constraintColors = new int[length];
+			m_sorted = new ContactConstraint[length];
+		}
+		for (int i = 0; i < bodyCount; ++i) {
+			m_slotColors[i] = 0;
+		}
+
+		final int[] counts = m_colorStarts;
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = 0;
+		}
+
+		// Greedy coloring, in constraint order.
+		for (int i = 0; i < constraintCount; ++i) {
+			final ContactConstraint c = constraints[i];
+			final boolean sharedA = c.indexA < bodyCount;
+			final boolean sharedB = c.indexB < bodyCount;
+
+			long used = 0;
+			if (sharedA) {
+				used |= m_slotColors[c.indexA];
+			}
+			if (sharedB) {
+				used |= m_slotColors[c.indexB];
+			}
+
+			int color = MAX_COLORS;
+			if (used != -1L) {
+				color = Long.numberOfTrailingZeros(~used);
+				if (sharedA) {
+					m_slotColors[c.indexA] |= 1L << color;
+				}
+				if (sharedB) {
+					m_slotColors[c.indexB] |= 1L << color;
+				}
+			}
+			m_constraintColors[i] = color;
+			++counts[color + 1];
+		}
+
+		// Greedy coloring fills the colors from the bottom, so only the overflow
+		// color can follow an empty one.
+		m_colorCount = 0;
+		while (m_colorCount < MAX_COLORS && counts[m_colorCount + 1] > 0) {
+			++m_colorCount;
+		}
+		final boolean overflow = counts[MAX_COLORS + 1] > 0;
+
+		for (int i = 1; i <= MAX_COLORS + 1; ++i) {
+			counts[i] += counts[i - 1];
+		}
+		m_overflowStart = counts[MAX_COLORS];
+
+		for (int i = 0; i < constraintCount; ++i) {
+			m_sorted[counts[m_constraintColors[i]]++] = constraints[i];
+		}
+		for (int i = constraintCount; i < m_sorted.length && m_sorted[i] != null; ++i) {
+			m_sorted[i] = null;
+		}
+
+		// Shift the starts back after the scatter.
+		for (int i = MAX_COLORS + 1; i > 0; --i) {
+			counts[i] = counts[i - 1];
+		}
+		counts[0] = 0;
+		if (overflow) {
+			counts[m_colorCount] = m_overflowStart;
+			counts[++m_colorCount] = constraintCount;
+		}
+	}
+
+	public void solveVelocityConstraints(BodyStateStore store, int iterations, ForkJoinPool forkJoinPool) {
+		m_positions = false;
+		solve(store, iterations, forkJoinPool);
+	}
+
+	/**
+	 * Run up to the given number of position iterations, stopping early once the
+	 * position errors are small.
+	 * 
+	 * @return true if the position errors are small.
+	 */
+	public boolean solvePositionConstraints(float baumgarte, BodyStateStore store, int iterations,
+			ForkJoinPool forkJoinPool) {
+		m_positions = true;
+		m_baumgarte = baumgarte;
+		solve(store, iterations, forkJoinPool);
+		return m_positionsOkay;
+	}
+
+	private void solve(BodyStateStore store, int iterations, ForkJoinPool forkJoinPool) {
+		m_maxChunks = forkJoinPool.getParallelism() * CHUNKS_PER_WORKER;
+		if (m_manifolds.length < m_maxChunks) {
+			final PositionSolverManifold[] old = m_manifolds;
+			m_manifolds = new PositionSolverManifold[m_maxChunks];
+			System.arraycopy(old, 0, m_manifolds, 0, old.length);
+			for (int i = old.length; i < m_maxChunks; i++) {
+				m_manifolds[i] = new PositionSolverManifold();
+			}
+			m_minSeparations = new float[m_maxChunks];
+		}
+
+		m_store = store;
+		m_iterations = iterations;
+		m_positionsOkay = false;
+
+		forkJoinPool.invoke(new PassTask());
+
+		m_store = null;
+	}
+
+	/**
+	 * Run the iterations of the pass, on a worker thread of the pool.
+	 */
+	private void solvePass() {
+		for (int iteration = 0; iteration < m_iterations; ++iteration) {
+			float minSeparation = 0.0f;
+			for (int color = 0; color < m_colorCount; ++color) {
+				m_first = m_colorStarts[color];
+				m_count = m_colorStarts[color + 1] - m_first;
+				if (m_first >= m_overflowStart) {
+					m_chunkCount = 1;
+				}
+				else {
+					m_chunkCount = Math.min(m_maxChunks, (m_count + MIN_CONSTRAINTS_PER_CHUNK - 1)
+							/ MIN_CONSTRAINTS_PER_CHUNK);
+				}
+
+				if (m_chunkCount <= 1) {
+					m_chunkCount = 1;
+					solveChunk(0);
+				}
+				else {
+					new ChunkTask(0, m_chunkCount).invoke();
+				}
+
+				if (m_positions) {
+					for (int i = 0; i < m_chunkCount; ++i) {
+						minSeparation = Math.min(minSeparation, m_minSeparations[i]);
+					}
+				}
+			}
+
+			// Same test as ContactSolver.solvePositionConstraints.
+			if (m_positions && minSeparation >= -1.5f * Settings.linearSlop) {
+				m_positionsOkay = true;
+				break;
+			}
+		}
+	}
+
+	private void solveChunk(int chunk) {
+		final int first = m_first + (int) ((long) m_count * chunk / m_chunkCount);
+		final int last = m_first + (int) ((long) m_count * (chunk + 1) / m_chunkCount);
+		final ContactConstraint[] constraints = m_sorted;
+		final BodyStateStore store = m_store;
+
+		if (m_positions) {
+			m_minSeparations[chunk] = ContactSolver.solvePositionConstraints(constraints, first, last, m_baumgarte,
+					store, m_manifolds[chunk]);
+		}
+		else {
+			ContactSolver.solveVelocityConstraints(constraints, first, last, store);
+		}
+	}
+
+	private class PassTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute() {
+			solvePass();
+		}
+	}
+
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int m_firstChunk;
+		private final int m_lastChunk;
+
+		ChunkTask(int firstChunk, int lastChunk) {
+			m_firstChunk = firstChunk;
+			m_lastChunk = lastChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_lastChunk - m_firstChunk == 1) {
+				solveChunk(m_firstChunk);
+				return;
+			}
+			final int mid = (m_firstChunk + m_lastChunk) >>> 1;
+			invokeAll(new ChunkTask(m_firstChunk, mid), new ChunkTask(mid, m_lastChunk));
+		}
+	}
+}
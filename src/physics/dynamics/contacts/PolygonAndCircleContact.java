@@ -1,5 +1,6 @@
 package physics.dynamics.contacts;
 
+import physics.collision.Collision;
 import physics.collision.Manifold;
 import physics.collision.shapes.Circle;
 import physics.collision.shapes.Polygon;
@@ -24,8 +25,8 @@ public class PolygonAndCircleContact extends Contact {
 	}
 
 	@Override
-	public void evaluate(Manifold manifold, Transform xfA, Transform xfB) {
-		pool.getCollision().collidePolygonAndCircle(m_manifold,
+	public void evaluate(Collision collision, Manifold manifold, Transform xfA, Transform xfB) {
+		collision.collidePolygonAndCircle(m_manifold,
 				(Polygon)m_fixtureA.getShape(), xfA,
 				(Circle)m_fixtureB.getShape(), xfB);
 	}
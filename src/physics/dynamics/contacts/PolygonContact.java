@@ -1,6 +1,7 @@
 package physics.dynamics.contacts;
 
 
+import physics.collision.Collision;
 import physics.collision.Manifold;
 import physics.collision.shapes.Polygon;
 import physics.collision.shapes.ShapeType;
@@ -21,8 +22,8 @@ public class PolygonContact extends Contact {
 	}
 
 	@Override
-	public void evaluate(Manifold manifold, Transform xfA, Transform xfB) {
-		pool.getCollision().collidePolygons(m_manifold,
+	public void evaluate(Collision collision, Manifold manifold, Transform xfA, Transform xfB) {
+		collision.collidePolygons(m_manifold,
 				(Polygon)m_fixtureA.getShape(), xfA,
 				(Polygon)m_fixtureB.getShape(), xfB);
 	}
@@ -0,0 +1,137 @@
+package physics.dynamics.contacts;
+
+import physics.dynamics.BodyStateStore;
+import physics.tools.MathUtils;
+import physics.tools.Settings;
+import physics.tools.Vec;
+
+class PositionSolverManifold{
+	
+	public final Vec normal = new Vec();
+	public final Vec point = new Vec();
+	public float separation;
+	
+	// djm pooling
+	private final Vec pointA = new Vec();
+	private final Vec pointB = new Vec();
+	private final Vec temp = new Vec();
+	private final Vec planePoint = new Vec();
+	private final Vec clipPoint = new Vec();
+	
+	public void initialize(ContactConstraint cc, int index){
+		assert(cc.pointCount > 0);
+		
+		switch (cc.type){
+			case CIRCLES:{
+				cc.bodyA.getWorldPointToOut(cc.localPoint, pointA);
+				cc.bodyB.getWorldPointToOut(cc.points[0].localPoint, pointB);
+				if (MathUtils.distanceSquared(pointA, pointB) > Settings.EPSILON * Settings.EPSILON){
+					normal.set(pointB).subLocal(pointA);
+					normal.normalize();
+				}
+				else{
+					normal.set(1.0f, 0.0f);
+				}
+
+				point.set(pointA).addLocal(pointB).mulLocal(.5f);
+				temp.set(pointB).subLocal(pointA);
+				separation = Vec.dot(temp, normal) - cc.radius;
+				break;
+			}
+	
+			case FACE_A:{
+				cc.bodyA.getWorldVectorToOut(cc.localNormal, normal);
+				cc.bodyA.getWorldPointToOut(cc.localPoint, planePoint);
+
+				cc.bodyB.getWorldPointToOut(cc.points[index].localPoint, clipPoint);
+				temp.set(clipPoint).subLocal(planePoint);
+				separation = Vec.dot(temp, normal) - cc.radius;
+				point.set(clipPoint);
+				break;
+			}
+	
+			case FACE_B:
+				{
+					cc.bodyB.getWorldVectorToOut(cc.localNormal, normal);
+					cc.bodyB.getWorldPointToOut(cc.localPoint, planePoint);
+	
+					cc.bodyA.getWorldPointToOut(cc.points[index].localPoint, clipPoint);
+					temp.set(clipPoint).subLocal(planePoint);
+					separation = Vec.dot(temp, normal) - cc.radius;
+					point.set(clipPoint);
+	
+					// Ensure normal points from A to B
+					normal.negateLocal();
+				}
+			break;
+		}
+	}
+	
+	/**
+	 * Same as {@link #initialize(ContactConstraint, int)}, but with the body
+	 * transforms from the body store.
+	 */
+	public void initialize(ContactConstraint cc, int index, BodyStateStore store){
+		assert(cc.pointCount > 0);
+		
+		switch (cc.type){
+			case CIRCLES:{
+				getWorldPointToOut(store, cc.indexA, cc.localPoint, pointA);
+				getWorldPointToOut(store, cc.indexB, cc.points[0].localPoint, pointB);
+				if (MathUtils.distanceSquared(pointA, pointB) > Settings.EPSILON * Settings.EPSILON){
+					normal.set(pointB).subLocal(pointA);
+					normal.normalize();
+				}
+				else{
+					normal.set(1.0f, 0.0f);
+				}
+
+				point.set(pointA).addLocal(pointB).mulLocal(.5f);
+				temp.set(pointB).subLocal(pointA);
+				separation = Vec.dot(temp, normal) - cc.radius;
+				break;
+			}
+	
+			case FACE_A:{
+				getWorldVectorToOut(store, cc.indexA, cc.localNormal, normal);
+				getWorldPointToOut(store, cc.indexA, cc.localPoint, planePoint);
+
+				getWorldPointToOut(store, cc.indexB, cc.points[index].localPoint, clipPoint);
+				temp.set(clipPoint).subLocal(planePoint);
+				separation = Vec.dot(temp, normal) - cc.radius;
+				point.set(clipPoint);
+				break;
+			}
+	
+			case FACE_B:{
+				getWorldVectorToOut(store, cc.indexB, cc.localNormal, normal);
+				getWorldPointToOut(store, cc.indexB, cc.localPoint, planePoint);
+
+				getWorldPointToOut(store, cc.indexA, cc.points[index].localPoint, clipPoint);
+				temp.set(clipPoint).subLocal(planePoint);
+				separation = Vec.dot(temp, normal) - cc.radius;
+				point.set(clipPoint);
+
+				// Ensure normal points from A to B
+				normal.negateLocal();
+				break;
+			}
+		}
+	}
+	
+	private static void getWorldPointToOut(BodyStateStore store, int slot, Vec localPoint, Vec out){
+		final float c = store.rotation[2 * slot];
+		final float s = store.rotation[2 * slot + 1];
+		final float tempy = store.origin[2 * slot + 1] + s * localPoint.x + c * localPoint.y;
+		out.x = store.origin[2 * slot] + c * localPoint.x + (-s) * localPoint.y;
+		out.y = tempy;
+	}
+	
+	private static void getWorldVectorToOut(BodyStateStore store, int slot, Vec localVector, Vec out){
+		final float c = store.rotation[2 * slot];
+		final float s = store.rotation[2 * slot + 1];
+		final float tempy = s * localVector.x + c * localVector.y;
+		out.x = c * localVector.x + (-s) * localVector.y;
+		out.y = tempy;
+	}
+}
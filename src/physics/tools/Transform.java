@@ -64,6 +64,10 @@ public class Transform implements Serializable {
 		R.setIdentity();
 	}
 	
+	/**
+	 * Transform a point. Allocates a new vector, see
+	 * {@link #mulToOut(Transform, Vec, Vec)}.
+	 */
 	public final static Vec mul(final Transform T, final Vec v) {
 		return new Vec(T.position.x + T.R.col1.x * v.x + T.R.col2.x * v.y, T.position.y + T.R.col1.y * v.x
 				+ T.R.col2.y * v.y);
@@ -76,6 +80,10 @@ public class Transform implements Serializable {
 		out.y = tempy;
 	}
 	
+	/**
+	 * Transform a point by the inverse. Allocates a new vector, see
+	 * {@link #mulTransToOut(Transform, Vec, Vec)}.
+	 */
 	public final static Vec mulTrans(final Transform T, final Vec v) {
 		final float v1x = v.x - T.position.x;
 		final float v1y = v.y - T.position.y;
@@ -43,19 +43,28 @@ public class Vec implements Serializable {
 		return this;
 	}
 
-	/** Return the sum of this vector and another; does not alter either one. */
+	/**
+	 * Return the sum of this vector and another; does not alter either one.
+	 * Allocates a new vector, see {@link #addToOut(Vec, Vec, Vec)}.
+	 */
 	public final Vec add(Vec v) {
 		return new Vec(x + v.x, y + v.y);
 	}
 	
 	
 
-	/** Return the difference of this vector and another; does not alter either one. */
+	/**
+	 * Return the difference of this vector and another; does not alter either
+	 * one. Allocates a new vector, see {@link #subToOut(Vec, Vec, Vec)}.
+	 */
 	public final Vec sub(Vec v) {
 		return new Vec(x - v.x, y - v.y);
 	}
 
-	/** Return this vector multiplied by a scalar; does not alter this vector. */
+	/**
+	 * Return this vector multiplied by a scalar; does not alter this vector.
+	 * Allocates a new vector, see {@link #mulToOut(Vec, float, Vec)}.
+	 */
 	public final Vec mul(float a) {
 		return new Vec(x * a, y * a);
 	}
@@ -166,6 +175,24 @@ public class Vec implements Serializable {
 		out.y = MathUtils.abs( a.y);
 	}
 
+	/** Set out to a + b. out can be a or b. */
+	public final static void addToOut(Vec a, Vec b, Vec out) {
+		out.x = a.x + b.x;
+		out.y = a.y + b.y;
+	}
+
+	/** Set out to a - b. out can be a or b. */
+	public final static void subToOut(Vec a, Vec b, Vec out) {
+		out.x = a.x - b.x;
+		out.y = a.y - b.y;
+	}
+
+	/** Set out to a * s. out can be a. */
+	public final static void mulToOut(Vec a, float s, Vec out) {
+		out.x = a.x * s;
+		out.y = a.y * s;
+	}
+
 	public final static float dot(Vec a, Vec b) {
 		return a.x * b.x + a.y * b.y;
 	}